@@ -0,0 +1,95 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * <p>
+ * A fixed-size block of doubles that one thread can write while others read,
+ * without readers ever seeing a mix of old and new values.
+ * </p>
+ *
+ * <p>
+ * This is a sequence lock: the writer bumps a counter to odd before writing and
+ * back to even after. Readers copy the values out, then check that the counter
+ * was even and unchanged the whole time, retrying if not. Readers never block
+ * the writer, never allocate, and only retry if they race a write, which takes
+ * nanoseconds.
+ * </p>
+ *
+ * Writes are serialized with each other, so it's safe (though slower) to
+ * write from more than one thread.
+ */
+public class BeakSeqLock {
+    private final double[] m_values;
+    private volatile long m_sequence = 0;
+
+    /**
+     * Create a new sequence lock.
+     *
+     * @param size Number of values to hold.
+     */
+    public BeakSeqLock(int size) {
+        m_values = new double[size];
+    }
+
+    /**
+     * Get the number of values held.
+     *
+     * @return Number of values.
+     */
+    public int size() {
+        return m_values.length;
+    }
+
+    /**
+     * Replace every value.
+     *
+     * @param values The new values. Must be at least {@link #size()} long.
+     */
+    public synchronized void write(double[] values) {
+        long sequence = m_sequence;
+
+        m_sequence = sequence + 1;
+        VarHandle.storeStoreFence();
+
+        System.arraycopy(values, 0, m_values, 0, m_values.length);
+
+        // Volatile write, so the values are published before the counter is.
+        m_sequence = sequence + 2;
+    }
+
+    /**
+     * Copy out a consistent set of values.
+     *
+     * @param out Array to copy into. Must be at least {@link #size()} long.
+     */
+    public void read(double[] out) {
+        while (true) {
+            long before = m_sequence;
+
+            if ((before & 1) == 0) {
+                System.arraycopy(m_values, 0, out, 0, m_values.length);
+                VarHandle.loadLoadFence();
+
+                if (m_sequence == before) {
+                    return;
+                }
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Get the number of completed writes.
+     *
+     * @return Number of writes.
+     */
+    public long getWriteCount() {
+        return m_sequence / 2;
+    }
+}
@@ -0,0 +1,203 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+
+import edu.wpi.first.wpilibj.Threads;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * <p>
+ * Runs a control cycle as soon as new sensor data arrives, instead of on the
+ * FPGA clock.
+ * </p>
+ *
+ * <p>
+ * A dedicated thread waits on a set of Phoenix 6 signals, and runs the cycle
+ * right after all of them have updated. This means a cycle never reads data
+ * that's almost a full frame old, and never reads the same frame twice. The
+ * cycle runs at the rate of the slowest signal, so set all of them to the same
+ * update frequency.
+ * </p>
+ *
+ * <p>
+ * If the signals don't all arrive within the timeout, the cycle runs anyway on
+ * whatever data is available, so the mechanism is never left uncommanded. If
+ * the signals can't be waited on at all (none are given, or they're on
+ * different CAN buses), the loop falls back to running once per timeout.
+ * </p>
+ *
+ * While running, the loop claims its signals from the {@link CTRESignalStore},
+ * so only the loop thread refreshes them. Publish what the main loop needs from
+ * the cycle rather than reading them there.
+ */
+public class BeakSynchronousLoop implements AutoCloseable {
+    private final BaseStatusSignal[] m_signals;
+    private final double m_timeout;
+    private final Runnable m_cycle;
+
+    private Thread m_thread = null;
+    private volatile boolean m_running = false;
+
+    private volatile double m_period = 0.02;
+    private volatile double m_latency = 0.;
+    private volatile double m_cycleTime = 0.;
+    private volatile int m_timeouts = 0;
+
+    /**
+     * Create a new synchronous loop. Call {@link #start()} to begin running.
+     *
+     * @param signals        The signals to wait on.
+     * @param timeoutSeconds How long to wait for fresh data before running the
+     *                       cycle anyway. A couple of frame periods is
+     *                       reasonable.
+     * @param cycle          The control cycle to run.
+     */
+    public BeakSynchronousLoop(BaseStatusSignal[] signals, double timeoutSeconds, Runnable cycle) {
+        m_signals = signals;
+        m_timeout = timeoutSeconds;
+        m_cycle = cycle;
+    }
+
+    /**
+     * Start the loop thread.
+     */
+    public synchronized void start() {
+        if (m_thread != null) {
+            return;
+        }
+
+        m_running = true;
+        CTRESignalStore.claim(m_signals);
+
+        m_thread = new Thread(this::run, "Synchronous Loop");
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Stop the loop thread, waiting for the current cycle to finish.
+     */
+    public synchronized void stop() {
+        if (m_thread == null) {
+            return;
+        }
+
+        m_running = false;
+
+        try {
+            m_thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        m_thread = null;
+        CTRESignalStore.release(m_signals);
+    }
+
+    /**
+     * Determine whether or not the loop thread is running.
+     *
+     * @return Whether the loop is running.
+     */
+    public boolean isRunning() {
+        return m_running;
+    }
+
+    private void run() {
+        Threads.setCurrentThreadPriority(true, 1);
+
+        double lastStart = Timer.getFPGATimestamp();
+
+        while (m_running) {
+            StatusCode status = m_signals.length == 0 ? StatusCode.InvalidNetwork
+                    : BaseStatusSignal.waitForAll(m_timeout, m_signals);
+
+            if (status == StatusCode.RxTimeout) {
+                m_timeouts++;
+            } else if (!status.isOK()) {
+                // Nothing to wait on, so run at a fixed rate.
+                m_timeouts++;
+                Timer.delay(m_timeout);
+                BaseStatusSignal.refreshAll(m_signals);
+            }
+
+            double start = Timer.getFPGATimestamp();
+            m_period = start - lastStart;
+            lastStart = start;
+
+            CTRESignalStore.notifyRefreshed();
+            m_cycle.run();
+
+            m_cycleTime = Timer.getFPGATimestamp() - start;
+
+            // By now, every command from this cycle has been sent, so the age of
+            // the oldest sample is the sensor-to-actuator latency.
+            double latency = 0.;
+            for (BaseStatusSignal signal : m_signals) {
+                latency = Math.max(latency, signal.getTimestamp().getLatency());
+            }
+            m_latency = latency;
+        }
+    }
+
+    /**
+     * Get the measured time between the starts of the last two cycles.
+     *
+     * @return Loop period, in seconds.
+     */
+    public double getPeriod() {
+        return m_period;
+    }
+
+    /**
+     * Get the age of the oldest sample used by the last cycle, measured once
+     * that cycle's commands were sent.
+     *
+     * @return Sensor-to-actuator latency, in seconds.
+     */
+    public double getLatency() {
+        return m_latency;
+    }
+
+    /**
+     * Get how long the last cycle took to run.
+     *
+     * @return Cycle time, in seconds.
+     */
+    public double getCycleTime() {
+        return m_cycleTime;
+    }
+
+    /**
+     * Get the number of cycles that ran without fresh data for every signal.
+     *
+     * @return Number of timeouts.
+     */
+    public int getTimeoutCount() {
+        return m_timeouts;
+    }
+
+    /**
+     * Publish loop timing to the dashboard. Call this from the main loop, not
+     * from the cycle.
+     *
+     * @param name Name to publish under.
+     */
+    public void publish(String name) {
+        SmartDashboard.putNumber(name + "/Period (ms)", m_period * 1000.);
+        SmartDashboard.putNumber(name + "/Latency (ms)", m_latency * 1000.);
+        SmartDashboard.putNumber(name + "/Cycle Time (ms)", m_cycleTime * 1000.);
+        SmartDashboard.putNumber(name + "/Timeouts", m_timeouts);
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+}
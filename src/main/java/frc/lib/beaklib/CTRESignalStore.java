@@ -5,21 +5,145 @@
 package frc.lib.beaklib;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import com.ctre.phoenix6.BaseStatusSignal;
 
-/** Signal store that updates CTRE signals periodically. */
+/**
+ * <p>
+ * Signal store that updates CTRE signals periodically.
+ * </p>
+ *
+ * <p>
+ * A signal is only ever refreshed by one thread. Signals that a high-rate loop
+ * refreshes itself are claimed by it with {@link #claim}, and skipped by
+ * {@link #update()} until released. Code on other threads should read what
+ * the loop publishes, not the claimed signals.
+ * </p>
+ *
+ * Refresh listeners never run concurrently, whichever thread refreshed.
+ */
 public final class CTRESignalStore {
+    private static final Object lock = new Object();
+
     private static ArrayList<BaseStatusSignal> signals = new ArrayList<>();
+    private static ArrayList<BaseStatusSignal> claimed = new ArrayList<>();
+    private static List<Runnable> listeners = new ArrayList<>();
+
+    // Rebuilt whenever the lists above change, so refreshing doesn't allocate.
+    private static BaseStatusSignal[] refreshed = new BaseStatusSignal[0];
+    private static Runnable[] listenerArray = new Runnable[0];
 
     public static void add(BaseStatusSignal... signal) {
-        for (BaseStatusSignal status : signal) {
-            signals.add(status);
-            System.out.println(signals);
+        synchronized (lock) {
+            for (BaseStatusSignal status : signal) {
+                signals.add(status);
+                System.out.println(signals);
+            }
+
+            rebuildRefreshed();
+        }
+    }
+
+    /**
+     * Stop {@link #update()} from refreshing signals, because another thread
+     * refreshes them. Claims nest: a signal claimed twice needs releasing twice.
+     *
+     * @param signal The signals to claim.
+     */
+    public static void claim(BaseStatusSignal... signal) {
+        synchronized (lock) {
+            for (BaseStatusSignal status : signal) {
+                claimed.add(status);
+            }
+
+            rebuildRefreshed();
         }
     }
 
+    /**
+     * Let {@link #update()} refresh previously claimed signals again.
+     *
+     * @param signal The signals to release.
+     */
+    public static void release(BaseStatusSignal... signal) {
+        synchronized (lock) {
+            for (BaseStatusSignal status : signal) {
+                claimed.remove(status);
+            }
+
+            rebuildRefreshed();
+        }
+    }
+
+    private static void rebuildRefreshed() {
+        List<BaseStatusSignal> unclaimed = new ArrayList<>();
+        for (BaseStatusSignal status : signals) {
+            // Phoenix signals don't override equals, so this is by identity.
+            if (!claimed.contains(status)) {
+                unclaimed.add(status);
+            }
+        }
+
+        refreshed = unclaimed.toArray(new BaseStatusSignal[0]);
+    }
+
+    /**
+     * Register a listener to run every time signals are refreshed, either by
+     * {@link #update()} or by a high-rate loop. Listeners may be run from any
+     * thread, but never from two at once, and must be quick.
+     *
+     * @param listener The listener to run.
+     */
+    public static void addRefreshListener(Runnable listener) {
+        synchronized (lock) {
+            listeners.add(listener);
+            listenerArray = listeners.toArray(new Runnable[0]);
+        }
+    }
+
+    /**
+     * Remove a previously registered refresh listener.
+     *
+     * @param listener The listener to remove.
+     */
+    public static void removeRefreshListener(Runnable listener) {
+        synchronized (lock) {
+            listeners.remove(listener);
+            listenerArray = listeners.toArray(new Runnable[0]);
+        }
+    }
+
+    /**
+     * Run every refresh listener. Call this after refreshing signals outside of
+     * {@link #update()}.
+     */
+    public static void notifyRefreshed() {
+        synchronized (lock) {
+            runListeners();
+        }
+    }
+
+    /**
+     * Refresh every signal that isn't claimed, then run the refresh listeners.
+     * Call this once per main loop.
+     */
     public static void update() {
-        BaseStatusSignal.refreshAll(signals.toArray(new BaseStatusSignal[0]));
+        synchronized (lock) {
+            if (refreshed.length > 0) {
+                BaseStatusSignal.refreshAll(refreshed);
+            }
+
+            runListeners();
+        }
+    }
+
+    private static void runListeners() {
+        // A listener may remove itself, which replaces the array rather than
+        // changing this one.
+        Runnable[] toRun = listenerArray;
+        for (int i = 0; i < toRun.length; i++) {
+            toRun[i].run();
+        }
     }
 }
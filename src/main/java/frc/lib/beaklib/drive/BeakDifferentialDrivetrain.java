@@ -8,9 +8,9 @@ import static edu.wpi.first.units.Units.Inches;
 import static edu.wpi.first.units.Units.Meters;
 import static edu.wpi.first.units.Units.MetersPerSecond;
 
+import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.estimator.DifferentialDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
 import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
@@ -18,10 +18,11 @@ import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.Distance;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.Velocity;
-import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
 
 import frc.lib.beaklib.drive.swerve.DrivetrainConfiguration;
 import frc.lib.beaklib.gyro.BeakGyro;
+import frc.lib.beaklib.motor.BeakCurrentBudget;
 import frc.lib.beaklib.motor.BeakMotorControllerGroup;
 import frc.lib.beaklib.motor.DataSignal;
 import frc.lib.beaklib.motor.configs.BeakCurrentLimitConfigs;
@@ -42,6 +43,8 @@ public class BeakDifferentialDrivetrain extends BeakDrivetrain {
     protected DataSignal<Measure<Velocity<Distance>>> m_leftSpeed;
     protected DataSignal<Measure<Velocity<Distance>>> m_rightSpeed;
 
+    private volatile double m_poseTimestamp = Double.NaN;
+
     /**
      * Create a new Differential Drivetrain.
      * 
@@ -100,6 +103,16 @@ public class BeakDifferentialDrivetrain extends BeakDrivetrain {
 
     }
 
+    @Override
+    public void setCurrentBudget(BeakCurrentBudget budget) {
+        super.setCurrentBudget(budget);
+
+        // Both sides are equally important; never starve any motor below half.
+        // The budget registers each motor in the groups separately.
+        budget.register(m_leftControllers, m_currentLimits, 0, m_config.DriveSupplyLimit / 2.0);
+        budget.register(m_rightControllers, m_currentLimits, 0, m_config.DriveSupplyLimit / 2.0);
+    }
+
     /* Differential-specific methods */
 
     /**
@@ -142,24 +155,30 @@ public class BeakDifferentialDrivetrain extends BeakDrivetrain {
     }
 
     @Override
-    public Pose2d updateOdometry() {
+    public synchronized Pose2d updateOdometry() {
+        double now = Timer.getFPGATimestamp();
+        double timestamp = Math.max(m_leftDistance.getTimestamp(), m_rightDistance.getTimestamp());
+
+        updateJerk(now);
+
+        m_poseTimestamp = timestamp > 0. && timestamp <= now ? timestamp : now;
         m_odom.updateWithTime(
-                RobotController.getFPGATime() / 1000000.,
+                m_poseTimestamp,
                 getGyroRotation2d(),
                 m_leftDistance.getValue().in(Meters),
                 m_rightDistance.getValue().in(Meters));
 
+        m_visionQueue.drain(m_odom.getEstimatedPosition(), now, this::applyVisionMeasurement);
+
         return getPoseMeters();
     }
 
-    @Override
-    public void addVisionMeasurement(Pose2d estimatedPose, double timestamp) {
-        Transform2d poseError = estimatedPose.minus(m_odom.getEstimatedPosition());
-
-        if (!estimatedPose.equals(new Pose2d()) && !estimatedPose.equals(getPoseMeters()) &&
-                Math.abs(poseError.getX()) < 0.5 &&
-                Math.abs(poseError.getY()) < 0.5) {
-            m_odom.addVisionMeasurement(estimatedPose, timestamp);
+    private void applyVisionMeasurement(Pose2d pose, double timestamp, double stdDevX, double stdDevY,
+            double stdDevRot) {
+        if (Double.isNaN(stdDevX) || Double.isNaN(stdDevY) || Double.isNaN(stdDevRot)) {
+            m_odom.addVisionMeasurement(pose, timestamp);
+        } else {
+            m_odom.addVisionMeasurement(pose, timestamp, VecBuilder.fill(stdDevX, stdDevY, stdDevRot));
         }
     }
 
@@ -168,6 +187,28 @@ public class BeakDifferentialDrivetrain extends BeakDrivetrain {
         return m_odom.getEstimatedPosition();
     }
 
+    @Override
+    public double getPoseTimestamp() {
+        double timestamp = m_poseTimestamp;
+        return Double.isNaN(timestamp) ? Timer.getFPGATimestamp() : timestamp;
+    }
+
+    @Override
+    public synchronized void readPose(double[] out) {
+        // Synchronized with updateOdometry(), so the pose matches its timestamp.
+        Pose2d pose = m_odom.getEstimatedPosition();
+
+        out[0] = pose.getX();
+        out[1] = pose.getY();
+        out[2] = pose.getRotation().getRadians();
+        out[3] = m_poseTimestamp;
+    }
+
+    @Override
+    public ChassisSpeeds getChassisSpeeds() {
+        return m_kinematics.toChassisSpeeds(getWheelSpeeds());
+    }
+
     @Override
     public void resetOdometry(Pose2d pose) {
         if (!pose.equals(new Pose2d()))
@@ -6,33 +6,60 @@ package frc.lib.beaklib.drive;
 
 import static edu.wpi.first.units.Units.DegreesPerSecond;
 import static edu.wpi.first.units.Units.Meters;
+import static edu.wpi.first.units.Units.RadiansPerSecond;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.units.Angle;
 import edu.wpi.first.units.Distance;
 import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Velocity;
 import edu.wpi.first.wpilibj.BuiltInAccelerometer;
 import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.simulation.AnalogGyroSim;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.lib.beaklib.drive.swerve.BeakPoseEstimator;
 import frc.lib.beaklib.drive.swerve.DrivetrainConfiguration;
 import frc.lib.beaklib.gyro.BeakGyro;
+import frc.lib.beaklib.motor.BeakCurrentBudget;
+import frc.lib.beaklib.motor.DataSignal;
 
 /** Base drivetrain class. */
 public class BeakDrivetrain extends SubsystemBase {
+    private static final int VISION_QUEUE_CAPACITY = 32;
+    private static final double DEFAULT_MAX_EXTRAPOLATION = 0.1;
+
     protected Pose2d m_pose;
 
     protected BuiltInAccelerometer m_accelerometer = new BuiltInAccelerometer();
-    protected double m_lastAccel = 0.;
+    protected double m_lastAccelX = 0.;
+    protected double m_lastAccelY = 0.;
+    protected double m_lastAccelTimestamp = Double.NaN;
 
-    protected double m_jerk = 0.;
+    protected volatile double m_jerk = 0.;
 
     protected DrivetrainConfiguration m_config;
 
     protected BeakGyro m_gyro;
     protected AnalogGyroSim m_gyroSim;
 
+    protected BeakCurrentBudget m_currentBudget = null;
+
+    protected final BeakVisionQueue m_visionQueue = new BeakVisionQueue(VISION_QUEUE_CAPACITY);
+
+    protected double m_maxExtrapolation = DEFAULT_MAX_EXTRAPOLATION;
+    private final ThreadLocal<double[]> m_poseAtRead = ThreadLocal.withInitial(() -> new double[4]);
+    private final ThreadLocal<double[]> m_poseAtSpeeds = ThreadLocal.withInitial(() -> new double[3]);
+    private final ThreadLocal<double[]> m_poseAtResult = ThreadLocal.withInitial(() -> new double[3]);
+
+    // Gyros build a new signal on every call, so keep the one odometry reads.
+    private volatile DataSignal<Rotation2d> m_gyroYaw = null;
+    private volatile DataSignal<Measure<Velocity<Angle>>> m_gyroRate = null;
+    private final Object m_gyroYawLock = new Object();
+
     /**
      * Construct a new generic drivetrain.
      * 
@@ -46,6 +73,16 @@ public class BeakDrivetrain extends SubsystemBase {
     public void configMotors() {
     }
 
+    /**
+     * Get this drivetrain's configuration.
+     * 
+     * @return The {@link DrivetrainConfiguration} this drivetrain was created
+     *         with.
+     */
+    public DrivetrainConfiguration getConfiguration() {
+        return m_config;
+    }
+
     /**
      * Method to drive the robot using joystick info.
      *
@@ -93,6 +130,17 @@ public class BeakDrivetrain extends SubsystemBase {
     public void drive(ChassisSpeeds speeds) {
     }
 
+    /**
+     * Hand this drivetrain's motors over to a shared current budget, which will
+     * lower their supply limits as the battery sags.
+     * 
+     * @param budget The {@link BeakCurrentBudget} to register with. It is updated
+     *               in this drivetrain's periodic.
+     */
+    public void setCurrentBudget(BeakCurrentBudget budget) {
+        m_currentBudget = budget;
+    }
+
     /**
      * Get the robot's pose.
      * 
@@ -102,6 +150,141 @@ public class BeakDrivetrain extends SubsystemBase {
         return null;
     }
 
+    /**
+     * Get when the pose from {@link #getPoseMeters()} was measured.
+     * 
+     * @return Timestamp of the latest pose, on the FPGA clock.
+     */
+    public double getPoseTimestamp() {
+        return Timer.getFPGATimestamp();
+    }
+
+    /**
+     * <p>
+     * Read the robot's pose and the time it was measured together, so both come
+     * from the same odometry update.
+     * </p>
+     * 
+     * Drivetrains that update odometry off the main thread override this to
+     * read both at once; this default just calls {@link #getPoseMeters()} and
+     * {@link #getPoseTimestamp()}.
+     * 
+     * @param out Array of at least four elements, which receives x and y in
+     *            meters, heading in radians, then the timestamp of the pose on
+     *            the FPGA clock. The timestamp is NaN if there hasn't been an
+     *            update since the last reset.
+     */
+    public void readPose(double[] out) {
+        Pose2d pose = getPoseMeters();
+
+        out[0] = pose.getX();
+        out[1] = pose.getY();
+        out[2] = pose.getRotation().getRadians();
+        out[3] = getPoseTimestamp();
+    }
+
+    /**
+     * <p>
+     * Get the robot's pose at a specific time.
+     * </p>
+     * 
+     * <p>
+     * Times covered by the pose history are interpolated from it. Times after the
+     * latest pose are extrapolated from the current chassis speeds, but never by
+     * more than the maximum extrapolation time (see
+     * {@link #setMaxExtrapolation(double)}). Older times that the history no
+     * longer covers give the latest pose.
+     * </p>
+     * 
+     * @param timestamp The time, on the FPGA clock.
+     * @return The pose at that time, measured in meters.
+     */
+    public Pose2d getPoseAt(double timestamp) {
+        double[] pose = m_poseAtResult.get();
+        getPoseAt(timestamp, pose);
+
+        return new Pose2d(pose[0], pose[1], new Rotation2d(pose[2]));
+    }
+
+    /**
+     * Get the robot's pose at a specific time, without allocating. See
+     * {@link #getPoseAt(double)}.
+     * 
+     * @param timestamp The time, on the FPGA clock.
+     * @param out       Array of at least three elements, which receives x and y
+     *                  in meters, then heading in radians.
+     */
+    public void getPoseAt(double timestamp, double[] out) {
+        if (samplePoseHistory(timestamp, out)) {
+            return;
+        }
+
+        // One read, so the pose and its timestamp are from the same update.
+        double[] latest = m_poseAtRead.get();
+        readPose(latest);
+
+        double dt = Double.isNaN(latest[3]) ? 0. : MathUtil.clamp(timestamp - latest[3], 0., m_maxExtrapolation);
+        if (dt == 0.) {
+            System.arraycopy(latest, 0, out, 0, 3);
+            return;
+        }
+
+        // Chassis speeds are robot-relative, so this is a twist from the pose.
+        // The wheel-derived yaw rate is used since gyros disagree on the sign of
+        // theirs.
+        double[] speeds = m_poseAtSpeeds.get();
+        readChassisSpeeds(speeds);
+        BeakPoseEstimator.exp(latest[0], latest[1], latest[2],
+                speeds[0] * dt, speeds[1] * dt, speeds[2] * dt, out);
+    }
+
+    /**
+     * Set how far into the future {@link #getPoseAt(double)} will extrapolate.
+     * 
+     * @param seconds Maximum extrapolation time. Defaults to 0.1 seconds.
+     */
+    public void setMaxExtrapolation(double seconds) {
+        m_maxExtrapolation = seconds;
+    }
+
+    /**
+     * Look up a pose from the pose estimator's history, without allocating.
+     * 
+     * @param timestamp The time, on the FPGA clock.
+     * @param out       Array of at least three elements, which receives x and y
+     *                  in meters, then heading in radians.
+     * @return Whether the time was within the history. If not, out is
+     *         unchanged.
+     */
+    protected boolean samplePoseHistory(double timestamp, double[] out) {
+        return false;
+    }
+
+    /**
+     * Get the robot-relative speed of the drivetrain.
+     * 
+     * @return The drivetrain's current {@link ChassisSpeeds}.
+     */
+    public ChassisSpeeds getChassisSpeeds() {
+        return new ChassisSpeeds();
+    }
+
+    /**
+     * Read the robot-relative speed of the drivetrain. Drivetrains that can
+     * compute it without allocating override this; this default copies
+     * {@link #getChassisSpeeds()}.
+     * 
+     * @param out Array of at least three elements, which receives vx and vy in
+     *            m/s, then omega in rad/s.
+     */
+    public void readChassisSpeeds(double[] out) {
+        ChassisSpeeds speeds = getChassisSpeeds();
+
+        out[0] = speeds.vxMetersPerSecond;
+        out[1] = speeds.vyMetersPerSecond;
+        out[2] = speeds.omegaRadiansPerSecond;
+    }
+
     /**
      * Get the robot's rotation.
      * 
@@ -141,12 +324,43 @@ public class BeakDrivetrain extends SubsystemBase {
 
     /**
      * Add a vision measurement to the pose estimator's
-     * Kalman filter.
+     * Kalman filter. Safe to call from any thread; the measurement is queued
+     * until the next odometry update.
      * 
      * @param estimatedPose The estimated pose of the robot from the vision system.
      * @param timestamp The timestamp of the received data.
      */
     public void addVisionMeasurement(Pose2d estimatedPose, double timestamp) {
+        addVisionMeasurement(estimatedPose, timestamp, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Queue a vision measurement for the pose estimator. Safe to call from any
+     * thread; measurements are applied, oldest first, on the next odometry
+     * update.
+     * 
+     * @param estimatedPose The estimated pose of the robot from the vision system.
+     * @param timestamp     The timestamp of the received data, on the FPGA clock.
+     * @param stdDevX       Standard deviation in X, in meters, or NaN for the
+     *                      estimator's default.
+     * @param stdDevY       Standard deviation in Y, in meters, or NaN for the
+     *                      estimator's default.
+     * @param stdDevRot     Standard deviation in heading, in radians, or NaN for
+     *                      the estimator's default.
+     */
+    public void addVisionMeasurement(Pose2d estimatedPose, double timestamp, double stdDevX, double stdDevY,
+            double stdDevRot) {
+        m_visionQueue.offer(estimatedPose.getX(), estimatedPose.getY(), estimatedPose.getRotation().getRadians(),
+                timestamp, stdDevX, stdDevY, stdDevRot);
+    }
+
+    /**
+     * Set the rules for rejecting vision measurements.
+     * 
+     * @param gating The gating configuration.
+     */
+    public void applyConfig(BeakVisionGatingConfigs gating) {
+        m_visionQueue.applyConfig(gating);
     }
 
     /**
@@ -173,6 +387,33 @@ public class BeakDrivetrain extends SubsystemBase {
         return new Rotation2d(radiansToTarget);
     }
 
+    /**
+     * <p>
+     * Get the angle to a target position on the field, from where the robot was
+     * (or will be) at a specific time.
+     * </p>
+     * 
+     * Use this to aim with a vision frame's timestamp, or lead a target by the
+     * time a mechanism takes to respond.
+     * 
+     * @param x
+     *                  The X position of the target.
+     * @param y
+     *                  The Y position of the target.
+     * @param timestamp
+     *                  The time, on the FPGA clock.
+     * @return A {@link Rotation2d} of the drivetrain's angle to the target
+     *         position.
+     */
+    public Rotation2d getAngleToTargetPosition(Measure<Distance> x, Measure<Distance> y, double timestamp) {
+        Pose2d pose = getPoseAt(timestamp);
+
+        double xDelta = x.in(Meters) - pose.getX();
+        double yDelta = y.in(Meters) - pose.getY();
+
+        return new Rotation2d(Math.atan2(yDelta, xDelta));
+    }
+
     /**
      * Determine whether or not this drivetrain is holonomic.
      * 
@@ -183,14 +424,36 @@ public class BeakDrivetrain extends SubsystemBase {
     }
 
     /**
-     * Get the jerk
+     * Get the horizontal jerk, as of the last odometry update.
      * 
-     * @return todo
+     * @return Magnitude of the jerk, in g/s.
      */
     public double getJerk() {
         return m_jerk;
     }
 
+    /**
+     * Measure the horizontal jerk from the accelerometer. Call this once per
+     * odometry update.
+     * 
+     * @param timestamp Current time, in seconds.
+     * @return Magnitude of the jerk, in g/s, or 0 if there is no previous
+     *         reading.
+     */
+    protected synchronized double updateJerk(double timestamp) {
+        double accelX = m_accelerometer.getX();
+        double accelY = m_accelerometer.getY();
+
+        double dt = timestamp - m_lastAccelTimestamp;
+        m_jerk = dt > 0. ? Math.hypot(accelX - m_lastAccelX, accelY - m_lastAccelY) / dt : 0.;
+
+        m_lastAccelX = accelX;
+        m_lastAccelY = accelY;
+        m_lastAccelTimestamp = timestamp;
+
+        return m_jerk;
+    }
+
     /**
      * Gets the gyro's reported angle.
      * 
@@ -200,7 +463,88 @@ public class BeakDrivetrain extends SubsystemBase {
         if (RobotBase.isSimulation()) {
             return Rotation2d.fromDegrees(m_gyroSim.getAngle());
         } else {
-            return m_gyro.getYawRotation2d(true).getValue();
+            return getGyroYawSignal().getValue();
+        }
+    }
+
+    /**
+     * Get the gyro's reported angle, without allocating in simulation.
+     * 
+     * @return The reported angle of the gyro, in radians.
+     */
+    public double getGyroRadians() {
+        if (RobotBase.isSimulation()) {
+            return Math.toRadians(m_gyroSim.getAngle());
+        } else {
+            return getGyroYawSignal().getValue().getRadians();
+        }
+    }
+
+    /**
+     * Get the latency-compensated yaw signal that odometry reads. It's created
+     * on first use and reused after.
+     * 
+     * @return The gyro's yaw signal.
+     */
+    protected DataSignal<Rotation2d> getGyroYawSignal() {
+        DataSignal<Rotation2d> yaw = m_gyroYaw;
+        if (yaw == null) {
+            synchronized (m_gyroYawLock) {
+                if (m_gyroYaw == null) {
+                    m_gyroYaw = m_gyro.getYawRotation2d(true);
+                }
+                yaw = m_gyroYaw;
+            }
+        }
+
+        return yaw;
+    }
+
+    /**
+     * Get the yaw rate signal. It's created on first use and reused after.
+     * 
+     * @return The gyro's angular velocity signal.
+     */
+    protected DataSignal<Measure<Velocity<Angle>>> getGyroRateSignal() {
+        DataSignal<Measure<Velocity<Angle>>> rate = m_gyroRate;
+        if (rate == null) {
+            synchronized (m_gyroYawLock) {
+                if (m_gyroRate == null) {
+                    m_gyroRate = m_gyro.getAngularVelocity();
+                }
+                rate = m_gyroRate;
+            }
+        }
+
+        return rate;
+    }
+
+    /**
+     * Get the gyro's reported yaw rate, as measured by the gyro rather than
+     * differentiated from its angle.
+     * 
+     * @return The yaw rate, in radians per second.
+     */
+    public double getGyroRateRadiansPerSecond() {
+        if (RobotBase.isSimulation()) {
+            return Math.toRadians(m_gyroSim.getRate());
+        } else {
+            return getGyroRateSignal().getValue().in(RadiansPerSecond);
+        }
+    }
+
+    /**
+     * Get when the gyro measured the rate from
+     * {@link #getGyroRateRadiansPerSecond()}. Only changes when the gyro sends a
+     * new sample.
+     * 
+     * @return The FPGA timestamp of the rate, in seconds.
+     */
+    public double getGyroRateTimestamp() {
+        if (RobotBase.isSimulation()) {
+            return Timer.getFPGATimestamp();
+        } else {
+            return getGyroRateSignal().getTimestamp();
         }
     }
 
@@ -222,7 +566,7 @@ public class BeakDrivetrain extends SubsystemBase {
         if (RobotBase.isSimulation()) {
             return m_gyroSim.getRate();
         } else {
-            return m_gyro.getAngularVelocity().getValue().in(DegreesPerSecond);
+            return getGyroRateSignal().getValue().in(DegreesPerSecond);
         }
     }
 
@@ -246,6 +590,11 @@ public class BeakDrivetrain extends SubsystemBase {
 
     @Override
     public void periodic() {
-        m_jerk = (m_accelerometer.getY() - m_lastAccel);
+        if (m_currentBudget != null) {
+            m_currentBudget.update();
+            m_currentBudget.publish("Current Budget");
+        }
+
+        m_visionQueue.publish("Vision Queue");
     }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive;
+
+/** Rules for rejecting vision measurements before they reach the estimator. */
+public class BeakVisionGatingConfigs {
+    /**
+     * The largest X or Y difference, in meters, from the current estimate that a
+     * measurement may have.
+     */
+    public double MaxTranslationError = 0.5;
+
+    /**
+     * The largest heading difference, in radians, from the current estimate
+     * that a measurement may have.
+     */
+    public double MaxRotationError = Double.POSITIVE_INFINITY;
+
+    /**
+     * The oldest, in seconds, that a measurement may be when it is applied.
+     */
+    public double MaxAge = Double.POSITIVE_INFINITY;
+
+    /**
+     * Whether to reject measurements at exactly the origin, which cameras tend
+     * to report when they have no target.
+     */
+    public boolean RejectOrigin = true;
+
+    public BeakVisionGatingConfigs() {
+    }
+
+    /**
+     * Method-chaining API for this config.
+     * 
+     * @param meters Largest allowed X or Y error.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakVisionGatingConfigs withMaxTranslationError(double meters) {
+        this.MaxTranslationError = meters;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this config.
+     * 
+     * @param radians Largest allowed heading error.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakVisionGatingConfigs withMaxRotationError(double radians) {
+        this.MaxRotationError = radians;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this config.
+     * 
+     * @param seconds Oldest allowed measurement.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakVisionGatingConfigs withMaxAge(double seconds) {
+        this.MaxAge = seconds;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this config.
+     * 
+     * @param reject Whether to reject measurements at the origin.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakVisionGatingConfigs withRejectOrigin(boolean reject) {
+        this.RejectOrigin = reject;
+        return this;
+    }
+}
@@ -0,0 +1,302 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * <p>
+ * Bounded queue of vision measurements, so cameras can report from their own
+ * threads while the estimator is only touched by the odometry thread.
+ * </p>
+ *
+ * <p>
+ * Any number of threads may {@link #offer} measurements. Offering never blocks
+ * or allocates; if the queue is full, the measurement is dropped and counted.
+ * One thread (whichever updates odometry) calls {@link #drain}, which applies
+ * everything queued, oldest first, after gating.
+ * </p>
+ *
+ * Slots are preallocated primitive arrays. Each slot has a sequence number
+ * that says whose turn it is to use it, so producers and the consumer never
+ * touch a slot at the same time.
+ */
+public class BeakVisionQueue {
+    /** Receives measurements that passed gating. */
+    @FunctionalInterface
+    public interface MeasurementConsumer {
+        /**
+         * Apply a measurement.
+         *
+         * @param pose      The measured pose.
+         * @param timestamp Timestamp of the measurement, on the FPGA clock.
+         * @param stdDevX   Standard deviation in X, in meters, or NaN to use the
+         *                  estimator's default.
+         * @param stdDevY   Standard deviation in Y, in meters, or NaN to use the
+         *                  estimator's default.
+         * @param stdDevRot Standard deviation in heading, in radians, or NaN to use
+         *                  the estimator's default.
+         */
+        void accept(Pose2d pose, double timestamp, double stdDevX, double stdDevY, double stdDevRot);
+    }
+
+    private final int m_mask;
+    private final AtomicLongArray m_sequences;
+    private final AtomicLong m_enqueuePosition = new AtomicLong();
+    private long m_dequeuePosition = 0;
+
+    private final double[] m_x;
+    private final double[] m_y;
+    private final double[] m_rotation;
+    private final double[] m_timestamp;
+    private final double[] m_stdDevX;
+    private final double[] m_stdDevY;
+    private final double[] m_stdDevRot;
+
+    // Consumer-side scratch, for sorting.
+    private final int[] m_order;
+    private final double[][] m_drained;
+
+    private BeakVisionGatingConfigs m_gating = new BeakVisionGatingConfigs();
+
+    private final AtomicLong m_overflows = new AtomicLong();
+    private long m_accepted = 0;
+    private long m_rejected = 0;
+
+    /**
+     * Create a new vision queue.
+     *
+     * @param capacity Number of measurements that can be waiting at once. Rounded
+     *                 up to a power of two.
+     */
+    public BeakVisionQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        m_mask = size - 1;
+
+        m_sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            m_sequences.set(i, i);
+        }
+
+        m_x = new double[size];
+        m_y = new double[size];
+        m_rotation = new double[size];
+        m_timestamp = new double[size];
+        m_stdDevX = new double[size];
+        m_stdDevY = new double[size];
+        m_stdDevRot = new double[size];
+
+        m_order = new int[size];
+        m_drained = new double[7][size];
+    }
+
+    /**
+     * Set the rules for rejecting measurements.
+     *
+     * @param gating The gating configuration.
+     */
+    public synchronized void applyConfig(BeakVisionGatingConfigs gating) {
+        m_gating = gating;
+    }
+
+    /**
+     * Queue a measurement with the estimator's default standard deviations.
+     *
+     * @param pose      The measured pose.
+     * @param timestamp Timestamp of the measurement, on the FPGA clock.
+     * @return Whether it was queued, rather than dropped because the queue was
+     *         full.
+     */
+    public boolean offer(Pose2d pose, double timestamp) {
+        return offer(pose.getX(), pose.getY(), pose.getRotation().getRadians(), timestamp,
+                Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Queue a measurement. Safe to call from any thread.
+     *
+     * @param x         Measured X, in meters.
+     * @param y         Measured Y, in meters.
+     * @param rotation  Measured heading, in radians.
+     * @param timestamp Timestamp of the measurement, on the FPGA clock.
+     * @param stdDevX   Standard deviation in X, or NaN for the default.
+     * @param stdDevY   Standard deviation in Y, or NaN for the default.
+     * @param stdDevRot Standard deviation in heading, or NaN for the default.
+     * @return Whether it was queued, rather than dropped because the queue was
+     *         full.
+     */
+    public boolean offer(double x, double y, double rotation, double timestamp,
+            double stdDevX, double stdDevY, double stdDevRot) {
+        long position = m_enqueuePosition.get();
+        int slot;
+
+        while (true) {
+            slot = (int) (position & m_mask);
+            long difference = m_sequences.get(slot) - position;
+
+            if (difference == 0) {
+                if (m_enqueuePosition.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = m_enqueuePosition.get();
+            } else if (difference < 0) {
+                m_overflows.incrementAndGet();
+                return false;
+            } else {
+                position = m_enqueuePosition.get();
+            }
+        }
+
+        m_x[slot] = x;
+        m_y[slot] = y;
+        m_rotation[slot] = rotation;
+        m_timestamp[slot] = timestamp;
+        m_stdDevX[slot] = stdDevX;
+        m_stdDevY[slot] = stdDevY;
+        m_stdDevRot[slot] = stdDevRot;
+
+        // Hand the slot to the consumer.
+        m_sequences.set(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Apply every queued measurement, oldest first. Only call this from one
+     * thread.
+     *
+     * @param currentEstimate The estimator's current pose, to gate against.
+     * @param now             The current FPGA time, to gate on age.
+     * @param consumer        Receives each measurement that passes gating.
+     * @return Number of measurements applied.
+     */
+    public int drain(Pose2d currentEstimate, double now, MeasurementConsumer consumer) {
+        return drain(currentEstimate.getX(), currentEstimate.getY(), currentEstimate.getRotation().getRadians(), now,
+                consumer);
+    }
+
+    /**
+     * Apply every queued measurement, oldest first, gating against a pose given
+     * as primitives. Only call this from one thread.
+     *
+     * @param estimateX        The estimator's current X, in meters.
+     * @param estimateY        The estimator's current Y, in meters.
+     * @param estimateRotation The estimator's current heading, in radians.
+     * @param now              The current FPGA time, to gate on age.
+     * @param consumer         Receives each measurement that passes gating.
+     * @return Number of measurements applied.
+     */
+    public synchronized int drain(double estimateX, double estimateY, double estimateRotation, double now,
+            MeasurementConsumer consumer) {
+        int count = 0;
+
+        // Stop at one queue's worth, in case producers keep refilling it.
+        while (count < m_order.length) {
+            int slot = (int) (m_dequeuePosition & m_mask);
+            if (m_sequences.get(slot) != m_dequeuePosition + 1) {
+                break;
+            }
+
+            m_drained[0][count] = m_x[slot];
+            m_drained[1][count] = m_y[slot];
+            m_drained[2][count] = m_rotation[slot];
+            m_drained[3][count] = m_timestamp[slot];
+            m_drained[4][count] = m_stdDevX[slot];
+            m_drained[5][count] = m_stdDevY[slot];
+            m_drained[6][count] = m_stdDevRot[slot];
+            m_order[count] = count;
+            count++;
+
+            // Give the slot back to producers, one lap ahead.
+            m_sequences.set(slot, m_dequeuePosition + m_mask + 1);
+            m_dequeuePosition++;
+        }
+
+        // Cameras don't report in order, so sort by timestamp. The batch is
+        // small, so an insertion sort is fastest.
+        double[] timestamps = m_drained[3];
+        for (int i = 1; i < count; i++) {
+            int index = m_order[i];
+            int j = i - 1;
+            while (j >= 0 && timestamps[m_order[j]] > timestamps[index]) {
+                m_order[j + 1] = m_order[j];
+                j--;
+            }
+            m_order[j + 1] = index;
+        }
+
+        int applied = 0;
+        for (int i = 0; i < count; i++) {
+            int index = m_order[i];
+
+            double x = m_drained[0][index];
+            double y = m_drained[1][index];
+            double rotation = m_drained[2][index];
+            double timestamp = m_drained[3][index];
+
+            if (!passesGating(x, y, rotation, timestamp, estimateX, estimateY, estimateRotation, now)) {
+                m_rejected++;
+                continue;
+            }
+
+            consumer.accept(new Pose2d(x, y, new Rotation2d(rotation)), timestamp,
+                    m_drained[4][index], m_drained[5][index], m_drained[6][index]);
+            m_accepted++;
+            applied++;
+        }
+
+        return applied;
+    }
+
+    private boolean passesGating(double x, double y, double rotation, double timestamp, double estimateX,
+            double estimateY, double estimateRotation, double now) {
+        if (m_gating.RejectOrigin && x == 0. && y == 0. && rotation == 0.) {
+            return false;
+        }
+
+        if (now - timestamp > m_gating.MaxAge) {
+            return false;
+        }
+
+        // Error in the robot's frame, to match how it has always been gated.
+        double dx = x - estimateX;
+        double dy = y - estimateY;
+        double cos = Math.cos(estimateRotation);
+        double sin = Math.sin(estimateRotation);
+
+        double forwardError = dx * cos + dy * sin;
+        double sidewaysError = -dx * sin + dy * cos;
+        double rotationError = MathUtil.angleModulus(rotation - estimateRotation);
+
+        return Math.abs(forwardError) < m_gating.MaxTranslationError
+                && Math.abs(sidewaysError) < m_gating.MaxTranslationError
+                && Math.abs(rotationError) <= m_gating.MaxRotationError;
+    }
+
+    /**
+     * Get the number of measurements dropped because the queue was full.
+     *
+     * @return Number of overflows.
+     */
+    public long getOverflowCount() {
+        return m_overflows.get();
+    }
+
+    /**
+     * Publish queue statistics to the dashboard.
+     *
+     * @param name Name to publish under.
+     */
+    public synchronized void publish(String name) {
+        SmartDashboard.putNumber(name + "/Accepted", m_accepted);
+        SmartDashboard.putNumber(name + "/Rejected", m_rejected);
+        SmartDashboard.putNumber(name + "/Overflows", m_overflows.get());
+    }
+}
@@ -0,0 +1,650 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * <p>
+ * Swerve pose estimator that fuses odometry with latency-compensated vision
+ * measurements, without allocating.
+ * </p>
+ *
+ * <p>
+ * This follows the same model as WPILib's {@link
+ * edu.wpi.first.math.estimator.SwerveDrivePoseEstimator}, but its history is a
+ * fixed-size ring buffer of primitive poses instead of a map of objects. Raw
+ * odometry is never modified. Instead, each vision measurement stores a
+ * correction (the corrected pose at that time, and the odometry pose it
+ * corrects), and the estimate is the latest correction applied to the latest
+ * odometry. A vision measurement is a binary search and a few lines of
+ * arithmetic; nothing is replayed.
+ * </p>
+ *
+ * Odometry solves for the chassis motion from all module deltas by weighted
+ * least squares. The weights default to equal, which gives the same result as
+ * WPILib's kinematics; lowering a module's weight makes it count for less,
+ * e.g. while it is slipping.
+ */
+public class BeakPoseEstimator {
+    private static final double HISTORY_SECONDS = 1.5;
+    private static final int HISTORY_CAPACITY = 512;
+    private static final int CORRECTION_CAPACITY = 32;
+
+    private final int m_numModules;
+    private final double[] m_moduleX;
+    private final double[] m_moduleY;
+    private final double[] m_weights;
+
+    // Inverse of the weighted normal matrix, row-major.
+    private final double[] m_inverse = new double[9];
+
+    private final double[] m_stateVariance = new double[3];
+    private final double[] m_visionGain = new double[3];
+
+    // Raw odometry.
+    private final double[] m_lastDistances;
+    private final double[] m_distances;
+    private final double[] m_angles;
+    private double m_odomX;
+    private double m_odomY;
+    private double m_odomTheta;
+    private double m_gyroOffset;
+
+    // Odometry history, oldest to newest, wrapping.
+    private final double[] m_historyTime = new double[HISTORY_CAPACITY];
+    private final double[] m_historyX = new double[HISTORY_CAPACITY];
+    private final double[] m_historyY = new double[HISTORY_CAPACITY];
+    private final double[] m_historyTheta = new double[HISTORY_CAPACITY];
+    private int m_historyStart = 0;
+    private int m_historySize = 0;
+
+    // Vision corrections, oldest to newest, wrapping. Each is the corrected pose
+    // at a time, and the odometry pose at that time.
+    private final double[] m_correctionTime = new double[CORRECTION_CAPACITY];
+    private final double[][] m_correctedPose = new double[CORRECTION_CAPACITY][3];
+    private final double[][] m_correctionOdom = new double[CORRECTION_CAPACITY][3];
+    private int m_correctionStart = 0;
+    private int m_correctionSize = 0;
+
+    private final double[] m_estimate = new double[3];
+
+    // Scratch.
+    private final double[] m_odomSample = new double[3];
+    private final double[] m_estimateSample = new double[3];
+    private final double[] m_twist = new double[3];
+
+    /**
+     * Create a new pose estimator with WPILib's default standard deviations.
+     *
+     * @param moduleLocations Locations of the modules relative to the robot
+     *                        center, in the order positions will be given.
+     * @param gyroAngle       The current gyro angle.
+     * @param modulePositions The current module positions.
+     * @param initialPose     The starting pose.
+     */
+    public BeakPoseEstimator(
+            Translation2d[] moduleLocations,
+            Rotation2d gyroAngle,
+            SwerveModulePosition[] modulePositions,
+            Pose2d initialPose) {
+        this(moduleLocations, gyroAngle, modulePositions, initialPose,
+                VecBuilder.fill(0.1, 0.1, 0.1), VecBuilder.fill(0.9, 0.9, 0.9));
+    }
+
+    /**
+     * Create a new pose estimator.
+     *
+     * @param moduleLocations          Locations of the modules relative to the
+     *                                 robot center, in the order positions will
+     *                                 be given.
+     * @param gyroAngle                The current gyro angle.
+     * @param modulePositions          The current module positions.
+     * @param initialPose              The starting pose.
+     * @param stateStdDevs             How much to trust odometry (x and y in
+     *                                 meters, heading in radians). Higher means
+     *                                 less trust.
+     * @param visionMeasurementStdDevs How much to trust vision, by default.
+     *                                 Higher means less trust.
+     */
+    public BeakPoseEstimator(
+            Translation2d[] moduleLocations,
+            Rotation2d gyroAngle,
+            SwerveModulePosition[] modulePositions,
+            Pose2d initialPose,
+            Matrix<N3, N1> stateStdDevs,
+            Matrix<N3, N1> visionMeasurementStdDevs) {
+        m_numModules = moduleLocations.length;
+        m_moduleX = new double[m_numModules];
+        m_moduleY = new double[m_numModules];
+        m_weights = new double[m_numModules];
+        m_lastDistances = new double[m_numModules];
+        m_distances = new double[m_numModules];
+        m_angles = new double[m_numModules];
+
+        for (int i = 0; i < m_numModules; i++) {
+            m_moduleX[i] = moduleLocations[i].getX();
+            m_moduleY[i] = moduleLocations[i].getY();
+            m_weights[i] = 1.;
+        }
+        computeInverse();
+
+        for (int i = 0; i < 3; i++) {
+            double stdDev = stateStdDevs.get(i, 0);
+            m_stateVariance[i] = stdDev * stdDev;
+        }
+        setVisionMeasurementStdDevs(visionMeasurementStdDevs);
+
+        resetPosition(gyroAngle, modulePositions, initialPose);
+    }
+
+    /**
+     * Set how much to trust vision measurements that don't give their own
+     * standard deviations.
+     *
+     * @param visionMeasurementStdDevs Standard deviations of x and y in meters,
+     *                                 and heading in radians.
+     */
+    public synchronized void setVisionMeasurementStdDevs(Matrix<N3, N1> visionMeasurementStdDevs) {
+        for (int i = 0; i < 3; i++) {
+            m_visionGain[i] = gain(m_stateVariance[i], visionMeasurementStdDevs.get(i, 0));
+        }
+    }
+
+    /**
+     * Set how much each module counts towards odometry. Use this to discount
+     * modules that are slipping.
+     *
+     * @param weights One non-negative weight per module. At least three modules'
+     *                worth of information must remain.
+     */
+    public synchronized void setModuleWeights(double[] weights) {
+        System.arraycopy(weights, 0, m_weights, 0, m_numModules);
+        computeInverse();
+    }
+
+    /**
+     * Reset the estimate to a known pose, clearing all history.
+     *
+     * @param gyroAngle       The current gyro angle.
+     * @param modulePositions The current module positions.
+     * @param pose            The pose to reset to.
+     */
+    public synchronized void resetPosition(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions,
+            Pose2d pose) {
+        for (int i = 0; i < m_numModules; i++) {
+            m_lastDistances[i] = modulePositions[i].distanceMeters;
+        }
+
+        m_odomX = pose.getX();
+        m_odomY = pose.getY();
+        m_odomTheta = pose.getRotation().getRadians();
+        m_gyroOffset = m_odomTheta - gyroAngle.getRadians();
+
+        m_historySize = 0;
+        m_correctionSize = 0;
+
+        m_estimate[0] = m_odomX;
+        m_estimate[1] = m_odomY;
+        m_estimate[2] = m_odomTheta;
+    }
+
+    /**
+     * Update the estimate with new odometry.
+     *
+     * @param timestamp       Time the positions were sampled, in seconds.
+     * @param gyroAngle       The current gyro angle.
+     * @param modulePositions The current module positions.
+     * @return The new estimate.
+     */
+    public synchronized Pose2d updateWithTime(double timestamp, Rotation2d gyroAngle,
+            SwerveModulePosition[] modulePositions) {
+        for (int i = 0; i < m_numModules; i++) {
+            m_distances[i] = modulePositions[i].distanceMeters;
+            m_angles[i] = modulePositions[i].angle.getRadians();
+        }
+
+        updateWithTime(timestamp, gyroAngle.getRadians(), m_distances, m_angles);
+        return getEstimatedPosition();
+    }
+
+    /**
+     * Update the estimate with new odometry, without allocating.
+     *
+     * @param timestamp      Time the positions were sampled, in seconds.
+     * @param gyroRadians    The current gyro angle.
+     * @param distances      Each module's drive distance, in meters.
+     * @param anglesRadians  Each module's steer angle.
+     */
+    public void updateWithTime(double timestamp, double gyroRadians, double[] distances,
+            double[] anglesRadians) {
+        updateWithTime(timestamp, gyroRadians, distances, anglesRadians, true);
+    }
+
+    /**
+     * Update the estimate with new odometry, without allocating.
+     *
+     * @param timestamp        Time the positions were sampled, in seconds.
+     * @param gyroRadians      The current gyro angle.
+     * @param distances        Each module's drive distance, in meters.
+     * @param anglesRadians    Each module's steer angle.
+     * @param trustTranslation False to only update the heading, e.g. while the
+     *                         robot is in a collision and the wheels can't be
+     *                         trusted.
+     */
+    public synchronized void updateWithTime(double timestamp, double gyroRadians, double[] distances,
+            double[] anglesRadians, boolean trustTranslation) {
+        // Weighted least-squares fit of the chassis motion to the module deltas.
+        double sumX = 0.;
+        double sumY = 0.;
+        double sumTheta = 0.;
+        for (int i = 0; i < m_numModules; i++) {
+            double delta = distances[i] - m_lastDistances[i];
+            double dx = m_weights[i] * delta * Math.cos(anglesRadians[i]);
+            double dy = m_weights[i] * delta * Math.sin(anglesRadians[i]);
+
+            sumX += dx;
+            sumY += dy;
+            sumTheta += -m_moduleY[i] * dx + m_moduleX[i] * dy;
+
+            m_lastDistances[i] = distances[i];
+        }
+
+        double twistX = 0.;
+        double twistY = 0.;
+        if (trustTranslation) {
+            twistX = m_inverse[0] * sumX + m_inverse[1] * sumY + m_inverse[2] * sumTheta;
+            twistY = m_inverse[3] * sumX + m_inverse[4] * sumY + m_inverse[5] * sumTheta;
+        }
+
+        // Heading comes from the gyro, not the wheels.
+        double angle = gyroRadians + m_gyroOffset;
+        double twistTheta = MathUtil.angleModulus(angle - m_odomTheta);
+
+        exp(m_odomX, m_odomY, m_odomTheta, twistX, twistY, twistTheta, m_odomSample);
+        m_odomX = m_odomSample[0];
+        m_odomY = m_odomSample[1];
+        m_odomTheta = MathUtil.angleModulus(angle);
+
+        record(timestamp);
+        updateEstimate();
+    }
+
+    /**
+     * Add a vision measurement with the default standard deviations.
+     *
+     * @param visionPose The measured pose.
+     * @param timestamp  When the measurement was taken, on the same clock as
+     *                   odometry.
+     */
+    public void addVisionMeasurement(Pose2d visionPose, double timestamp) {
+        addVisionMeasurement(visionPose.getX(), visionPose.getY(), visionPose.getRotation().getRadians(),
+                timestamp, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Add a vision measurement.
+     *
+     * @param visionPose               The measured pose.
+     * @param timestamp                When the measurement was taken, on the
+     *                                 same clock as odometry.
+     * @param visionMeasurementStdDevs How much to trust this measurement.
+     */
+    public void addVisionMeasurement(Pose2d visionPose, double timestamp,
+            Matrix<N3, N1> visionMeasurementStdDevs) {
+        addVisionMeasurement(visionPose.getX(), visionPose.getY(), visionPose.getRotation().getRadians(),
+                timestamp, visionMeasurementStdDevs.get(0, 0), visionMeasurementStdDevs.get(1, 0),
+                visionMeasurementStdDevs.get(2, 0));
+    }
+
+    /**
+     * Add a vision measurement, without allocating.
+     *
+     * @param x         Measured X, in meters.
+     * @param y         Measured Y, in meters.
+     * @param theta     Measured heading, in radians.
+     * @param timestamp When the measurement was taken, on the same clock as
+     *                  odometry.
+     * @param stdDevX   Standard deviation in X, or NaN for the default.
+     * @param stdDevY   Standard deviation in Y, or NaN for the default.
+     * @param stdDevRot Standard deviation in heading, or NaN for the default.
+     * @return Whether the measurement was used, rather than being too old.
+     */
+    public synchronized boolean addVisionMeasurement(double x, double y, double theta, double timestamp,
+            double stdDevX, double stdDevY, double stdDevRot) {
+        if (m_historySize == 0
+                || timestamp < m_historyTime[m_historyStart]
+                || timestamp < newestTime() - HISTORY_SECONDS) {
+            return false;
+        }
+
+        sampleOdometry(timestamp, m_odomSample);
+        int correction = correctionBefore(timestamp);
+        if (correction < 0) {
+            System.arraycopy(m_odomSample, 0, m_estimateSample, 0, 3);
+        } else {
+            compensate(correction, m_odomSample[0], m_odomSample[1], m_odomSample[2], m_estimateSample);
+        }
+
+        log(m_estimateSample[0], m_estimateSample[1], m_estimateSample[2], x, y, theta, m_twist);
+
+        boolean useDefault = Double.isNaN(stdDevX) || Double.isNaN(stdDevY) || Double.isNaN(stdDevRot);
+        m_twist[0] *= useDefault ? m_visionGain[0] : gain(m_stateVariance[0], stdDevX);
+        m_twist[1] *= useDefault ? m_visionGain[1] : gain(m_stateVariance[1], stdDevY);
+        m_twist[2] *= useDefault ? m_visionGain[2] : gain(m_stateVariance[2], stdDevRot);
+
+        // Corrections after this one were based on the old estimate, so they're
+        // superseded by this one.
+        while (m_correctionSize > 0 && m_correctionTime[correctionIndex(m_correctionSize - 1)] > timestamp) {
+            m_correctionSize--;
+        }
+
+        if (m_correctionSize == CORRECTION_CAPACITY) {
+            m_correctionStart = (m_correctionStart + 1) % CORRECTION_CAPACITY;
+            m_correctionSize--;
+        }
+
+        int index = correctionIndex(m_correctionSize);
+        m_correctionSize++;
+
+        m_correctionTime[index] = timestamp;
+        exp(m_estimateSample[0], m_estimateSample[1], m_estimateSample[2], m_twist[0], m_twist[1], m_twist[2],
+                m_correctedPose[index]);
+        System.arraycopy(m_odomSample, 0, m_correctionOdom[index], 0, 3);
+
+        updateEstimate();
+        return true;
+    }
+
+    /**
+     * Get the current estimate.
+     *
+     * @return The estimated pose.
+     */
+    public synchronized Pose2d getEstimatedPosition() {
+        return new Pose2d(m_estimate[0], m_estimate[1], new Rotation2d(m_estimate[2]));
+    }
+
+    /**
+     * Get the current estimate, without allocating.
+     *
+     * @param out Array of at least three elements, which receives x and y in
+     *            meters, then heading in radians.
+     */
+    public synchronized void getEstimatedPosition(double[] out) {
+        System.arraycopy(m_estimate, 0, out, 0, 3);
+    }
+
+    /**
+     * Get the estimate at a past time, without allocating. Corrections from
+     * vision measurements taken after that time are not applied.
+     *
+     * @param timestamp The time to sample, on the same clock as odometry.
+     * @param out       Array of at least three elements, which receives x and y
+     *                  in meters, then heading in radians.
+     * @return Whether the time was within the history. If not, out is
+     *         unchanged.
+     */
+    public synchronized boolean getEstimatedPositionAt(double timestamp, double[] out) {
+        if (m_historySize == 0 || timestamp < m_historyTime[m_historyStart] || timestamp > newestTime()) {
+            return false;
+        }
+
+        sampleOdometry(timestamp, m_odomSample);
+        int correction = correctionBefore(timestamp);
+        if (correction < 0) {
+            System.arraycopy(m_odomSample, 0, out, 0, 3);
+        } else {
+            compensate(correction, m_odomSample[0], m_odomSample[1], m_odomSample[2], out);
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the time of the newest odometry update.
+     *
+     * @return The timestamp, or NaN if there hasn't been an update since the
+     *         last reset.
+     */
+    public synchronized double getLatestTimestamp() {
+        return m_historySize == 0 ? Double.NaN : newestTime();
+    }
+
+    /* History */
+
+    private double newestTime() {
+        return m_historyTime[historyIndex(m_historySize - 1)];
+    }
+
+    private int historyIndex(int i) {
+        return (m_historyStart + i) % HISTORY_CAPACITY;
+    }
+
+    private int correctionIndex(int i) {
+        return (m_correctionStart + i) % CORRECTION_CAPACITY;
+    }
+
+    private void record(double timestamp) {
+        int index;
+
+        if (m_historySize > 0 && timestamp <= newestTime()) {
+            // Keep the history in order; just move the newest pose.
+            index = historyIndex(m_historySize - 1);
+        } else {
+            if (m_historySize == HISTORY_CAPACITY) {
+                m_historyStart = (m_historyStart + 1) % HISTORY_CAPACITY;
+                m_historySize--;
+            }
+
+            index = historyIndex(m_historySize);
+            m_historySize++;
+            m_historyTime[index] = timestamp;
+        }
+
+        m_historyX[index] = m_odomX;
+        m_historyY[index] = m_odomY;
+        m_historyTheta[index] = m_odomTheta;
+    }
+
+    /**
+     * Interpolate the odometry pose at a time, clamped to the history.
+     */
+    private void sampleOdometry(double timestamp, double[] out) {
+        // Find the last sample at or before the timestamp.
+        int low = 0;
+        int high = m_historySize - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (m_historyTime[historyIndex(mid)] <= timestamp) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        int before = historyIndex(low);
+        if (low == m_historySize - 1 || m_historyTime[before] >= timestamp) {
+            out[0] = m_historyX[before];
+            out[1] = m_historyY[before];
+            out[2] = m_historyTheta[before];
+            return;
+        }
+
+        int after = historyIndex(low + 1);
+        double t = (timestamp - m_historyTime[before]) / (m_historyTime[after] - m_historyTime[before]);
+
+        // Follow the arc between the samples, as Pose2d.interpolate() does.
+        log(m_historyX[before], m_historyY[before], m_historyTheta[before],
+                m_historyX[after], m_historyY[after], m_historyTheta[after], out);
+        exp(m_historyX[before], m_historyY[before], m_historyTheta[before],
+                out[0] * t, out[1] * t, out[2] * t, out);
+    }
+
+    /**
+     * Find the newest correction at or before a time.
+     *
+     * @return Its index, or -1 if there isn't one.
+     */
+    private int correctionBefore(double timestamp) {
+        for (int i = m_correctionSize - 1; i >= 0; i--) {
+            int index = correctionIndex(i);
+            if (m_correctionTime[index] <= timestamp) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    private void updateEstimate() {
+        if (m_correctionSize == 0) {
+            m_estimate[0] = m_odomX;
+            m_estimate[1] = m_odomY;
+            m_estimate[2] = m_odomTheta;
+        } else {
+            compensate(correctionIndex(m_correctionSize - 1), m_odomX, m_odomY, m_odomTheta, m_estimate);
+        }
+    }
+
+    /* Math */
+
+    private void computeInverse() {
+        double sumW = 0.;
+        double sumWX = 0.;
+        double sumWY = 0.;
+        double sumWR2 = 0.;
+        for (int i = 0; i < m_numModules; i++) {
+            double w = m_weights[i];
+            sumW += w;
+            sumWX += w * m_moduleX[i];
+            sumWY += w * m_moduleY[i];
+            sumWR2 += w * (m_moduleX[i] * m_moduleX[i] + m_moduleY[i] * m_moduleY[i]);
+        }
+
+        // Symmetric normal matrix [[a, 0, c], [0, a, e], [c, e, f]].
+        double a = sumW;
+        double c = -sumWY;
+        double e = sumWX;
+        double f = sumWR2;
+
+        double det = a * (a * f - e * e) - c * c * a;
+        if (Math.abs(det) < 1e-12) {
+            // Not enough information; keep the last good solution.
+            return;
+        }
+
+        m_inverse[0] = (a * f - e * e) / det;
+        m_inverse[1] = (c * e) / det;
+        m_inverse[2] = (-a * c) / det;
+        m_inverse[3] = m_inverse[1];
+        m_inverse[4] = (a * f - c * c) / det;
+        m_inverse[5] = (-a * e) / det;
+        m_inverse[6] = m_inverse[2];
+        m_inverse[7] = m_inverse[5];
+        m_inverse[8] = (a * a) / det;
+    }
+
+    /**
+     * Kalman gain for one axis, as WPILib computes it.
+     */
+    private static double gain(double stateVariance, double visionStdDev) {
+        if (stateVariance == 0.) {
+            return 0.;
+        }
+
+        double visionVariance = visionStdDev * visionStdDev;
+        return stateVariance / (stateVariance + Math.sqrt(stateVariance * visionVariance));
+    }
+
+    /**
+     * Apply a correction to an odometry pose: the corrected pose, plus how far
+     * odometry has moved since the correction.
+     */
+    private void compensate(int correction, double x, double y, double theta, double[] out) {
+        double[] corrected = m_correctedPose[correction];
+        double[] reference = m_correctionOdom[correction];
+
+        double cos = Math.cos(reference[2]);
+        double sin = Math.sin(reference[2]);
+        double relX = (x - reference[0]) * cos + (y - reference[1]) * sin;
+        double relY = -(x - reference[0]) * sin + (y - reference[1]) * cos;
+        double relTheta = theta - reference[2];
+
+        cos = Math.cos(corrected[2]);
+        sin = Math.sin(corrected[2]);
+        out[0] = corrected[0] + relX * cos - relY * sin;
+        out[1] = corrected[1] + relX * sin + relY * cos;
+        out[2] = MathUtil.angleModulus(corrected[2] + relTheta);
+    }
+
+    /**
+     * Apply a twist to a pose, the same as {@link Pose2d#exp}, without
+     * allocating.
+     *
+     * @param x      Starting X, in meters.
+     * @param y      Starting Y, in meters.
+     * @param theta  Starting heading, in radians.
+     * @param dx     Forward part of the twist, in the pose's frame, in meters.
+     * @param dy     Leftward part of the twist, in meters.
+     * @param dtheta Rotation of the twist, in radians.
+     * @param out    Array of at least three elements, which receives the new x,
+     *               y and heading. May be the same array the inputs came from.
+     */
+    public static void exp(double x, double y, double theta, double dx, double dy, double dtheta, double[] out) {
+        double sin = Math.sin(dtheta);
+        double cos = Math.cos(dtheta);
+
+        double s;
+        double c;
+        if (Math.abs(dtheta) < 1e-9) {
+            s = 1. - dtheta * dtheta / 6.;
+            c = 0.5 * dtheta;
+        } else {
+            s = sin / dtheta;
+            c = (1. - cos) / dtheta;
+        }
+
+        double tx = dx * s - dy * c;
+        double ty = dx * c + dy * s;
+
+        double poseCos = Math.cos(theta);
+        double poseSin = Math.sin(theta);
+        out[0] = x + tx * poseCos - ty * poseSin;
+        out[1] = y + tx * poseSin + ty * poseCos;
+        out[2] = MathUtil.angleModulus(theta + dtheta);
+    }
+
+    /**
+     * Same as {@link Pose2d#log}.
+     */
+    private static void log(double startX, double startY, double startTheta, double endX, double endY,
+            double endTheta, double[] out) {
+        double cos = Math.cos(startTheta);
+        double sin = Math.sin(startTheta);
+        double tx = (endX - startX) * cos + (endY - startY) * sin;
+        double ty = -(endX - startX) * sin + (endY - startY) * cos;
+
+        double dtheta = MathUtil.angleModulus(endTheta - startTheta);
+        double halfDtheta = dtheta / 2.;
+        double cosMinusOne = Math.cos(dtheta) - 1.;
+
+        double halfThetaByTanOfHalfDtheta = Math.abs(cosMinusOne) < 1e-9
+                ? 1. - dtheta * dtheta / 12.
+                : -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+
+        out[0] = tx * halfThetaByTanOfHalfDtheta + ty * halfDtheta;
+        out[1] = -tx * halfDtheta + ty * halfThetaByTanOfHalfDtheta;
+        out[2] = dtheta;
+    }
+}
@@ -0,0 +1,182 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve;
+
+import java.util.List;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.lib.beaklib.drive.swerve.BeakSwerveModule.DriveRequestType;
+import frc.lib.beaklib.drive.swerve.BeakSwerveModule.SteerRequestType;
+
+/**
+ * <p>
+ * Sends swerve module setpoints at a higher rate than the main loop.
+ * </p>
+ *
+ * <p>
+ * Every main loop, the active request's module targets are captured instead of
+ * sent. Between loops, this extrapolates each module's target velocity vector
+ * along its trend from the previous loop, for at most one update period, and
+ * sends the result. Since module targets are a linear function of the chassis
+ * speeds for a fixed heading, this follows the commanded chassis-speed trend
+ * without needing to know what the request is.
+ * </p>
+ *
+ * Setpoints are extrapolated as (vx, vy) vectors rather than speed and angle,
+ * so a module whose target passes through zero doesn't spin around.
+ */
+public class BeakSetpointUpsampler implements AutoCloseable {
+    private final List<BeakSwerveModule> m_modules;
+    private final Notifier m_notifier;
+    private final double m_period;
+
+    private final double[] m_vx;
+    private final double[] m_vy;
+    private final double[] m_slopeX;
+    private final double[] m_slopeY;
+    private final double[] m_angle;
+    private final double[] m_acceleration;
+    private final double[] m_steerVelocity;
+    private final boolean[] m_active;
+    private final DriveRequestType[] m_driveTypes;
+    private final SteerRequestType[] m_steerTypes;
+    private final double[] m_capture = new double[4];
+
+    private double m_timestamp = 0.;
+    private double m_updatePeriod = 0.02;
+
+    /**
+     * Create a new setpoint upsampler. Call {@link #start()} to begin sending.
+     *
+     * @param modules     The modules to send setpoints to.
+     * @param frequencyHz How often to send setpoints. 100-250 Hz is reasonable.
+     */
+    public BeakSetpointUpsampler(List<BeakSwerveModule> modules, double frequencyHz) {
+        m_modules = modules;
+        m_period = 1. / frequencyHz;
+
+        int numModules = modules.size();
+        m_vx = new double[numModules];
+        m_vy = new double[numModules];
+        m_slopeX = new double[numModules];
+        m_slopeY = new double[numModules];
+        m_angle = new double[numModules];
+        m_acceleration = new double[numModules];
+        m_steerVelocity = new double[numModules];
+        m_active = new boolean[numModules];
+        m_driveTypes = new DriveRequestType[numModules];
+        m_steerTypes = new SteerRequestType[numModules];
+
+        m_notifier = new Notifier(this::run);
+        m_notifier.setName("Setpoint Upsampler");
+    }
+
+    /**
+     * Put every module in capture mode and start sending setpoints.
+     */
+    public void start() {
+        for (BeakSwerveModule module : m_modules) {
+            module.setCapturing(true);
+        }
+
+        m_notifier.startPeriodic(m_period);
+    }
+
+    /**
+     * Stop sending setpoints and let modules send their own again.
+     */
+    public void stop() {
+        m_notifier.stop();
+
+        for (BeakSwerveModule module : m_modules) {
+            module.setCapturing(false);
+        }
+    }
+
+    /**
+     * Take the setpoints captured by the modules this loop, and send them right
+     * away. Call this after the request has been applied.
+     *
+     * @param timestamp    Timestamp of this loop, in seconds.
+     * @param updatePeriod Period of the main loop, in seconds. Setpoints are
+     *                     never extrapolated further than this.
+     */
+    public synchronized void capture(double timestamp, double updatePeriod) {
+        double dt = timestamp - m_timestamp;
+
+        // A stale previous sample would give a bogus trend.
+        boolean trend = dt > 0. && dt < 2. * updatePeriod;
+
+        for (int i = 0; i < m_modules.size(); i++) {
+            BeakSwerveModule module = m_modules.get(i);
+
+            if (!module.takeCapture(m_capture)) {
+                // The request didn't touch this module, so leave it alone too.
+                m_active[i] = false;
+                continue;
+            }
+
+            double vx = m_capture[0] * Math.cos(m_capture[1]);
+            double vy = m_capture[0] * Math.sin(m_capture[1]);
+
+            DriveRequestType driveType = module.getCapturedDriveType();
+            SteerRequestType steerType = module.getCapturedSteerType();
+
+            if (trend && m_active[i] && driveType == m_driveTypes[i] && steerType == m_steerTypes[i]) {
+                m_slopeX[i] = (vx - m_vx[i]) / dt;
+                m_slopeY[i] = (vy - m_vy[i]) / dt;
+            } else {
+                m_slopeX[i] = 0.;
+                m_slopeY[i] = 0.;
+            }
+
+            m_vx[i] = vx;
+            m_vy[i] = vy;
+            m_angle[i] = m_capture[1];
+            m_acceleration[i] = m_capture[2];
+            m_steerVelocity[i] = m_capture[3];
+            m_driveTypes[i] = driveType;
+            m_steerTypes[i] = steerType;
+            m_active[i] = true;
+        }
+
+        m_timestamp = timestamp;
+        m_updatePeriod = updatePeriod;
+
+        send(0.);
+    }
+
+    private synchronized void run() {
+        send(MathUtil.clamp(Timer.getFPGATimestamp() - m_timestamp, 0., m_updatePeriod));
+    }
+
+    private void send(double elapsed) {
+        for (int i = 0; i < m_modules.size(); i++) {
+            if (!m_active[i]) {
+                continue;
+            }
+
+            double vx = m_vx[i] + m_slopeX[i] * elapsed;
+            double vy = m_vy[i] + m_slopeY[i] * elapsed;
+            double speed = Math.hypot(vx, vy);
+
+            // Hold the last angle rather than snapping to zero when stopped.
+            if (speed > 1e-4) {
+                m_angle[i] = Math.atan2(vy, vx);
+            }
+
+            m_modules.get(i).send(speed, m_angle[i], m_acceleration[i], m_steerVelocity[i], m_driveTypes[i],
+                    m_steerTypes[i]);
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+        m_notifier.close();
+    }
+}
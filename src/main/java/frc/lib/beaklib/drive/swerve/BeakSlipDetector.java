@@ -0,0 +1,398 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve;
+
+import java.util.Arrays;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * <p>
+ * Detects slipping modules and collisions from odometry samples, so odometry
+ * can stop trusting them.
+ * </p>
+ *
+ * <p>
+ * A module is slipping if its motion doesn't match the rigid-body motion of
+ * the rest of the chassis. Each sample, every module's displacement minus the
+ * rotation measured by the gyro is compared against the median of the other
+ * modules'. The median ignores a minority of slipping modules, so one module
+ * slipping badly doesn't drag the reference away from the others. If the
+ * difference, as a speed, is more than a fixed amount plus a fraction of the
+ * module's own speed, the module's odometry weight is cut.
+ * </p>
+ *
+ * <p>
+ * A collision is a spike in accelerometer jerk or gyro angular acceleration.
+ * The angular acceleration comes from the rate the gyro measures, low-pass
+ * filtered and differentiated over the gyro's own sample times, so a late or
+ * repeated sample doesn't look like a spike. Either has to stay over its
+ * threshold for several samples in a row, the angular acceleration in the same
+ * direction, so a single noisy sample doesn't count. While a collision is in
+ * progress, and for a short time after, wheel odometry is ignored entirely.
+ * </p>
+ *
+ * Only call {@link #update} from one thread. Getters and {@link #publish} may
+ * be called from any thread, but may mix two samples.
+ */
+public class BeakSlipDetector {
+    /** Slip speed allowed regardless of module speed, in m/s. */
+    public static final double DEFAULT_SLIP_SPEED = 0.25;
+    /** Slip allowed as a fraction of the module's speed. */
+    public static final double DEFAULT_SLIP_FRACTION = 0.15;
+    /** Accelerometer jerk that counts as a collision, in g/s. */
+    public static final double DEFAULT_MAX_JERK = 25.;
+    /** Gyro angular acceleration that counts as a collision, in rad/s/s. */
+    public static final double DEFAULT_MAX_ANGULAR_ACCELERATION = 50.;
+    /**
+     * Weight of each new gyro rate sample in the filtered rate, from 0 to 1.
+     * Lower is smoother, but slower to see a collision.
+     */
+    public static final double DEFAULT_RATE_FILTER = 0.5;
+    /** Samples in a row over a threshold that count as a collision. */
+    public static final int DEFAULT_COLLISION_SAMPLES = 2;
+
+    /** Odometry weight of a slipping module. */
+    private static final double SLIPPING_WEIGHT = 0.1;
+    /** How long to ignore wheel odometry after a collision, in seconds. */
+    private static final double COLLISION_HOLD_TIME = 0.1;
+
+    private final int m_numModules;
+    private final double[] m_moduleX;
+    private final double[] m_moduleY;
+
+    private double m_slipSpeed = DEFAULT_SLIP_SPEED;
+    private double m_slipFraction = DEFAULT_SLIP_FRACTION;
+    private double m_maxJerk = DEFAULT_MAX_JERK;
+    private double m_maxAngularAcceleration = DEFAULT_MAX_ANGULAR_ACCELERATION;
+    private double m_rateFilter = DEFAULT_RATE_FILTER;
+    private int m_collisionSamples = DEFAULT_COLLISION_SAMPLES;
+
+    // Last sample.
+    private double m_lastTimestamp = Double.NaN;
+    private double m_lastGyro = 0.;
+    private final double[] m_lastDistances;
+
+    // Last gyro rate sample, and the filtered rate as of it.
+    private double m_lastRateTimestamp = Double.NaN;
+    private double m_filteredRate = 0.;
+
+    // Samples in a row over each collision threshold.
+    private int m_jerkSamples = 0;
+    private int m_angularAccelerationSamples = 0;
+
+    // Per-module translation after removing the gyro's rotation, in meters.
+    private final double[] m_translationX;
+    private final double[] m_translationY;
+    private final double[] m_moduleSpeeds;
+
+    // The other modules' translations, sorted to find their median.
+    private final double[] m_others;
+
+    private final double[] m_slipSpeeds;
+    private final boolean[] m_slipping;
+    private final double[] m_weights;
+
+    private double m_collisionUntil = Double.NEGATIVE_INFINITY;
+    private volatile boolean m_colliding = false;
+
+    // Telemetry.
+    private volatile long m_slipEvents = 0;
+    private volatile long m_collisionEvents = 0;
+    private volatile double m_lastSlipTime = Double.NaN;
+    private volatile double m_lastCollisionTime = Double.NaN;
+    private volatile double m_lastJerk = 0.;
+    private volatile double m_lastAngularAcceleration = 0.;
+
+    /**
+     * Create a new slip detector.
+     *
+     * @param moduleLocations Locations of the modules relative to the robot
+     *                        center.
+     */
+    public BeakSlipDetector(Translation2d... moduleLocations) {
+        m_numModules = moduleLocations.length;
+
+        m_moduleX = new double[m_numModules];
+        m_moduleY = new double[m_numModules];
+        m_lastDistances = new double[m_numModules];
+        m_translationX = new double[m_numModules];
+        m_translationY = new double[m_numModules];
+        m_moduleSpeeds = new double[m_numModules];
+        m_others = new double[Math.max(m_numModules - 1, 0)];
+        m_slipSpeeds = new double[m_numModules];
+        m_slipping = new boolean[m_numModules];
+        m_weights = new double[m_numModules];
+
+        for (int i = 0; i < m_numModules; i++) {
+            m_moduleX[i] = moduleLocations[i].getX();
+            m_moduleY[i] = moduleLocations[i].getY();
+            m_weights[i] = 1.;
+        }
+    }
+
+    /**
+     * Change the detection thresholds.
+     *
+     * @param slipSpeed              Slip speed allowed regardless of module
+     *                               speed, in m/s.
+     * @param slipFraction           Slip allowed as a fraction of the module's
+     *                               speed.
+     * @param maxJerk                Accelerometer jerk that counts as a
+     *                               collision, in g/s.
+     * @param maxAngularAcceleration Gyro angular acceleration that counts as a
+     *                               collision, in rad/s/s.
+     */
+    public void setThresholds(double slipSpeed, double slipFraction, double maxJerk,
+            double maxAngularAcceleration) {
+        m_slipSpeed = slipSpeed;
+        m_slipFraction = slipFraction;
+        m_maxJerk = maxJerk;
+        m_maxAngularAcceleration = maxAngularAcceleration;
+    }
+
+    /**
+     * Change how collisions are picked out of sensor noise.
+     *
+     * @param rateFilter       Weight of each new gyro rate sample in the
+     *                         filtered rate, from 0 to 1. 1 disables filtering.
+     * @param collisionSamples Samples in a row over a threshold that count as a
+     *                         collision. 1 counts every spike.
+     */
+    public void setCollisionFilter(double rateFilter, int collisionSamples) {
+        m_rateFilter = MathUtil.clamp(rateFilter, 0., 1.);
+        m_collisionSamples = Math.max(collisionSamples, 1);
+    }
+
+    /**
+     * Forget the last sample, e.g. after the module encoders have been reset.
+     * The next sample only sets a baseline.
+     */
+    public void reset() {
+        m_lastTimestamp = Double.NaN;
+        m_lastRateTimestamp = Double.NaN;
+        m_jerkSamples = 0;
+        m_angularAccelerationSamples = 0;
+    }
+
+    /**
+     * Check one odometry sample.
+     *
+     * @param timestamp           Time the module sample was taken, in seconds.
+     * @param gyroRadians         The gyro angle.
+     * @param gyroRateTimestamp   Time the gyro measured its rate, in seconds.
+     * @param gyroRate            The yaw rate the gyro measured, in rad/s.
+     * @param jerk                Magnitude of the accelerometer jerk, in g/s.
+     * @param distances           Each module's drive distance, in meters.
+     * @param anglesRadians       Each module's steer angle.
+     * @return Whether any module's weight changed, i.e. whether
+     *         {@link #getWeights()} needs to be passed on to odometry.
+     */
+    public boolean update(double timestamp, double gyroRadians, double gyroRateTimestamp,
+            double gyroRate, double jerk, double[] distances, double[] anglesRadians) {
+        double dt = timestamp - m_lastTimestamp;
+        double dtheta = MathUtil.angleModulus(gyroRadians - m_lastGyro);
+
+        m_lastGyro = gyroRadians;
+        m_lastTimestamp = timestamp;
+
+        if (!(dt > 0.)) {
+            // First sample, or a repeat; nothing to compare against.
+            System.arraycopy(distances, 0, m_lastDistances, 0, m_numModules);
+            return false;
+        }
+
+        // Collisions.
+        updateAngularAcceleration(gyroRateTimestamp, gyroRate);
+
+        m_lastJerk = jerk;
+        m_jerkSamples = jerk > m_maxJerk ? m_jerkSamples + 1 : 0;
+
+        if (m_jerkSamples >= m_collisionSamples || m_angularAccelerationSamples >= m_collisionSamples) {
+            if (!m_colliding) {
+                m_collisionEvents++;
+                m_lastCollisionTime = timestamp;
+            }
+
+            m_collisionUntil = timestamp + COLLISION_HOLD_TIME;
+        }
+        m_colliding = timestamp < m_collisionUntil;
+
+        // Slip: take out each module's motion due to the rotation the gyro saw.
+        for (int i = 0; i < m_numModules; i++) {
+            double delta = distances[i] - m_lastDistances[i];
+            m_lastDistances[i] = distances[i];
+            m_moduleSpeeds[i] = Math.abs(delta) / dt;
+
+            m_translationX[i] = delta * Math.cos(anglesRadians[i]) + dtheta * m_moduleY[i];
+            m_translationY[i] = delta * Math.sin(anglesRadians[i]) - dtheta * m_moduleX[i];
+        }
+
+        boolean changed = false;
+        for (int i = 0; i < m_numModules; i++) {
+            // Compare against the others only, so a slipping module doesn't
+            // drag the reference towards itself.
+            double othersX = medianOfOthers(m_translationX, i);
+            double othersY = medianOfOthers(m_translationY, i);
+
+            double slipSpeed = Math.hypot(m_translationX[i] - othersX, m_translationY[i] - othersY) / dt;
+            m_slipSpeeds[i] = slipSpeed;
+
+            boolean slipping = slipSpeed > m_slipSpeed + m_slipFraction * m_moduleSpeeds[i];
+            if (slipping != m_slipping[i]) {
+                if (slipping) {
+                    m_slipEvents++;
+                    m_lastSlipTime = timestamp;
+                }
+
+                m_slipping[i] = slipping;
+                m_weights[i] = slipping ? SLIPPING_WEIGHT : 1.;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Filter a gyro rate sample and differentiate it, if it's a new one.
+     *
+     * @param rateTimestamp Time the gyro measured the rate, in seconds.
+     * @param rate          The measured rate, in rad/s.
+     */
+    private void updateAngularAcceleration(double rateTimestamp, double rate) {
+        double dt = rateTimestamp - m_lastRateTimestamp;
+
+        if (Double.isNaN(m_lastRateTimestamp)) {
+            // First sample; start the filter from it.
+            m_filteredRate = rate;
+            m_lastRateTimestamp = rateTimestamp;
+            return;
+        } else if (!(dt > 0.)) {
+            // The gyro hasn't sent a new sample since the last one.
+            return;
+        }
+
+        double filteredRate = m_filteredRate + m_rateFilter * (rate - m_filteredRate);
+        double angularAcceleration = (filteredRate - m_filteredRate) / dt;
+
+        m_filteredRate = filteredRate;
+        m_lastRateTimestamp = rateTimestamp;
+
+        // A noise spike filters to a swing one way and then back, so only
+        // count samples that keep accelerating the same way.
+        if (Math.abs(angularAcceleration) > m_maxAngularAcceleration) {
+            boolean sameWay = Math.signum(angularAcceleration) == Math.signum(m_lastAngularAcceleration);
+            m_angularAccelerationSamples = sameWay ? m_angularAccelerationSamples + 1 : 1;
+        } else {
+            m_angularAccelerationSamples = 0;
+        }
+        m_lastAngularAcceleration = angularAcceleration;
+    }
+
+    private double medianOfOthers(double[] values, int module) {
+        int count = 0;
+        for (int i = 0; i < m_numModules; i++) {
+            if (i != module) {
+                m_others[count++] = values[i];
+            }
+        }
+
+        if (count == 0) {
+            return values[module];
+        }
+
+        Arrays.sort(m_others);
+
+        int middle = count / 2;
+        return count % 2 == 1 ? m_others[middle] : (m_others[middle - 1] + m_others[middle]) / 2.;
+    }
+
+    /**
+     * Get each module's odometry weight, from the last sample.
+     *
+     * @return One weight per module; 1 for a module that isn't slipping.
+     */
+    public double[] getWeights() {
+        return m_weights;
+    }
+
+    /**
+     * Get whether a module was slipping as of the last sample.
+     *
+     * @param module Index of the module.
+     * @return Whether it's slipping.
+     */
+    public boolean isSlipping(int module) {
+        return m_slipping[module];
+    }
+
+    /**
+     * Get whether the robot is in, or just had, a collision.
+     *
+     * @return True if wheel odometry shouldn't be trusted right now.
+     */
+    public boolean isColliding() {
+        return m_colliding;
+    }
+
+    /**
+     * Get how many times a module started slipping.
+     *
+     * @return Number of slip events.
+     */
+    public long getSlipEvents() {
+        return m_slipEvents;
+    }
+
+    /**
+     * Get how many collisions were detected.
+     *
+     * @return Number of collision events.
+     */
+    public long getCollisionEvents() {
+        return m_collisionEvents;
+    }
+
+    /**
+     * Get when a module last started slipping.
+     *
+     * @return Timestamp in seconds, or NaN if none has.
+     */
+    public double getLastSlipTime() {
+        return m_lastSlipTime;
+    }
+
+    /**
+     * Get when the last collision started.
+     *
+     * @return Timestamp in seconds, or NaN if there hasn't been one.
+     */
+    public double getLastCollisionTime() {
+        return m_lastCollisionTime;
+    }
+
+    /**
+     * Publish detection state to SmartDashboard.
+     *
+     * @param name The key prefix to publish under.
+     */
+    public void publish(String name) {
+        SmartDashboard.putBoolean(name + "/Colliding", m_colliding);
+        SmartDashboard.putNumber(name + "/Collision Events", m_collisionEvents);
+        SmartDashboard.putNumber(name + "/Last Collision Time", m_lastCollisionTime);
+        SmartDashboard.putNumber(name + "/Jerk", m_lastJerk);
+        SmartDashboard.putNumber(name + "/Angular Acceleration", m_lastAngularAcceleration);
+
+        SmartDashboard.putNumber(name + "/Slip Events", m_slipEvents);
+        SmartDashboard.putNumber(name + "/Last Slip Time", m_lastSlipTime);
+        for (int i = 0; i < m_numModules; i++) {
+            SmartDashboard.putBoolean(name + "/Module " + i + "/Slipping", m_slipping[i]);
+            SmartDashboard.putNumber(name + "/Module " + i + "/Slip Speed", m_slipSpeeds[i]);
+        }
+    }
+}
@@ -7,19 +7,25 @@ package frc.lib.beaklib.drive.swerve;
 import java.util.ArrayList;
 import java.util.List;
 
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import com.ctre.phoenix6.BaseStatusSignal;
+
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.beaklib.BeakSeqLock;
+import frc.lib.beaklib.CTRESignalStore;
+import frc.lib.beaklib.BeakSynchronousLoop;
 import frc.lib.beaklib.drive.BeakDrivetrain;
+import frc.lib.beaklib.drive.BeakVisionQueue;
 import frc.lib.beaklib.drive.swerve.BeakSwerveModule.DriveRequestType;
 import frc.lib.beaklib.drive.swerve.requests.BeakChassisSpeedsDrive;
 import frc.lib.beaklib.drive.swerve.requests.BeakSwerveIdle;
@@ -27,9 +33,12 @@ import frc.lib.beaklib.drive.swerve.requests.BeakSwerveRequest;
 import frc.lib.beaklib.drive.swerve.requests.BeakSwerveRequest.SwerveControlRequestParameters;
 import frc.lib.beaklib.gyro.BeakGyro;
 import frc.lib.beaklib.gyro.BeakV6Pigeon2;
+import frc.lib.beaklib.motor.BeakCurrentBudget;
 
 /** Generic Swerve Drivetrain subsystem. */
 public class BeakSwerveDrivetrain extends BeakDrivetrain {
+    private static final double DEFAULT_UPDATE_PERIOD = 1.0 / 50.0;
+
     /**
      * <p>
      * The modules in this swerve drivetrain.
@@ -43,16 +52,53 @@ public class BeakSwerveDrivetrain extends BeakDrivetrain {
 
     protected int m_numModules;
 
-    protected SwerveDrivePoseEstimator m_odom;
+    protected BeakPoseEstimator m_odom;
+    protected BeakSlipDetector m_slipDetector;
+
+    // Odometry sample, reused every update.
+    private double[] m_odomDistances;
+    private double[] m_odomAngles;
+    // Gyro angle of the last odometry update, for resets. Guarded by this.
+    private double m_odomGyro = 0.;
+
+    // Measured module states, read every cycle.
+    private final double[] m_moduleSnapshot = new double[BeakSwerveModule.SNAPSHOT_SIZE];
+    private double[] m_measuredSpeeds;
+    private double[] m_measuredAngles;
     protected SwerveDriveKinematics m_kinematics;
 
-    protected BeakChassisSpeedsDrive m_chassisSpeedsDrive = new BeakChassisSpeedsDrive().withDriveRequestType(DriveRequestType.Velocity);
+    protected BeakChassisSpeedsDrive m_chassisSpeedsDrive = new BeakChassisSpeedsDrive()
+            .withDriveRequestType(DriveRequestType.Velocity);
 
-    protected BeakSwerveRequest m_currentRequest = new BeakSwerveIdle();
+    protected volatile BeakSwerveRequest m_currentRequest = new BeakSwerveIdle();
+    private BeakSwerveRequest m_lastRequest = null;
     protected SwerveControlRequestParameters m_requestParameters = new SwerveControlRequestParameters();
 
     protected BeakSwerveSim m_simDrive;
 
+    protected BeakSetpointUpsampler m_upsampler = null;
+
+    protected BeakSynchronousLoop m_syncLoop = null;
+
+    protected Notifier m_controlLoop = null;
+    private BaseStatusSignal[] m_controlSignals = new BaseStatusSignal[0];
+    private double m_nominalPeriod = DEFAULT_UPDATE_PERIOD;
+
+    // The estimated pose (x, y, heading in radians, timestamp), readable from any
+    // thread.
+    private final BeakSeqLock m_poseSnapshot = new BeakSeqLock(4);
+    // Per-thread buffers for reading it back, so getters don't allocate one
+    // each call.
+    private final ThreadLocal<double[]> m_poseRead = ThreadLocal.withInitial(() -> new double[4]);
+    private final double[] m_poseWrite = new double[4];
+    private final double[] m_speedsWrite = new double[3];
+    // Per-thread module speeds and angles for readChassisSpeeds.
+    private final ThreadLocal<double[][]> m_speedsRead = ThreadLocal.withInitial(
+            () -> new double[][] { new double[m_numModules], new double[m_numModules],
+                    new double[BeakSwerveModule.SNAPSHOT_SIZE] });
+
+    private final BeakVisionQueue.MeasurementConsumer m_visionConsumer = this::applyVisionMeasurement;
+
     /**
      * Create a new Swerve drivetrain.
      * 
@@ -79,11 +125,26 @@ public class BeakSwerveDrivetrain extends BeakDrivetrain {
 
         m_kinematics = new SwerveDriveKinematics(moduleLocations);
 
-        m_odom = new SwerveDrivePoseEstimator(m_kinematics, getGyroRotation2d(), getModulePositions(), new Pose2d());
+        // Nothing runs the control cycle yet, so take the first readings here.
+        for (BeakSwerveModule module : m_modules) {
+            module.updateSnapshot();
+        }
+        m_odomGyro = getGyroRadians();
+
+        m_odom = new BeakPoseEstimator(moduleLocations, Rotation2d.fromRadians(m_odomGyro), getModulePositions(),
+                new Pose2d());
+        m_slipDetector = new BeakSlipDetector(moduleLocations);
+        m_odomDistances = new double[m_numModules];
+        m_odomAngles = new double[m_numModules];
+        m_measuredSpeeds = new double[m_numModules];
+        m_measuredAngles = new double[m_numModules];
 
         m_requestParameters.kinematics = m_kinematics;
+        m_requestParameters.swerveKinematics = new BeakSwerveKinematics(moduleLocations);
+        m_requestParameters.setpointGenerator = new BeakSwerveSetpointGenerator(m_numModules, m_config);
         m_requestParameters.swervePositions = getModuleLocations();
-        m_requestParameters.updatePeriod = 1.0 / 50.0;
+        m_requestParameters.updatePeriod = DEFAULT_UPDATE_PERIOD;
+        m_requestParameters.maxSpeed = m_config.MaxSpeed;
 
         // m_simDrive = new BeakSwerveSim(getModuleLocations(), (BeakV6Pigeon2) m_gyro, m_config, m_modules);
 
@@ -91,44 +152,176 @@ public class BeakSwerveDrivetrain extends BeakDrivetrain {
     }
 
     /**
-     * Set the next requested control type.
+     * Set the next requested control type. Changes to the request's parameters
+     * take effect the next time it's set.
      * 
      * @param request The {@link BeakSwerveRequest} to apply.
      */
     public void setControl(BeakSwerveRequest request) {
+        // The control cycle may run on another thread, so it works from a copy
+        // of the request's parameters as they are now.
+        request.capture();
         m_currentRequest = request;
     }
 
     @Override
     public Pose2d updateOdometry() {
-        m_pose = m_odom.updateWithTime(
-                RobotController.getFPGATime() / 1000000.,
-                getGyroRotation2d(),
-                getModulePositions());
+        updatePoseEstimate();
 
+        m_pose = getPoseMeters();
         return m_pose;
     }
 
+    /**
+     * Update the pose estimate from the sensors and queued vision, without
+     * allocating.
+     */
+    private synchronized void updatePoseEstimate() {
+        double now = Timer.getFPGATimestamp();
+        double timestamp = getSampleTimestamp();
+        double gyro = getGyroRadians();
+        m_odomGyro = gyro;
+
+        for (int i = 0; i < m_numModules; i++) {
+            BeakSwerveModule module = m_modules.get(i);
+            m_odomDistances[i] = module.getDriveDistanceMeters();
+            m_odomAngles[i] = module.getSteerEncoderRadians();
+        }
+
+        // Discount slipping modules, and stop trusting the wheels at all during
+        // a collision. The accelerometer is read now, not when the modules were
+        // sampled, so its jerk is timed by the FPGA clock. The gyro rate
+        // carries its own timestamp.
+        if (m_slipDetector.update(timestamp, gyro, getGyroRateTimestamp(), getGyroRateRadiansPerSecond(),
+                updateJerk(now), m_odomDistances, m_odomAngles)) {
+            m_odom.setModuleWeights(m_slipDetector.getWeights());
+        }
+
+        m_odom.updateWithTime(timestamp, gyro, m_odomDistances, m_odomAngles, !m_slipDetector.isColliding());
+
+        m_odom.getEstimatedPosition(m_poseWrite);
+        m_visionQueue.drain(m_poseWrite[0], m_poseWrite[1], m_poseWrite[2], now, m_visionConsumer);
+
+        publishPose();
+    }
+
+    private void applyVisionMeasurement(Pose2d pose, double timestamp, double stdDevX, double stdDevY,
+            double stdDevRot) {
+        m_odom.addVisionMeasurement(pose.getX(), pose.getY(), pose.getRotation().getRadians(), timestamp,
+                stdDevX, stdDevY, stdDevRot);
+    }
+
+    /**
+     * Store the estimated pose for readers. Call after every change to the
+     * estimator.
+     */
+    private void publishPose() {
+        m_odom.getEstimatedPosition(m_poseWrite);
+        m_poseWrite[3] = m_odom.getLatestTimestamp();
+        m_poseSnapshot.write(m_poseWrite);
+    }
+
+    /**
+     * Read the estimated pose and its timestamp without allocating. Safe to call
+     * from any thread.
+     * 
+     * Since the timestamp was added, this needs four elements, where it used to
+     * need three; a three-element array throws.
+     * 
+     * @param out Array of at least four elements, which receives x and y in
+     *            meters, heading in radians, then the timestamp of the pose,
+     *            which is NaN right after a reset.
+     */
     @Override
-    public void addVisionMeasurement(Pose2d estimatedPose, double timestamp) {
-        Transform2d poseError = estimatedPose.minus(m_odom.getEstimatedPosition());
+    public void readPose(double[] out) {
+        m_poseSnapshot.read(out);
+    }
 
-        if (!estimatedPose.equals(new Pose2d()) && !estimatedPose.equals(getPoseMeters()) &&
-                Math.abs(poseError.getX()) < 0.5 &&
-                Math.abs(poseError.getY()) < 0.5) {
-            m_odom.addVisionMeasurement(estimatedPose, timestamp);
+    /**
+     * Read a module's state, as of the last control cycle. Safe to call from any
+     * thread, and doesn't allocate.
+     * 
+     * @param module Index of the module.
+     * @param out    Array of at least {@link BeakSwerveModule#SNAPSHOT_SIZE}
+     *               elements.
+     */
+    public void readModuleSnapshot(int module, double[] out) {
+        m_modules.get(module).readSnapshot(out);
+    }
+
+    /**
+     * Get when the module positions used by odometry were sampled, so that vision
+     * measurements line up with the right point in the pose history.
+     * 
+     * @return Timestamp of the newest module reading, on the FPGA clock.
+     */
+    protected double getSampleTimestamp() {
+        double now = Timer.getFPGATimestamp();
+
+        double timestamp = 0.;
+        for (BeakSwerveModule module : m_modules) {
+            timestamp = Math.max(timestamp, module.getSampleTimestamp());
         }
+
+        // Guard against a sensor that hasn't reported yet.
+        return timestamp > 0. && timestamp <= now ? timestamp : now;
     }
 
     @Override
     public Pose2d getPoseMeters() {
-        return m_odom.getEstimatedPosition();
+        double[] pose = m_poseRead.get();
+        readPose(pose);
+
+        return new Pose2d(pose[0], pose[1], new Rotation2d(pose[2]));
     }
 
     @Override
-    public void resetOdometry(Pose2d pose) {
-        if (!pose.equals(new Pose2d()))
-            m_odom.resetPosition(getGyroRotation2d(), getModulePositions(), pose);
+    public double getPoseTimestamp() {
+        double[] pose = m_poseRead.get();
+        readPose(pose);
+
+        // NaN right after a reset, before any odometry.
+        return Double.isNaN(pose[3]) ? Timer.getFPGATimestamp() : pose[3];
+    }
+
+    @Override
+    protected boolean samplePoseHistory(double timestamp, double[] out) {
+        return m_odom.getEstimatedPositionAt(timestamp, out);
+    }
+
+    /**
+     * Read the robot-relative chassis speeds from the module snapshots, without
+     * allocating. Safe to call from any thread.
+     * 
+     * @param out Array of at least three elements, which receives vx and vy in
+     *            m/s, then omega in rad/s.
+     */
+    @Override
+    public void readChassisSpeeds(double[] out) {
+        double[][] scratch = m_speedsRead.get();
+        double[] speeds = scratch[0];
+        double[] angles = scratch[1];
+        double[] snapshot = scratch[2];
+
+        for (int i = 0; i < m_numModules; i++) {
+            m_modules.get(i).readSnapshot(snapshot);
+            speeds[i] = snapshot[BeakSwerveModule.SNAPSHOT_SPEED];
+            angles[i] = snapshot[BeakSwerveModule.SNAPSHOT_ANGLE];
+        }
+
+        m_requestParameters.swerveKinematics.toChassisSpeeds(speeds, angles, out);
+    }
+
+    @Override
+    public synchronized void resetOdometry(Pose2d pose) {
+        if (!pose.equals(new Pose2d())) {
+            // Reset against the last update's readings, which the estimator
+            // continues from, rather than reading signals the control thread
+            // may be refreshing.
+            m_odom.resetPosition(Rotation2d.fromRadians(m_odomGyro), getModulePositions(), pose);
+            m_slipDetector.reset();
+            publishPose();
+        }
     }
 
     @Override
@@ -150,31 +343,228 @@ public class BeakSwerveDrivetrain extends BeakDrivetrain {
         m_simDrive.update(dtSeconds, supplyVoltage, m_modules);
     }
 
+    @Override
+    public void setCurrentBudget(BeakCurrentBudget budget) {
+        super.setCurrentBudget(budget);
+
+        for (BeakSwerveModule module : m_modules) {
+            module.registerCurrentBudget(budget);
+        }
+    }
+
+    /**
+     * Model the temperature of every module's motors, tapering their current
+     * limits before they overheat. With a current budget, the budget applies the
+     * derating, whichever of the two is set up first.
+     * 
+     * @param driveMotor Model of the drive motors.
+     * @param steerMotor Model of the steer motors.
+     */
+    public void enableThermalModels(DCMotor driveMotor, DCMotor steerMotor) {
+        for (int i = 0; i < m_numModules; i++) {
+            m_modules.get(i).enableThermalModels("Module " + i, driveMotor, steerMotor);
+        }
+    }
+
+    /**
+     * Set the speed below which every module holds its last angle instead of
+     * chasing noisy ones. See {@link BeakSwerveModule#setSteerHoldSpeed}.
+     * 
+     * @param metersPerSecond The hold speed, in m/s. 0 disables holding.
+     */
+    public void setSteerHoldSpeed(double metersPerSecond) {
+        for (BeakSwerveModule module : m_modules) {
+            module.setSteerHoldSpeed(metersPerSecond);
+        }
+    }
+
+    /**
+     * Limit the module setpoints sent by {@link #drive(ChassisSpeeds)}, e.g.
+     * from PathPlanner, to what the modules can actually do. Off by default.
+     * 
+     * @param limitSetpoints Whether to run the speeds through the setpoint
+     *                       generator.
+     */
+    public void setLimitSetpoints(boolean limitSetpoints) {
+        m_chassisSpeedsDrive.withLimitSetpoints(limitSetpoints);
+    }
+
+    /**
+     * Get the detector that discounts slipping modules and collisions in
+     * odometry, e.g. to tune its thresholds.
+     * 
+     * @return The {@link BeakSlipDetector}.
+     */
+    public BeakSlipDetector getSlipDetector() {
+        return m_slipDetector;
+    }
+
+    /**
+     * Send module setpoints from a separate, faster thread, extrapolating the
+     * request's output between main loop iterations. This smooths out the 20ms
+     * steps the motors would otherwise see.
+     * 
+     * @param frequencyHz How often to send setpoints. 100-250 Hz is reasonable.
+     */
+    public void enableSetpointUpsampling(double frequencyHz) {
+        disableSetpointUpsampling();
+
+        m_upsampler = new BeakSetpointUpsampler(m_modules, frequencyHz);
+        m_upsampler.start();
+    }
+
+    /**
+     * Stop upsampling setpoints, and go back to sending them once per loop.
+     */
+    public void disableSetpointUpsampling() {
+        if (m_upsampler != null) {
+            m_upsampler.close();
+            m_upsampler = null;
+        }
+    }
+
+    /**
+     * <p>
+     * Run the drivetrain's control cycle as soon as fresh module and gyro data
+     * arrives, on its own thread, instead of in {@link #periodic()}.
+     * </p>
+     * 
+     * Only Phoenix 6 signals can be waited on. For the best results, give every
+     * module and gyro signal the same update frequency.
+     * 
+     * @param timeoutSeconds How long to wait for fresh data before running the
+     *                       cycle anyway.
+     */
+    public void enableSynchronousLoop(double timeoutSeconds) {
+        disableSynchronousLoop();
+        disableControlLoop();
+
+        m_syncLoop = new BeakSynchronousLoop(getControlSignals(), timeoutSeconds, this::runControlCycle);
+        m_syncLoop.start();
+    }
+
+    /**
+     * Stop the synchronous loop, and go back to running the control cycle in
+     * {@link #periodic()}.
+     */
+    public void disableSynchronousLoop() {
+        if (m_syncLoop != null) {
+            m_syncLoop.close();
+            m_syncLoop = null;
+        }
+
+        m_requestParameters.updatePeriod = DEFAULT_UPDATE_PERIOD;
+    }
+
+    /**
+     * <p>
+     * Run the drivetrain's control cycle on its own thread at a fixed rate,
+     * instead of in {@link #periodic()}.
+     * </p>
+     * 
+     * Requests are discretized over the measured time between cycles, so this
+     * can run faster than the main loop without changing how requests behave.
+     * Use {@link #enableSynchronousLoop(double)} instead to run whenever fresh
+     * Phoenix 6 data arrives.
+     * 
+     * @param frequencyHz How often to run the control cycle. 100-250 Hz is
+     *                    reasonable.
+     */
+    public void enableControlLoop(double frequencyHz) {
+        disableControlLoop();
+        disableSynchronousLoop();
+
+        m_nominalPeriod = 1. / frequencyHz;
+        m_controlSignals = getControlSignals();
+        CTRESignalStore.claim(m_controlSignals);
+
+        m_controlLoop = new Notifier(this::runControlLoop);
+        m_controlLoop.setName("Swerve Control Loop");
+        m_controlLoop.startPeriodic(m_nominalPeriod);
+    }
+
+    /**
+     * Stop the control loop thread, and go back to running the control cycle in
+     * {@link #periodic()}.
+     */
+    public void disableControlLoop() {
+        if (m_controlLoop != null) {
+            m_controlLoop.stop();
+            m_controlLoop.close();
+            m_controlLoop = null;
+
+            CTRESignalStore.release(m_controlSignals);
+        }
+
+        m_nominalPeriod = DEFAULT_UPDATE_PERIOD;
+    }
+
+    /**
+     * Get every Phoenix 6 module and gyro signal the control cycle reads.
+     * 
+     * @return The signals, possibly empty.
+     */
+    private BaseStatusSignal[] getControlSignals() {
+        List<BaseStatusSignal> signals = new ArrayList<>();
+        for (BeakSwerveModule module : m_modules) {
+            signals.addAll(List.of(module.getPhoenixSignals()));
+        }
+
+        if (m_gyro != null) {
+            signals.addAll(List.of(getGyroYawSignal().getPhoenixSignals()));
+            signals.addAll(List.of(getGyroRateSignal().getPhoenixSignals()));
+        }
+
+        return signals.toArray(new BaseStatusSignal[0]);
+    }
+
+    private void runControlLoop() {
+        // The signal store only refreshes once per main loop, which would leave
+        // most cycles running on stale data. These signals are claimed, so this
+        // is the only thread that refreshes them.
+        if (m_controlSignals.length > 0) {
+            BaseStatusSignal.refreshAll(m_controlSignals);
+        }
+        CTRESignalStore.notifyRefreshed();
+
+        runControlCycle();
+    }
+
     /* Swerve-specific Methods */
 
     /**
-     * Get the states of each module.
+     * Get the states of each module, as of the last control cycle. Safe to call
+     * from any thread.
      * 
      * @return Array of {@link SwerveModuleState}s for each module.
      */
     public SwerveModuleState[] getModuleStates() {
+        double[] snapshot = m_speedsRead.get()[2];
+
         SwerveModuleState[] states = new SwerveModuleState[m_numModules];
         for (int i = 0; i < m_numModules; i++) {
-            states[i] = m_modules.get(i).getState();
+            m_modules.get(i).readSnapshot(snapshot);
+            states[i] = new SwerveModuleState(snapshot[BeakSwerveModule.SNAPSHOT_SPEED],
+                    new Rotation2d(snapshot[BeakSwerveModule.SNAPSHOT_ABSOLUTE_ANGLE]));
         }
 
         return states;
     }
 
     /**
-     * Get the positions of each module.
+     * Get the positions of each module, as of the last control cycle. Safe to
+     * call from any thread.
      * 
      * @return Array of {@link SwerveModulePosition}s for each module.
      */
     public SwerveModulePosition[] getModulePositions() {
+        double[] snapshot = m_speedsRead.get()[2];
+
         SwerveModulePosition[] states = new SwerveModulePosition[m_numModules];
         for (int i = 0; i < m_numModules; i++) {
-            states[i] = m_modules.get(i).getPosition();
+            m_modules.get(i).readSnapshot(snapshot);
+            states[i] = new SwerveModulePosition(snapshot[BeakSwerveModule.SNAPSHOT_DISTANCE],
+                    new Rotation2d(snapshot[BeakSwerveModule.SNAPSHOT_ANGLE]));
         }
 
         return states;
@@ -195,14 +585,17 @@ public class BeakSwerveDrivetrain extends BeakDrivetrain {
     }
 
     /**
-     * Get the angles of each module.
+     * Get the angles of each module, as of the last control cycle.
      * 
      * @return Array of the angles for each module.
      */
     public double[] getModuleAngles() {
+        double[] snapshot = m_speedsRead.get()[2];
+
         double[] states = new double[m_numModules];
         for (int i = 0; i < m_numModules; i++) {
-            states[i] = Units.radiansToDegrees(m_modules.get(i).getSteerEncoderRadians());
+            m_modules.get(i).readSnapshot(snapshot);
+            states[i] = Units.radiansToDegrees(snapshot[BeakSwerveModule.SNAPSHOT_ANGLE]);
         }
 
         return states;
@@ -218,7 +611,8 @@ public class BeakSwerveDrivetrain extends BeakDrivetrain {
     }
 
     /**
-     * Re-zero all steer encoders to match the CANCoder.
+     * Re-zero all steer encoders to match the CANCoder. Takes effect over the
+     * next few control cycles, once each module has fresh samples.
      */
     public void resetSteering() {
         for (BeakSwerveModule module : m_modules) {
@@ -231,12 +625,20 @@ public class BeakSwerveDrivetrain extends BeakDrivetrain {
      */
     public void zero() {
         resetSteering();
-        m_odom.resetPosition(getGyroRotation2d(), getModulePositions(), new Pose2d());
+
+        synchronized (this) {
+            m_odom.resetPosition(Rotation2d.fromRadians(m_odomGyro), getModulePositions(), new Pose2d());
+            m_slipDetector.reset();
+            publishPose();
+        }
     }
 
-    private ChassisSpeeds getChassisSpeeds() {
-        return m_kinematics.toChassisSpeeds(
-                getModuleStates());
+    @Override
+    public ChassisSpeeds getChassisSpeeds() {
+        double[] speeds = new double[3];
+        readChassisSpeeds(speeds);
+
+        return new ChassisSpeeds(speeds[0], speeds[1], speeds[2]);
     }
 
     /**
@@ -274,14 +676,81 @@ public class BeakSwerveDrivetrain extends BeakDrivetrain {
     public void periodic() {
         super.periodic();
 
-        updateOdometry();
+        long savedSteerFrames = 0;
+        long savedDriveFrames = 0;
+        for (BeakSwerveModule module : m_modules) {
+            module.updateThermalModels();
+
+            savedSteerFrames += module.getSavedSteerFrames();
+            savedDriveFrames += module.getSavedDriveFrames();
+        }
 
-        m_requestParameters.currentPose = m_odom.getEstimatedPosition();
-        m_requestParameters.currentChassisSpeed = getChassisSpeeds();
-        m_requestParameters.timestamp = Timer.getFPGATimestamp();
+        SmartDashboard.putNumber("Saved Steer Frames", savedSteerFrames);
+        SmartDashboard.putNumber("Saved Drive Frames", savedDriveFrames);
 
-        // if (m_currentRequest != null) {
-        m_currentRequest.apply(m_requestParameters, m_modules);
-        // }
+        m_slipDetector.publish("Slip Detector");
+
+        if (m_syncLoop != null) {
+            m_syncLoop.publish("Synchronous Loop");
+        } else if (m_controlLoop == null) {
+            runControlCycle();
+        }
+    }
+
+    /**
+     * Read the sensors, run the current request, and send the module setpoints.
+     */
+    protected void runControlCycle() {
+        for (int i = 0; i < m_numModules; i++) {
+            m_modules.get(i).updateSteerReseed();
+        }
+
+        updatePoseEstimate();
+
+        for (int i = 0; i < m_numModules; i++) {
+            m_modules.get(i).updateSnapshot();
+        }
+
+        // Discretize over the time actually elapsed, unless the last cycle was
+        // too long ago to mean anything (e.g. the first one).
+        double now = Timer.getFPGATimestamp();
+        double nominalPeriod = m_syncLoop != null ? m_syncLoop.getPeriod() : m_nominalPeriod;
+        if (!(nominalPeriod > 0.)) {
+            nominalPeriod = DEFAULT_UPDATE_PERIOD;
+        }
+        double dt = now - m_requestParameters.timestamp;
+
+        m_requestParameters.updatePeriod = dt > 0. && dt < 2. * nominalPeriod ? dt : nominalPeriod;
+        m_requestParameters.timestamp = now;
+
+        m_odom.getEstimatedPosition(m_requestParameters.currentPose);
+
+        for (int i = 0; i < m_numModules; i++) {
+            m_modules.get(i).readSnapshot(m_moduleSnapshot);
+            m_measuredSpeeds[i] = m_moduleSnapshot[BeakSwerveModule.SNAPSHOT_SPEED];
+            m_measuredAngles[i] = m_moduleSnapshot[BeakSwerveModule.SNAPSHOT_ANGLE];
+        }
+
+        m_requestParameters.swerveKinematics.toChassisSpeeds(m_measuredSpeeds, m_measuredAngles, m_speedsWrite);
+        m_requestParameters.currentChassisSpeed.vxMetersPerSecond = m_speedsWrite[0];
+        m_requestParameters.currentChassisSpeed.vyMetersPerSecond = m_speedsWrite[1];
+        m_requestParameters.currentChassisSpeed.omegaRadiansPerSecond = m_speedsWrite[2];
+
+        BeakSwerveRequest request = m_currentRequest;
+
+        // Another request may have moved the modules since the generator last
+        // ran, so its last setpoint can't be trusted. Start from what the
+        // modules are actually doing, so switching requests on the move doesn't
+        // brake.
+        if (request != m_lastRequest) {
+            m_requestParameters.setpointGenerator.reset(m_measuredSpeeds, m_measuredAngles);
+            m_lastRequest = request;
+        }
+
+        request.apply(m_requestParameters, m_modules);
+
+        if (m_upsampler != null) {
+            m_upsampler.capture(m_requestParameters.timestamp, m_requestParameters.updatePeriod);
+        }
     }
 }
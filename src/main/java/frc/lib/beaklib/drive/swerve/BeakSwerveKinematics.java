@@ -0,0 +1,438 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * <p>
+ * Swerve inverse kinematics that work in place, without allocating.
+ * </p>
+ *
+ * <p>
+ * This gives the same module states as WPILib's
+ * {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics}, but writes them
+ * into preallocated per-module arrays (one array each for vx, vy, speed and
+ * angle) instead of returning new {@link
+ * edu.wpi.first.math.kinematics.SwerveModuleState} objects. Module positions
+ * relative to the center of rotation are cached, and only recomputed when the
+ * center of rotation changes.
+ * </p>
+ *
+ * Only use one instance from one thread at a time; the output arrays are
+ * shared.
+ */
+public class BeakSwerveKinematics {
+    private static final double STOPPED_SPEED = 1e-3;
+
+    private final int m_numModules;
+    private final double[] m_moduleX;
+    private final double[] m_moduleY;
+
+    // Module positions relative to the cached center of rotation.
+    private double m_centerX = 0.;
+    private double m_centerY = 0.;
+    private final double[] m_relativeX;
+    private final double[] m_relativeY;
+
+    private final double[] m_vx;
+    private final double[] m_vy;
+    private final double[] m_speed;
+    private final double[] m_angle;
+    private final double[] m_driveAcceleration;
+    private final double[] m_steerVelocity;
+
+    // Inverse of the forward kinematics normal matrix, row-major.
+    private final double[] m_forwardInverse = new double[9];
+
+    /**
+     * Create new kinematics.
+     *
+     * @param moduleLocations Locations of the modules relative to the robot
+     *                        center.
+     */
+    public BeakSwerveKinematics(Translation2d... moduleLocations) {
+        m_numModules = moduleLocations.length;
+
+        m_moduleX = new double[m_numModules];
+        m_moduleY = new double[m_numModules];
+        m_relativeX = new double[m_numModules];
+        m_relativeY = new double[m_numModules];
+
+        m_vx = new double[m_numModules];
+        m_vy = new double[m_numModules];
+        m_speed = new double[m_numModules];
+        m_angle = new double[m_numModules];
+        m_driveAcceleration = new double[m_numModules];
+        m_steerVelocity = new double[m_numModules];
+
+        for (int i = 0; i < m_numModules; i++) {
+            m_moduleX[i] = moduleLocations[i].getX();
+            m_moduleY[i] = moduleLocations[i].getY();
+            m_relativeX[i] = m_moduleX[i];
+            m_relativeY[i] = m_moduleY[i];
+        }
+
+        computeForwardInverse();
+    }
+
+    /**
+     * Get the number of modules.
+     *
+     * @return Number of modules.
+     */
+    public int getNumModules() {
+        return m_numModules;
+    }
+
+    /**
+     * Compute module states for robot-relative chassis speeds, rotating around
+     * the robot center.
+     *
+     * @param vx    Forward velocity, in m/s.
+     * @param vy    Leftward velocity, in m/s.
+     * @param omega Counterclockwise angular velocity, in rad/s.
+     */
+    public void toModuleStates(double vx, double vy, double omega) {
+        toModuleStates(vx, vy, omega, 0., 0.);
+    }
+
+    /**
+     * <p>
+     * Compute module states for robot-relative chassis speeds.
+     * </p>
+     *
+     * Like WPILib, if the chassis is commanded to stop entirely, every module
+     * keeps its last angle. Module accelerations are zeroed; see
+     * {@link #toModuleAccelerations}.
+     *
+     * @param vx      Forward velocity, in m/s.
+     * @param vy      Leftward velocity, in m/s.
+     * @param omega   Counterclockwise angular velocity, in rad/s.
+     * @param centerX X of the center of rotation, in meters.
+     * @param centerY Y of the center of rotation, in meters.
+     */
+    public void toModuleStates(double vx, double vy, double omega, double centerX, double centerY) {
+        for (int i = 0; i < m_numModules; i++) {
+            m_driveAcceleration[i] = 0.;
+            m_steerVelocity[i] = 0.;
+        }
+
+        if (vx == 0. && vy == 0. && omega == 0.) {
+            for (int i = 0; i < m_numModules; i++) {
+                m_vx[i] = 0.;
+                m_vy[i] = 0.;
+                m_speed[i] = 0.;
+            }
+            return;
+        }
+
+        if (centerX != m_centerX || centerY != m_centerY) {
+            m_centerX = centerX;
+            m_centerY = centerY;
+
+            for (int i = 0; i < m_numModules; i++) {
+                m_relativeX[i] = m_moduleX[i] - centerX;
+                m_relativeY[i] = m_moduleY[i] - centerY;
+            }
+        }
+
+        for (int i = 0; i < m_numModules; i++) {
+            double moduleVx = vx - omega * m_relativeY[i];
+            double moduleVy = vy + omega * m_relativeX[i];
+
+            m_vx[i] = moduleVx;
+            m_vy[i] = moduleVy;
+            m_speed[i] = Math.hypot(moduleVx, moduleVy);
+            m_angle[i] = Math.atan2(moduleVy, moduleVx);
+        }
+    }
+
+    /**
+     * <p>
+     * Compute how fast each module's speed and angle are changing, from the
+     * chassis acceleration. Call this after {@link #toModuleStates}.
+     * </p>
+     *
+     * <p>
+     * The acceleration is the rate of change of the robot-relative chassis
+     * speeds, so it includes the rotation of the frame itself: a robot holding
+     * a field-relative velocity while spinning has robot-relative speeds that
+     * rotate the other way. This is what makes modules lag, and the chassis
+     * skew, when translating and rotating at once.
+     * </p>
+     *
+     * A module's acceleration along its wheel is its drive acceleration; across
+     * its wheel, divided by its speed, is how fast it has to steer.
+     *
+     * @param ax    Rate of change of the forward velocity, in m/s/s.
+     * @param ay    Rate of change of the leftward velocity, in m/s/s.
+     * @param alpha Angular acceleration, in rad/s/s.
+     */
+    public void toModuleAccelerations(double ax, double ay, double alpha) {
+        for (int i = 0; i < m_numModules; i++) {
+            double moduleAx = ax - alpha * m_relativeY[i];
+            double moduleAy = ay + alpha * m_relativeX[i];
+
+            double cos = Math.cos(m_angle[i]);
+            double sin = Math.sin(m_angle[i]);
+
+            m_driveAcceleration[i] = moduleAx * cos + moduleAy * sin;
+
+            // A stopped module can't steer by driving; it just points.
+            m_steerVelocity[i] = m_speed[i] > STOPPED_SPEED
+                    ? (moduleAy * cos - moduleAx * sin) / m_speed[i]
+                    : 0.;
+        }
+    }
+
+    /**
+     * <p>
+     * Compute robot-relative chassis speeds from module states, the same as
+     * {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics#toChassisSpeeds}.
+     * </p>
+     *
+     * This only reads the module locations, not the shared module state arrays,
+     * so it's safe to call from any thread.
+     *
+     * @param speeds Each module's speed, in m/s.
+     * @param angles Each module's angle, in radians.
+     * @param out    Array of at least three elements, which receives vx and vy
+     *               in m/s, then omega in rad/s.
+     */
+    public void toChassisSpeeds(double[] speeds, double[] angles, double[] out) {
+        // Least-squares fit of the chassis motion to the module velocities.
+        double sumX = 0.;
+        double sumY = 0.;
+        double sumTheta = 0.;
+        for (int i = 0; i < m_numModules; i++) {
+            double vx = speeds[i] * Math.cos(angles[i]);
+            double vy = speeds[i] * Math.sin(angles[i]);
+
+            sumX += vx;
+            sumY += vy;
+            sumTheta += -m_moduleY[i] * vx + m_moduleX[i] * vy;
+        }
+
+        out[0] = m_forwardInverse[0] * sumX + m_forwardInverse[1] * sumY + m_forwardInverse[2] * sumTheta;
+        out[1] = m_forwardInverse[3] * sumX + m_forwardInverse[4] * sumY + m_forwardInverse[5] * sumTheta;
+        out[2] = m_forwardInverse[6] * sumX + m_forwardInverse[7] * sumY + m_forwardInverse[8] * sumTheta;
+    }
+
+    /**
+     * Scale every module's speed down so none exceed a maximum, keeping their
+     * ratios.
+     *
+     * @param maxSpeed The fastest any module can go, in m/s.
+     */
+    public void desaturate(double maxSpeed) {
+        double fastest = 0.;
+        for (int i = 0; i < m_numModules; i++) {
+            fastest = Math.max(fastest, m_speed[i]);
+        }
+
+        if (fastest <= maxSpeed) {
+            return;
+        }
+
+        double scale = maxSpeed / fastest;
+        for (int i = 0; i < m_numModules; i++) {
+            m_vx[i] *= scale;
+            m_vy[i] *= scale;
+            m_speed[i] *= scale;
+            m_driveAcceleration[i] *= scale;
+        }
+    }
+
+    /**
+     * Set a module's state directly, e.g. for requests that don't come from
+     * chassis speeds. Its acceleration is left alone.
+     *
+     * @param module Index of the module.
+     * @param speed  Speed, in m/s.
+     * @param angle  Angle, in radians.
+     */
+    public void setModuleState(int module, double speed, double angle) {
+        m_speed[module] = speed;
+        m_angle[module] = angle;
+        m_vx[module] = speed * Math.cos(angle);
+        m_vy[module] = speed * Math.sin(angle);
+    }
+
+    /**
+     * Set how fast a module's speed and angle are changing directly.
+     *
+     * @param module            Index of the module.
+     * @param driveAcceleration Drive acceleration, in m/s/s.
+     * @param steerVelocity     Steer velocity, in rad/s.
+     */
+    public void setModuleDerivatives(int module, double driveAcceleration, double steerVelocity) {
+        m_driveAcceleration[module] = driveAcceleration;
+        m_steerVelocity[module] = steerVelocity;
+    }
+
+    /**
+     * Get a module's forward velocity from the last computation.
+     *
+     * @param module Index of the module.
+     * @return Velocity in m/s.
+     */
+    public double getVx(int module) {
+        return m_vx[module];
+    }
+
+    /**
+     * Get a module's leftward velocity from the last computation.
+     *
+     * @param module Index of the module.
+     * @return Velocity in m/s.
+     */
+    public double getVy(int module) {
+        return m_vy[module];
+    }
+
+    /**
+     * Get a module's speed from the last computation.
+     *
+     * @param module Index of the module.
+     * @return Speed in m/s.
+     */
+    public double getSpeed(int module) {
+        return m_speed[module];
+    }
+
+    /**
+     * Get a module's angle from the last computation.
+     *
+     * @param module Index of the module.
+     * @return Angle in radians.
+     */
+    public double getAngle(int module) {
+        return m_angle[module];
+    }
+
+    /**
+     * Get a module's drive acceleration from the last computation.
+     *
+     * @param module Index of the module.
+     * @return Acceleration in m/s/s.
+     */
+    public double getDriveAcceleration(int module) {
+        return m_driveAcceleration[module];
+    }
+
+    /**
+     * Get how fast a module's angle is changing, from the last computation.
+     *
+     * @param module Index of the module.
+     * @return Steer velocity in rad/s.
+     */
+    public double getSteerVelocity(int module) {
+        return m_steerVelocity[module];
+    }
+
+    /**
+     * Get a module's X position relative to the last center of rotation.
+     *
+     * @param module Index of the module.
+     * @return Position in meters.
+     */
+    public double getRelativeX(int module) {
+        return m_relativeX[module];
+    }
+
+    /**
+     * Get a module's Y position relative to the last center of rotation.
+     *
+     * @param module Index of the module.
+     * @return Position in meters.
+     */
+    public double getRelativeY(int module) {
+        return m_relativeY[module];
+    }
+
+    /**
+     * Convert field-relative speeds to robot-relative, the same as
+     * {@link edu.wpi.first.math.kinematics.ChassisSpeeds#fromFieldRelativeSpeeds}.
+     *
+     * @param vx      Field-relative X velocity, in m/s.
+     * @param vy      Field-relative Y velocity, in m/s.
+     * @param omega   Angular velocity, in rad/s.
+     * @param heading The robot's heading, in radians.
+     * @param out     Array of at least three elements, which receives the
+     *                robot-relative vx, vy and omega.
+     */
+    public static void fromFieldRelative(double vx, double vy, double omega, double heading, double[] out) {
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+
+        out[0] = vx * cos + vy * sin;
+        out[1] = -vx * sin + vy * cos;
+        out[2] = omega;
+    }
+
+    /**
+     * Discretize chassis speeds, the same as
+     * {@link edu.wpi.first.math.kinematics.ChassisSpeeds#discretize}, so that
+     * translating while rotating doesn't skew.
+     *
+     * @param vx    Forward velocity, in m/s.
+     * @param vy    Leftward velocity, in m/s.
+     * @param omega Angular velocity, in rad/s.
+     * @param dt    Loop period, in seconds.
+     * @param out   Array of at least three elements, which receives the
+     *              discretized vx, vy and omega.
+     */
+    public static void discretize(double vx, double vy, double omega, double dt, double[] out) {
+        double dx = vx * dt;
+        double dy = vy * dt;
+        double dtheta = MathUtil.angleModulus(omega * dt);
+
+        // Log of the pose (dx, dy, dtheta), as in Pose2d.log.
+        double halfDtheta = dtheta / 2.;
+        double cosMinusOne = Math.cos(dtheta) - 1.;
+        double halfThetaByTanOfHalfDtheta = Math.abs(cosMinusOne) < 1e-9
+                ? 1. - dtheta * dtheta / 12.
+                : -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+
+        out[0] = (dx * halfThetaByTanOfHalfDtheta + dy * halfDtheta) / dt;
+        out[1] = (-dx * halfDtheta + dy * halfThetaByTanOfHalfDtheta) / dt;
+        out[2] = dtheta / dt;
+    }
+
+    private void computeForwardInverse() {
+        double sumX = 0.;
+        double sumY = 0.;
+        double sumR2 = 0.;
+        for (int i = 0; i < m_numModules; i++) {
+            sumX += m_moduleX[i];
+            sumY += m_moduleY[i];
+            sumR2 += m_moduleX[i] * m_moduleX[i] + m_moduleY[i] * m_moduleY[i];
+        }
+
+        // Symmetric normal matrix [[a, 0, c], [0, a, e], [c, e, f]].
+        double a = m_numModules;
+        double c = -sumY;
+        double e = sumX;
+        double f = sumR2;
+
+        double det = a * (a * f - e * e) - c * c * a;
+        if (Math.abs(det) < 1e-12) {
+            // Fewer than two distinct modules; rotation can't be told apart.
+            return;
+        }
+
+        m_forwardInverse[0] = (a * f - e * e) / det;
+        m_forwardInverse[1] = (c * e) / det;
+        m_forwardInverse[2] = (-a * c) / det;
+        m_forwardInverse[3] = m_forwardInverse[1];
+        m_forwardInverse[4] = (a * f - c * c) / det;
+        m_forwardInverse[5] = (-a * e) / det;
+        m_forwardInverse[6] = m_forwardInverse[2];
+        m_forwardInverse[7] = m_forwardInverse[5];
+        m_forwardInverse[8] = (a * a) / det;
+    }
+}
@@ -6,24 +6,35 @@ package frc.lib.beaklib.drive.swerve;
 
 import static edu.wpi.first.units.Units.Inches;
 import static edu.wpi.first.units.Units.Meters;
-import static edu.wpi.first.units.Units.MetersPerSecond;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.Distance;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.Velocity;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.Timer;
+import frc.lib.beaklib.BeakSeqLock;
 import frc.lib.beaklib.encoder.BeakAbsoluteEncoder;
+import frc.lib.beaklib.motor.BeakCurrentBudget;
 import frc.lib.beaklib.motor.BeakMotorController;
+import frc.lib.beaklib.motor.BeakThermalModel;
 import frc.lib.beaklib.motor.DataSignal;
 import frc.lib.beaklib.motor.configs.BeakCurrentLimitConfigs;
 import frc.lib.beaklib.motor.requests.BeakVoltage;
-import frc.lib.beaklib.motor.requests.motionmagic.BeakMotionMagicAngle;
-import frc.lib.beaklib.motor.requests.position.BeakPositionAngle;
-import frc.lib.beaklib.motor.requests.velocity.BeakVelocity;
+import frc.lib.beaklib.motor.requests.motionmagic.BeakMotionMagicNU;
+import frc.lib.beaklib.motor.requests.position.BeakPositionNU;
+import frc.lib.beaklib.motor.requests.velocity.BeakVelocityNU;
 
 /** Base class for any non-differential swerve module. */
 public class BeakSwerveModule {
@@ -36,6 +47,26 @@ public class BeakSwerveModule {
     private BeakCurrentLimitConfigs m_driveCurrentLimits = new BeakCurrentLimitConfigs();
     private BeakCurrentLimitConfigs m_steerCurrentLimits = new BeakCurrentLimitConfigs();
 
+    /** Steer motors are tiny and losing them means losing control; feed them first. */
+    private static final int STEER_BUDGET_PRIORITY = 1;
+    private static final int DRIVE_BUDGET_PRIORITY = 0;
+
+    protected BeakThermalModel m_driveThermal = null;
+    protected BeakThermalModel m_steerThermal = null;
+    private String m_driveThermalName;
+    private String m_steerThermalName;
+    private BeakCurrentBudget m_budget = null;
+
+    // Setpoint capture, for BeakSetpointUpsampler.
+    private boolean m_capturing = false;
+    private boolean m_hasCapture = false;
+    private double m_capturedSpeed = 0.;
+    private double m_capturedAngle = 0.;
+    private double m_capturedAcceleration = 0.;
+    private double m_capturedSteerVelocity = 0.;
+    private DriveRequestType m_capturedDriveType = DriveRequestType.Voltage;
+    private SteerRequestType m_capturedSteerType = SteerRequestType.Position;
+
     public enum DriveRequestType {
         VelocityFOC,
         Velocity,
@@ -51,16 +82,78 @@ public class BeakSwerveModule {
     }
 
     // TODO: implement motion magic fr
-    protected BeakMotionMagicAngle m_motionMagicAngle = new BeakMotionMagicAngle();
-    protected BeakPositionAngle m_positionAngle = new BeakPositionAngle();
-    protected BeakVelocity m_velocity = new BeakVelocity();
+    protected BeakMotionMagicNU m_motionMagicNU = new BeakMotionMagicNU();
+    protected BeakPositionNU m_positionNU = new BeakPositionNU();
+    protected BeakVelocityNU m_velocityNU = new BeakVelocityNU();
     protected BeakVoltage m_voltage = new BeakVoltage();
 
+    private double m_wheelCircumference;
+
+    private SimpleMotorFeedforward m_driveFeedforward;
+    private SimpleMotorFeedforward m_steerFeedforward;
+
+    /** Modules follow every requested angle unless told to hold below a speed. */
+    public static final double DEFAULT_STEER_HOLD_SPEED = 0.;
+
+    // Steer angles closer than this to the last one sent aren't resent.
+    private static final double STEER_DEADBAND = 1e-6;
+
+    private double m_steerHoldSpeed = DEFAULT_STEER_HOLD_SPEED;
+
+    // Last steer setpoint sent, in radians.
+    private boolean m_hasSteerSetpoint = false;
+    private double m_lastSteerAngle = 0.;
+    private SteerRequestType m_lastSteerType;
+    private double m_lastSteerFeedforward = 0.;
+
+    // Whether a zero drive output has been sent, and with which request type.
+    private boolean m_driveStopped = false;
+    private DriveRequestType m_lastDriveType;
+
+    // Counted by whichever thread sends setpoints, which can change when the
+    // control loop is enabled or disabled.
+    private final AtomicLong m_savedSteerFrames = new AtomicLong();
+    private final AtomicLong m_savedDriveFrames = new AtomicLong();
+
     protected DataSignal<Rotation2d> m_steerMotorAngle;
     protected DataSignal<Rotation2d> m_absoluteAngle;
     protected DataSignal<Measure<Distance>> m_driveDistance;
     // protected DataSignal<Measure<Velocity<Distance>>> m_driveSpeed;
     protected DataSignal<Double> m_driveSpeed;
+    protected DataSignal<Double> m_steerVelocity;
+
+    // Steering back-drives the drive motor on coaxial modules. These convert
+    // module rotations to phantom drive meters, steer NU velocity to phantom
+    // drive NU velocity, and steer NU velocity to phantom drive m/s.
+    private double m_couplingDistance = 0.;
+    private double m_couplingVelocity = 0.;
+    private double m_couplingSpeed = 0.;
+    // Module rotations at which the phantom drive distance is zero.
+    private volatile double m_couplingReference = 0.;
+
+    // Steer encoder re-seed in progress. Requested from any thread, carried out
+    // by whichever thread refreshes the signals.
+    private final Object m_reseedLock = new Object();
+    private volatile boolean m_reseedPending = false;
+    private double m_reseedRequestTime = 0.;
+    private double m_reseedSeedTime = Double.NaN;
+    private double m_reseedRotationsBefore = 0.;
+
+    /** Index of the drive distance, in meters, in a module snapshot. */
+    public static final int SNAPSHOT_DISTANCE = 0;
+    /** Index of the drive speed, in meters per second, in a module snapshot. */
+    public static final int SNAPSHOT_SPEED = 1;
+    /** Index of the steer motor angle, in radians, in a module snapshot. */
+    public static final int SNAPSHOT_ANGLE = 2;
+    /** Index of the absolute encoder angle, in radians, in a module snapshot. */
+    public static final int SNAPSHOT_ABSOLUTE_ANGLE = 3;
+    /** Index of the sample timestamp, in seconds, in a module snapshot. */
+    public static final int SNAPSHOT_TIMESTAMP = 4;
+    /** Number of values in a module snapshot. */
+    public static final int SNAPSHOT_SIZE = 5;
+
+    private final BeakSeqLock m_snapshot = new BeakSeqLock(SNAPSHOT_SIZE);
+    private final double[] m_snapshotWrite = new double[SNAPSHOT_SIZE];
 
     /**
      * Construct a new Swerve Module.
@@ -92,6 +185,8 @@ public class BeakSwerveModule {
     public void configDriveMotor() {
         m_driveMotor.setEncoderGearRatio(Config.DriveConfig.DriveRatio);
         m_driveMotor.setWheelDiameter(Inches.of(Config.DriveConfig.WheelDiameter));
+        m_wheelCircumference = Units.inchesToMeters(Config.DriveConfig.WheelDiameter) * Math.PI;
+        m_driveFeedforward = Config.DriveConfig.DriveFeedforward;
 
         m_driveMotor.setBrake(true);
         m_driveMotor.setInverted(Config.DriveInverted);
@@ -111,10 +206,17 @@ public class BeakSwerveModule {
 
         m_driveSpeed = m_driveMotor.getVelocityNU();
         m_driveDistance = m_driveMotor.getDistance(true);
+
+        double steerVelocityToRPM = 1. / (m_steerMotor.getVelocityConversionConstant()
+                * m_steerMotor.getEncoderGearRatio());
+        m_couplingDistance = Config.CouplingRatio / Config.DriveConfig.DriveRatio * m_wheelCircumference;
+        m_couplingVelocity = Config.CouplingRatio * steerVelocityToRPM * m_driveMotor.getVelocityConversionConstant();
+        m_couplingSpeed = m_couplingDistance * steerVelocityToRPM / 60.;
     }
 
     public void configSteerMotor() {
         m_steerMotor.setEncoderGearRatio(Config.DriveConfig.SteerRatio);
+        m_steerFeedforward = Config.DriveConfig.SteerFeedforward;
 
         m_steerMotor.setBrake(true);
         m_steerMotor.setInverted(Config.SteerInverted);
@@ -133,6 +235,7 @@ public class BeakSwerveModule {
         m_steerMotor.setPID(Config.DriveConfig.SteerPID);
 
         m_steerMotorAngle = m_steerMotor.getAngle(true);
+        m_steerVelocity = m_steerMotor.getVelocityNU();
     }
 
     public void configSteerEncoder() {
@@ -144,6 +247,82 @@ public class BeakSwerveModule {
         m_absoluteAngle = m_steerEncoder.getAbsoluteEncoderPosition(true);
     }
 
+    /**
+     * Register this module's motors with a current budget. Steer motors always
+     * keep their full limit; drive motors may be cut down to a quarter of theirs.
+     * 
+     * @param budget The {@link BeakCurrentBudget} to register with.
+     */
+    public void registerCurrentBudget(BeakCurrentBudget budget) {
+        budget.register(m_steerMotor, m_steerCurrentLimits, STEER_BUDGET_PRIORITY,
+                m_steerCurrentLimits.SupplyCurrentLimit, m_steerThermal);
+        budget.register(m_driveMotor, m_driveCurrentLimits, DRIVE_BUDGET_PRIORITY,
+                m_driveCurrentLimits.SupplyCurrentLimit / 4.0, m_driveThermal);
+
+        m_budget = budget;
+    }
+
+    /**
+     * Start modeling the temperature of this module's motors. If the module is
+     * registered with a {@link BeakCurrentBudget}, before or after this, the
+     * budget applies the derating; otherwise the module writes derated limits
+     * itself.
+     * 
+     * @param name       Name to publish predictions under.
+     * @param driveMotor Model of the drive motor.
+     * @param steerMotor Model of the steer motor.
+     */
+    public void enableThermalModels(String name, DCMotor driveMotor, DCMotor steerMotor) {
+        m_driveThermal = new BeakThermalModel(m_driveMotor, driveMotor);
+        m_steerThermal = new BeakThermalModel(m_steerMotor, steerMotor);
+
+        if (m_budget != null) {
+            m_budget.setThermalModel(m_driveMotor, m_driveThermal);
+            m_budget.setThermalModel(m_steerMotor, m_steerThermal);
+        }
+
+        m_driveThermalName = name + " Drive";
+        m_steerThermalName = name + " Steer";
+    }
+
+    /**
+     * Step and publish the thermal models, if enabled. Call this once per loop.
+     */
+    public void updateThermalModels() {
+        if (m_driveThermal == null) {
+            return;
+        }
+
+        m_driveThermal.update();
+        m_steerThermal.update();
+
+        if (m_budget == null) {
+            m_driveThermal.applyDerating(m_driveMotor, m_driveCurrentLimits);
+            m_steerThermal.applyDerating(m_steerMotor, m_steerCurrentLimits);
+        }
+
+        m_driveThermal.publish(m_driveThermalName);
+        m_steerThermal.publish(m_steerThermalName);
+    }
+
+    /**
+     * Get the thermal model of the drive motor.
+     * 
+     * @return The drive motor's {@link BeakThermalModel}, or null if not enabled.
+     */
+    public BeakThermalModel getDriveThermalModel() {
+        return m_driveThermal;
+    }
+
+    /**
+     * Get the thermal model of the steer motor.
+     * 
+     * @return The steer motor's {@link BeakThermalModel}, or null if not enabled.
+     */
+    public BeakThermalModel getSteerThermalModel() {
+        return m_steerThermal;
+    }
+
     /* Bruh */
     public BeakMotorController getDriveMotor() {
         return m_driveMotor;
@@ -157,6 +336,26 @@ public class BeakSwerveModule {
         return m_steerEncoder;
     }
 
+    /**
+     * Get every Phoenix 6 signal this module reads its state from.
+     * 
+     * @return The module's Phoenix signals, empty for non-Phoenix hardware.
+     */
+    public BaseStatusSignal[] getPhoenixSignals() {
+        List<BaseStatusSignal> signals = new ArrayList<>();
+
+        signals.addAll(List.of(m_driveSpeed.getPhoenixSignals()));
+        signals.addAll(List.of(m_driveDistance.getPhoenixSignals()));
+        signals.addAll(List.of(m_steerMotorAngle.getPhoenixSignals()));
+        signals.addAll(List.of(m_absoluteAngle.getPhoenixSignals()));
+
+        if (Config.CouplingRatio != 0.) {
+            signals.addAll(List.of(m_steerVelocity.getPhoenixSignals()));
+        }
+
+        return signals.toArray(new BaseStatusSignal[0]);
+    }
+
     /* State Management */
 
     /**
@@ -166,7 +365,7 @@ public class BeakSwerveModule {
      */
     public SwerveModuleState getState() {
         return new SwerveModuleState(
-                m_driveSpeed.getValue(),//.in(MetersPerSecond),
+                getDriveVelocityNU(),//.in(MetersPerSecond),
                 new Rotation2d(getAbsoluteEncoderRadians())); // FUTURE: Using Absolute reverses some wheels.
     }
 
@@ -177,19 +376,156 @@ public class BeakSwerveModule {
      */
     public SwerveModulePosition getPosition() {
         return new SwerveModulePosition(
-                m_driveDistance.getValue().in(Meters),
+                getDriveDistanceMeters(),
                 new Rotation2d(getSteerEncoderRadians()));
     }
 
+    /**
+     * Get how far the wheel has driven, without any distance caused by
+     * steering on coaxial modules.
+     * 
+     * @return Drive distance in meters.
+     */
+    public double getDriveDistanceMeters() {
+        double distance = m_driveDistance.getValue().in(Meters);
+        if (m_couplingDistance != 0.) {
+            distance -= (m_steerMotorAngle.getValue().getRotations() - m_couplingReference) * m_couplingDistance;
+        }
+
+        return distance;
+    }
+
+    /**
+     * Get the drive velocity, without any velocity caused by steering on
+     * coaxial modules.
+     * 
+     * @return Drive velocity in NU.
+     */
+    public double getDriveVelocityNU() {
+        double velocity = m_driveSpeed.getValue();
+        if (m_couplingVelocity != 0.) {
+            velocity -= m_steerVelocity.getValue() * m_couplingVelocity;
+        }
+
+        return velocity;
+    }
+
+    /**
+     * Get the drive velocity in meters per second, without any velocity caused
+     * by steering on coaxial modules.
+     * 
+     * @return Drive velocity in meters per second.
+     */
+    public double getDriveVelocityMetersPerSecond() {
+        // NU to wheel RPM to m/s.
+        return getDriveVelocityNU() / (m_driveMotor.getEncoderGearRatio() * m_driveMotor.getVelocityConversionConstant())
+                / 60. * m_wheelCircumference;
+    }
+
+    /**
+     * Get when the module's position was sampled.
+     * 
+     * @return Timestamp of the newest drive or steer reading, on the FPGA clock.
+     */
+    public double getSampleTimestamp() {
+        return Math.max(m_driveDistance.getTimestamp(), m_steerMotorAngle.getTimestamp());
+    }
+
+    /**
+     * Store the module's current state for other threads to read. Call this from
+     * the thread that reads the sensors, once per cycle.
+     */
+    public void updateSnapshot() {
+        m_snapshotWrite[SNAPSHOT_DISTANCE] = getDriveDistanceMeters();
+        m_snapshotWrite[SNAPSHOT_SPEED] = getDriveVelocityMetersPerSecond();
+        m_snapshotWrite[SNAPSHOT_ANGLE] = getSteerEncoderRadians();
+        m_snapshotWrite[SNAPSHOT_ABSOLUTE_ANGLE] = getAbsoluteEncoderRadians();
+        m_snapshotWrite[SNAPSHOT_TIMESTAMP] = getSampleTimestamp();
+
+        m_snapshot.write(m_snapshotWrite);
+    }
+
+    /**
+     * Read the state stored by the last {@link #updateSnapshot()}. Safe to call
+     * from any thread, and doesn't allocate.
+     * 
+     * @param out Array of at least {@link #SNAPSHOT_SIZE} elements, indexed by
+     *            the <code>SNAPSHOT_</code> constants.
+     */
+    public void readSnapshot(double[] out) {
+        m_snapshot.read(out);
+    }
+
     /** Encoders & Heading */
 
     /**
+     * <p>
      * Set the turning motor's position to match the reported
      * angle from the CANCoder.
+     * </p>
+     *
+     * Doesn't block: the seed is taken from the first absolute reading after
+     * this call, on the next {@link #updateSteerReseed()}. Until the steer motor
+     * has reported its new position, no setpoints are sent.
      */
     public void resetSteerMotor() {
-        m_steerMotor.setEncoderPositionMotorRotations(
-                Math.toDegrees(getAbsoluteEncoderRadians()) / 360.0);
+        synchronized (m_reseedLock) {
+            m_reseedRequestTime = Timer.getFPGATimestamp();
+            m_reseedSeedTime = Double.NaN;
+            m_reseedPending = true;
+        }
+    }
+
+    /**
+     * Carry out a pending {@link #resetSteerMotor()} once fresh samples have
+     * arrived. Call this once per cycle from the thread that refreshes the
+     * signals, after refreshing them.
+     */
+    public void updateSteerReseed() {
+        if (!m_reseedPending) {
+            return;
+        }
+
+        synchronized (m_reseedLock) {
+            double now = Timer.getFPGATimestamp();
+
+            if (Double.isNaN(m_reseedSeedTime)) {
+                // Seed from a reading taken after the request, not whatever was
+                // cached. If none comes, the cached reading is the best we have.
+                if (m_absoluteAngle.getTimestamp() <= m_reseedRequestTime
+                        && now - m_reseedRequestTime < DataSignal.DEFAULT_SAMPLE_TIMEOUT) {
+                    return;
+                }
+
+                m_reseedRotationsBefore = m_steerMotorAngle.getValue().getRotations();
+                m_steerMotor.setEncoderPositionMotorRotations(
+                        Math.toDegrees(getAbsoluteEncoderRadians()) / 360.0);
+                m_reseedSeedTime = now;
+                return;
+            }
+
+            // Make sure the steer motor has reported its new position before the
+            // first setpoint is computed from it.
+            if (m_steerMotorAngle.getTimestamp() <= m_reseedSeedTime
+                    && now - m_reseedSeedTime < DataSignal.DEFAULT_SAMPLE_TIMEOUT) {
+                return;
+            }
+
+            // The module didn't actually turn, so neither did the drive gear.
+            m_couplingReference += m_steerMotorAngle.getValue().getRotations() - m_reseedRotationsBefore;
+
+            resendSetpoints();
+            m_reseedPending = false;
+        }
+    }
+
+    /**
+     * Get whether a steer encoder re-seed is still waiting on fresh samples.
+     *
+     * @return True until {@link #updateSteerReseed()} has finished the re-seed.
+     */
+    public boolean isSteerReseedPending() {
+        return m_reseedPending;
     }
 
     /**
@@ -224,6 +560,9 @@ public class BeakSwerveModule {
     public void resetEncoders() {
         m_driveMotor.setEncoderPositionNU(0);
         m_steerMotor.setEncoderPositionNU(0);
+        m_couplingReference = 0.;
+
+        resendSetpoints();
     }
 
     /**
@@ -245,46 +584,130 @@ public class BeakSwerveModule {
      *                         {@link SteerRequestType#MotionMagic}
      */
     public void apply(SwerveModuleState state, DriveRequestType driveRequestType, SteerRequestType steerRequestType) {
-        var optimized = SwerveModuleState.optimize(state, m_steerMotorAngle.getValue());
+        apply(state.speedMetersPerSecond, state.angle.getRadians(), driveRequestType, steerRequestType);
+    }
 
-        double angleToSetDeg = optimized.angle.getDegrees();
+    /**
+     * Applies a desired speed and direction to this module, without allocating.
+     *
+     * @param speedMetersPerSecond Speed the module should target
+     * @param angleRadians         Direction the module should target
+     * @param driveRequestType     The {@link DriveRequestType} to apply
+     * @param steerRequestType     The {@link SteerRequestType} to apply
+     */
+    public void apply(double speedMetersPerSecond, double angleRadians, DriveRequestType driveRequestType,
+            SteerRequestType steerRequestType) {
+        apply(speedMetersPerSecond, angleRadians, 0., 0., driveRequestType, steerRequestType);
+    }
 
-        // m_steerMotor.setAngle(Rotation2d.fromDegrees(angleToSetDeg));
-        // m_steerMotor.setControl(m_positionAngle.withAngle(Rotation2d.fromDegrees(angleToSetDeg)));
-        switch (steerRequestType) {
-            case MotionMagic:
-                m_steerMotor.setControl(m_motionMagicAngle.withAngle(Rotation2d.fromDegrees(angleToSetDeg)));
-                break;
-            case MotionMagicFOC:
-                m_steerMotor.setControl(
-                        m_motionMagicAngle.withAngle(Rotation2d.fromDegrees(angleToSetDeg)).withUseFOC(true));
-                break;
-            case Position:
-                SmartDashboard.putNumber("Position " + Config.ModuleLocation.getAngle(), m_steerMotor.getPositionNU(false).getValue());
+    /**
+     * Applies a desired speed and direction to this module, along with how fast
+     * they're changing, without allocating. The rates of change are fed forward
+     * through the drivetrain's drive and steer voltage models.
+     *
+     * @param speedMetersPerSecond     Speed the module should target
+     * @param angleRadians             Direction the module should target
+     * @param accelerationMetersPerSec Rate of change of the speed, in m/s/s
+     * @param steerVelocityRadPerSec   Rate of change of the direction, in rad/s
+     * @param driveRequestType         The {@link DriveRequestType} to apply
+     * @param steerRequestType         The {@link SteerRequestType} to apply
+     */
+    public void apply(double speedMetersPerSecond, double angleRadians, double accelerationMetersPerSec,
+            double steerVelocityRadPerSec, DriveRequestType driveRequestType, SteerRequestType steerRequestType) {
+        if (m_capturing) {
+            synchronized (this) {
+                m_capturedSpeed = speedMetersPerSecond;
+                m_capturedAngle = angleRadians;
+                m_capturedAcceleration = accelerationMetersPerSec;
+                m_capturedSteerVelocity = steerVelocityRadPerSec;
+                m_capturedDriveType = driveRequestType;
+                m_capturedSteerType = steerRequestType;
+                m_hasCapture = true;
+            }
+            return;
+        }
 
-                m_steerMotor.setControl(m_positionAngle.withAngle(Rotation2d.fromDegrees(angleToSetDeg)));
-                break;
-            case PositionFOC:
-                m_steerMotor.setControl(
-                        m_positionAngle.withAngle(Rotation2d.fromDegrees(angleToSetDeg)).withUseFOC(true));
-                break;
+        send(speedMetersPerSecond, angleRadians, accelerationMetersPerSec, steerVelocityRadPerSec,
+                driveRequestType, steerRequestType);
+    }
+
+    /**
+     * Send a target straight to the motors, regardless of capture mode.
+     *
+     * @param speedMetersPerSecond     Speed the module should target
+     * @param angleRadians             Direction the module should target
+     * @param accelerationMetersPerSec Rate of change of the speed, in m/s/s
+     * @param steerVelocityRadPerSec   Rate of change of the direction, in rad/s
+     * @param driveRequestType         The {@link DriveRequestType} to apply
+     * @param steerRequestType         The {@link SteerRequestType} to apply
+     */
+    void send(double speedMetersPerSecond, double angleRadians, double accelerationMetersPerSec,
+            double steerVelocityRadPerSec, DriveRequestType driveRequestType, SteerRequestType steerRequestType) {
+        // The steer encoder is about to jump, so any angle sent now would be
+        // computed against the wrong position.
+        if (m_reseedPending) {
+            return;
+        }
+
+        double currentAngle = m_steerMotorAngle.getValue().getRadians();
+
+        double angleToSet;
+        double velocityToSet;
+        double accelerationToSet;
+        double steerVelocityToSet;
+        if (speedMetersPerSecond != 0. && Math.abs(speedMetersPerSecond) < m_steerHoldSpeed) {
+            // Creeping: the requested angle is mostly noise, so hold the last
+            // one and only drive the part of the velocity along it.
+            if (!m_hasSteerSetpoint) {
+                m_lastSteerAngle = currentAngle;
+            }
+
+            angleToSet = m_lastSteerAngle;
+            velocityToSet = speedMetersPerSecond * Math.cos(angleRadians - angleToSet);
+            accelerationToSet = accelerationMetersPerSec * Math.cos(angleRadians - angleToSet);
+            steerVelocityToSet = 0.;
+        } else {
+            // Same as SwerveModuleState.optimize: never turn more than 90
+            // degrees, drive backwards instead.
+            angleToSet = angleRadians;
+            velocityToSet = speedMetersPerSecond;
+            accelerationToSet = accelerationMetersPerSec;
+            steerVelocityToSet = steerVelocityRadPerSec;
+            if (Math.abs(MathUtil.angleModulus(angleToSet - currentAngle)) > Math.PI / 2.) {
+                angleToSet = MathUtil.angleModulus(angleToSet + Math.PI);
+                velocityToSet = -velocityToSet;
+                accelerationToSet = -accelerationToSet;
+            }
         }
 
-        double velocityToSet = optimized.speedMetersPerSecond;
+        double steerFeedforward = m_steerFeedforward.calculate(steerVelocityToSet);
+
+        // Don't resend a steer setpoint the motor already has; stopped modules
+        // keep their last angle, so this goes quiet at rest. Controllers that
+        // resend their last command anyway still get the same traffic.
+        if (m_hasSteerSetpoint && steerRequestType == m_lastSteerType
+                && steerFeedforward == m_lastSteerFeedforward
+                && Math.abs(MathUtil.angleModulus(angleToSet - m_lastSteerAngle)) < STEER_DEADBAND) {
+            if (!m_steerMotor.resendsCommands()) {
+                m_savedSteerFrames.incrementAndGet();
+            }
+        } else {
+            sendSteer(angleToSet, steerFeedforward, steerRequestType);
+        }
 
         /*
          * From FRC 900's whitepaper, we add a cosine compensator to the applied drive
          * velocity
          */
         /* To reduce the "skew" that occurs when changing direction */
-        double steerMotorError = angleToSetDeg - m_steerMotorAngle.getValue().getDegrees();
+        double steerMotorError = angleToSet - currentAngle;
 
         /* If error is close to 0 rotations, we're already there, so apply full power */
         /*
          * If the error is close to 0.25 rotations, then we're 90 degrees, so movement
          * doesn't help us at all
          */
-        double cosineScalar = Math.cos(Units.degreesToRadians(steerMotorError));
+        double cosineScalar = Math.cos(steerMotorError);
 
         /*
          * Make sure we don't invert our drive, even though we shouldn't ever target
@@ -294,30 +717,174 @@ public class BeakSwerveModule {
             cosineScalar = 0.0;
         }
         velocityToSet *= cosineScalar;
+        accelerationToSet *= cosineScalar;
 
-        double volts = velocityToSet / Config.DriveConfig.MaxSpeed * 12.0;
+        // Turn the drive motor along with the steer gear on coaxial modules, so
+        // the wheel itself doesn't turn.
+        if (m_couplingSpeed != 0.) {
+            velocityToSet += m_steerVelocity.getValue() * m_couplingSpeed;
+        }
+
+        // Send one zero frame when stopping, then let the motor hold it.
+        if (velocityToSet == 0. && accelerationToSet == 0.) {
+            if (m_driveStopped && driveRequestType == m_lastDriveType) {
+                if (!m_driveMotor.resendsCommands()) {
+                    m_savedDriveFrames.incrementAndGet();
+                }
+                return;
+            }
+
+            m_driveStopped = true;
+        } else {
+            m_driveStopped = false;
+        }
+        m_lastDriveType = driveRequestType;
+
+        double volts = m_driveFeedforward.calculate(velocityToSet, accelerationToSet);
+
+        // The velocity loop already has its own kV; add what it can't know.
+        double driveFeedforward = m_driveFeedforward.ks * Math.signum(velocityToSet)
+                + m_driveFeedforward.ka * accelerationToSet;
+
+        // m/s to wheel RPM to NU.
+        double driveNU = velocityToSet / m_wheelCircumference * 60.
+                * m_driveMotor.getEncoderGearRatio() * m_driveMotor.getVelocityConversionConstant();
 
         switch (driveRequestType) {
             case Voltage:
-                SmartDashboard.putNumber("Volts", volts);
-                SmartDashboard.putNumber("volts " + Config.ModuleLocation.getAngle(), volts);
-                m_driveMotor.setControl(m_voltage.withVoltage(volts));
-                // m_driveMotor.setVoltage(volts);
-                // m_driveMotor.set(volts / 12.0);
+                m_driveMotor.setControl(m_voltage.withVoltage(volts).withUseFOC(false));
                 break;
             case VoltageFOC:
-                // SmartDashboard.putNumber("Volts ", volts);
-                // m_driveMotor.setControl(m_voltage.withVoltage(volts));
-                // m_driveMotor.setVoltage(volts);
-
                 m_driveMotor.setControl(m_voltage.withVoltage(volts).withUseFOC(true));
                 break;
             case Velocity:
-                m_driveMotor.setControl(m_velocity.withVelocity(MetersPerSecond.of(velocityToSet)));
+                m_driveMotor.setControl(m_velocityNU.withVelocity(driveNU).withFeedForward(driveFeedforward)
+                        .withUseFOC(false));
                 break;
             case VelocityFOC:
-                m_driveMotor.setControl(m_velocity.withVelocity(MetersPerSecond.of(velocityToSet)).withUseFOC(true));
+                m_driveMotor.setControl(m_velocityNU.withVelocity(driveNU).withFeedForward(driveFeedforward)
+                        .withUseFOC(true));
                 break;
         }
     }
+
+    private void sendSteer(double angleRadians, double feedforward, SteerRequestType steerRequestType) {
+        double steerNU = angleRadians / (2. * Math.PI)
+                * m_steerMotor.getPositionConversionConstant() * m_steerMotor.getEncoderGearRatio();
+
+        switch (steerRequestType) {
+            case MotionMagic:
+                m_steerMotor.setControl(m_motionMagicNU.withPosition(steerNU).withFeedForward(feedforward)
+                        .withUseFOC(false));
+                break;
+            case MotionMagicFOC:
+                m_steerMotor.setControl(m_motionMagicNU.withPosition(steerNU).withFeedForward(feedforward)
+                        .withUseFOC(true));
+                break;
+            case Position:
+                m_steerMotor.setControl(m_positionNU.withPosition(steerNU).withFeedForward(feedforward)
+                        .withUseFOC(false));
+                break;
+            case PositionFOC:
+                m_steerMotor.setControl(m_positionNU.withPosition(steerNU).withFeedForward(feedforward)
+                        .withUseFOC(true));
+                break;
+        }
+
+        m_hasSteerSetpoint = true;
+        m_lastSteerAngle = angleRadians;
+        m_lastSteerType = steerRequestType;
+        m_lastSteerFeedforward = feedforward;
+    }
+
+    /* Steer Hold */
+
+    /**
+     * <p>
+     * Set the speed below which this module holds its last angle instead of
+     * following the requested one.
+     * </p>
+     *
+     * Near zero speed, the requested angle mostly comes from joystick or sensor
+     * noise, and chasing it twitches the module. A request of exactly zero
+     * speed still sets the angle, e.g. for X-drive.
+     *
+     * @param metersPerSecond The hold speed, in m/s. 0 disables holding.
+     */
+    public void setSteerHoldSpeed(double metersPerSecond) {
+        m_steerHoldSpeed = metersPerSecond;
+    }
+
+    /**
+     * Forget the last setpoints sent, so the next ones are sent even if they
+     * haven't changed. Call this if the motors may have lost them, e.g. after
+     * a brownout or reboot.
+     */
+    public void resendSetpoints() {
+        m_hasSteerSetpoint = false;
+        m_driveStopped = false;
+    }
+
+    /**
+     * Get how many steer setpoints weren't sent because the motor already had
+     * them. Motors that resend their last command on their own, like the
+     * TalonFX, never count as saving a frame.
+     *
+     * @return Number of steer frames saved.
+     */
+    public long getSavedSteerFrames() {
+        return m_savedSteerFrames.get();
+    }
+
+    /**
+     * Get how many zero drive setpoints weren't sent because the motor was
+     * already stopped. Motors that resend their last command on their own, like
+     * the TalonFX, never count as saving a frame.
+     *
+     * @return Number of drive frames saved.
+     */
+    public long getSavedDriveFrames() {
+        return m_savedDriveFrames.get();
+    }
+
+    /* Setpoint Capture */
+
+    /**
+     * Set whether {@link #apply} should record its target instead of sending it,
+     * so that something else (e.g. a {@link BeakSetpointUpsampler}) can send it.
+     *
+     * @param capturing Whether to capture setpoints.
+     */
+    public void setCapturing(boolean capturing) {
+        m_capturing = capturing;
+    }
+
+    /**
+     * Take the setpoint captured since the last call.
+     *
+     * @param out Array of length 4 to write the target speed, in m/s, angle, in
+     *            radians, acceleration, in m/s/s, and steer velocity, in rad/s,
+     *            into.
+     * @return False if nothing was captured.
+     */
+    synchronized boolean takeCapture(double[] out) {
+        if (!m_hasCapture) {
+            return false;
+        }
+
+        out[0] = m_capturedSpeed;
+        out[1] = m_capturedAngle;
+        out[2] = m_capturedAcceleration;
+        out[3] = m_capturedSteerVelocity;
+        m_hasCapture = false;
+        return true;
+    }
+
+    synchronized DriveRequestType getCapturedDriveType() {
+        return m_capturedDriveType;
+    }
+
+    synchronized SteerRequestType getCapturedSteerType() {
+        return m_capturedSteerType;
+    }
 }
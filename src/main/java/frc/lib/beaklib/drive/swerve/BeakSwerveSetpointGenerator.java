@@ -0,0 +1,254 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * <p>
+ * Limits how fast swerve module setpoints can change, so the modules are never
+ * asked for something they can't physically do in one loop.
+ * </p>
+ *
+ * <p>
+ * Every loop, this moves from the previous setpoint towards the desired one,
+ * as far as the limits allow. Since module velocities are linear in the
+ * chassis speeds, moving each module's velocity vector the same fraction of
+ * the way is the same as moving the chassis speeds that fraction of the way,
+ * so the robot always follows the requested direction of motion.
+ * </p>
+ *
+ * <p>
+ * Two limits apply to each module:
+ * <ul>
+ * <li>Its velocity vector can't change by more than the max acceleration times
+ * the loop period. This caps drive acceleration, and since reversing or
+ * swinging a wheel also changes the vector, it keeps the wheel within its
+ * traction.</li>
+ * <li>While moving, it can't turn faster than the max steer velocity. Wheels
+ * may flip direction instead of turning past 90 degrees, like
+ * {@link edu.wpi.first.math.kinematics.SwerveModuleState#optimize}.</li>
+ * </ul>
+ * </p>
+ *
+ * The acceleration limit is solved directly, and the steer limit by a
+ * fixed number of bisection steps, so every call takes bounded time.
+ */
+public class BeakSwerveSetpointGenerator {
+    private static final int MAX_ITERATIONS = 10;
+    private static final double STOPPED_SPEED = 1e-3;
+
+    /** A reasonable steer limit for most modules: two rotations per second. */
+    public static final double DEFAULT_MAX_STEER_VELOCITY = 4. * Math.PI;
+
+    private final int m_numModules;
+
+    private double m_maxSpeed;
+    private double m_maxAcceleration;
+    private double m_maxSteerVelocity;
+
+    // The last setpoint.
+    private final double[] m_lastVx;
+    private final double[] m_lastVy;
+    private final double[] m_lastAngle;
+
+    // Change from the last setpoint to the desired one.
+    private final double[] m_deltaVx;
+    private final double[] m_deltaVy;
+
+    private double m_lastFraction = 1.;
+
+    /**
+     * Create a new setpoint generator.
+     *
+     * @param numModules       Number of modules.
+     * @param maxSpeed         Fastest any module can go, in m/s.
+     * @param maxAcceleration  Fastest any module's velocity can change, in
+     *                         m/s/s.
+     * @param maxSteerVelocity Fastest a moving module can turn, in rad/s.
+     */
+    public BeakSwerveSetpointGenerator(int numModules, double maxSpeed, double maxAcceleration,
+            double maxSteerVelocity) {
+        m_numModules = numModules;
+        m_maxSpeed = maxSpeed;
+        m_maxAcceleration = maxAcceleration;
+        m_maxSteerVelocity = maxSteerVelocity;
+
+        m_lastVx = new double[numModules];
+        m_lastVy = new double[numModules];
+        m_lastAngle = new double[numModules];
+        m_deltaVx = new double[numModules];
+        m_deltaVy = new double[numModules];
+    }
+
+    /**
+     * Create a new setpoint generator, using a drivetrain's max speed and
+     * acceleration, and the default steer limit.
+     *
+     * @param numModules Number of modules.
+     * @param config     The drivetrain's configuration.
+     */
+    public BeakSwerveSetpointGenerator(int numModules, DrivetrainConfiguration config) {
+        this(numModules, config.MaxSpeed, config.MaxAcceleration, DEFAULT_MAX_STEER_VELOCITY);
+    }
+
+    /**
+     * Change the limits.
+     *
+     * @param maxSpeed         Fastest any module can go, in m/s.
+     * @param maxAcceleration  Fastest any module's velocity can change, in
+     *                         m/s/s.
+     * @param maxSteerVelocity Fastest a moving module can turn, in rad/s.
+     */
+    public void setLimits(double maxSpeed, double maxAcceleration, double maxSteerVelocity) {
+        m_maxSpeed = maxSpeed;
+        m_maxAcceleration = maxAcceleration;
+        m_maxSteerVelocity = maxSteerVelocity;
+    }
+
+    /**
+     * Forget the last setpoint, e.g. after the drivetrain has been disabled. The
+     * next setpoint starts from a stop, keeping the last module angles.
+     */
+    public void reset() {
+        for (int i = 0; i < m_numModules; i++) {
+            m_lastVx[i] = 0.;
+            m_lastVy[i] = 0.;
+        }
+
+        m_lastFraction = 1.;
+    }
+
+    /**
+     * Start the next setpoint from the modules' measured states, e.g. when a new
+     * request takes over while the robot is moving. Starting from a stop instead
+     * would brake as hard as the limits allow.
+     *
+     * @param speeds        Each module's measured speed, in m/s.
+     * @param anglesRadians Each module's measured steer angle.
+     */
+    public void reset(double[] speeds, double[] anglesRadians) {
+        for (int i = 0; i < m_numModules; i++) {
+            m_lastVx[i] = speeds[i] * Math.cos(anglesRadians[i]);
+            m_lastVy[i] = speeds[i] * Math.sin(anglesRadians[i]);
+            m_lastAngle[i] = anglesRadians[i];
+        }
+
+        m_lastFraction = 1.;
+    }
+
+    /**
+     * Limit the module states held by a kinematics object, in place.
+     *
+     * @param kinematics Kinematics holding the desired module states, as
+     *                   computed by
+     *                   {@link BeakSwerveKinematics#toModuleStates}. They are
+     *                   replaced with the limited ones.
+     * @param dt         Time since the last setpoint, in seconds.
+     * @return How far towards the desired setpoint this moved, from 0 to 1.
+     */
+    public double apply(BeakSwerveKinematics kinematics, double dt) {
+        kinematics.desaturate(m_maxSpeed);
+
+        // Acceleration: each module's vector moves at most maxAcceleration * dt,
+        // and moves linearly with the fraction.
+        double maxDelta = m_maxAcceleration * dt;
+        double fraction = 1.;
+        for (int i = 0; i < m_numModules; i++) {
+            m_deltaVx[i] = kinematics.getVx(i) - m_lastVx[i];
+            m_deltaVy[i] = kinematics.getVy(i) - m_lastVy[i];
+
+            double delta = Math.hypot(m_deltaVx[i], m_deltaVy[i]);
+            if (delta * fraction > maxDelta) {
+                fraction = maxDelta / delta;
+            }
+        }
+
+        // Steering: find the furthest fraction where no moving module turns too
+        // far. Turning isn't linear in the fraction, so bisect.
+        double maxTurn = m_maxSteerVelocity * dt;
+        if (!steerFeasible(fraction, maxTurn)) {
+            double low = 0.;
+            double high = fraction;
+
+            for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+                double mid = (low + high) / 2.;
+                if (steerFeasible(mid, maxTurn)) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+
+            fraction = low;
+        }
+
+        for (int i = 0; i < m_numModules; i++) {
+            double vx = m_lastVx[i] + m_deltaVx[i] * fraction;
+            double vy = m_lastVy[i] + m_deltaVy[i] * fraction;
+            double speed = Math.hypot(vx, vy);
+
+            // Hold the last angle rather than snapping to zero when stopped.
+            double angle = speed > STOPPED_SPEED ? Math.atan2(vy, vx) : m_lastAngle[i];
+
+            kinematics.setModuleState(i, speed, angle);
+
+            // The limits decide how the module moves now, not the request.
+            if (fraction < 1. && dt > 0.) {
+                double turn = MathUtil.angleModulus(angle - m_lastAngle[i]);
+                if (Math.abs(turn) > Math.PI / 2.) {
+                    turn = MathUtil.angleModulus(turn + Math.PI);
+                }
+
+                double acceleration = (m_deltaVx[i] * Math.cos(angle) + m_deltaVy[i] * Math.sin(angle))
+                        * fraction / dt;
+                kinematics.setModuleDerivatives(i, acceleration, turn / dt);
+            }
+
+            m_lastVx[i] = vx;
+            m_lastVy[i] = vy;
+            m_lastAngle[i] = angle;
+        }
+
+        m_lastFraction = fraction;
+        return fraction;
+    }
+
+    /**
+     * Get how far the last setpoint moved towards the desired one.
+     *
+     * @return The fraction, from 0 to 1. Less than 1 means a limit was hit.
+     */
+    public double getLastFraction() {
+        return m_lastFraction;
+    }
+
+    private boolean steerFeasible(double fraction, double maxTurn) {
+        for (int i = 0; i < m_numModules; i++) {
+            double lastSpeed = Math.hypot(m_lastVx[i], m_lastVy[i]);
+            if (lastSpeed < STOPPED_SPEED) {
+                // A stopped module can point anywhere.
+                continue;
+            }
+
+            double vx = m_lastVx[i] + m_deltaVx[i] * fraction;
+            double vy = m_lastVy[i] + m_deltaVy[i] * fraction;
+            if (Math.hypot(vx, vy) < STOPPED_SPEED) {
+                continue;
+            }
+
+            double turn = Math.abs(MathUtil.angleModulus(Math.atan2(vy, vx) - m_lastAngle[i]));
+
+            // The module can flip and drive backwards instead.
+            turn = Math.min(turn, Math.PI - turn);
+
+            if (turn > maxTurn) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
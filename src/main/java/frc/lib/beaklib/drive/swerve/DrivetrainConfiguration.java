@@ -4,6 +4,7 @@
 
 package frc.lib.beaklib.drive.swerve;
 
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import frc.lib.beaklib.pid.BeakPIDConstants;
 
 /** Constants of any drivetrain type. */
@@ -29,7 +30,15 @@ public class DrivetrainConfiguration {
     public final double DriveRatio;
     public final double SteerRatio;
 
+    /** Drive voltage model, in volts per m/s and m/s/s of the wheel. */
+    public final SimpleMotorFeedforward DriveFeedforward;
+    /** Steer voltage model, in volts per rad/s of the module. */
+    public final SimpleMotorFeedforward SteerFeedforward;
+
     /**
+     * Without a characterized model, the drive is assumed to reach max speed at
+     * 12 volts, and the steering gets no feedforward.
+     * 
      * @param drivePID           PID constants for the drive motors
      * @param steerPID            PID constants for the steer motors
      * @param steerCurrentLimit   Supply/stator limits for the steer motors
@@ -49,6 +58,37 @@ public class DrivetrainConfiguration {
             int driveSupplyLimit, int driveStatorLimit, String canBus, double maxSpeed, double maxAngularVelocity,
             double maxAcceleration, double trackWidth, double wheelBase, double wheelDiameter, double driveRatio,
             double steerRatio) {
+        this(drivePID, steerPID, steerCurrentLimit, driveSupplyLimit, driveStatorLimit, canBus, maxSpeed,
+                maxAngularVelocity, maxAcceleration, trackWidth, wheelBase, wheelDiameter, driveRatio, steerRatio,
+                new SimpleMotorFeedforward(0., 12. / maxSpeed, 0.), new SimpleMotorFeedforward(0., 0., 0.));
+    }
+
+    /**
+     * @param drivePID           PID constants for the drive motors
+     * @param steerPID            PID constants for the steer motors
+     * @param steerCurrentLimit   Supply/stator limits for the steer motors
+     * @param driveSupplyLimit   Supply limits for the drive motors
+     * @param driveStatorLimit   Stator limits for the drive motors
+     * @param canBus             The CAN Bus the drivetrain is attached to.
+     * @param maxSpeed           The robot's max speed, in m/s
+     * @param maxAngularVelocity The robot's max angular velocity, in rad/s
+     * @param maxAcceleration    The robot's max acceleration, in m/s/s
+     * @param trackWidth         Track width of the robot, in inches
+     * @param wheelBase          Wheel base of the robot, in inches
+     * @param wheelDiameter      Diameter of the wheels, in inches
+     * @param driveRatio         Ratio between the drive motor and output wheel (>1)
+     * @param steerRatio          Ratio between the steer motor and output bearing (>1)
+     * @param driveFeedforward   Characterized kS, kV and kA of the drive, in volts
+     *                           per m/s and m/s/s of the wheel
+     * @param steerFeedforward   Characterized kS and kV of the steering, in volts
+     *                           per rad/s of the module
+     */
+    public DrivetrainConfiguration(BeakPIDConstants drivePID, BeakPIDConstants steerPID, int steerCurrentLimit,
+            int driveSupplyLimit, int driveStatorLimit, String canBus, double maxSpeed, double maxAngularVelocity,
+            double maxAcceleration, double trackWidth, double wheelBase, double wheelDiameter, double driveRatio,
+            double steerRatio, SimpleMotorFeedforward driveFeedforward, SimpleMotorFeedforward steerFeedforward) {
+        DriveFeedforward = driveFeedforward;
+        SteerFeedforward = steerFeedforward;
         DrivePID = drivePID;
         SteerPID = steerPID;
         SteerCurrentLimit = steerCurrentLimit;
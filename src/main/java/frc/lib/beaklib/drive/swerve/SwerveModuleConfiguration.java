@@ -17,6 +17,12 @@ public class SwerveModuleConfiguration {
 
     public final DrivetrainConfiguration DriveConfig;
 
+    /**
+     * Drive motor rotations caused by one rotation of the module, on coaxial
+     * modules where steering back-drives the drive gear. 0 if not coupled.
+     */
+    public final double CouplingRatio;
+
     /**
      * @param angleOffset
      *            Zero offset of this module.
@@ -36,7 +42,35 @@ public class SwerveModuleConfiguration {
         boolean driveInverted,
         boolean steerInverted,
         DrivetrainConfiguration driveConfig) {
+        this(angleOffset, moduleLocation, driveInverted, steerInverted, driveConfig, 0.);
+    }
+
+    /**
+     * @param angleOffset
+     *            Zero offset of this module.
+     * @param moduleLocation
+     *            Translation from the center of the robot to this module.
+     * @param driveInverted
+     *            Whether or not the drive motor is inverted.
+     * @param steerInverted
+     *            Whether or not the steer motor is inverted.
+     * @param driveConfig
+     *            {@link DrivetrainConfiguration} of the drivetrain this
+     *            module is on.
+     * @param couplingRatio
+     *            Drive motor rotations caused by one rotation of the module,
+     *            e.g. 50/14 on an MK4i. Negative if steering turns the drive
+     *            motor backwards.
+     */
+    public SwerveModuleConfiguration(
+        Rotation2d angleOffset,
+        Translation2d moduleLocation,
+        boolean driveInverted,
+        boolean steerInverted,
+        DrivetrainConfiguration driveConfig,
+        double couplingRatio) {
         this.DriveConfig = driveConfig;
+        this.CouplingRatio = couplingRatio;
 
         this.AngleOffset = angleOffset;
         this.ModuleLocation = moduleLocation;
@@ -9,6 +9,14 @@ import java.util.List;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import frc.lib.beaklib.drive.swerve.BeakSwerveModule;
+import frc.lib.beaklib.drive.swerve.BeakSwerveSetpointGenerator;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakAccelerationStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakInverseKinematicsStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakModuleOutputStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakSetpointLimitStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakSteerLookaheadStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakSwervePipeline;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakSwervePipelineState;
 
 /** Drive a swerve chassis based upon Chassis Speeds. */
 public class BeakChassisSpeedsDrive implements BeakSwerveRequest {
@@ -28,15 +36,137 @@ public class BeakChassisSpeedsDrive implements BeakSwerveRequest {
      * The type of control request to use for the steer motor.
      */
     public BeakSwerveModule.SteerRequestType SteerRequestType = BeakSwerveModule.SteerRequestType.Position;
+    /**
+     * Whether to limit module setpoints to what they can physically reach in
+     * one loop, using the drivetrain's {@link BeakSwerveSetpointGenerator}.
+     */
+    public boolean LimitSetpoints = false;
+    /**
+     * The robot-relative chassis acceleration, e.g. from the trajectory being
+     * followed. If null, it's estimated from the change in speeds.
+     */
+    public ChassisSpeeds Acceleration = null;
+    /**
+     * How far ahead, in seconds, to point the modules based on the
+     * acceleration. 0 points them at the current speeds.
+     */
+    public double SteerLookahead = 0;
+
+    /** The parameters as of a {@link #capture()}, for {@link #apply}. */
+    private static class Parameters {
+        double vx;
+        double vy;
+        double omega;
+        double centerOfRotationX;
+        double centerOfRotationY;
+        BeakSwerveModule.DriveRequestType driveRequestType;
+        BeakSwerveModule.SteerRequestType steerRequestType;
+        boolean limitSetpoints;
+        double ax;
+        double ay;
+        double alpha;
+        double steerLookahead;
+
+        Parameters(BeakChassisSpeedsDrive request) {
+            copyFrom(request);
+        }
+
+        void copyFrom(BeakChassisSpeedsDrive request) {
+            // ChassisSpeeds is mutable, so copy its values rather than keep it.
+            vx = request.Speeds.vxMetersPerSecond;
+            vy = request.Speeds.vyMetersPerSecond;
+            omega = request.Speeds.omegaRadiansPerSecond;
+            centerOfRotationX = request.CenterOfRotation.getX();
+            centerOfRotationY = request.CenterOfRotation.getY();
+            driveRequestType = request.DriveRequestType;
+            steerRequestType = request.SteerRequestType;
+            limitSetpoints = request.LimitSetpoints;
+
+            ChassisSpeeds acceleration = request.Acceleration;
+            if (acceleration != null) {
+                ax = acceleration.vxMetersPerSecond;
+                ay = acceleration.vyMetersPerSecond;
+                alpha = acceleration.omegaRadiansPerSecond;
+            } else {
+                ax = Double.NaN;
+                ay = Double.NaN;
+                alpha = Double.NaN;
+            }
+
+            steerLookahead = request.SteerLookahead;
+        }
+    }
+
+    // Captured parameters are written to the back buffer, and swapped to the
+    // front for apply, so neither side ever allocates or sees a half-written
+    // copy.
+    private final Object m_parametersLock = new Object();
+    private Parameters m_frontParameters = new Parameters(this);
+    private Parameters m_backParameters = new Parameters(this);
+    private boolean m_captured = false;
+
+    private final BeakSwervePipeline m_pipeline = new BeakSwervePipeline(
+            new BeakAccelerationStage(),
+            new BeakInverseKinematicsStage(),
+            new BeakSteerLookaheadStage(),
+            new BeakSetpointLimitStage(),
+            new BeakModuleOutputStage());
+
+    @Override
+    public void capture() {
+        synchronized (m_parametersLock) {
+            m_backParameters.copyFrom(this);
+            m_captured = true;
+        }
+    }
 
     public void apply(SwerveControlRequestParameters parameters, List<BeakSwerveModule> modulesToApply) {
-        var states = parameters.kinematics.toSwerveModuleStates(Speeds, CenterOfRotation);
-        
-        for (int i = 0; i < modulesToApply.size(); ++i) {
-            modulesToApply.get(i).apply(states[i], DriveRequestType, SteerRequestType);
+        Parameters request = swapParameters();
+
+        BeakSwervePipelineState state = m_pipeline.getState();
+        state.vx = request.vx;
+        state.vy = request.vy;
+        state.omega = request.omega;
+        state.centerOfRotationX = request.centerOfRotationX;
+        state.centerOfRotationY = request.centerOfRotationY;
+        state.limitSetpoints = request.limitSetpoints;
+        state.steerLookahead = request.steerLookahead;
+        state.ax = request.ax;
+        state.ay = request.ay;
+        state.alpha = request.alpha;
+        state.driveRequestType = request.driveRequestType;
+        state.steerRequestType = request.steerRequestType;
+
+        m_pipeline.run(parameters, modulesToApply);
+    }
+
+    /**
+     * Move the last captured parameters to the front, if there are any new ones.
+     * Only {@link #apply} reads the front buffer, so it can be used after the
+     * lock is released.
+     */
+    private Parameters swapParameters() {
+        synchronized (m_parametersLock) {
+            if (m_captured) {
+                Parameters front = m_backParameters;
+                m_backParameters = m_frontParameters;
+                m_frontParameters = front;
+                m_captured = false;
+            }
+
+            return m_frontParameters;
         }
     }
 
+    /**
+     * Get this request's pipeline, e.g. to publish its timing.
+     *
+     * @return The pipeline.
+     */
+    public BeakSwervePipeline getPipeline() {
+        return m_pipeline;
+    }
+
     /**
      * Sets the chassis speeds to apply to the drivetrain.
      *
@@ -82,4 +212,40 @@ public class BeakChassisSpeedsDrive implements BeakSwerveRequest {
         this.SteerRequestType = steerRequestType;
         return this;
     }
+
+    /**
+     * Sets whether to limit module setpoints to what they can physically reach
+     * in one loop.
+     *
+     * @param limitSetpoints Whether to limit setpoints
+     * @return this request
+     */
+    public BeakChassisSpeedsDrive withLimitSetpoints(boolean limitSetpoints) {
+        this.LimitSetpoints = limitSetpoints;
+        return this;
+    }
+
+    /**
+     * Sets the robot-relative chassis acceleration, e.g. from the trajectory
+     * being followed.
+     *
+     * @param acceleration Chassis acceleration, in m/s/s and rad/s/s, or null
+     *                     to estimate it
+     * @return this request
+     */
+    public BeakChassisSpeedsDrive withAcceleration(ChassisSpeeds acceleration) {
+        this.Acceleration = acceleration;
+        return this;
+    }
+
+    /**
+     * Sets how far ahead to point the modules based on the acceleration.
+     *
+     * @param steerLookahead Lookahead time, in seconds
+     * @return this request
+     */
+    public BeakChassisSpeedsDrive withSteerLookahead(double steerLookahead) {
+        this.SteerLookahead = steerLookahead;
+        return this;
+    }
 }
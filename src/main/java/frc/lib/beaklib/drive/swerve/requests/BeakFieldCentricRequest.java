@@ -7,9 +7,20 @@ package frc.lib.beaklib.drive.swerve.requests;
 import java.util.List;
 
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.kinematics.SwerveModuleState;
 import frc.lib.beaklib.drive.swerve.BeakSwerveModule;
+import frc.lib.beaklib.drive.swerve.BeakSwerveSetpointGenerator;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakAccelerationStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakDesaturateStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakDiscretizeStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakFieldToRobotStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakInputShapingStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakInverseKinematicsStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakModuleOutputStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakSetpointLimitStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakSlewRateStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakSteerLookaheadStage;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakSwervePipeline;
+import frc.lib.beaklib.drive.swerve.requests.pipeline.BeakSwervePipelineState;
 
 /** Drive based upon field-relative velocities. */
 public class BeakFieldCentricRequest implements BeakSwerveRequest {
@@ -39,6 +50,14 @@ public class BeakFieldCentricRequest implements BeakSwerveRequest {
      * The rotational deadband of the request.
      */
     public double RotationalDeadband = 0;
+    /**
+     * The fastest the translation velocities can change, in m/s/s.
+     */
+    public double TranslationSlewRate = Double.POSITIVE_INFINITY;
+    /**
+     * The fastest the rotational rate can change, in rad/s/s.
+     */
+    public double RotationSlewRate = Double.POSITIVE_INFINITY;
     /**
      * The center of rotation the robot should rotate around.
      * This is (0,0) by default, which will rotate around the center of the robot.
@@ -54,37 +73,133 @@ public class BeakFieldCentricRequest implements BeakSwerveRequest {
      * The type of control request to use for the steer motor.
      */
     public BeakSwerveModule.SteerRequestType SteerRequestType = BeakSwerveModule.SteerRequestType.MotionMagic;
-
     /**
-     * The last applied state in case we don't have anything to drive.
+     * Whether to limit module setpoints to what they can physically reach in
+     * one loop, using the drivetrain's {@link BeakSwerveSetpointGenerator}.
+     */
+    public boolean LimitSetpoints = false;
+    /**
+     * How far ahead, in seconds, to point the modules based on the commanded
+     * acceleration. 0 points them at the current command.
      */
-    protected SwerveModuleState[] m_lastAppliedState = null;
+    public double SteerLookahead = 0;
 
-    // TODO: look forward based on acceleration
-    public void apply(SwerveControlRequestParameters parameters, List<BeakSwerveModule> modulesToApply) {
-        double toApplyX = VelocityX;
-        double toApplyY = VelocityY;
-        
-        double toApplyOmega = RotationalRate;
-        if (Math.sqrt(toApplyX * toApplyX + toApplyY * toApplyY) < Deadband) {
-            toApplyX = 0;
-            toApplyY = 0;
+    /** The parameters as of a {@link #capture()}, for {@link #apply}. */
+    private static class Parameters {
+        double velocityX;
+        double velocityY;
+        double rotationalRate;
+        double deadband;
+        double rotationalDeadband;
+        double translationSlewRate;
+        double rotationSlewRate;
+        double centerOfRotationX;
+        double centerOfRotationY;
+        BeakSwerveModule.DriveRequestType driveRequestType;
+        BeakSwerveModule.SteerRequestType steerRequestType;
+        boolean limitSetpoints;
+        double steerLookahead;
+
+        Parameters(BeakFieldCentricRequest request) {
+            copyFrom(request);
+        }
+
+        void copyFrom(BeakFieldCentricRequest request) {
+            velocityX = request.VelocityX;
+            velocityY = request.VelocityY;
+            rotationalRate = request.RotationalRate;
+            deadband = request.Deadband;
+            rotationalDeadband = request.RotationalDeadband;
+            translationSlewRate = request.TranslationSlewRate;
+            rotationSlewRate = request.RotationSlewRate;
+            centerOfRotationX = request.CenterOfRotation.getX();
+            centerOfRotationY = request.CenterOfRotation.getY();
+            driveRequestType = request.DriveRequestType;
+            steerRequestType = request.SteerRequestType;
+            limitSetpoints = request.LimitSetpoints;
+            steerLookahead = request.SteerLookahead;
         }
-        if (Math.abs(toApplyOmega) < RotationalDeadband) {
-            toApplyOmega = 0;
+    }
+
+    // Captured parameters are written to the back buffer, and swapped to the
+    // front for apply, so neither side ever allocates or sees a half-written
+    // copy.
+    private final Object m_parametersLock = new Object();
+    private Parameters m_frontParameters = new Parameters(this);
+    private Parameters m_backParameters = new Parameters(this);
+    private boolean m_captured = false;
+
+    private final BeakSwervePipeline m_pipeline = new BeakSwervePipeline(
+            new BeakInputShapingStage(),
+            new BeakSlewRateStage(),
+            new BeakAccelerationStage(),
+            new BeakFieldToRobotStage(),
+            new BeakDiscretizeStage(),
+            new BeakInverseKinematicsStage(),
+            new BeakSteerLookaheadStage(),
+            new BeakDesaturateStage(),
+            new BeakSetpointLimitStage(),
+            new BeakModuleOutputStage());
+
+    @Override
+    public void capture() {
+        synchronized (m_parametersLock) {
+            m_backParameters.copyFrom(this);
+            m_captured = true;
         }
+    }
+
+    public void apply(SwerveControlRequestParameters parameters, List<BeakSwerveModule> modulesToApply) {
+        Parameters request = swapParameters();
 
-        ChassisSpeeds speeds = ChassisSpeeds
-                .discretize(ChassisSpeeds.fromFieldRelativeSpeeds(toApplyX, toApplyY, toApplyOmega,
-                        parameters.currentPose.getRotation()), parameters.updatePeriod);
+        BeakSwervePipelineState state = m_pipeline.getState();
+        state.vx = request.velocityX;
+        state.vy = request.velocityY;
+        state.omega = request.rotationalRate;
+        state.ax = Double.NaN;
+        state.ay = Double.NaN;
+        state.alpha = Double.NaN;
+        state.deadband = request.deadband;
+        state.rotationalDeadband = request.rotationalDeadband;
+        state.translationSlewRate = request.translationSlewRate;
+        state.rotationSlewRate = request.rotationSlewRate;
+        state.centerOfRotationX = request.centerOfRotationX;
+        state.centerOfRotationY = request.centerOfRotationY;
+        state.limitSetpoints = request.limitSetpoints;
+        state.steerLookahead = request.steerLookahead;
+        state.driveRequestType = request.driveRequestType;
+        state.steerRequestType = request.steerRequestType;
 
-        var states = parameters.kinematics.toSwerveModuleStates(speeds, CenterOfRotation);
+        m_pipeline.run(parameters, modulesToApply);
+    }
+
+    /**
+     * Move the last captured parameters to the front, if there are any new ones.
+     * Only {@link #apply} reads the front buffer, so it can be used after the
+     * lock is released.
+     */
+    private Parameters swapParameters() {
+        synchronized (m_parametersLock) {
+            if (m_captured) {
+                Parameters front = m_backParameters;
+                m_backParameters = m_frontParameters;
+                m_frontParameters = front;
+                m_captured = false;
+            }
 
-        for (int i = 0; i < modulesToApply.size(); ++i) {
-            modulesToApply.get(i).apply(states[i], DriveRequestType, SteerRequestType);
+            return m_frontParameters;
         }
     }
 
+    /**
+     * Get this request's pipeline, e.g. to publish its timing.
+     *
+     * @return The pipeline.
+     */
+    public BeakSwervePipeline getPipeline() {
+        return m_pipeline;
+    }
+
     /**
      * Sets the velocity in the X direction, in m/s.
      * X is defined as forward according to WPILib convention,
@@ -146,6 +261,28 @@ public class BeakFieldCentricRequest implements BeakSwerveRequest {
         return this;
     }
 
+    /**
+     * Sets the fastest the translation velocities can change.
+     *
+     * @param translationSlewRate Maximum rate of change, in m/s/s
+     * @return this request
+     */
+    public BeakFieldCentricRequest withTranslationSlewRate(double translationSlewRate) {
+        this.TranslationSlewRate = translationSlewRate;
+        return this;
+    }
+
+    /**
+     * Sets the fastest the rotational rate can change.
+     *
+     * @param rotationSlewRate Maximum rate of change, in rad/s/s
+     * @return this request
+     */
+    public BeakFieldCentricRequest withRotationSlewRate(double rotationSlewRate) {
+        this.RotationSlewRate = rotationSlewRate;
+        return this;
+    }
+
     /**
      * Sets the center of rotation of the request
      *
@@ -181,4 +318,28 @@ public class BeakFieldCentricRequest implements BeakSwerveRequest {
         this.SteerRequestType = steerRequestType;
         return this;
     }
+
+    /**
+     * Sets whether to limit module setpoints to what they can physically reach
+     * in one loop.
+     *
+     * @param limitSetpoints Whether to limit setpoints
+     * @return this request
+     */
+    public BeakFieldCentricRequest withLimitSetpoints(boolean limitSetpoints) {
+        this.LimitSetpoints = limitSetpoints;
+        return this;
+    }
+
+    /**
+     * Sets how far ahead to point the modules based on the commanded
+     * acceleration.
+     *
+     * @param steerLookahead Lookahead time, in seconds
+     * @return this request
+     */
+    public BeakFieldCentricRequest withSteerLookahead(double steerLookahead) {
+        this.SteerLookahead = steerLookahead;
+        return this;
+    }
 }
@@ -6,22 +6,40 @@ package frc.lib.beaklib.drive.swerve.requests;
 
 import java.util.List;
 
-import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import frc.lib.beaklib.drive.swerve.BeakSwerveKinematics;
 import frc.lib.beaklib.drive.swerve.BeakSwerveModule;
+import frc.lib.beaklib.drive.swerve.BeakSwerveSetpointGenerator;
 
 /** Base interface for swerve requests. */
 public interface BeakSwerveRequest {
     public class SwerveControlRequestParameters {
         public SwerveDriveKinematics kinematics;
-        public ChassisSpeeds currentChassisSpeed;
-        public Pose2d currentPose;
+        public BeakSwerveKinematics swerveKinematics;
+        public BeakSwerveSetpointGenerator setpointGenerator;
+        /** Measured robot-relative chassis speeds, updated in place every cycle. */
+        public final ChassisSpeeds currentChassisSpeed = new ChassisSpeeds();
+        /**
+         * Estimated pose, updated in place every cycle: x and y in meters, then
+         * heading in radians.
+         */
+        public final double[] currentPose = new double[3];
         public double timestamp;
         public Translation2d[] swervePositions;
         public double updatePeriod;
+        public double maxSpeed;
     }
 
     public void apply(SwerveControlRequestParameters parameters, List<BeakSwerveModule> modules);
+
+    /**
+     * Copy this request's parameters for {@link #apply}, which may run on
+     * another thread while they're being changed. Called every time the request
+     * is set, often every loop, so it shouldn't allocate. Requests whose
+     * parameters can't be half-updated needn't override this.
+     */
+    public default void capture() {
+    }
 }
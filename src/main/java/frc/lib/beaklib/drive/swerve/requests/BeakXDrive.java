@@ -6,8 +6,6 @@ package frc.lib.beaklib.drive.swerve.requests;
 
 import java.util.List;
 
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.kinematics.SwerveModuleState;
 import frc.lib.beaklib.drive.swerve.BeakSwerveModule;
 import frc.lib.beaklib.drive.swerve.BeakSwerveModule.DriveRequestType;
 
@@ -18,16 +16,21 @@ public class BeakXDrive implements BeakSwerveRequest {
      */
     public BeakSwerveModule.SteerRequestType SteerRequestType = BeakSwerveModule.SteerRequestType.Position;
 
-    /**
-     * The last applied state in case we don't have anything to drive.
-     */
-    protected SwerveModuleState[] m_lastAppliedState = null;
+    private volatile BeakSwerveModule.SteerRequestType m_steerRequestType = SteerRequestType;
+
+    @Override
+    public void capture() {
+        m_steerRequestType = SteerRequestType;
+    }
 
-    // TODO: look forward based on acceleration
     public void apply(SwerveControlRequestParameters parameters, List<BeakSwerveModule> modulesToApply) {
+        BeakSwerveModule.SteerRequestType steerRequestType = m_steerRequestType;
+
         for (int i = 0; i < modulesToApply.size(); ++i) {
-            Rotation2d angle = modulesToApply.get(i).Config.ModuleLocation.getAngle();
-            modulesToApply.get(i).apply(new SwerveModuleState(0, angle), DriveRequestType.Voltage, SteerRequestType);
+            BeakSwerveModule module = modulesToApply.get(i);
+            double angle = Math.atan2(module.Config.ModuleLocation.getY(), module.Config.ModuleLocation.getX());
+
+            module.apply(0., angle, DriveRequestType.Voltage, steerRequestType);
         }
     }
 
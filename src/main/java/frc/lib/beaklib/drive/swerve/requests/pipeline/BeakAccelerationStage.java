@@ -0,0 +1,90 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+/**
+ * <p>
+ * Estimate the chassis acceleration from the change in chassis speeds, if the
+ * request didn't give one. Place this after any stages that shape the speeds,
+ * and before converting them to robot-relative.
+ * </p>
+ *
+ * The speeds usually come from the main loop, which can be slower than the
+ * control cycle. So the change is spread over the time since the speeds last
+ * changed, not over one cycle, and held until they change again.
+ */
+public class BeakAccelerationStage implements BeakSwerveStage {
+    // Speeds that stay put longer than this are holding steady, not ramping
+    // slowly, so the next change is spread over at most this long.
+    private static final double MAX_CHANGE_INTERVAL = 0.1;
+
+    // Speeds as of the last change.
+    private double m_lastVx = 0.;
+    private double m_lastVy = 0.;
+    private double m_lastOmega = 0.;
+    private double m_lastChangeTimestamp = 0.;
+    private double m_changeInterval = 0.;
+
+    // Acceleration estimated at the last change.
+    private double m_ax = 0.;
+    private double m_ay = 0.;
+    private double m_alpha = 0.;
+
+    private double m_lastTimestamp = Double.NaN;
+
+    @Override
+    public void apply(BeakSwervePipelineState state) {
+        double now = state.parameters.timestamp;
+        double dt = state.parameters.updatePeriod;
+
+        boolean changed = state.vx != m_lastVx || state.vy != m_lastVy || state.omega != m_lastOmega;
+
+        if (!(now - m_lastTimestamp < 2. * dt && dt > 0.)) {
+            // Differentiating across a gap (e.g. the first loop, or after
+            // another request ran) would give a bogus acceleration.
+            resetEstimate(state, now);
+        } else if (changed) {
+            double interval = Math.min(now - m_lastChangeTimestamp, MAX_CHANGE_INTERVAL);
+
+            if (interval > 0.) {
+                m_ax = (state.vx - m_lastVx) / interval;
+                m_ay = (state.vy - m_lastVy) / interval;
+                m_alpha = (state.omega - m_lastOmega) / interval;
+
+                m_lastVx = state.vx;
+                m_lastVy = state.vy;
+                m_lastOmega = state.omega;
+                m_lastChangeTimestamp = now;
+                m_changeInterval = interval;
+            } else {
+                resetEstimate(state, now);
+            }
+        } else if (now - m_lastChangeTimestamp > m_changeInterval + dt) {
+            // The next change is overdue, so the speeds have settled.
+            m_ax = 0.;
+            m_ay = 0.;
+            m_alpha = 0.;
+        }
+        m_lastTimestamp = now;
+
+        if (Double.isNaN(state.ax) || Double.isNaN(state.ay) || Double.isNaN(state.alpha)) {
+            state.ax = m_ax;
+            state.ay = m_ay;
+            state.alpha = m_alpha;
+        }
+    }
+
+    private void resetEstimate(BeakSwervePipelineState state, double now) {
+        m_ax = 0.;
+        m_ay = 0.;
+        m_alpha = 0.;
+
+        m_lastVx = state.vx;
+        m_lastVy = state.vy;
+        m_lastOmega = state.omega;
+        m_lastChangeTimestamp = now;
+        m_changeInterval = 0.;
+    }
+}
@@ -0,0 +1,13 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+/** Scale module speeds down so none exceed the drivetrain's max speed. */
+public class BeakDesaturateStage implements BeakSwerveStage {
+    @Override
+    public void apply(BeakSwervePipelineState state) {
+        state.parameters.swerveKinematics.desaturate(state.parameters.maxSpeed);
+    }
+}
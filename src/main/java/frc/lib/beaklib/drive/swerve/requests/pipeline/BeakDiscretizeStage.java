@@ -0,0 +1,24 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+import frc.lib.beaklib.drive.swerve.BeakSwerveKinematics;
+
+/**
+ * Discretize robot-relative chassis speeds over the loop period, so that
+ * translating while rotating doesn't skew.
+ */
+public class BeakDiscretizeStage implements BeakSwerveStage {
+    private final double[] m_speeds = new double[3];
+
+    @Override
+    public void apply(BeakSwervePipelineState state) {
+        BeakSwerveKinematics.discretize(state.vx, state.vy, state.omega, state.parameters.updatePeriod, m_speeds);
+
+        state.vx = m_speeds[0];
+        state.vy = m_speeds[1];
+        state.omega = m_speeds[2];
+    }
+}
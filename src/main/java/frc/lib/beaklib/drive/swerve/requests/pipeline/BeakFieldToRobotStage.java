@@ -0,0 +1,33 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+/**
+ * Convert field-relative chassis speeds, and acceleration if known, to
+ * robot-relative, using the current pose.
+ */
+public class BeakFieldToRobotStage implements BeakSwerveStage {
+    @Override
+    public void apply(BeakSwervePipelineState state) {
+        double heading = state.parameters.currentPose[2];
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+
+        double vx = state.vx * cos + state.vy * sin;
+        double vy = -state.vx * sin + state.vy * cos;
+
+        state.vx = vx;
+        state.vy = vy;
+
+        // Robot-relative speeds also change as the robot turns under them.
+        if (!Double.isNaN(state.ax) && !Double.isNaN(state.ay)) {
+            double ax = state.ax * cos + state.ay * sin + state.omega * vy;
+            double ay = -state.ax * sin + state.ay * cos - state.omega * vx;
+
+            state.ax = ax;
+            state.ay = ay;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+/** Zero out translation and rotation speeds inside their deadbands. */
+public class BeakInputShapingStage implements BeakSwerveStage {
+    @Override
+    public void apply(BeakSwervePipelineState state) {
+        if (Math.hypot(state.vx, state.vy) < state.deadband) {
+            state.vx = 0.;
+            state.vy = 0.;
+        }
+
+        if (Math.abs(state.omega) < state.rotationalDeadband) {
+            state.omega = 0.;
+        }
+    }
+}
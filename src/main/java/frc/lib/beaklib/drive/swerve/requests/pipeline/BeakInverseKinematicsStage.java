@@ -0,0 +1,25 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+import frc.lib.beaklib.drive.swerve.BeakSwerveKinematics;
+
+/**
+ * Compute module states from robot-relative chassis speeds, and how fast they
+ * change from the chassis acceleration if known.
+ */
+public class BeakInverseKinematicsStage implements BeakSwerveStage {
+    @Override
+    public void apply(BeakSwervePipelineState state) {
+        BeakSwerveKinematics kinematics = state.parameters.swerveKinematics;
+
+        kinematics.toModuleStates(state.vx, state.vy, state.omega, state.centerOfRotationX,
+                state.centerOfRotationY);
+
+        if (!Double.isNaN(state.ax) && !Double.isNaN(state.ay) && !Double.isNaN(state.alpha)) {
+            kinematics.toModuleAccelerations(state.ax, state.ay, state.alpha);
+        }
+    }
+}
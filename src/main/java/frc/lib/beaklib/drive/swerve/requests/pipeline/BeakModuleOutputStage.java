@@ -0,0 +1,21 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+import frc.lib.beaklib.drive.swerve.BeakSwerveKinematics;
+
+/** Send the computed module states to the modules. */
+public class BeakModuleOutputStage implements BeakSwerveStage {
+    @Override
+    public void apply(BeakSwervePipelineState state) {
+        BeakSwerveKinematics kinematics = state.parameters.swerveKinematics;
+
+        for (int i = 0; i < state.modules.size(); ++i) {
+            state.modules.get(i).apply(kinematics.getSpeed(i), kinematics.getAngle(i),
+                    kinematics.getDriveAcceleration(i), kinematics.getSteerVelocity(i), state.driveRequestType,
+                    state.steerRequestType);
+        }
+    }
+}
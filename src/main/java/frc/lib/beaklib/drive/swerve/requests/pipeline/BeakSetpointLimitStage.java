@@ -0,0 +1,20 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+/**
+ * Limit module states to what the modules can reach in one loop, if the
+ * request asks for it. See
+ * {@link frc.lib.beaklib.drive.swerve.BeakSwerveSetpointGenerator}.
+ */
+public class BeakSetpointLimitStage implements BeakSwerveStage {
+    @Override
+    public void apply(BeakSwervePipelineState state) {
+        if (state.limitSetpoints) {
+            state.parameters.setpointGenerator.apply(state.parameters.swerveKinematics,
+                    state.parameters.updatePeriod);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Limit how fast each chassis speed can change, like a
+ * {@link edu.wpi.first.math.filter.SlewRateLimiter} on each axis.
+ */
+public class BeakSlewRateStage implements BeakSwerveStage {
+    private double m_lastVx = 0.;
+    private double m_lastVy = 0.;
+    private double m_lastOmega = 0.;
+
+    @Override
+    public void apply(BeakSwervePipelineState state) {
+        double dt = state.parameters.updatePeriod;
+
+        m_lastVx = limit(m_lastVx, state.vx, state.translationSlewRate * dt);
+        m_lastVy = limit(m_lastVy, state.vy, state.translationSlewRate * dt);
+        m_lastOmega = limit(m_lastOmega, state.omega, state.rotationSlewRate * dt);
+
+        state.vx = m_lastVx;
+        state.vy = m_lastVy;
+        state.omega = m_lastOmega;
+    }
+
+    private static double limit(double last, double input, double maxChange) {
+        // Also covers an infinite rate with a zero period.
+        if (!(maxChange < Double.POSITIVE_INFINITY)) {
+            return input;
+        }
+
+        return last + MathUtil.clamp(input - last, -maxChange, maxChange);
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+import edu.wpi.first.math.MathUtil;
+import frc.lib.beaklib.drive.swerve.BeakSwerveKinematics;
+
+/**
+ * <p>
+ * Point each module where its velocity will be a short time from now, rather
+ * than where it is now.
+ * </p>
+ *
+ * <p>
+ * Steer motors only start turning once a new direction is commanded, so every
+ * change of direction loses a few loops to steering. This extrapolates each
+ * module's velocity by the lookahead time, using the chassis acceleration.
+ * Modules are pointed along the extrapolated velocity, and only drive the part
+ * of their current velocity along it, so they don't scrub while they catch up.
+ * Their drive acceleration and steer velocity are then recomputed for the new
+ * states.
+ * </p>
+ *
+ * <p>
+ * Place this after {@link BeakAccelerationStage} and
+ * {@link BeakInverseKinematicsStage}, and before desaturating or limiting the
+ * setpoints, so the limits apply to what is actually sent.
+ * </p>
+ *
+ * Does nothing if the lookahead time is zero, or the acceleration is unknown.
+ */
+public class BeakSteerLookaheadStage implements BeakSwerveStage {
+    private static final double STOPPED_SPEED = 1e-3;
+
+    @Override
+    public void apply(BeakSwervePipelineState state) {
+        double lookahead = state.steerLookahead;
+        if (!(lookahead > 0.) || Double.isNaN(state.ax) || Double.isNaN(state.ay)
+                || Double.isNaN(state.alpha)) {
+            return;
+        }
+
+        BeakSwerveKinematics kinematics = state.parameters.swerveKinematics;
+        int numModules = kinematics.getNumModules();
+
+        for (int i = 0; i < numModules; i++) {
+            double vx = kinematics.getVx(i);
+            double vy = kinematics.getVy(i);
+
+            double ax = state.ax - state.alpha * kinematics.getRelativeY(i);
+            double ay = state.ay + state.alpha * kinematics.getRelativeX(i);
+
+            double futureVx = vx + ax * lookahead;
+            double futureVy = vy + ay * lookahead;
+            if (Math.hypot(futureVx, futureVy) < STOPPED_SPEED) {
+                continue;
+            }
+
+            double angle = Math.atan2(futureVy, futureVx);
+            double speed = vx * Math.cos(angle) + vy * Math.sin(angle);
+
+            // Slowing to a stop reverses the extrapolated velocity; keep the
+            // wheel pointed the same way and drive forwards.
+            if (speed < 0.) {
+                speed = -speed;
+                angle = MathUtil.angleModulus(angle + Math.PI);
+            }
+
+            kinematics.setModuleState(i, speed, angle);
+        }
+
+        // The derivatives from inverse kinematics were for the old states.
+        kinematics.toModuleAccelerations(state.ax, state.ay, state.alpha);
+    }
+}
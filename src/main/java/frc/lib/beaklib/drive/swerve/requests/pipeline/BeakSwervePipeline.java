@@ -0,0 +1,114 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+import java.util.List;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.beaklib.drive.swerve.BeakSwerveModule;
+import frc.lib.beaklib.drive.swerve.requests.BeakSwerveRequest.SwerveControlRequestParameters;
+
+/**
+ * <p>
+ * A fixed list of stages that turn a request's inputs into module outputs.
+ * </p>
+ *
+ * <p>
+ * Requests declare their pipeline once, fill in its state every loop, and
+ * run it. Every stage works in place on the same preallocated state, so a run
+ * doesn't allocate.
+ * </p>
+ *
+ * Each stage's run time is measured, and can be published with
+ * {@link #publish(String)}.
+ */
+public class BeakSwervePipeline {
+    private final BeakSwerveStage[] m_stages;
+    private final String[] m_names;
+    private final double[] m_stageTimes;
+    private final double[] m_maxStageTimes;
+
+    private final BeakSwervePipelineState m_state = new BeakSwervePipelineState();
+
+    /**
+     * Create a new pipeline.
+     *
+     * @param stages The stages to run, in order.
+     */
+    public BeakSwervePipeline(BeakSwerveStage... stages) {
+        m_stages = stages;
+        m_names = new String[stages.length];
+        m_stageTimes = new double[stages.length];
+        m_maxStageTimes = new double[stages.length];
+
+        for (int i = 0; i < stages.length; i++) {
+            m_names[i] = i + " " + stages[i].getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * Get the state to fill in before running.
+     *
+     * @return The pipeline's state.
+     */
+    public BeakSwervePipelineState getState() {
+        return m_state;
+    }
+
+    /**
+     * Run every stage, in order.
+     *
+     * @param parameters The drivetrain's request parameters.
+     * @param modules    The modules to apply to.
+     */
+    public void run(SwerveControlRequestParameters parameters, List<BeakSwerveModule> modules) {
+        m_state.parameters = parameters;
+        m_state.modules = modules;
+
+        long last = System.nanoTime();
+        for (int i = 0; i < m_stages.length; i++) {
+            m_stages[i].apply(m_state);
+
+            long now = System.nanoTime();
+            double time = (now - last) / 1e9;
+            last = now;
+
+            m_stageTimes[i] = time;
+            m_maxStageTimes[i] = Math.max(m_maxStageTimes[i], time);
+        }
+    }
+
+    /**
+     * Get how long a stage took on the last run.
+     *
+     * @param stage Index of the stage.
+     * @return Run time, in seconds.
+     */
+    public double getStageTime(int stage) {
+        return m_stageTimes[stage];
+    }
+
+    /**
+     * Get the longest a stage has taken.
+     *
+     * @param stage Index of the stage.
+     * @return Run time, in seconds.
+     */
+    public double getMaxStageTime(int stage) {
+        return m_maxStageTimes[stage];
+    }
+
+    /**
+     * Publish each stage's run time to the dashboard, in microseconds.
+     *
+     * @param name Name to publish under.
+     */
+    public void publish(String name) {
+        for (int i = 0; i < m_stages.length; i++) {
+            SmartDashboard.putNumber(name + "/" + m_names[i] + "/Time", m_stageTimes[i] * 1e6);
+            SmartDashboard.putNumber(name + "/" + m_names[i] + "/Max Time", m_maxStageTimes[i] * 1e6);
+        }
+    }
+}
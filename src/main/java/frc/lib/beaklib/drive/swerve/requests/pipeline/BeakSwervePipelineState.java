@@ -0,0 +1,65 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+import java.util.List;
+
+import frc.lib.beaklib.drive.swerve.BeakSwerveModule;
+import frc.lib.beaklib.drive.swerve.BeakSwerveModule.DriveRequestType;
+import frc.lib.beaklib.drive.swerve.BeakSwerveModule.SteerRequestType;
+import frc.lib.beaklib.drive.swerve.requests.BeakSwerveRequest.SwerveControlRequestParameters;
+
+/**
+ * <p>
+ * Working state shared by the stages of a {@link BeakSwervePipeline}.
+ * </p>
+ *
+ * The request fills in its inputs before each run. Chassis speeds are then
+ * transformed in place by each stage; module states live in the parameters'
+ * {@link frc.lib.beaklib.drive.swerve.BeakSwerveKinematics}.
+ */
+public class BeakSwervePipelineState {
+    public SwerveControlRequestParameters parameters;
+    public List<BeakSwerveModule> modules;
+
+    /** Chassis X velocity, in m/s. Field- or robot-relative, depending on the stage. */
+    public double vx = 0.;
+    /** Chassis Y velocity, in m/s. Field- or robot-relative, depending on the stage. */
+    public double vy = 0.;
+    /** Chassis angular velocity, in rad/s. */
+    public double omega = 0.;
+
+    public double centerOfRotationX = 0.;
+    public double centerOfRotationY = 0.;
+
+    /** Translation speeds below this are zeroed, in m/s. */
+    public double deadband = 0.;
+    /** Rotation speeds below this are zeroed, in rad/s. */
+    public double rotationalDeadband = 0.;
+
+    /** Fastest translation speeds can change, in m/s/s. */
+    public double translationSlewRate = Double.POSITIVE_INFINITY;
+    /** Fastest rotation speed can change, in rad/s/s. */
+    public double rotationSlewRate = Double.POSITIVE_INFINITY;
+
+    /**
+     * Chassis X acceleration, in m/s/s, e.g. from a trajectory. In the same
+     * frame as the speeds. NaN if unknown; see {@link BeakAccelerationStage}.
+     */
+    public double ax = Double.NaN;
+    /** Chassis Y acceleration, in m/s/s. NaN if unknown. */
+    public double ay = Double.NaN;
+    /** Chassis angular acceleration, in rad/s/s. NaN if unknown. */
+    public double alpha = Double.NaN;
+
+    /** How far ahead to point the modules, in seconds. 0 disables this. */
+    public double steerLookahead = 0.;
+
+    /** Whether to apply the drivetrain's setpoint limits. */
+    public boolean limitSetpoints = false;
+
+    public DriveRequestType driveRequestType = DriveRequestType.Voltage;
+    public SteerRequestType steerRequestType = SteerRequestType.Position;
+}
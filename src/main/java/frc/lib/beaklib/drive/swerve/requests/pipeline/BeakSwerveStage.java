@@ -0,0 +1,19 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve.requests.pipeline;
+
+/**
+ * One step of a {@link BeakSwervePipeline}. Stages work in place on the
+ * pipeline's shared state, and must not allocate.
+ */
+@FunctionalInterface
+public interface BeakSwerveStage {
+    /**
+     * Run this stage.
+     *
+     * @param state The pipeline's state, modified in place.
+     */
+    public void apply(BeakSwervePipelineState state);
+}
@@ -6,6 +6,7 @@ package frc.lib.beaklib.encoder;
 
 import static edu.wpi.first.units.Units.RotationsPerSecond;
 
+import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.CANcoderConfiguration;
 import com.ctre.phoenix6.configs.CANcoderConfigurator;
@@ -36,21 +37,23 @@ public class BeakCANCoder extends CANcoder implements BeakAbsoluteEncoder {
     @Override
     public DataSignal<Rotation2d> getEncoderPosition(boolean latencyCompensated) {
         StatusSignal<Double> position = getPosition();
+        StatusSignal<Double> velocity = getVelocity();
 
         return new DataSignal<Rotation2d>(() -> {
             double positionValue;
 
             if (latencyCompensated) {
-                positionValue = StatusSignal.getLatencyCompensatedValue(position, getVelocity());
+                positionValue = StatusSignal.getLatencyCompensatedValue(position, velocity);
             } else {
                 positionValue = position.getValue();
             }
 
             return new Rotation2d(positionValue * 2 * Math.PI);
         },
-                () -> position.getTimestamp().getTime(),
-                position::refresh,
-                position::setUpdateFrequency);
+                () -> DataSignal.toFPGATime(position),
+                () -> BaseStatusSignal.refreshAll(position, velocity),
+                position::setUpdateFrequency,
+                position, velocity);
     }
 
     @Override
@@ -63,7 +66,7 @@ public class BeakCANCoder extends CANcoder implements BeakAbsoluteEncoder {
         StatusSignal<Double> velocity = getVelocity();
 
         return new DataSignal<Measure<Velocity<Angle>>>(() -> RotationsPerSecond.of(velocity.getValue()),
-                () -> velocity.getTimestamp().getTime(), velocity::refresh, velocity::setUpdateFrequency);
+                () -> DataSignal.toFPGATime(velocity), velocity::refresh, velocity::setUpdateFrequency, velocity);
     }
 
     @Override
@@ -110,20 +113,22 @@ public class BeakCANCoder extends CANcoder implements BeakAbsoluteEncoder {
     @Override
     public DataSignal<Rotation2d> getAbsoluteEncoderPosition(boolean latencyCompensated) {
         StatusSignal<Double> position = getAbsolutePosition();
+        StatusSignal<Double> velocity = getVelocity();
 
         return new DataSignal<Rotation2d>(() -> {
             double positionValue;
 
             if (latencyCompensated) {
-                positionValue = StatusSignal.getLatencyCompensatedValue(position, getVelocity());
+                positionValue = StatusSignal.getLatencyCompensatedValue(position, velocity);
             } else {
                 positionValue = position.getValue();
             }
 
             return new Rotation2d(positionValue * 2 * Math.PI);
         },
-                () -> position.getTimestamp().getTime(),
-                position::refresh,
-                position::setUpdateFrequency);
+                () -> DataSignal.toFPGATime(position),
+                () -> BaseStatusSignal.refreshAll(position, velocity),
+                position::setUpdateFrequency,
+                position, velocity);
     }
 }
@@ -6,6 +6,8 @@ package frc.lib.beaklib.gyro;
 
 import static edu.wpi.first.units.Units.DegreesPerSecond;
 
+import java.util.function.Supplier;
+
 import com.kauailabs.navx.frc.AHRS;
 
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -13,31 +15,46 @@ import edu.wpi.first.units.Angle;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.Velocity;
 import edu.wpi.first.wpilibj.SPI.Port;
+import frc.lib.beaklib.motor.BeakClockAligner;
 import frc.lib.beaklib.motor.DataSignal;
 
 /** A Kauai Labs NavX IMU implemented as a BeakGyro. */
 public class BeakNavX extends AHRS implements BeakGyro {
+    private final BeakClockAligner m_clock = new BeakClockAligner();
+
     public BeakNavX(Port port) {
         super(port);
     }
 
+    /**
+     * Get the FPGA time of the latest sample, from the NavX's own sensor
+     * timestamp.
+     */
+    private double getSampleTime() {
+        return m_clock.toFPGATime(getLastSensorTimestamp() / 1000.);
+    }
+
+    private <T> DataSignal<T> signal(Supplier<T> value) {
+        return new DataSignal<T>(value, this::getSampleTime, () -> {}, (frequency) -> {});
+    }
+
     @Override
     public DataSignal<Rotation2d> getPitchRotation2d(boolean latencyCompensated) {
-        return new DataSignal<Rotation2d>(() -> Rotation2d.fromDegrees(getPitch()));
+        return signal(() -> Rotation2d.fromDegrees(getPitch()));
     }
 
     @Override
     public DataSignal<Rotation2d> getRollRotation2d(boolean latencyCompensated) {
-        return new DataSignal<Rotation2d>(() -> Rotation2d.fromDegrees(getRoll()));
+        return signal(() -> Rotation2d.fromDegrees(getRoll()));
     }
 
     @Override
     public DataSignal<Rotation2d> getYawRotation2d(boolean latencyCompensated) {
-        return new DataSignal<Rotation2d>(() -> getRotation2d());
+        return signal(() -> getRotation2d());
     }
 
     @Override
     public DataSignal<Measure<Velocity<Angle>>> getAngularVelocity() {
-        return new DataSignal<Measure<Velocity<Angle>>>(() -> DegreesPerSecond.of(getRate()));
+        return signal(() -> DegreesPerSecond.of(getRate()));
     }
 }
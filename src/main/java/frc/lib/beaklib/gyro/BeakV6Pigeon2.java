@@ -6,6 +6,7 @@ package frc.lib.beaklib.gyro;
 
 import static edu.wpi.first.units.Units.DegreesPerSecond;
 
+import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.hardware.Pigeon2;
 
@@ -28,6 +29,7 @@ public class BeakV6Pigeon2 extends Pigeon2 implements BeakGyro {
     @Override
     public DataSignal<Rotation2d> getPitchRotation2d(boolean latencyCompensated) {
         StatusSignal<Double> pitch = getPitch();
+        StatusSignal<Double> pitchRate = getAngularVelocityYDevice();
 
         return new DataSignal<Rotation2d>(
                 () -> {
@@ -38,21 +40,23 @@ public class BeakV6Pigeon2 extends Pigeon2 implements BeakGyro {
                         // pitch is about Y
                         // roll is about X
                         // yaw is about Z
-                        pitchValue = StatusSignal.getLatencyCompensatedValue(pitch, getAngularVelocityYDevice());
+                        pitchValue = StatusSignal.getLatencyCompensatedValue(pitch, pitchRate);
                     } else {
                         pitchValue = pitch.getValue();
                     }
 
                     return Rotation2d.fromDegrees(pitchValue);
                 },
-                () -> pitch.getTimestamp().getTime(),
-                pitch::refresh,
-                pitch::setUpdateFrequency);
+                () -> DataSignal.toFPGATime(pitch),
+                () -> BaseStatusSignal.refreshAll(pitch, pitchRate),
+                pitch::setUpdateFrequency,
+                pitch, pitchRate);
     }
 
     @Override
     public DataSignal<Rotation2d> getRollRotation2d(boolean latencyCompensated) {
         StatusSignal<Double> roll = getRoll();
+        StatusSignal<Double> rollRate = getAngularVelocityXDevice();
 
         return new DataSignal<Rotation2d>(
                 () -> {
@@ -63,21 +67,23 @@ public class BeakV6Pigeon2 extends Pigeon2 implements BeakGyro {
                         // pitch is about Y
                         // roll is about X
                         // yaw is about Z
-                        rollValue = StatusSignal.getLatencyCompensatedValue(roll, getAngularVelocityXDevice());
+                        rollValue = StatusSignal.getLatencyCompensatedValue(roll, rollRate);
                     } else {
                         rollValue = roll.getValue();
                     }
 
                     return Rotation2d.fromDegrees(rollValue);
                 },
-                () -> roll.getTimestamp().getTime(),
-                roll::refresh,
-                roll::setUpdateFrequency);
+                () -> DataSignal.toFPGATime(roll),
+                () -> BaseStatusSignal.refreshAll(roll, rollRate),
+                roll::setUpdateFrequency,
+                roll, rollRate);
     }
 
     @Override
     public DataSignal<Rotation2d> getYawRotation2d(boolean latencyCompensated) {
         StatusSignal<Double> yaw = getYaw();
+        StatusSignal<Double> yawRate = getAngularVelocityZDevice();
 
         return new DataSignal<Rotation2d>(
                 () -> {
@@ -88,16 +94,17 @@ public class BeakV6Pigeon2 extends Pigeon2 implements BeakGyro {
                         // pitch is about Y
                         // roll is about X
                         // yaw is about Z
-                        yawValue = StatusSignal.getLatencyCompensatedValue(yaw, getAngularVelocityZDevice());
+                        yawValue = StatusSignal.getLatencyCompensatedValue(yaw, yawRate);
                     } else {
                         yawValue = yaw.getValue();
                     }
 
                     return Rotation2d.fromDegrees(yawValue);
                 },
-                () -> yaw.getTimestamp().getTime(),
-                yaw::refresh,
-                yaw::setUpdateFrequency);
+                () -> DataSignal.toFPGATime(yaw),
+                () -> BaseStatusSignal.refreshAll(yaw, yawRate),
+                yaw::setUpdateFrequency,
+                yaw, yawRate);
     }
 
     @Override
@@ -106,9 +113,10 @@ public class BeakV6Pigeon2 extends Pigeon2 implements BeakGyro {
 
         return new DataSignal<Measure<Velocity<Angle>>>(
                 () -> DegreesPerSecond.of(angularVelocity.getValue()),
-                () -> angularVelocity.getTimestamp().getTime(),
+                () -> DataSignal.toFPGATime(angularVelocity),
                 angularVelocity::refresh,
-                angularVelocity::setUpdateFrequency);
+                angularVelocity::setUpdateFrequency,
+                angularVelocity);
     }
 
 }
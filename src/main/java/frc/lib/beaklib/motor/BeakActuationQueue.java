@@ -0,0 +1,115 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * <p>
+ * Single point through which motor commands are written.
+ * </p>
+ *
+ * <p>
+ * Normally, a control frame goes out every time anything calls a setter on a
+ * motor controller, so a motor can be written several times a loop, in
+ * whatever order commands and subsystems happen to run. Controllers wrapped by
+ * this queue instead hold on to their latest command until the queue is
+ * flushed, so each one gets at most one frame per flush, at a fixed point
+ * relative to sensor sampling.
+ * </p>
+ *
+ * Either call {@link #flush()} once per loop (e.g. at the end of
+ * <code>robotPeriodic()</code>, after the scheduler runs), or let a writer
+ * thread flush at a fixed rate with {@link #startWriterThread(double)}.
+ */
+public class BeakActuationQueue implements AutoCloseable {
+    private final List<BeakQueuedMotorController> m_controllers = new ArrayList<>();
+    private Notifier m_writer = null;
+
+    private int m_writes = 0;
+
+    /**
+     * Wrap a controller so that its commands go through this queue.
+     * Configuration calls are not queued.
+     *
+     * @param controller The controller to wrap.
+     * @return The queued controller. Use this in place of the original.
+     */
+    public synchronized BeakQueuedMotorController wrap(BeakMotorController controller) {
+        BeakQueuedMotorController queued = new BeakQueuedMotorController(controller);
+        m_controllers.add(queued);
+        return queued;
+    }
+
+    /**
+     * Send every pending command.
+     */
+    public synchronized void flush() {
+        for (int i = 0; i < m_controllers.size(); i++) {
+            if (m_controllers.get(i).flush()) {
+                m_writes++;
+            }
+        }
+    }
+
+    /**
+     * Flush from a dedicated thread at a fixed rate, instead of from the main
+     * loop.
+     *
+     * @param periodSeconds How often to flush.
+     */
+    public synchronized void startWriterThread(double periodSeconds) {
+        if (m_writer == null) {
+            m_writer = new Notifier(this::flush);
+            m_writer.setName("Actuation Queue");
+        }
+
+        m_writer.startPeriodic(periodSeconds);
+    }
+
+    /**
+     * Stop the writer thread. Pending commands stay queued until the next
+     * {@link #flush()}.
+     */
+    public synchronized void stopWriterThread() {
+        if (m_writer != null) {
+            m_writer.stop();
+        }
+    }
+
+    /**
+     * Publish how many frames have been sent, and how many were saved by
+     * coalescing.
+     */
+    public synchronized void publish() {
+        int coalesced = 0;
+        for (int i = 0; i < m_controllers.size(); i++) {
+            coalesced += m_controllers.get(i).getCoalescedCount();
+        }
+
+        SmartDashboard.putNumber("Actuation Queue/Writes", m_writes);
+        SmartDashboard.putNumber("Actuation Queue/Coalesced", coalesced);
+    }
+
+    /**
+     * Get the number of frames sent by this queue.
+     *
+     * @return Number of writes.
+     */
+    public synchronized int getWriteCount() {
+        return m_writes;
+    }
+
+    @Override
+    public void close() {
+        if (m_writer != null) {
+            m_writer.close();
+        }
+    }
+}
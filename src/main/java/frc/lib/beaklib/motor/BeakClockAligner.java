@@ -0,0 +1,47 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * <p>
+ * Converts timestamps from a device's own clock to the FPGA clock.
+ * </p>
+ *
+ * Every reading gives an upper bound on the clock offset (the FPGA time it was
+ * read at, minus the device time it was sampled at), since transport delay is
+ * never negative. The smallest bound seen is the best estimate. It's allowed
+ * to creep up slowly, so the estimate can follow clock drift.
+ */
+public class BeakClockAligner {
+    // How fast the two clocks are allowed to drift apart, in seconds per second.
+    private static final double MAX_DRIFT = 1e-4;
+
+    private double m_offset = Double.NaN;
+    private double m_lastUpdate = 0.;
+
+    /**
+     * Convert a device timestamp to the FPGA clock. Call this with every new
+     * reading to keep the estimate current.
+     *
+     * @param deviceTime Timestamp on the device's clock, in seconds.
+     * @return The same moment on the FPGA clock, in seconds.
+     */
+    public synchronized double toFPGATime(double deviceTime) {
+        double now = Timer.getFPGATimestamp();
+        double bound = now - deviceTime;
+
+        if (Double.isNaN(m_offset)) {
+            m_offset = bound;
+        } else {
+            m_offset = Math.min(m_offset + MAX_DRIFT * (now - m_lastUpdate), bound);
+        }
+
+        m_lastUpdate = now;
+
+        return deviceTime + m_offset;
+    }
+}
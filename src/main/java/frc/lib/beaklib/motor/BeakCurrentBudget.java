@@ -0,0 +1,425 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.beaklib.motor.configs.BeakCurrentLimitConfigs;
+
+/**
+ * <p>
+ * Brownout-aware supply current budget shared between motor controllers.
+ * </p>
+ *
+ * <p>
+ * The battery is modeled as an open-circuit voltage behind a fixed internal
+ * resistance. Every update, the open-circuit voltage is estimated from the
+ * measured bus voltage and total supply current, which gives the total current
+ * that can be drawn before the bus sags below the minimum voltage. That budget
+ * is then handed out to the registered controllers by priority: every
+ * controller first gets its minimum limit, then higher priorities are filled
+ * up to their maximum before lower ones get anything.
+ * </p>
+ *
+ * New limits are only written to a controller when they differ from the last
+ * written limit by more than the hysteresis, to keep config traffic off the
+ * CAN bus, and are written without waiting for the controller to respond.
+ */
+public class BeakCurrentBudget {
+    private static class BudgetEntry {
+        public final BeakMotorController Controller;
+        public final DataSignal<Double> SupplyCurrent;
+        public final BeakCurrentLimitConfigs Limits;
+        public final int Priority;
+        public final double MinLimit;
+        public final double MaxLimit;
+        /** Controllers without a supply limit are only watched, never written. */
+        public final boolean Managed;
+        public BeakThermalModel Thermal;
+
+        public double Allocated;
+        public double Applied = -1.;
+
+        public BudgetEntry(BeakMotorController controller, BeakCurrentLimitConfigs baseLimits, int priority,
+                double minLimit, BeakThermalModel thermal) {
+            Controller = controller;
+            Thermal = thermal;
+            SupplyCurrent = controller.getSuppliedCurrent();
+            Priority = priority;
+            MaxLimit = baseLimits.SupplyCurrentLimit;
+            MinLimit = Math.min(minLimit, MaxLimit);
+            Managed = MaxLimit > 0.;
+            Allocated = MaxLimit;
+
+            // Our own copy, so the caller's configs are left alone.
+            Limits = new BeakCurrentLimitConfigs()
+                    .withStatorCurrentLimit(baseLimits.StatorCurrentLimit)
+                    .withSupplyCurrentThreshold(baseLimits.SupplyCurrentThreshold)
+                    .withSupplyTimeThreshold(baseLimits.SupplyTimeThreshold)
+                    .withSupplyCurrentLimit(baseLimits.SupplyCurrentLimit);
+        }
+    }
+
+    /** Sorted by descending priority. */
+    private final List<BudgetEntry> m_entries = new ArrayList<>();
+
+    private final DataSignal<Double> m_batteryVoltage = new DataSignal<Double>(RobotController::getBatteryVoltage);
+
+    private double m_batteryResistance;
+    private double m_minimumVoltage;
+    private double m_otherLoad = 0.;
+    private double m_hysteresis = 2.0;
+    private double m_minWritePeriod = 0.1;
+    private double m_filterTimeConstant = 0.2;
+
+    private double m_openCircuitVoltage = 12.5;
+    private double m_totalCurrent = 0.;
+    private double m_available = 0.;
+    private double m_predictedVoltage = 12.5;
+    private double m_lastWriteTime = 0.;
+    private double m_lastUpdateTime = Double.NaN;
+    private int m_writes = 0;
+
+    /**
+     * Create a new current budget.
+     *
+     * @param batteryResistance Internal resistance of the battery and main
+     *                          wiring, in ohms. Usually 0.015-0.03.
+     * @param minimumVoltage    The lowest bus voltage the budget should allow,
+     *                          in volts. Keep this comfortably above the
+     *                          roboRIO's brownout voltage.
+     */
+    public BeakCurrentBudget(double batteryResistance, double minimumVoltage) {
+        m_batteryResistance = batteryResistance;
+        m_minimumVoltage = minimumVoltage;
+    }
+
+    /**
+     * Create a new current budget with a 20 mOhm battery that is not allowed to
+     * sag below 7.5V.
+     */
+    public BeakCurrentBudget() {
+        this(0.020, 7.5);
+    }
+
+    /**
+     * Register a controller with the budget.
+     *
+     * @param controller The controller to manage. Each motor in a
+     *                   {@link BeakMotorControllerGroup} is registered on its
+     *                   own, with these limits.
+     * @param baseLimits The controller's static limits. The supply limit is used
+     *                   as the most the budget will ever hand out to it; the
+     *                   other fields are passed through unchanged.
+     * @param priority   Priority of this controller. Higher priorities are
+     *                   filled first.
+     * @param minLimit   The smallest supply limit this controller may be
+     *                   reduced to, in amps.
+     */
+    public void register(BeakMotorController controller, BeakCurrentLimitConfigs baseLimits, int priority,
+            double minLimit) {
+        register(controller, baseLimits, priority, minLimit, null);
+    }
+
+    /**
+     * Register a controller with the budget, derating its maximum limit as it
+     * heats up.
+     *
+     * @param controller The controller to manage.
+     * @param baseLimits The controller's static limits.
+     * @param priority   Priority of this controller. Higher priorities are
+     *                   filled first.
+     * @param minLimit   The smallest supply limit this controller may be
+     *                   reduced to, in amps.
+     * @param thermal    The motor's {@link BeakThermalModel}. The budget only
+     *                   reads its derating; the owner must keep updating it.
+     */
+    public void register(BeakMotorController controller, BeakCurrentLimitConfigs baseLimits, int priority,
+            double minLimit, BeakThermalModel thermal) {
+        // Limits are applied per motor, but a group reports the sum of its
+        // motors' current, so a group has to be budgeted motor by motor.
+        if (controller instanceof BeakMotorControllerGroup) {
+            for (BeakMotorController member : ((BeakMotorControllerGroup) controller).getControllers()) {
+                register(member, baseLimits, priority, minLimit, thermal);
+            }
+
+            return;
+        }
+
+        BudgetEntry entry = new BudgetEntry(controller, baseLimits, priority, minLimit, thermal);
+
+        int index = 0;
+        while (index < m_entries.size() && m_entries.get(index).Priority >= priority) {
+            index++;
+        }
+
+        m_entries.add(index, entry);
+    }
+
+    /**
+     * Derate a registered controller by a thermal model, e.g. one created after
+     * the controller was registered.
+     *
+     * @param controller The registered controller. Each motor in a
+     *                   {@link BeakMotorControllerGroup} gets the same model.
+     * @param thermal    The motor's {@link BeakThermalModel}, or null to stop
+     *                   derating it.
+     */
+    public void setThermalModel(BeakMotorController controller, BeakThermalModel thermal) {
+        if (controller instanceof BeakMotorControllerGroup) {
+            for (BeakMotorController member : ((BeakMotorControllerGroup) controller).getControllers()) {
+                setThermalModel(member, thermal);
+            }
+
+            return;
+        }
+
+        for (int i = 0; i < m_entries.size(); i++) {
+            BudgetEntry entry = m_entries.get(i);
+            if (entry.Controller == controller) {
+                entry.Thermal = thermal;
+            }
+        }
+    }
+
+    /**
+     * Update the battery model and redistribute the budget. Call this once per
+     * loop.
+     */
+    public void update() {
+        double now = Timer.getFPGATimestamp();
+        double dt = now - m_lastUpdateTime;
+        m_lastUpdateTime = now;
+
+        m_batteryVoltage.refresh();
+        double busVoltage = m_batteryVoltage.getValue();
+
+        double current = m_otherLoad;
+        for (int i = 0; i < m_entries.size(); i++) {
+            BudgetEntry entry = m_entries.get(i);
+            entry.SupplyCurrent.refresh();
+            current += Math.abs(entry.SupplyCurrent.getValue());
+        }
+        m_totalCurrent = current;
+
+        // V_bus = V_oc - I * R, so back out the open-circuit voltage and filter it,
+        // since it only drifts slowly as the battery discharges. The gain comes
+        // from the elapsed time, so the filter behaves the same at any loop rate;
+        // the first update just takes the measurement.
+        double openCircuitVoltage = busVoltage + current * m_batteryResistance;
+        double gain = dt > 0. ? 1. - Math.exp(-dt / m_filterTimeConstant) : 1.;
+        m_openCircuitVoltage += gain * (openCircuitVoltage - m_openCircuitVoltage);
+
+        m_available = Math.max(0., (m_openCircuitVoltage - m_minimumVoltage) / m_batteryResistance - m_otherLoad);
+
+        allocate(m_available);
+
+        // Write new limits, but only when they've changed meaningfully.
+        double predictedCurrent = m_otherLoad;
+        boolean canWrite = now - m_lastWriteTime >= m_minWritePeriod;
+        boolean wrote = false;
+
+        for (int i = 0; i < m_entries.size(); i++) {
+            BudgetEntry entry = m_entries.get(i);
+
+            if (!entry.Managed) {
+                predictedCurrent += Math.abs(entry.SupplyCurrent.getValue());
+                continue;
+            }
+
+            // Always snap back to the full limit once it's available again.
+            boolean restored = entry.Allocated == entry.MaxLimit && entry.Applied != entry.MaxLimit;
+            if (canWrite && (Math.abs(entry.Allocated - entry.Applied) > m_hysteresis || restored)) {
+                entry.Controller.applyConfigNonBlocking(entry.Limits.withSupplyCurrentLimit(entry.Allocated));
+                entry.Applied = entry.Allocated;
+
+                m_writes++;
+                wrote = true;
+            }
+
+            predictedCurrent += Math.min(Math.abs(entry.SupplyCurrent.getValue()), Math.max(entry.Applied, 0.));
+        }
+
+        if (wrote) {
+            m_lastWriteTime = now;
+        }
+
+        m_predictedVoltage = m_openCircuitVoltage - predictedCurrent * m_batteryResistance;
+    }
+
+    /**
+     * Publish the budget to the dashboard. This is kept out of
+     * {@link #update()}, so updating faster than the main loop doesn't flood
+     * NetworkTables.
+     *
+     * @param name Name to publish under.
+     */
+    public void publish(String name) {
+        SmartDashboard.putNumber(name + "/Available", m_available);
+        SmartDashboard.putNumber(name + "/Total Current", m_totalCurrent);
+        SmartDashboard.putNumber(name + "/Open Circuit Voltage", m_openCircuitVoltage);
+        SmartDashboard.putNumber(name + "/Predicted Voltage", m_predictedVoltage);
+        SmartDashboard.putNumber(name + "/Writes", m_writes);
+    }
+
+    private void allocate(double available) {
+        // Everyone gets their minimum first.
+        double remaining = available;
+        for (int i = 0; i < m_entries.size(); i++) {
+            BudgetEntry entry = m_entries.get(i);
+            if (entry.Managed) {
+                entry.Allocated = getMinLimit(entry);
+                remaining -= entry.Allocated;
+            } else {
+                // Unlimited controllers still eat into the budget.
+                remaining -= Math.abs(entry.SupplyCurrent.getValue());
+            }
+        }
+
+        // Then fill each priority level in turn, splitting a level that can't be
+        // fully satisfied in proportion to each controller's headroom.
+        int start = 0;
+        while (start < m_entries.size() && remaining > 0.) {
+            int priority = m_entries.get(start).Priority;
+            int end = start;
+            double demand = 0.;
+
+            while (end < m_entries.size() && m_entries.get(end).Priority == priority) {
+                BudgetEntry entry = m_entries.get(end);
+                if (entry.Managed) {
+                    demand += getMaxLimit(entry) - entry.Allocated;
+                }
+                end++;
+            }
+
+            double fraction = demand <= remaining || demand == 0. ? 1. : remaining / demand;
+            for (int i = start; i < end; i++) {
+                BudgetEntry entry = m_entries.get(i);
+                if (entry.Managed) {
+                    entry.Allocated += (getMaxLimit(entry) - entry.Allocated) * fraction;
+                }
+            }
+
+            remaining -= demand * fraction;
+            start = end;
+        }
+    }
+
+    private static double getMaxLimit(BudgetEntry entry) {
+        return entry.Thermal == null ? entry.MaxLimit : entry.Thermal.getDeratedLimit(entry.MaxLimit);
+    }
+
+    private static double getMinLimit(BudgetEntry entry) {
+        // A hot motor's thermal limit wins over its guaranteed minimum.
+        return Math.min(entry.MinLimit, getMaxLimit(entry));
+    }
+
+    /**
+     * Set the estimated draw of everything not registered with this budget
+     * (compressor, roboRIO, radio, etc.)
+     *
+     * @param amps Unmanaged load, in amps.
+     */
+    public void setOtherLoad(double amps) {
+        m_otherLoad = amps;
+    }
+
+    /**
+     * Set how much a limit must change before it is re-sent to the controller.
+     *
+     * @param amps Hysteresis, in amps.
+     */
+    public void setHysteresis(double amps) {
+        m_hysteresis = amps;
+    }
+
+    /**
+     * Set the shortest time allowed between two rounds of limit writes.
+     *
+     * @param seconds Minimum write period, in seconds.
+     */
+    public void setMinWritePeriod(double seconds) {
+        m_minWritePeriod = seconds;
+    }
+
+    /**
+     * Set how quickly the open-circuit voltage estimate follows the
+     * measurements.
+     *
+     * @param seconds Filter time constant, in seconds.
+     */
+    public void setFilterTimeConstant(double seconds) {
+        m_filterTimeConstant = seconds;
+    }
+
+    /**
+     * Set the internal resistance used by the battery model.
+     *
+     * @param ohms Battery and wiring resistance, in ohms.
+     */
+    public void setBatteryResistance(double ohms) {
+        m_batteryResistance = ohms;
+    }
+
+    /**
+     * Set the lowest bus voltage the budget should allow.
+     *
+     * @param volts Minimum voltage.
+     */
+    public void setMinimumVoltage(double volts) {
+        m_minimumVoltage = volts;
+    }
+
+    /**
+     * Get the total supply current the battery can currently provide without
+     * dropping below the minimum voltage.
+     *
+     * @return Available current, in amps.
+     */
+    public double getAvailableCurrent() {
+        return m_available;
+    }
+
+    /**
+     * Get the total supply current measured during the last update.
+     *
+     * @return Total current, in amps.
+     */
+    public double getTotalCurrent() {
+        return m_totalCurrent;
+    }
+
+    /**
+     * Get the estimated open-circuit voltage of the battery.
+     *
+     * @return Open-circuit voltage, in volts.
+     */
+    public double getOpenCircuitVoltage() {
+        return m_openCircuitVoltage;
+    }
+
+    /**
+     * Get the bus voltage predicted once the most recently written limits take
+     * effect.
+     *
+     * @return Predicted voltage, in volts.
+     */
+    public double getPredictedVoltage() {
+        return m_predictedVoltage;
+    }
+
+    /**
+     * Get the number of limit writes sent since startup.
+     *
+     * @return Number of config writes.
+     */
+    public int getWriteCount() {
+        return m_writes;
+    }
+}
@@ -0,0 +1,181 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
+import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * <p>
+ * Limit switch wired to a roboRIO DIO port, backed by an interrupt.
+ * </p>
+ *
+ * <p>
+ * Polling a DIO switch from the main loop lets a mechanism overrun by up to a
+ * full loop. Instead, the switch's press edge fires an interrupt that stops the
+ * motor right away from the interrupt thread, if the last command was moving
+ * toward the switch. The switch then stays latched, blocking any command
+ * toward it, until a command in the opposite direction is sent.
+ * </p>
+ *
+ * <p>
+ * Position commands count as moving only when the target is more than
+ * {@link #POSITION_DEADBAND_ROTATIONS} away, so holding a position at the
+ * switch neither releases the latch nor trips it.
+ * </p>
+ */
+public class BeakDIOLimitSwitch implements AutoCloseable {
+    /**
+     * Position error, in motor rotations, within which a position command
+     * counts as holding still rather than moving.
+     */
+    public static final double POSITION_DEADBAND_ROTATIONS = 0.05;
+
+    private final DigitalInput m_input;
+    private final AsynchronousInterrupt m_interrupt;
+    private final boolean m_normallyClosed;
+    private final Runnable m_stop;
+    private final String m_latencyKey;
+
+    private volatile boolean m_tripped = false;
+    private volatile double m_lastTowardSwitch = 0.;
+    private volatile double m_lastLatency = 0.;
+    private volatile double m_maxLatency = 0.;
+    private volatile int m_trips = 0;
+
+    /**
+     * Create a new interrupt-driven limit switch.
+     *
+     * @param channel        The DIO channel the switch is wired to.
+     * @param normallyClosed Whether the switch is normally closed.
+     * @param stop           Action that neutralizes the motor. This runs on the
+     *                       interrupt thread.
+     */
+    public BeakDIOLimitSwitch(int channel, boolean normallyClosed, Runnable stop) {
+        m_input = new DigitalInput(channel);
+        m_normallyClosed = normallyClosed;
+        m_stop = stop;
+        m_latencyKey = "DIO Limit " + channel + "/Latency (ms)";
+
+        m_interrupt = new AsynchronousInterrupt(m_input, (rising, falling) -> onPressed());
+
+        // Normally-closed switches open (read high) when pressed;
+        // normally-open switches short to ground (read low).
+        m_interrupt.setInterruptEdges(normallyClosed, !normallyClosed);
+        m_interrupt.enable();
+
+        m_tripped = isPressed();
+    }
+
+    private void onPressed() {
+        m_tripped = true;
+
+        // Only stop a motor that's driving into the switch; one backing off it,
+        // or holding still, is left alone.
+        if (!(m_lastTowardSwitch > 0.)) {
+            return;
+        }
+
+        m_stop.run();
+
+        double edgeTime = m_normallyClosed ? m_interrupt.getRisingTimestamp() : m_interrupt.getFallingTimestamp();
+        double latency = Timer.getFPGATimestamp() - edgeTime;
+
+        m_lastLatency = latency;
+        m_maxLatency = Math.max(m_maxLatency, latency);
+        m_trips++;
+
+        SmartDashboard.putNumber(m_latencyKey, latency * 1000.);
+    }
+
+    /**
+     * Get whether the switch is currently pressed.
+     *
+     * @return True if pressed.
+     */
+    public boolean isPressed() {
+        return m_input.get() == m_normallyClosed;
+    }
+
+    /**
+     * Check a command against this switch, releasing the latch if the command
+     * moves away from it.
+     *
+     * @param towardSwitch The command's component toward the switch. Positive
+     *                     moves toward it, negative moves away, zero is neutral.
+     * @return Whether the command must be blocked.
+     */
+    public boolean blocks(double towardSwitch) {
+        m_lastTowardSwitch = towardSwitch;
+
+        if (towardSwitch < 0.) {
+            m_tripped = false;
+            return false;
+        }
+
+        return towardSwitch > 0. && (m_tripped || isPressed());
+    }
+
+    /**
+     * Get the direction of a position command, for {@link #blocks(double)}.
+     *
+     * @param errorNU       The target minus the current position, in native
+     *                      units.
+     * @param nuPerRotation Native units per motor rotation.
+     * @return 1 or -1 for the direction of travel, or 0 if the target is within
+     *         {@link #POSITION_DEADBAND_ROTATIONS}.
+     */
+    public static double positionDirection(double errorNU, double nuPerRotation) {
+        if (Math.abs(errorNU) <= POSITION_DEADBAND_ROTATIONS * Math.abs(nuPerRotation)) {
+            return 0.;
+        }
+
+        return Math.signum(errorNU);
+    }
+
+    /**
+     * Get whether the switch is latched.
+     *
+     * @return True if tripped and not yet released by a reversed command.
+     */
+    public boolean isTripped() {
+        return m_tripped;
+    }
+
+    /**
+     * Get the time from the most recent edge to the stop command being sent.
+     *
+     * @return Latency, in seconds.
+     */
+    public double getLastLatency() {
+        return m_lastLatency;
+    }
+
+    /**
+     * Get the worst edge-to-stop latency seen so far.
+     *
+     * @return Latency, in seconds.
+     */
+    public double getMaxLatency() {
+        return m_maxLatency;
+    }
+
+    /**
+     * Get the number of times this switch has been tripped.
+     *
+     * @return Trip count.
+     */
+    public int getTripCount() {
+        return m_trips;
+    }
+
+    @Override
+    public void close() {
+        m_interrupt.close();
+        m_input.close();
+    }
+}
@@ -0,0 +1,295 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import edu.wpi.first.units.Distance;
+import edu.wpi.first.units.Measure;
+import frc.lib.beaklib.motor.configs.BeakClosedLoopConfigs;
+import frc.lib.beaklib.motor.configs.BeakCurrentConfigs;
+import frc.lib.beaklib.motor.configs.BeakCurrentLimitConfigs;
+import frc.lib.beaklib.motor.configs.BeakDutyCycleConfigs;
+import frc.lib.beaklib.motor.configs.BeakHardwareLimitSwitchConfigs;
+import frc.lib.beaklib.motor.configs.BeakMotionProfileConfigs;
+import frc.lib.beaklib.motor.configs.BeakSoftLimitConfigs;
+import frc.lib.beaklib.motor.configs.BeakVoltageConfigs;
+import frc.lib.beaklib.motor.requests.BeakControlRequest.OutputType;
+import frc.lib.beaklib.pid.BeakPIDConstants;
+
+/**
+ * A motor controller that passes everything through to another one. Extend
+ * this and override only what needs to change to add behavior on top of any
+ * {@link BeakMotorController}.
+ */
+public abstract class BeakForwardingMotorController implements BeakMotorController {
+    protected final BeakMotorController m_controller;
+
+    protected BeakForwardingMotorController(BeakMotorController controller) {
+        m_controller = controller;
+    }
+
+    /**
+     * Get the controller being wrapped.
+     *
+     * @return The wrapped controller.
+     */
+    public BeakMotorController getWrappedController() {
+        return m_controller;
+    }
+
+    @Override
+    public double get() {
+        return m_controller.get();
+    }
+
+    @Override
+    public void set(double percentOutput) {
+        m_controller.set(percentOutput);
+    }
+
+    @Override
+    public void setVoltage(double volts) {
+        m_controller.setVoltage(volts);
+    }
+
+    @Override
+    public void setInverted(boolean isInverted) {
+        m_controller.setInverted(isInverted);
+    }
+
+    @Override
+    public boolean getInverted() {
+        return m_controller.getInverted();
+    }
+
+    @Override
+    public void stop() {
+        m_controller.stop();
+    }
+
+    @Override
+    public void setBrake(boolean brake) {
+        m_controller.setBrake(brake);
+    }
+
+    @Override
+    public void setCurrent(double amps) {
+        m_controller.setCurrent(amps);
+    }
+
+    @Override
+    public void setVoltage(double volts, boolean useFoc) {
+        m_controller.setVoltage(volts, useFoc);
+    }
+
+    @Override
+    public void setDutyCycle(double output, boolean useFoc) {
+        m_controller.setDutyCycle(output, useFoc);
+    }
+
+    @Override
+    public void setVelocityNU(double nu) {
+        m_controller.setVelocityNU(nu);
+    }
+
+    @Override
+    public void setVelocityNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        m_controller.setVelocityNU(nu, outputType, useFoc, arbFeedforward, slot);
+    }
+
+    @Override
+    public void setPositionNU(double nu) {
+        m_controller.setPositionNU(nu);
+    }
+
+    @Override
+    public void setPositionNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        m_controller.setPositionNU(nu, outputType, useFoc, arbFeedforward, slot);
+    }
+
+    @Override
+    public void setEncoderPositionNU(double nu) {
+        m_controller.setEncoderPositionNU(nu);
+    }
+
+    @Override
+    public void setMotionProfileNU(double nu) {
+        m_controller.setMotionProfileNU(nu);
+    }
+
+    @Override
+    public void setMotionProfileNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        m_controller.setMotionProfileNU(nu, outputType, useFoc, arbFeedforward, slot);
+    }
+
+    @Override
+    public void setNextArbFeedforward(double arbFeedforward) {
+        m_controller.setNextArbFeedforward(arbFeedforward);
+    }
+
+    @Override
+    public void setSlot(int slot) {
+        m_controller.setSlot(slot);
+    }
+
+    @Override
+    public void setNextOutputType(OutputType outputType) {
+        m_controller.setNextOutputType(outputType);
+    }
+
+    @Override
+    public void setNominalVoltage(double volts) {
+        m_controller.setNominalVoltage(volts);
+    }
+
+    @Override
+    public void useFOC(boolean useFoc) {
+        m_controller.useFOC(useFoc);
+    }
+
+    @Override
+    public boolean resendsCommands() {
+        return m_controller.resendsCommands();
+    }
+
+    @Override
+    public DataSignal<Double> getVelocityNU() {
+        return m_controller.getVelocityNU();
+    }
+
+    @Override
+    public DataSignal<Double> getPositionNU(boolean latencyCompensated) {
+        return m_controller.getPositionNU(latencyCompensated);
+    }
+
+    @Override
+    public DataSignal<Double> getSuppliedVoltage() {
+        return m_controller.getSuppliedVoltage();
+    }
+
+    @Override
+    public DataSignal<Double> getSuppliedCurrent() {
+        return m_controller.getSuppliedCurrent();
+    }
+
+    @Override
+    public DataSignal<Double> getMotorCurrent() {
+        return m_controller.getMotorCurrent();
+    }
+
+    @Override
+    public DataSignal<Double> getDeviceTemperature() {
+        return m_controller.getDeviceTemperature();
+    }
+
+    @Override
+    public DataSignal<Double> getOutputVoltage() {
+        return m_controller.getOutputVoltage();
+    }
+
+    @Override
+    public void setPID(BeakPIDConstants constants) {
+        m_controller.setPID(constants);
+    }
+
+    @Override
+    public BeakPIDConstants getPID() {
+        return m_controller.getPID();
+    }
+
+    @Override
+    public boolean getForwardLimitSwitch() {
+        return m_controller.getForwardLimitSwitch();
+    }
+
+    @Override
+    public boolean getReverseLimitSwitch() {
+        return m_controller.getReverseLimitSwitch();
+    }
+
+    @Override
+    public void applyConfig(BeakClosedLoopConfigs config) {
+        m_controller.applyConfig(config);
+    }
+
+    @Override
+    public void applyConfig(BeakCurrentLimitConfigs config) {
+        m_controller.applyConfig(config);
+    }
+
+    @Override
+    public void applyConfigNonBlocking(BeakCurrentLimitConfigs config) {
+        m_controller.applyConfigNonBlocking(config);
+    }
+
+    @Override
+    public void applyConfig(BeakDutyCycleConfigs config) {
+        m_controller.applyConfig(config);
+    }
+
+    @Override
+    public void applyConfig(BeakHardwareLimitSwitchConfigs config) {
+        m_controller.applyConfig(config);
+    }
+
+    @Override
+    public void applyConfig(BeakMotionProfileConfigs config) {
+        m_controller.applyConfig(config);
+    }
+
+    @Override
+    public void applyConfig(BeakVoltageConfigs config) {
+        m_controller.applyConfig(config);
+    }
+
+    @Override
+    public void applyConfig(BeakSoftLimitConfigs config) {
+        m_controller.applyConfig(config);
+    }
+
+    @Override
+    public void applyConfig(BeakCurrentConfigs config) {
+        m_controller.applyConfig(config);
+    }
+
+    @Override
+    public void setVelocityConversionConstant(double constant) {
+        m_controller.setVelocityConversionConstant(constant);
+    }
+
+    @Override
+    public double getVelocityConversionConstant() {
+        return m_controller.getVelocityConversionConstant();
+    }
+
+    @Override
+    public void setPositionConversionConstant(double constant) {
+        m_controller.setPositionConversionConstant(constant);
+    }
+
+    @Override
+    public double getPositionConversionConstant() {
+        return m_controller.getPositionConversionConstant();
+    }
+
+    @Override
+    public void setEncoderGearRatio(double ratio) {
+        m_controller.setEncoderGearRatio(ratio);
+    }
+
+    @Override
+    public double getEncoderGearRatio() {
+        return m_controller.getEncoderGearRatio();
+    }
+
+    @Override
+    public void setWheelDiameter(Measure<Distance> diameter) {
+        m_controller.setWheelDiameter(diameter);
+    }
+
+    @Override
+    public Measure<Distance> getWheelDiameter() {
+        return m_controller.getWheelDiameter();
+    }
+}
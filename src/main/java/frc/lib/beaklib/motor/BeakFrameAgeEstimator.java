@@ -0,0 +1,87 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import java.util.Objects;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * <p>
+ * Estimates when the latest value of a periodic status frame arrived, for
+ * devices that don't timestamp their frames (REV, Phoenix 5).
+ * </p>
+ *
+ * When the value changes between two reads, a new frame arrived somewhere
+ * between them, and no more than one frame period ago. When it doesn't change,
+ * frames are still arriving, so the latest one is assumed to be half a period
+ * old once the last known arrival is more than a period in the past.
+ */
+public class BeakFrameAgeEstimator {
+    private double m_framePeriod;
+
+    private Object m_lastValue = null;
+    private double m_lastRead = Double.NaN;
+    private double m_arrival = 0.;
+    private long m_frameCount = 0;
+
+    /**
+     * Create a new frame age estimator.
+     *
+     * @param framePeriodSeconds The status frame period.
+     */
+    public BeakFrameAgeEstimator(double framePeriodSeconds) {
+        m_framePeriod = framePeriodSeconds;
+    }
+
+    /**
+     * Set the status frame period, e.g. after changing the update frequency.
+     *
+     * @param framePeriodSeconds The status frame period.
+     */
+    public synchronized void setFramePeriod(double framePeriodSeconds) {
+        m_framePeriod = framePeriodSeconds;
+    }
+
+    /**
+     * Estimate when a value was sampled.
+     *
+     * @param value The value just read from the frame.
+     * @return Estimated sample time, on the FPGA clock, in seconds.
+     */
+    public synchronized double getSampleTime(Object value) {
+        update(value);
+        return m_arrival;
+    }
+
+    /**
+     * Count the frames seen so far. Unlike the sample time, this only changes
+     * when the value does, so it tells whether a read saw a new frame.
+     *
+     * @param value The value just read from the frame.
+     * @return Number of distinct frames seen.
+     */
+    public synchronized long getFrameCount(Object value) {
+        update(value);
+        return m_frameCount;
+    }
+
+    private void update(Object value) {
+        double now = Timer.getFPGATimestamp();
+
+        if (Double.isNaN(m_lastRead)) {
+            m_arrival = now - m_framePeriod / 2.;
+            m_frameCount++;
+        } else if (!Objects.equals(value, m_lastValue)) {
+            m_arrival = Math.max((m_lastRead + now) / 2., now - m_framePeriod);
+            m_frameCount++;
+        } else if (now - m_arrival > m_framePeriod) {
+            m_arrival = now - m_framePeriod / 2.;
+        }
+
+        m_lastValue = value;
+        m_lastRead = now;
+    }
+}
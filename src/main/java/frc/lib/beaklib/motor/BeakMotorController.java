@@ -45,6 +45,22 @@ public interface BeakMotorController extends MotorController {
      */
     public void setCurrent(double amps);
 
+    /**
+     * Run the motor at a voltage, without touching any stored state.
+     *
+     * @param volts  The voltage to run at.
+     * @param useFoc Whether or not to use FOC (if supported by the motor)
+     */
+    public void setVoltage(double volts, boolean useFoc);
+
+    /**
+     * Run the motor at a duty cycle, without touching any stored state.
+     *
+     * @param output The duty cycle to run at, from -1 to 1.
+     * @param useFoc Whether or not to use FOC (if supported by the motor)
+     */
+    public void setDutyCycle(double output, boolean useFoc);
+
     /**
      * <p>
      * Run the motor in velocity mode.
@@ -86,6 +102,56 @@ public interface BeakMotorController extends MotorController {
      */
     public void setVelocityNU(double nu);
 
+    /**
+     * <p>
+     * Run the motor in velocity mode, in NU, with every parameter passed in.
+     * </p>
+     * 
+     * Unlike {@link #setVelocityNU(double)}, this neither reads nor changes the
+     * output type, FOC, feedforward, or slot stored by the other setters, so it is
+     * safe to call from any thread.
+     * 
+     * @param nu             NU to run.
+     * @param outputType     Voltage, duty cycle, or current.
+     * @param useFoc         Whether or not to use FOC (if supported by the motor)
+     * @param arbFeedforward The feedforward, in volts.
+     * @param slot           The PID slot to use.
+     */
+    public void setVelocityNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot);
+
+    /**
+     * Run the motor in velocity mode, with every parameter passed in.
+     * 
+     * @param velocity       Velocity to run.
+     * @param outputType     Voltage, duty cycle, or current.
+     * @param useFoc         Whether or not to use FOC (if supported by the motor)
+     * @param arbFeedforward The feedforward, in volts.
+     * @param slot           The PID slot to use.
+     */
+    default void setVelocity(Measure<Velocity<Distance>> velocity, OutputType outputType, boolean useFoc,
+            double arbFeedforward, int slot) {
+        setVelocityNU(
+                (velocity.in(MetersPerSecond) / (getWheelDiameter().in(Meters) * Math.PI) * 60.) // rpm
+                        * getEncoderGearRatio() * getVelocityConversionConstant(),
+                outputType, useFoc, arbFeedforward, slot);
+    }
+
+    /**
+     * Run the motor in velocity mode, based on an angular velocity target, with
+     * every parameter passed in.
+     * 
+     * @param velocity       Angular velocity to run.
+     * @param outputType     Voltage, duty cycle, or current.
+     * @param useFoc         Whether or not to use FOC (if supported by the motor)
+     * @param arbFeedforward The feedforward, in volts.
+     * @param slot           The PID slot to use.
+     */
+    default void setAngularVelocity(Measure<Velocity<Angle>> velocity, OutputType outputType, boolean useFoc,
+            double arbFeedforward, int slot) {
+        setVelocityNU(velocity.in(RPM) * getVelocityConversionConstant() * getEncoderGearRatio(),
+                outputType, useFoc, arbFeedforward, slot);
+    }
+
     /**
      * <p>
      * Run the motor in position mode.
@@ -128,6 +194,54 @@ public interface BeakMotorController extends MotorController {
      */
     public void setPositionNU(double nu);
 
+    /**
+     * <p>
+     * Run the motor in position mode, in NU, with every parameter passed in.
+     * </p>
+     * 
+     * Like {@link #setVelocityNU(double, OutputType, boolean, double, int)}, this
+     * doesn't use any stored state.
+     * 
+     * @param nu             NU to run.
+     * @param outputType     Voltage, duty cycle, or current.
+     * @param useFoc         Whether or not to use FOC (if supported by the motor)
+     * @param arbFeedforward The feedforward, in volts.
+     * @param slot           The PID slot to use.
+     */
+    public void setPositionNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot);
+
+    /**
+     * Run the motor in position mode, with every parameter passed in.
+     * 
+     * @param distance       Distance to run.
+     * @param outputType     Voltage, duty cycle, or current.
+     * @param useFoc         Whether or not to use FOC (if supported by the motor)
+     * @param arbFeedforward The feedforward, in volts.
+     * @param slot           The PID slot to use.
+     */
+    default void setPosition(Measure<Distance> distance, OutputType outputType, boolean useFoc,
+            double arbFeedforward, int slot) {
+        setPositionNU(
+                (distance.in(Meters) * getPositionConversionConstant() * getEncoderGearRatio()) //
+                        / (getWheelDiameter().in(Meters) * Math.PI),
+                outputType, useFoc, arbFeedforward, slot);
+    }
+
+    /**
+     * Run the motor to a specified angle, with every parameter passed in.
+     * 
+     * @param angle          Angle to run to.
+     * @param outputType     Voltage, duty cycle, or current.
+     * @param useFoc         Whether or not to use FOC (if supported by the motor)
+     * @param arbFeedforward The feedforward, in volts.
+     * @param slot           The PID slot to use.
+     */
+    default void setAngle(Rotation2d angle, OutputType outputType, boolean useFoc, double arbFeedforward,
+            int slot) {
+        setPositionNU(angle.getRotations() * getPositionConversionConstant() * getEncoderGearRatio(),
+                outputType, useFoc, arbFeedforward, slot);
+    }
+
     /**
      * <p>
      * Sets the encoder's position.
@@ -219,6 +333,56 @@ public interface BeakMotorController extends MotorController {
      */
     public void setMotionProfileNU(double nu);
 
+    /**
+     * <p>
+     * Run the motor in motion magic mode, in NU, with every parameter passed in.
+     * </p>
+     * 
+     * Like {@link #setVelocityNU(double, OutputType, boolean, double, int)}, this
+     * doesn't use any stored state.
+     * 
+     * @param nu             NU to run.
+     * @param outputType     Voltage, duty cycle, or current.
+     * @param useFoc         Whether or not to use FOC (if supported by the motor)
+     * @param arbFeedforward The feedforward, in volts.
+     * @param slot           The PID slot to use.
+     */
+    public void setMotionProfileNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward,
+            int slot);
+
+    /**
+     * Run the motor in motion magic mode, with every parameter passed in.
+     * 
+     * @param distance       Distance to run.
+     * @param outputType     Voltage, duty cycle, or current.
+     * @param useFoc         Whether or not to use FOC (if supported by the motor)
+     * @param arbFeedforward The feedforward, in volts.
+     * @param slot           The PID slot to use.
+     */
+    default void setMotionProfile(Measure<Distance> distance, OutputType outputType, boolean useFoc,
+            double arbFeedforward, int slot) {
+        setMotionProfileNU(
+                (distance.in(Meters) * getPositionConversionConstant() * getEncoderGearRatio()) //
+                        / (getWheelDiameter().in(Meters) * Math.PI),
+                outputType, useFoc, arbFeedforward, slot);
+    }
+
+    /**
+     * Run the motor to a specified angle in motion magic mode, with every
+     * parameter passed in.
+     * 
+     * @param angle          Angle to run to.
+     * @param outputType     Voltage, duty cycle, or current.
+     * @param useFoc         Whether or not to use FOC (if supported by the motor)
+     * @param arbFeedforward The feedforward, in volts.
+     * @param slot           The PID slot to use.
+     */
+    default void setMotionProfileAngle(Rotation2d angle, OutputType outputType, boolean useFoc,
+            double arbFeedforward, int slot) {
+        setMotionProfileNU(angle.getRotations() * getPositionConversionConstant() * getEncoderGearRatio(),
+                outputType, useFoc, arbFeedforward, slot);
+    }
+
     /**
      * Set the arbitrary feedforward to pass to the next PID command.
      * 
@@ -257,14 +421,25 @@ public interface BeakMotorController extends MotorController {
     public void useFOC(boolean useFoc);
 
     /**
-     * Run the motor using the specified request.
+     * Run the motor using the specified request. Requests pass all of their
+     * parameters in one call, so this doesn't change any stored state.
      * 
-     * @param request The arequest to apply.
+     * @param request The request to apply.
      */
     default void setControl(BeakControlRequest request) {
         request.apply(this);
     }
 
+    /**
+     * Determine whether the controller keeps resending its last command on its
+     * own, so skipping a repeated command doesn't save any bus traffic.
+     * 
+     * @return Whether commands are resent periodically.
+     */
+    default boolean resendsCommands() {
+        return false;
+    }
+
     /**
      * Get the motor velocity.
      * 
@@ -276,9 +451,7 @@ public interface BeakMotorController extends MotorController {
         return new DataSignal<Measure<Velocity<Distance>>>(
                 () -> MetersPerSecond.of(velocity.getValue() * (getWheelDiameter().in(Meters) * Math.PI)
                         / getVelocityConversionConstant() / getEncoderGearRatio() / 60.),
-                velocity::getTimestamp,
-                velocity::refresh,
-                velocity::setUpdateFrequency);
+                velocity);
     }
 
     /**
@@ -291,9 +464,7 @@ public interface BeakMotorController extends MotorController {
 
         return new DataSignal<Measure<Velocity<Angle>>>(
                 () -> RPM.of(velocity.getValue() / getVelocityConversionConstant() / getEncoderGearRatio()),
-                velocity::getTimestamp,
-                velocity::refresh,
-                velocity::setUpdateFrequency);
+                velocity);
     }
 
     /**
@@ -320,9 +491,7 @@ public interface BeakMotorController extends MotorController {
         return new DataSignal<Measure<Distance>>(
                 () -> Meters.of(position.getValue() * (getWheelDiameter().in(Meters) * Math.PI)
                         / getPositionConversionConstant() / getEncoderGearRatio()),
-                position::getTimestamp,
-                position::refresh,
-                position::setUpdateFrequency);
+                position);
     }
 
     /**
@@ -339,9 +508,7 @@ public interface BeakMotorController extends MotorController {
         return new DataSignal<Rotation2d>(
                 () -> Rotation2d
                         .fromRotations(position.getValue() / getPositionConversionConstant() / getEncoderGearRatio()),
-                position::getTimestamp,
-                position::refresh,
-                position::setUpdateFrequency);
+                position);
     }
 
     /**
@@ -379,6 +546,31 @@ public interface BeakMotorController extends MotorController {
      */
     public DataSignal<Double> getSuppliedVoltage();
 
+    /**
+     * Get the current drawn from the supply (battery side) by the motor
+     * controller, with the timestamp of the received data.
+     * 
+     * @return Supply current in amps.
+     */
+    public DataSignal<Double> getSuppliedCurrent();
+
+    /**
+     * Get the current through the motor windings (stator current), with the
+     * timestamp of the received data.
+     * 
+     * @return Motor current in amps.
+     */
+    public DataSignal<Double> getMotorCurrent();
+
+    /**
+     * Get the temperature reported by the motor controller, with the timestamp
+     * of the received data. This is the motor temperature where the controller
+     * reports it (Spark), and the device temperature otherwise.
+     * 
+     * @return Temperature in degrees Celsius.
+     */
+    public DataSignal<Double> getDeviceTemperature();
+
     /**
      * Get the current applied voltage to the motor controller.
      * 
@@ -389,9 +581,7 @@ public interface BeakMotorController extends MotorController {
 
         return new DataSignal<Double>(
                 () -> voltage.getValue() * get(),
-                voltage::getTimestamp,
-                voltage::refresh,
-                voltage::setUpdateFrequency);
+                voltage);
     }
 
     /**
@@ -419,6 +609,23 @@ public interface BeakMotorController extends MotorController {
 
     public void applyConfig(BeakCurrentLimitConfigs config);
 
+    /**
+     * Apply current limits without waiting for the controller to confirm them.
+     * Meant for limits that change at runtime, e.g. from a
+     * {@link BeakCurrentBudget}, where stalling the loop is worse than a write
+     * that occasionally doesn't land.
+     *
+     * <p>
+     * The default just calls {@link #applyConfig(BeakCurrentLimitConfigs)}, for
+     * controllers whose config writes don't wait in the first place.
+     * </p>
+     *
+     * @param config The limits to apply.
+     */
+    default void applyConfigNonBlocking(BeakCurrentLimitConfigs config) {
+        applyConfig(config);
+    }
+
     public void applyConfig(BeakDutyCycleConfigs config);
 
     public void applyConfig(BeakHardwareLimitSwitchConfigs config);
@@ -27,6 +27,15 @@ public class BeakMotorControllerGroup implements BeakMotorController {
         m_controllers = motorControllers;
     }
 
+    /**
+     * Get the controllers in this group.
+     *
+     * @return The grouped controllers.
+     */
+    BeakMotorController[] getControllers() {
+        return m_controllers;
+    }
+
     @Override
     public double get() {
         // all should have the same applied output
@@ -67,6 +76,13 @@ public class BeakMotorControllerGroup implements BeakMotorController {
         }
     }
 
+    @Override
+    public void setVelocityNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        for (BeakMotorController controller : m_controllers) {
+            controller.setVelocityNU(nu, outputType, useFoc, arbFeedforward, slot);
+        }
+    }
+
     @Override
     public void setPositionNU(double nu) {
         for (BeakMotorController controller : m_controllers) {
@@ -74,6 +90,13 @@ public class BeakMotorControllerGroup implements BeakMotorController {
         }
     }
 
+    @Override
+    public void setPositionNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        for (BeakMotorController controller : m_controllers) {
+            controller.setPositionNU(nu, outputType, useFoc, arbFeedforward, slot);
+        }
+    }
+
     @Override
     public void setEncoderPositionNU(double nu) {
         for (BeakMotorController controller : m_controllers) {
@@ -88,6 +111,13 @@ public class BeakMotorControllerGroup implements BeakMotorController {
         }
     }
 
+    @Override
+    public void setMotionProfileNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        for (BeakMotorController controller : m_controllers) {
+            controller.setMotionProfileNU(nu, outputType, useFoc, arbFeedforward, slot);
+        }
+    }
+
     @Override
     public DataSignal<Double> getVelocityNU() {
         return m_controllers[0].getVelocityNU();
@@ -103,6 +133,46 @@ public class BeakMotorControllerGroup implements BeakMotorController {
         return m_controllers[0].getSuppliedVoltage();
     }
 
+    @Override
+    public DataSignal<Double> getMotorCurrent() {
+        return m_controllers[0].getMotorCurrent();
+    }
+
+    @Override
+    public DataSignal<Double> getDeviceTemperature() {
+        return m_controllers[0].getDeviceTemperature();
+    }
+
+    @Override
+    public DataSignal<Double> getSuppliedCurrent() {
+        // Every controller pulls from the same bus, so the group's draw is the sum.
+        @SuppressWarnings("unchecked")
+        DataSignal<Double>[] currents = new DataSignal[m_controllers.length];
+        for (int i = 0; i < m_controllers.length; i++) {
+            currents[i] = m_controllers[i].getSuppliedCurrent();
+        }
+
+        return new DataSignal<Double>(
+                () -> {
+                    double total = 0.;
+                    for (DataSignal<Double> current : currents) {
+                        total += current.getValue();
+                    }
+                    return total;
+                },
+                currents[0]::getTimestamp,
+                () -> {
+                    for (DataSignal<Double> current : currents) {
+                        current.refresh();
+                    }
+                },
+                (frequency) -> {
+                    for (DataSignal<Double> current : currents) {
+                        current.setUpdateFrequency(frequency);
+                    }
+                });
+    }
+
     @Override
     public void setPID(BeakPIDConstants constants) {
         for (BeakMotorController controller : m_controllers) {
@@ -191,6 +261,17 @@ public class BeakMotorControllerGroup implements BeakMotorController {
         }
     }
 
+    @Override
+    public boolean resendsCommands() {
+        for (BeakMotorController controller : m_controllers) {
+            if (!controller.resendsCommands()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     @Override
     public void applyConfig(BeakClosedLoopConfigs config) {
         for (BeakMotorController controller : m_controllers) {
@@ -205,6 +286,13 @@ public class BeakMotorControllerGroup implements BeakMotorController {
         }
     }
 
+    @Override
+    public void applyConfigNonBlocking(BeakCurrentLimitConfigs config) {
+        for (BeakMotorController controller : m_controllers) {
+            controller.applyConfigNonBlocking(config);
+        }
+    }
+
     @Override
     public void applyConfig(BeakDutyCycleConfigs config) {
         for (BeakMotorController controller : m_controllers) {
@@ -264,6 +352,20 @@ public class BeakMotorControllerGroup implements BeakMotorController {
         }
     }
 
+    @Override
+    public void setVoltage(double volts, boolean useFoc) {
+        for (BeakMotorController controller : m_controllers) {
+            controller.setVoltage(volts, useFoc);
+        }
+    }
+
+    @Override
+    public void setDutyCycle(double output, boolean useFoc) {
+        for (BeakMotorController controller : m_controllers) {
+            controller.setDutyCycle(output, useFoc);
+        }
+    }
+
     @Override
     public void applyConfig(BeakSoftLimitConfigs config) {
         for (BeakMotorController controller : m_controllers) {
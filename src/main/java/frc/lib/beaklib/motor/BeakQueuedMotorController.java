@@ -0,0 +1,192 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import frc.lib.beaklib.motor.requests.BeakControlRequest.OutputType;
+
+/**
+ * <p>
+ * A motor controller whose commands are held until its
+ * {@link BeakActuationQueue} is flushed.
+ * </p>
+ *
+ * Only the latest command is kept; anything it replaces is never sent. Create
+ * these with {@link BeakActuationQueue#wrap(BeakMotorController)}.
+ */
+public class BeakQueuedMotorController extends BeakForwardingMotorController {
+    private enum CommandType {
+        None,
+        Stop,
+        DutyCycle,
+        Voltage,
+        Current,
+        Velocity,
+        Position,
+        MotionProfile
+    }
+
+    // The pending command. Untyped commands are sent through the untyped setters,
+    // which use whatever state was last set on the wrapped controller.
+    private CommandType m_type = CommandType.None;
+    private double m_value = 0.;
+    private boolean m_typed = false;
+    private OutputType m_outputType = OutputType.DutyCycle;
+    private boolean m_useFoc = false;
+    private double m_arbFeedforward = 0.;
+    private int m_slot = 0;
+
+    private int m_coalesced = 0;
+
+    BeakQueuedMotorController(BeakMotorController controller) {
+        super(controller);
+    }
+
+    private synchronized void queue(CommandType type, double value) {
+        if (m_type != CommandType.None) {
+            m_coalesced++;
+        }
+
+        m_type = type;
+        m_value = value;
+        m_typed = false;
+    }
+
+    private synchronized void queue(CommandType type, double value, OutputType outputType, boolean useFoc,
+            double arbFeedforward, int slot) {
+        queue(type, value);
+
+        m_typed = true;
+        m_outputType = outputType;
+        m_useFoc = useFoc;
+        m_arbFeedforward = arbFeedforward;
+        m_slot = slot;
+    }
+
+    /**
+     * Send the pending command, if any.
+     *
+     * @return Whether a command was sent.
+     */
+    synchronized boolean flush() {
+        switch (m_type) {
+            case Stop:
+                m_controller.stop();
+                break;
+            case DutyCycle:
+                if (m_typed) {
+                    m_controller.setDutyCycle(m_value, m_useFoc);
+                } else {
+                    m_controller.set(m_value);
+                }
+                break;
+            case Voltage:
+                if (m_typed) {
+                    m_controller.setVoltage(m_value, m_useFoc);
+                } else {
+                    m_controller.setVoltage(m_value);
+                }
+                break;
+            case Current:
+                m_controller.setCurrent(m_value);
+                break;
+            case Velocity:
+                if (m_typed) {
+                    m_controller.setVelocityNU(m_value, m_outputType, m_useFoc, m_arbFeedforward, m_slot);
+                } else {
+                    m_controller.setVelocityNU(m_value);
+                }
+                break;
+            case Position:
+                if (m_typed) {
+                    m_controller.setPositionNU(m_value, m_outputType, m_useFoc, m_arbFeedforward, m_slot);
+                } else {
+                    m_controller.setPositionNU(m_value);
+                }
+                break;
+            case MotionProfile:
+                if (m_typed) {
+                    m_controller.setMotionProfileNU(m_value, m_outputType, m_useFoc, m_arbFeedforward, m_slot);
+                } else {
+                    m_controller.setMotionProfileNU(m_value);
+                }
+                break;
+            case None:
+            default:
+                return false;
+        }
+
+        m_type = CommandType.None;
+        return true;
+    }
+
+    /**
+     * Get the number of commands that were replaced before being sent.
+     *
+     * @return Number of writes saved.
+     */
+    public synchronized int getCoalescedCount() {
+        return m_coalesced;
+    }
+
+    @Override
+    public void stop() {
+        queue(CommandType.Stop, 0.);
+    }
+
+    @Override
+    public void set(double percentOutput) {
+        queue(CommandType.DutyCycle, percentOutput);
+    }
+
+    @Override
+    public void setDutyCycle(double output, boolean useFoc) {
+        queue(CommandType.DutyCycle, output, OutputType.DutyCycle, useFoc, 0., 0);
+    }
+
+    @Override
+    public void setVoltage(double volts) {
+        queue(CommandType.Voltage, volts);
+    }
+
+    @Override
+    public void setVoltage(double volts, boolean useFoc) {
+        queue(CommandType.Voltage, volts, OutputType.Voltage, useFoc, 0., 0);
+    }
+
+    @Override
+    public void setCurrent(double amps) {
+        queue(CommandType.Current, amps);
+    }
+
+    @Override
+    public void setVelocityNU(double nu) {
+        queue(CommandType.Velocity, nu);
+    }
+
+    @Override
+    public void setVelocityNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        queue(CommandType.Velocity, nu, outputType, useFoc, arbFeedforward, slot);
+    }
+
+    @Override
+    public void setPositionNU(double nu) {
+        queue(CommandType.Position, nu);
+    }
+
+    @Override
+    public void setPositionNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        queue(CommandType.Position, nu, outputType, useFoc, arbFeedforward, slot);
+    }
+
+    @Override
+    public void setMotionProfileNU(double nu) {
+        queue(CommandType.MotionProfile, nu);
+    }
+
+    @Override
+    public void setMotionProfileNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        queue(CommandType.MotionProfile, nu, outputType, useFoc, arbFeedforward, slot);
+    }
+}
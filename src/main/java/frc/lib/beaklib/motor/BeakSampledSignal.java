@@ -0,0 +1,68 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import frc.lib.beaklib.BeakSeqLock;
+import frc.lib.beaklib.CTRESignalStore;
+
+/**
+ * <p>
+ * Holds the latest sample of a signal so any thread can read it safely.
+ * </p>
+ *
+ * A {@link DataSignal} reads straight from the device, and isn't safe to share
+ * across threads. This copies the value and timestamp into a
+ * {@link BeakSeqLock} on every signal refresh, so readers always get a matching
+ * value and timestamp, without allocating or blocking the refreshing thread.
+ */
+public class BeakSampledSignal implements AutoCloseable {
+    private final DataSignal<Double> m_signal;
+    private final BeakSeqLock m_sample = new BeakSeqLock(2);
+    private final double[] m_write = new double[2];
+    private final Runnable m_listener = this::sample;
+
+    /**
+     * Start sampling a signal.
+     *
+     * @param signal The signal to sample. Use {@link DataSignal#map} to convert
+     *               signals of other types.
+     */
+    public BeakSampledSignal(DataSignal<Double> signal) {
+        m_signal = signal;
+
+        sample();
+        CTRESignalStore.addRefreshListener(m_listener);
+    }
+
+    /**
+     * Store the signal's current value. This is normally called on every signal
+     * refresh; call it manually for signals that aren't refreshed by the signal
+     * store.
+     */
+    public synchronized void sample() {
+        m_write[0] = m_signal.getValue();
+        m_write[1] = m_signal.getTimestamp();
+
+        m_sample.write(m_write);
+    }
+
+    /**
+     * Read the latest value and its timestamp.
+     *
+     * @param out Array of at least two elements, which receives the value then
+     *            the timestamp.
+     */
+    public void read(double[] out) {
+        m_sample.read(out);
+    }
+
+    /**
+     * Stop sampling on signal refreshes.
+     */
+    @Override
+    public void close() {
+        CTRESignalStore.removeRefreshListener(m_listener);
+    }
+}
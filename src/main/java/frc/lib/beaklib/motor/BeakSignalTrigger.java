@@ -0,0 +1,301 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.lib.beaklib.CTRESignalStore;
+
+/**
+ * <p>
+ * A condition on a {@link DataSignal} that is checked every time signals are
+ * refreshed, rather than when a command gets around to polling it.
+ * </p>
+ *
+ * <p>
+ * Triggers are evaluated by {@link CTRESignalStore#update()}, and by any
+ * high-rate loop that refreshes signals, so edges are caught at sensor rate.
+ * Signals the store doesn't refresh, e.g. REV ones, can be polled faster than
+ * the main loop with {@link #withPollingPeriod(double)}. Edge callbacks run on
+ * whichever thread did the evaluation, so keep them short and thread-safe.
+ * </p>
+ *
+ * A trigger can also be used as a WPILib {@link Trigger} through
+ * {@link #getTrigger()}. Rising edges are latched until each trigger has seen
+ * them, so an event shorter than a loop still reaches command bindings, however
+ * late the scheduler polls.
+ */
+public class BeakSignalTrigger implements AutoCloseable {
+    private enum Mode {
+        Above,
+        Below,
+        Within
+    }
+
+    private final DataSignal<Double> m_signal;
+    private final Mode m_mode;
+    private final DoubleSupplier m_threshold;
+    private final double m_tolerance;
+
+    private double m_hysteresis = 0.;
+    private Notifier m_poller = null;
+
+    private final List<Runnable> m_onRising = new CopyOnWriteArrayList<>();
+    private final List<Runnable> m_onFalling = new CopyOnWriteArrayList<>();
+    private final Runnable m_listener = this::evaluate;
+
+    private volatile boolean m_state = false;
+    private volatile double m_edgeTimestamp = 0.;
+    private volatile int m_risingEdges = 0;
+
+    /** Reports the trigger as active until it has seen every rising edge. */
+    private class EdgeLatch {
+        private int m_consumedEdges;
+
+        EdgeLatch(int consumedEdges) {
+            m_consumedEdges = consumedEdges;
+        }
+
+        boolean get() {
+            synchronized (BeakSignalTrigger.this) {
+                boolean unseenEdge = m_consumedEdges != m_risingEdges;
+                m_consumedEdges = m_risingEdges;
+
+                return m_state || unseenEdge;
+            }
+        }
+    }
+
+    private final EdgeLatch m_latch = new EdgeLatch(0);
+
+    private BeakSignalTrigger(DataSignal<Double> signal, Mode mode, DoubleSupplier threshold, double tolerance) {
+        m_signal = signal;
+        m_mode = mode;
+        m_threshold = threshold;
+        m_tolerance = tolerance;
+
+        CTRESignalStore.addRefreshListener(m_listener);
+    }
+
+    /**
+     * Create a trigger that is active while a signal is above a threshold.
+     *
+     * @param signal    The signal to watch.
+     * @param threshold The threshold.
+     * @return A new trigger.
+     */
+    public static BeakSignalTrigger above(DataSignal<Double> signal, double threshold) {
+        return new BeakSignalTrigger(signal, Mode.Above, () -> threshold, 0.);
+    }
+
+    /**
+     * Create a trigger that is active while a signal is below a threshold.
+     *
+     * @param signal    The signal to watch.
+     * @param threshold The threshold.
+     * @return A new trigger.
+     */
+    public static BeakSignalTrigger below(DataSignal<Double> signal, double threshold) {
+        return new BeakSignalTrigger(signal, Mode.Below, () -> threshold, 0.);
+    }
+
+    /**
+     * Create a trigger that is active while a signal is within a tolerance of a
+     * (possibly changing) target, e.g. a velocity at its setpoint.
+     *
+     * @param signal    The signal to watch.
+     * @param target    Supplier of the target value.
+     * @param tolerance How far from the target the signal may be.
+     * @return A new trigger.
+     */
+    public static BeakSignalTrigger within(DataSignal<Double> signal, DoubleSupplier target, double tolerance) {
+        return new BeakSignalTrigger(signal, Mode.Within, target, tolerance);
+    }
+
+    /**
+     * Set how far past the threshold the signal has to move back before the
+     * trigger deactivates. This keeps a noisy signal from chattering.
+     *
+     * @param hysteresis Width of the hysteresis band, in the signal's units.
+     * @return This trigger.
+     */
+    public BeakSignalTrigger withHysteresis(double hysteresis) {
+        m_hysteresis = hysteresis;
+        return this;
+    }
+
+    /**
+     * Evaluate this trigger on its own thread at a fixed rate, for signals the
+     * signal store doesn't refresh, which would otherwise only be checked once
+     * per main loop. The signal's value is read without refreshing it, so this
+     * only helps signals that are read live, e.g. REV ones.
+     *
+     * @param seconds How often to evaluate.
+     * @return This trigger.
+     */
+    public BeakSignalTrigger withPollingPeriod(double seconds) {
+        stopPolling();
+
+        m_poller = new Notifier(this::evaluate);
+        m_poller.setName("Signal Trigger");
+        m_poller.startPeriodic(seconds);
+        return this;
+    }
+
+    private void stopPolling() {
+        if (m_poller != null) {
+            m_poller.stop();
+            m_poller.close();
+            m_poller = null;
+        }
+    }
+
+    /**
+     * Run a callback whenever the trigger activates.
+     *
+     * @param callback The callback to run. Runs on the refreshing thread.
+     * @return This trigger.
+     */
+    public BeakSignalTrigger onRisingEdge(Runnable callback) {
+        m_onRising.add(callback);
+        return this;
+    }
+
+    /**
+     * Run a callback whenever the trigger deactivates.
+     *
+     * @param callback The callback to run. Runs on the refreshing thread.
+     * @return This trigger.
+     */
+    public BeakSignalTrigger onFallingEdge(Runnable callback) {
+        m_onFalling.add(callback);
+        return this;
+    }
+
+    private boolean activates(double value, double threshold) {
+        switch (m_mode) {
+            case Above:
+                return value > threshold;
+            case Below:
+                return value < threshold;
+            case Within:
+            default:
+                return Math.abs(value - threshold) <= m_tolerance;
+        }
+    }
+
+    private boolean releases(double value, double threshold) {
+        switch (m_mode) {
+            case Above:
+                return value <= threshold - m_hysteresis;
+            case Below:
+                return value >= threshold + m_hysteresis;
+            case Within:
+            default:
+                return Math.abs(value - threshold) > m_tolerance + m_hysteresis;
+        }
+    }
+
+    /**
+     * Check the signal and fire any edges. This is normally called on every
+     * signal refresh; call it manually for signals that aren't refreshed by the
+     * signal store.
+     */
+    public void evaluate() {
+        boolean rising;
+        boolean falling;
+
+        synchronized (this) {
+            double value = m_signal.getValue();
+            double threshold = m_threshold.getAsDouble();
+
+            rising = !m_state && activates(value, threshold);
+            falling = m_state && releases(value, threshold);
+
+            if (rising) {
+                m_state = true;
+                m_risingEdges++;
+            } else if (falling) {
+                m_state = false;
+            }
+
+            if (rising || falling) {
+                m_edgeTimestamp = m_signal.getTimestamp();
+            }
+        }
+
+        if (rising) {
+            for (Runnable callback : m_onRising) {
+                callback.run();
+            }
+        } else if (falling) {
+            for (Runnable callback : m_onFalling) {
+                callback.run();
+            }
+        }
+    }
+
+    /**
+     * Get whether the trigger is active, as of the last evaluation.
+     *
+     * @return Whether the condition holds.
+     */
+    public boolean get() {
+        return m_state;
+    }
+
+    /**
+     * Get whether the trigger is active, or has activated since the last call.
+     * Each rising edge is reported at least once, even if the trigger has
+     * already deactivated.
+     *
+     * @return Whether the condition holds or held since the last call.
+     */
+    public boolean getLatched() {
+        return m_latch.get();
+    }
+
+    /**
+     * Get a WPILib trigger that follows this one, with rising edges latched until
+     * it has seen them, so short events aren't missed between main loop
+     * iterations. Each trigger returned latches edges on its own.
+     *
+     * @return A {@link Trigger} for command bindings.
+     */
+    public Trigger getTrigger() {
+        return new Trigger(new EdgeLatch(m_risingEdges)::get);
+    }
+
+    /**
+     * Get the signal timestamp of the last edge.
+     *
+     * @return Timestamp of the last edge, in seconds.
+     */
+    public double getEdgeTimestamp() {
+        return m_edgeTimestamp;
+    }
+
+    /**
+     * Get the number of times this trigger has activated.
+     *
+     * @return Number of rising edges.
+     */
+    public int getRisingEdgeCount() {
+        return m_risingEdges;
+    }
+
+    /**
+     * Stop evaluating this trigger on signal refreshes.
+     */
+    @Override
+    public void close() {
+        stopPolling();
+        CTRESignalStore.removeRefreshListener(m_listener);
+    }
+}
@@ -0,0 +1,388 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import static edu.wpi.first.units.Units.RotationsPerSecond;
+import static edu.wpi.first.units.Units.Second;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.units.Angle;
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Velocity;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.lib.beaklib.motor.configs.BeakSoftLimitConfigs;
+import frc.lib.beaklib.motor.requests.BeakControlRequest.OutputType;
+
+/**
+ * <p>
+ * Software soft limits enforced on top of any motor controller.
+ * </p>
+ *
+ * <p>
+ * Native soft limits only work off the controller's own feedback sensor, and
+ * only cut the output once the limit has already been reached. This checks the
+ * limits against any position signal at a high rate, and starts braking as
+ * soon as the stopping distance at the configured deceleration reaches the
+ * limit, so a mechanism can run at full speed right up to it.
+ * </p>
+ *
+ * Outgoing commands are clamped as follows:
+ * <ul>
+ * <li>Duty cycle, voltage and current: cut to zero once the mechanism must
+ * brake toward a limit.</li>
+ * <li>Velocity: clamped to the fastest speed that can still stop at the limit,
+ * <code>sqrt(2 * a * d)</code>.</li>
+ * <li>Position and motion profile: the target is clamped between the
+ * limits.</li>
+ * </ul>
+ *
+ * Limits are in output shaft rotations, as with the native soft limits.
+ * Applying a {@link BeakSoftLimitConfigs} to this controller configures the
+ * software limits; it is not passed on to the wrapped controller.
+ */
+public class BeakSoftLimitedMotorController extends BeakForwardingMotorController implements AutoCloseable {
+    private enum CommandType {
+        None,
+        DutyCycle,
+        Voltage,
+        Current,
+        Velocity,
+        Position,
+        MotionProfile
+    }
+
+    private final DataSignal<Double> m_position;
+    private final DataSignal<Double> m_velocity;
+    private final DataSignal<Double> m_controllerPosition;
+    private final Notifier m_notifier;
+
+    private double m_forwardLimit = 0.;
+    private double m_reverseLimit = 0.;
+    private boolean m_forwardEnabled = false;
+    private boolean m_reverseEnabled = false;
+    private double m_deceleration = 0.;
+
+    private CommandType m_commandType = CommandType.None;
+    private double m_command = 0.;
+    private double m_applied = 0.;
+
+    // Parameters of typed commands, so re-sent commands match what was asked for.
+    // Untyped commands are re-sent through the untyped setters instead.
+    private boolean m_typed = false;
+    private OutputType m_outputType = OutputType.DutyCycle;
+    private boolean m_useFoc = false;
+    private double m_arbFeedforward = 0.;
+    private int m_slot = 0;
+    private boolean m_limiting = false;
+
+    /**
+     * Wrap a controller, enforcing soft limits off of its own encoder.
+     *
+     * @param controller The controller to limit.
+     */
+    public BeakSoftLimitedMotorController(BeakMotorController controller) {
+        this(controller, controller.getAngle(false), controller.getAngularVelocity());
+    }
+
+    /**
+     * Wrap a controller, enforcing soft limits off of another sensor.
+     *
+     * @param controller The controller to limit.
+     * @param position   Position of the limited mechanism, in output shaft
+     *                   rotations.
+     * @param velocity   Velocity of the limited mechanism.
+     */
+    public BeakSoftLimitedMotorController(BeakMotorController controller, DataSignal<Rotation2d> position,
+            DataSignal<Measure<Velocity<Angle>>> velocity) {
+        super(controller);
+
+        m_position = new DataSignal<Double>(
+                () -> position.getValue().getRotations(),
+                position);
+
+        m_velocity = new DataSignal<Double>(
+                () -> velocity.getValue().in(RotationsPerSecond),
+                velocity);
+
+        m_controllerPosition = controller.getPositionNU(false);
+
+        m_notifier = new Notifier(this::enforce);
+        m_notifier.setName("Soft Limits");
+    }
+
+    /**
+     * Re-check the active command against the limits, and send a new one if
+     * braking requires it.
+     */
+    private synchronized void enforce() {
+        switch (m_commandType) {
+            case DutyCycle:
+            case Voltage:
+            case Current:
+            case Velocity:
+                break;
+            default:
+                // Position targets are clamped once when sent; the controller's closed
+                // loop keeps it inside the limits from there.
+                return;
+        }
+
+        double applied = limit(m_commandType, m_command);
+        if (applied != m_applied) {
+            send(m_commandType, applied);
+        }
+    }
+
+    /**
+     * Clamp a command against the limits.
+     *
+     * @param type    The kind of command.
+     * @param command The command as passed in by the user.
+     * @return The command to actually send.
+     */
+    private double limit(CommandType type, double command) {
+        m_position.refresh();
+        m_velocity.refresh();
+
+        double position = m_position.getValue();
+        double velocity = m_velocity.getValue();
+
+        double forwardDistance = m_forwardEnabled ? m_forwardLimit - position : Double.POSITIVE_INFINITY;
+        double reverseDistance = m_reverseEnabled ? position - m_reverseLimit : Double.POSITIVE_INFINITY;
+
+        double result = command;
+
+        switch (type) {
+            case DutyCycle:
+            case Voltage:
+            case Current:
+                if (command > 0. && mustBrake(forwardDistance, velocity)) {
+                    result = 0.;
+                } else if (command < 0. && mustBrake(reverseDistance, -velocity)) {
+                    result = 0.;
+                }
+                break;
+            case Velocity: {
+                double rotationsPerSecond = command / getVelocityConversionConstant() / getEncoderGearRatio() / 60.;
+                double clamped = Math.max(-getStoppableSpeed(reverseDistance),
+                        Math.min(getStoppableSpeed(forwardDistance), rotationsPerSecond));
+
+                if (clamped != rotationsPerSecond) {
+                    result = clamped * 60. * getVelocityConversionConstant() * getEncoderGearRatio();
+                }
+                break;
+            }
+            case Position:
+            case MotionProfile: {
+                // Work in distance from where we are now, so this works even when the
+                // limiting sensor isn't the controller's own.
+                m_controllerPosition.refresh();
+
+                double nuPerRotation = getPositionConversionConstant() * getEncoderGearRatio();
+                double current = m_controllerPosition.getValue();
+                double move = (command - current) / nuPerRotation;
+                double clamped = Math.max(-reverseDistance, Math.min(forwardDistance, move));
+
+                if (clamped != move) {
+                    result = current + clamped * nuPerRotation;
+                }
+                break;
+            }
+            default:
+                break;
+        }
+
+        m_limiting = result != command;
+        return result;
+    }
+
+    /**
+     * Whether the mechanism has to start braking to stop before a limit.
+     *
+     * @param distance Distance left to the limit, in rotations.
+     * @param speed    Speed toward the limit, in rotations per second.
+     */
+    private boolean mustBrake(double distance, double speed) {
+        if (distance <= 0.) {
+            return true;
+        }
+
+        return m_deceleration > 0. && speed > 0. && speed * speed / (2. * m_deceleration) >= distance;
+    }
+
+    /**
+     * The fastest speed toward a limit that can still stop in time.
+     *
+     * @param distance Distance left to the limit, in rotations.
+     * @return Speed, in rotations per second.
+     */
+    private double getStoppableSpeed(double distance) {
+        if (distance <= 0.) {
+            return 0.;
+        }
+
+        return m_deceleration > 0. ? Math.sqrt(2. * m_deceleration * distance) : Double.POSITIVE_INFINITY;
+    }
+
+    private void send(CommandType type, double value) {
+        switch (type) {
+            case DutyCycle:
+                if (m_typed) {
+                    m_controller.setDutyCycle(value, m_useFoc);
+                } else {
+                    m_controller.set(value);
+                }
+                break;
+            case Voltage:
+                if (m_typed) {
+                    m_controller.setVoltage(value, m_useFoc);
+                } else {
+                    m_controller.setVoltage(value);
+                }
+                break;
+            case Current:
+                m_controller.setCurrent(value);
+                break;
+            case Velocity:
+                if (m_typed) {
+                    m_controller.setVelocityNU(value, m_outputType, m_useFoc, m_arbFeedforward, m_slot);
+                } else {
+                    m_controller.setVelocityNU(value);
+                }
+                break;
+            case Position:
+                if (m_typed) {
+                    m_controller.setPositionNU(value, m_outputType, m_useFoc, m_arbFeedforward, m_slot);
+                } else {
+                    m_controller.setPositionNU(value);
+                }
+                break;
+            case MotionProfile:
+                if (m_typed) {
+                    m_controller.setMotionProfileNU(value, m_outputType, m_useFoc, m_arbFeedforward, m_slot);
+                } else {
+                    m_controller.setMotionProfileNU(value);
+                }
+                break;
+            default:
+                break;
+        }
+
+        m_applied = value;
+    }
+
+    private synchronized void command(CommandType type, double command) {
+        m_typed = false;
+        m_commandType = type;
+        m_command = command;
+
+        send(type, limit(type, command));
+    }
+
+    private synchronized void command(CommandType type, double command, OutputType outputType, boolean useFoc,
+            double arbFeedforward, int slot) {
+        m_typed = true;
+        m_outputType = outputType;
+        m_useFoc = useFoc;
+        m_arbFeedforward = arbFeedforward;
+        m_slot = slot;
+        m_commandType = type;
+        m_command = command;
+
+        send(type, limit(type, command));
+    }
+
+    @Override
+    public void set(double percentOutput) {
+        command(CommandType.DutyCycle, percentOutput);
+    }
+
+    @Override
+    public void setDutyCycle(double output, boolean useFoc) {
+        command(CommandType.DutyCycle, output, OutputType.DutyCycle, useFoc, 0., 0);
+    }
+
+    @Override
+    public void setVoltage(double volts) {
+        command(CommandType.Voltage, volts);
+    }
+
+    @Override
+    public void setVoltage(double volts, boolean useFoc) {
+        command(CommandType.Voltage, volts, OutputType.Voltage, useFoc, 0., 0);
+    }
+
+    @Override
+    public void setCurrent(double amps) {
+        command(CommandType.Current, amps);
+    }
+
+    @Override
+    public void setVelocityNU(double nu) {
+        command(CommandType.Velocity, nu);
+    }
+
+    @Override
+    public void setVelocityNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        command(CommandType.Velocity, nu, outputType, useFoc, arbFeedforward, slot);
+    }
+
+    @Override
+    public void setPositionNU(double nu) {
+        command(CommandType.Position, nu);
+    }
+
+    @Override
+    public void setPositionNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        command(CommandType.Position, nu, outputType, useFoc, arbFeedforward, slot);
+    }
+
+    @Override
+    public void setMotionProfileNU(double nu) {
+        command(CommandType.MotionProfile, nu);
+    }
+
+    @Override
+    public void setMotionProfileNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        command(CommandType.MotionProfile, nu, outputType, useFoc, arbFeedforward, slot);
+    }
+
+    @Override
+    public synchronized void stop() {
+        m_commandType = CommandType.None;
+        m_limiting = false;
+        m_controller.stop();
+    }
+
+    @Override
+    public synchronized void applyConfig(BeakSoftLimitConfigs config) {
+        m_forwardLimit = config.ForwardLimit.getRotations();
+        m_reverseLimit = config.ReverseLimit.getRotations();
+
+        // Same convention as the native limits: a zero limit is disabled.
+        m_forwardEnabled = m_forwardLimit != 0.;
+        m_reverseEnabled = m_reverseLimit != 0.;
+        m_deceleration = Math.abs(config.Deceleration.in(RotationsPerSecond.per(Second)));
+
+        m_notifier.stop();
+        if (m_forwardEnabled || m_reverseEnabled) {
+            m_notifier.startPeriodic(config.EnforcementPeriod);
+        }
+    }
+
+    /**
+     * Get whether the last command sent was changed by the soft limits.
+     *
+     * @return True if braking or clamping.
+     */
+    public synchronized boolean isLimiting() {
+        return m_limiting;
+    }
+
+    @Override
+    public void close() {
+        m_notifier.close();
+    }
+}
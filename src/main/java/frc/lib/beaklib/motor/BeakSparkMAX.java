@@ -19,7 +19,6 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.units.Angle;
 import edu.wpi.first.units.Distance;
 import edu.wpi.first.units.Measure;
-import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.lib.beaklib.motor.configs.BeakClosedLoopConfigs;
 import frc.lib.beaklib.motor.configs.BeakCurrentLimitConfigs;
@@ -37,6 +36,12 @@ import frc.lib.beaklib.pid.BeakPIDConstants;
 // TODO: implement fake kS
 /** Common motor controller interface for REV Spark MAX. */
 public class BeakSparkMAX extends CANSparkMax implements BeakMotorController {
+    // Default status frame periods, used to estimate how old a reading is.
+    private static final double STATUS_1_PERIOD = 0.020;
+    /** REVLib's default timeout for parameter writes. */
+    private static final int CAN_TIMEOUT_MS = 20;
+    private static final double STATUS_2_PERIOD = 0.020;
+
     private RelativeEncoder m_relativeEncoder;
     private AbsoluteEncoder m_absoluteEncoder;
 
@@ -45,8 +50,8 @@ public class BeakSparkMAX extends CANSparkMax implements BeakMotorController {
     private SparkLimitSwitch m_builtinRevLimitSwitch;
     private SparkLimitSwitch m_builtinFwdLimitSwitch;
 
-    private DigitalInput m_dioRevLimitSwitch = null;
-    private DigitalInput m_dioFwdLimitSwitch = null;
+    private BeakDIOLimitSwitch m_dioRevLimitSwitch = null;
+    private BeakDIOLimitSwitch m_dioFwdLimitSwitch = null;
 
     private BeakLimitSwitchSource m_forwardSource = BeakLimitSwitchSource.None;
     private BeakLimitSwitchSource m_reverseSource = BeakLimitSwitchSource.None;
@@ -59,6 +64,13 @@ public class BeakSparkMAX extends CANSparkMax implements BeakMotorController {
     private int m_slot = 0;
     private double m_arbFeedforward = 0.;
     private double m_nominalVoltage;
+    private OutputType m_nextOutput = OutputType.DutyCycle;
+    private final Object m_canTimeoutLock = new Object();
+
+    /** Null until compensation is first set by this class. */
+    private Boolean m_voltageCompensated = null;
+    /** Guards the output type and the command sent with it. */
+    private final Object m_commandLock = new Object();
 
     public BeakSparkMAX(int port) {
         super(port, MotorType.kBrushless);
@@ -73,13 +85,38 @@ public class BeakSparkMAX extends CANSparkMax implements BeakMotorController {
 
     @Override
     public void setVelocityNU(double nu) {
-        m_pid.setReference(nu, ControlType.kVelocity, m_slot, m_arbFeedforward);
+        setVelocityNU(nu, m_nextOutput, false, m_arbFeedforward, m_slot);
+    }
+
+    @Override
+    public void setVelocityNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        if (isLimitBlocked(nu)) {
+            return;
+        }
+
+        synchronized (m_commandLock) {
+            applyOutputType(outputType);
+            m_pid.setReference(nu, ControlType.kVelocity, slot, arbFeedforward);
+        }
     }
 
     @Override
     public void setPositionNU(double nu) {
+        setPositionNU(nu, m_nextOutput, false, m_arbFeedforward, m_slot);
+    }
+
+    @Override
+    public void setPositionNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        if (hasDIOLimitSwitch() && isLimitBlocked(
+                BeakDIOLimitSwitch.positionDirection(nu - m_relativeEncoder.getPosition(), getPositionConversionConstant()))) {
+            return;
+        }
+
         SmartDashboard.putNumber("PID " + super.getDeviceId(), nu - m_relativeEncoder.getPosition());
-        m_pid.setReference(nu, ControlType.kPosition, m_slot, m_arbFeedforward);
+        synchronized (m_commandLock) {
+            applyOutputType(outputType);
+            m_pid.setReference(nu, ControlType.kPosition, slot, arbFeedforward);
+        }
     }
 
     @Override
@@ -89,28 +126,97 @@ public class BeakSparkMAX extends CANSparkMax implements BeakMotorController {
 
     @Override
     public void setMotionProfileNU(double nu) {
-        m_pid.setReference(nu, ControlType.kSmartMotion, m_slot, m_arbFeedforward);
+        setMotionProfileNU(nu, m_nextOutput, false, m_arbFeedforward, m_slot);
+    }
+
+    @Override
+    public void setMotionProfileNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        if (hasDIOLimitSwitch() && isLimitBlocked(
+                BeakDIOLimitSwitch.positionDirection(nu - m_relativeEncoder.getPosition(), getPositionConversionConstant()))) {
+            return;
+        }
+
+        synchronized (m_commandLock) {
+            applyOutputType(outputType);
+            m_pid.setReference(nu, ControlType.kSmartMotion, slot, arbFeedforward);
+        }
     }
 
     @Override
     public DataSignal<Double> getVelocityNU() {
-        return new DataSignal<Double>(
+        return DataSignal.fromPeriodicFrame(
                 m_relativeEncoder::getVelocity,
+                STATUS_1_PERIOD,
                 (frequency) -> setPeriodicFramePeriod(PeriodicFrame.kStatus1, (int) (1000 / frequency)));
     }
 
     @Override
     public DataSignal<Double> getPositionNU(boolean latencyCompensated) {
-        return new DataSignal<Double>(
+        return DataSignal.fromPeriodicFrame(
                 m_relativeEncoder::getPosition,
+                STATUS_2_PERIOD,
                 (frequency) -> setPeriodicFramePeriod(PeriodicFrame.kStatus2, (int) (1000 / frequency)));
     }
 
+    @Override
+    public void setVoltage(double volts) {
+        setVoltage(volts, false);
+    }
+
+    @Override
+    public void setVoltage(double volts, boolean useFoc) {
+        if (isLimitBlocked(volts)) {
+            return;
+        }
+
+        m_pid.setReference(volts, ControlType.kVoltage);
+    }
+
+    @Override
+    public void setDutyCycle(double output, boolean useFoc) {
+        if (isLimitBlocked(output)) {
+            return;
+        }
+
+        m_pid.setReference(output, ControlType.kDutyCycle);
+    }
+
     @Override
     public void set(double percentOutput) {
+        if (isLimitBlocked(percentOutput)) {
+            return;
+        }
+
         m_pid.setReference(percentOutput, ControlType.kDutyCycle, 0, m_arbFeedforward);
     }
 
+    /**
+     * Check a command against the DIO limit switches, neutralizing the motor if
+     * it is blocked.
+     */
+    private boolean isLimitBlocked(double direction) {
+        if (!hasDIOLimitSwitch()) {
+            return false;
+        }
+
+        boolean blocked = (m_dioFwdLimitSwitch != null && m_dioFwdLimitSwitch.blocks(direction))
+                | (m_dioRevLimitSwitch != null && m_dioRevLimitSwitch.blocks(-direction));
+
+        if (blocked) {
+            stopForLimit();
+        }
+
+        return blocked;
+    }
+
+    private boolean hasDIOLimitSwitch() {
+        return m_dioFwdLimitSwitch != null || m_dioRevLimitSwitch != null;
+    }
+
+    private void stopForLimit() {
+        m_pid.setReference(0., ControlType.kDutyCycle);
+    }
+
     @Override
     public void setPID(BeakPIDConstants constants) {
         m_pid.setP(constants.kP, m_slot);
@@ -130,12 +236,39 @@ public class BeakSparkMAX extends CANSparkMax implements BeakMotorController {
 
     @Override
     public DataSignal<Double> getSuppliedVoltage() {
-        return new DataSignal<Double>(
+        return DataSignal.fromPeriodicFrame(
                 super::getBusVoltage,
+                STATUS_1_PERIOD,
                 (frequency) -> setPeriodicFramePeriod(PeriodicFrame.kStatus1, (int) (1000 / frequency)));
 
     }
 
+    @Override
+    public DataSignal<Double> getSuppliedCurrent() {
+        // The Spark only reports motor-side current, so scale it by the applied
+        // output to estimate what is actually pulled from the bus.
+        return DataSignal.fromPeriodicFrame(
+                () -> super.getOutputCurrent() * Math.abs(super.getAppliedOutput()),
+                STATUS_1_PERIOD,
+                (frequency) -> setPeriodicFramePeriod(PeriodicFrame.kStatus1, (int) (1000 / frequency)));
+    }
+
+    @Override
+    public DataSignal<Double> getMotorCurrent() {
+        return DataSignal.fromPeriodicFrame(
+                super::getOutputCurrent,
+                STATUS_1_PERIOD,
+                (frequency) -> setPeriodicFramePeriod(PeriodicFrame.kStatus1, (int) (1000 / frequency)));
+    }
+
+    @Override
+    public DataSignal<Double> getDeviceTemperature() {
+        return DataSignal.fromPeriodicFrame(
+                super::getMotorTemperature,
+                STATUS_1_PERIOD,
+                (frequency) -> setPeriodicFramePeriod(PeriodicFrame.kStatus1, (int) (1000 / frequency)));
+    }
+
     @Override
     public void setVelocityConversionConstant(double constant) {
         m_velocityConversionConstant = constant;
@@ -213,6 +346,17 @@ public class BeakSparkMAX extends CANSparkMax implements BeakMotorController {
         setSmartCurrentLimit((int) config.SupplyCurrentLimit);
     }
 
+    @Override
+    public void applyConfigNonBlocking(BeakCurrentLimitConfigs config) {
+        // With no CAN timeout, REVLib sends the parameter without waiting for
+        // the controller to acknowledge it.
+        synchronized (m_canTimeoutLock) {
+            setCANTimeout(0);
+            setSmartCurrentLimit((int) config.SupplyCurrentLimit);
+            setCANTimeout(CAN_TIMEOUT_MS);
+        }
+    }
+
     @Override
     public void applyConfig(BeakDutyCycleConfigs config) {
         m_pid.setOutputRange(config.PeakReverseOutput, config.PeakForwardOutput);
@@ -228,7 +372,8 @@ public class BeakSparkMAX extends CANSparkMax implements BeakMotorController {
                     m_dioFwdLimitSwitch.close();
                 }
 
-                m_dioFwdLimitSwitch = new DigitalInput(config.ForwardLimitSwitchID);
+                m_dioFwdLimitSwitch = new BeakDIOLimitSwitch(config.ForwardLimitSwitchID,
+                        config.ForwardNormallyClosed, this::stopForLimit);
                 m_forwardSource = BeakLimitSwitchSource.DIO;
                 break;
             case Connected:
@@ -248,7 +393,8 @@ public class BeakSparkMAX extends CANSparkMax implements BeakMotorController {
                     m_dioRevLimitSwitch.close();
                 }
 
-                m_dioRevLimitSwitch = new DigitalInput(config.ReverseLimitSwitchID);
+                m_dioRevLimitSwitch = new BeakDIOLimitSwitch(config.ReverseLimitSwitchID,
+                        config.ReverseNormallyClosed, this::stopForLimit);
                 m_reverseSource = BeakLimitSwitchSource.DIO;
                 break;
             case Connected:
@@ -278,37 +424,73 @@ public class BeakSparkMAX extends CANSparkMax implements BeakMotorController {
     @Override
     public boolean getForwardLimitSwitch() {
         return m_forwardSource == BeakLimitSwitchSource.Connected ? m_builtinFwdLimitSwitch.isPressed()
-                : m_dioFwdLimitSwitch.get();
+                : m_dioFwdLimitSwitch.isPressed();
     }
 
     @Override
     public boolean getReverseLimitSwitch() {
         return m_reverseSource == BeakLimitSwitchSource.Connected ? m_builtinRevLimitSwitch.isPressed()
-                : m_dioRevLimitSwitch.get();
+                : m_dioRevLimitSwitch.isPressed();
     }
 
     @Override
     public void setNextOutputType(OutputType outputType) {
+        synchronized (m_commandLock) {
+            m_nextOutput = outputType;
+            applyOutputType(outputType);
+        }
+    }
+
+    /**
+     * Switch voltage compensation to match an output type. This is a config
+     * write, so it's only sent when compensation actually needs to change;
+     * current control leaves it as it was. Call with the command lock held, so
+     * the mode can't change before the command that needs it is sent.
+     */
+    private void applyOutputType(OutputType outputType) {
+        boolean compensate;
         switch (outputType) {
             case DutyCycle:
-                super.disableVoltageCompensation();
+                compensate = false;
                 break;
             case Voltage:
-                super.enableVoltageCompensation(m_nominalVoltage);
+                compensate = true;
                 break;
             case Current:
             default:
-                break;
+                return;
+        }
+
+        if (m_voltageCompensated != null && m_voltageCompensated == compensate) {
+            return;
+        }
+
+        m_voltageCompensated = compensate;
+        if (compensate) {
+            super.enableVoltageCompensation(m_nominalVoltage);
+        } else {
+            super.disableVoltageCompensation();
         }
     }
 
     @Override
     public void setNominalVoltage(double volts) {
-        m_nominalVoltage = volts;
+        synchronized (m_commandLock) {
+            m_nominalVoltage = volts;
+
+            // Re-apply compensation with the new voltage if it's in use.
+            if (m_voltageCompensated != null && m_voltageCompensated) {
+                super.enableVoltageCompensation(m_nominalVoltage);
+            }
+        }
     }
 
     @Override
     public void setCurrent(double amps) {
+        if (isLimitBlocked(amps)) {
+            return;
+        }
+
         m_pid.setReference(amps, ControlType.kCurrent);
     }
 
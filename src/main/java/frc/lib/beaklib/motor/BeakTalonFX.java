@@ -18,12 +18,12 @@ import com.ctre.phoenix6.configs.Slot2Configs;
 import com.ctre.phoenix6.configs.SoftwareLimitSwitchConfigs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.configs.TalonFXConfigurator;
-import com.ctre.phoenix6.controls.ControlRequest;
 import com.ctre.phoenix6.controls.DutyCycleOut;
 // import com.ctre.phoenix6.controls.DutyCycleOut;
 import com.ctre.phoenix6.controls.MotionMagicDutyCycle;
 import com.ctre.phoenix6.controls.MotionMagicTorqueCurrentFOC;
 import com.ctre.phoenix6.controls.MotionMagicVoltage;
+import com.ctre.phoenix6.controls.NeutralOut;
 import com.ctre.phoenix6.controls.PositionDutyCycle;
 import com.ctre.phoenix6.controls.PositionTorqueCurrentFOC;
 import com.ctre.phoenix6.controls.PositionVoltage;
@@ -45,7 +45,6 @@ import com.ctre.phoenix6.signals.ReverseLimitValue;
 
 import edu.wpi.first.units.Distance;
 import edu.wpi.first.units.Measure;
-import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.DriverStation;
 import frc.lib.beaklib.motor.configs.BeakClosedLoopConfigs;
 import frc.lib.beaklib.motor.configs.BeakCurrentConfigs;
@@ -62,20 +61,22 @@ import frc.lib.beaklib.pid.BeakPIDConstants;
 /** BeakLib implementation of the CTRE Talon FX. */
 public class BeakTalonFX extends TalonFX implements BeakMotorController {
     private TalonFXConfigurator m_configurator;
+    private final CurrentLimitsConfigs m_runtimeCurrentLimits = new CurrentLimitsConfigs();
     private TalonFXConfiguration m_config = new TalonFXConfiguration();
 
-    private DutyCycleOut m_dutyCycleOut = new DutyCycleOut(0.);
-    private VoltageOut m_voltageOut = new VoltageOut(0.);
-    private TorqueCurrentFOC m_currentOut = new TorqueCurrentFOC(0.);
-    private VelocityDutyCycle m_velocityOut = new VelocityDutyCycle(0.);
-    private VelocityVoltage m_velocityVoltage = new VelocityVoltage(0.);
-    private VelocityTorqueCurrentFOC m_velocityCurrent = new VelocityTorqueCurrentFOC(0.);
-    private PositionDutyCycle m_positionOut = new PositionDutyCycle(0.);
-    private PositionVoltage m_positionVoltage = new PositionVoltage(0.);
-    private PositionTorqueCurrentFOC m_positionCurrent = new PositionTorqueCurrentFOC(0.);
-    private MotionMagicDutyCycle m_motionMagicOut = new MotionMagicDutyCycle(0.);
-    private MotionMagicVoltage m_motionMagicVoltage = new MotionMagicVoltage(0.);
-    private MotionMagicTorqueCurrentFOC m_motionMagicCurrent = new MotionMagicTorqueCurrentFOC(0.);
+    private final DutyCycleOut m_dutyCycleOut = new DutyCycleOut(0.);
+    private final VoltageOut m_voltageOut = new VoltageOut(0.);
+    private final TorqueCurrentFOC m_currentOut = new TorqueCurrentFOC(0.);
+    private final VelocityDutyCycle m_velocityOut = new VelocityDutyCycle(0.);
+    private final VelocityVoltage m_velocityVoltage = new VelocityVoltage(0.);
+    private final VelocityTorqueCurrentFOC m_velocityCurrent = new VelocityTorqueCurrentFOC(0.);
+    private final PositionDutyCycle m_positionOut = new PositionDutyCycle(0.);
+    private final PositionVoltage m_positionVoltage = new PositionVoltage(0.);
+    private final PositionTorqueCurrentFOC m_positionCurrent = new PositionTorqueCurrentFOC(0.);
+    private final MotionMagicDutyCycle m_motionMagicOut = new MotionMagicDutyCycle(0.);
+    private final MotionMagicVoltage m_motionMagicVoltage = new MotionMagicVoltage(0.);
+    private final MotionMagicTorqueCurrentFOC m_motionMagicCurrent = new MotionMagicTorqueCurrentFOC(0.);
+    private final NeutralOut m_neutralOut = new NeutralOut();
 
     private double m_velocityConversionConstant = 1. / 60.;
     private double m_positionConversionConstant = 1.;
@@ -87,8 +88,9 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
     private OutputType m_nextOutput = OutputType.DutyCycle;
     private boolean m_useFoc = false;
 
-    private DigitalInput m_dioRevLimitSwitch = null;
-    private DigitalInput m_dioFwdLimitSwitch = null;
+    private BeakDIOLimitSwitch m_dioRevLimitSwitch = null;
+    private BeakDIOLimitSwitch m_dioFwdLimitSwitch = null;
+    private DataSignal<Double> m_limitPosition = null;
 
     private BeakLimitSwitchSource m_forwardSource = BeakLimitSwitchSource.None;
     private BeakLimitSwitchSource m_reverseSource = BeakLimitSwitchSource.None;
@@ -105,12 +107,67 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
 
     @Override
     public void setVoltage(double volts) {
-        super.setControl(m_voltageOut.withEnableFOC(m_useFoc).withOutput(volts));
+        setVoltage(volts, m_useFoc);
+    }
+
+    @Override
+    public void setVoltage(double volts, boolean useFoc) {
+        if (isLimitBlocked(volts)) {
+            return;
+        }
+
+        synchronized (m_voltageOut) {
+            super.setControl(m_voltageOut.withEnableFOC(useFoc).withOutput(volts));
+        }
     }
 
     @Override
     public void set(double output) {
-        super.setControl(m_dutyCycleOut.withEnableFOC(m_useFoc).withOutput(output));
+        setDutyCycle(output, m_useFoc);
+    }
+
+    @Override
+    public void setDutyCycle(double output, boolean useFoc) {
+        if (isLimitBlocked(output)) {
+            return;
+        }
+
+        synchronized (m_dutyCycleOut) {
+            super.setControl(m_dutyCycleOut.withEnableFOC(useFoc).withOutput(output));
+        }
+    }
+
+    /**
+     * Check a command against the DIO limit switches, neutralizing the motor if
+     * it is blocked.
+     */
+    private boolean isLimitBlocked(double direction) {
+        if (m_dioFwdLimitSwitch == null && m_dioRevLimitSwitch == null) {
+            return false;
+        }
+
+        boolean blocked = (m_dioFwdLimitSwitch != null && m_dioFwdLimitSwitch.blocks(direction))
+                | (m_dioRevLimitSwitch != null && m_dioRevLimitSwitch.blocks(-direction));
+
+        if (blocked) {
+            stopForLimit();
+        }
+
+        return blocked;
+    }
+
+    private boolean isLimitBlockedPosition(double nu) {
+        if (m_dioFwdLimitSwitch == null && m_dioRevLimitSwitch == null) {
+            return false;
+        }
+
+        m_limitPosition.refresh();
+        return isLimitBlocked(
+                BeakDIOLimitSwitch.positionDirection(nu - m_limitPosition.getValue(), getPositionConversionConstant()));
+    }
+
+    private void stopForLimit() {
+        super.setControl(m_neutralOut);
     }
 
     @Override
@@ -128,62 +185,88 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
 
     @Override
     public void setVelocityNU(double nu) {
-        ControlRequest request;
-        switch (m_nextOutput) {
+        setVelocityNU(nu, m_nextOutput, m_useFoc, m_arbFeedforward, m_slot);
+    }
+
+    @Override
+    public void setVelocityNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        if (isLimitBlocked(nu)) {
+            return;
+        }
+
+        // Control objects are reused to avoid allocating, so guard each one in case
+        // two threads command this motor at once.
+        switch (outputType) {
             case Voltage:
-                request = m_velocityVoltage
-                        .withFeedForward(m_arbFeedforward)
-                        .withSlot(m_slot)
-                        .withVelocity(nu)
-                        .withEnableFOC(m_useFoc);
+                synchronized (m_velocityVoltage) {
+                    super.setControl(m_velocityVoltage
+                            .withFeedForward(arbFeedforward)
+                            .withSlot(slot)
+                            .withVelocity(nu)
+                            .withEnableFOC(useFoc));
+                }
                 break;
             case Current:
-                request = m_velocityCurrent
-                        .withFeedForward(m_arbFeedforward)
-                        .withSlot(m_slot)
-                        .withVelocity(nu);
+                synchronized (m_velocityCurrent) {
+                    super.setControl(m_velocityCurrent
+                            .withFeedForward(arbFeedforward)
+                            .withSlot(slot)
+                            .withVelocity(nu));
+                }
                 break;
             case DutyCycle:
             default:
-                request = m_velocityOut
-                        .withFeedForward(m_arbFeedforward)
-                        .withSlot(m_slot)
-                        .withVelocity(nu)
-                        .withEnableFOC(m_useFoc);
+                synchronized (m_velocityOut) {
+                    super.setControl(m_velocityOut
+                            .withFeedForward(arbFeedforward)
+                            .withSlot(slot)
+                            .withVelocity(nu)
+                            .withEnableFOC(useFoc));
+                }
                 break;
         }
-
-        super.setControl(request);
     }
 
     @Override
     public void setPositionNU(double nu) {
-        ControlRequest request;
-        switch (m_nextOutput) {
+        setPositionNU(nu, m_nextOutput, m_useFoc, m_arbFeedforward, m_slot);
+    }
+
+    @Override
+    public void setPositionNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        if (isLimitBlockedPosition(nu)) {
+            return;
+        }
+
+        switch (outputType) {
             case Voltage:
-                request = m_positionVoltage
-                        .withFeedForward(m_arbFeedforward)
-                        .withSlot(m_slot)
-                        .withPosition(nu)
-                        .withEnableFOC(m_useFoc);
+                synchronized (m_positionVoltage) {
+                    super.setControl(m_positionVoltage
+                            .withFeedForward(arbFeedforward)
+                            .withSlot(slot)
+                            .withPosition(nu)
+                            .withEnableFOC(useFoc));
+                }
                 break;
             case Current:
-                request = m_positionCurrent
-                        .withFeedForward(m_arbFeedforward)
-                        .withSlot(m_slot)
-                        .withPosition(nu);
+                synchronized (m_positionCurrent) {
+                    super.setControl(m_positionCurrent
+                            .withFeedForward(arbFeedforward)
+                            .withSlot(slot)
+                            .withPosition(nu));
+                }
                 break;
             case DutyCycle:
             default:
-                request = m_positionOut
-                        .withFeedForward(m_arbFeedforward)
-                        .withSlot(m_slot)
-                        .withPosition(nu)
-                        .withEnableFOC(m_useFoc);
+                synchronized (m_positionOut) {
+                    super.setControl(m_positionOut
+                            .withFeedForward(arbFeedforward)
+                            .withSlot(slot)
+                            .withPosition(nu)
+                            .withEnableFOC(useFoc));
+                }
                 break;
         }
-
-        super.setControl(request);
     }
 
     @Override
@@ -193,32 +276,44 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
 
     @Override
     public void setMotionProfileNU(double nu) {
-        ControlRequest request;
-        switch (m_nextOutput) {
+        setMotionProfileNU(nu, m_nextOutput, m_useFoc, m_arbFeedforward, m_slot);
+    }
+
+    @Override
+    public void setMotionProfileNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        if (isLimitBlockedPosition(nu)) {
+            return;
+        }
+
+        switch (outputType) {
             case Voltage:
-                request = m_motionMagicVoltage
-                        .withFeedForward(m_arbFeedforward)
-                        .withSlot(m_slot)
-                        .withPosition(nu)
-                        .withEnableFOC(m_useFoc);
+                synchronized (m_motionMagicVoltage) {
+                    super.setControl(m_motionMagicVoltage
+                            .withFeedForward(arbFeedforward)
+                            .withSlot(slot)
+                            .withPosition(nu)
+                            .withEnableFOC(useFoc));
+                }
                 break;
             case Current:
-                request = m_motionMagicCurrent
-                        .withFeedForward(m_arbFeedforward)
-                        .withSlot(m_slot)
-                        .withPosition(nu);
+                synchronized (m_motionMagicCurrent) {
+                    super.setControl(m_motionMagicCurrent
+                            .withFeedForward(arbFeedforward)
+                            .withSlot(slot)
+                            .withPosition(nu));
+                }
                 break;
             case DutyCycle:
             default:
-                request = m_motionMagicOut
-                        .withFeedForward(m_arbFeedforward)
-                        .withSlot(m_slot)
-                        .withPosition(nu)
-                        .withEnableFOC(m_useFoc);
+                synchronized (m_motionMagicOut) {
+                    super.setControl(m_motionMagicOut
+                            .withFeedForward(arbFeedforward)
+                            .withSlot(slot)
+                            .withPosition(nu)
+                            .withEnableFOC(useFoc));
+                }
                 break;
         }
-
-        super.setControl(request);
     }
 
     @Override
@@ -237,6 +332,21 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
         return new DataSignal<Double>(super.getSupplyVoltage());
     }
 
+    @Override
+    public DataSignal<Double> getSuppliedCurrent() {
+        return new DataSignal<Double>(super.getSupplyCurrent());
+    }
+
+    @Override
+    public DataSignal<Double> getMotorCurrent() {
+        return new DataSignal<Double>(super.getStatorCurrent());
+    }
+
+    @Override
+    public DataSignal<Double> getDeviceTemperature() {
+        return new DataSignal<Double>(super.getDeviceTemp());
+    }
+
     @Override
     public void setPID(BeakPIDConstants constants) {
         // The v6 slot API is wacky
@@ -368,6 +478,12 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
         m_useFoc = useFoc;
     }
 
+    @Override
+    public boolean resendsCommands() {
+        // Phoenix 6 resends control requests at their UpdateFreqHz.
+        return true;
+    }
+
     @Override
     public void applyConfig(BeakClosedLoopConfigs config) {
         TalonFXConfiguration configs = new TalonFXConfiguration();
@@ -413,6 +529,21 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
         m_configurator.apply(configs);
     }
 
+    @Override
+    public void applyConfigNonBlocking(BeakCurrentLimitConfigs config) {
+        // Every field of the group is set here, so there's nothing to refresh,
+        // and a zero timeout sends the frame without waiting for the response.
+        m_runtimeCurrentLimits.StatorCurrentLimit = config.StatorCurrentLimit;
+        m_runtimeCurrentLimits.StatorCurrentLimitEnable = config.StatorCurrentLimit > 0.0;
+
+        m_runtimeCurrentLimits.SupplyCurrentLimit = config.SupplyCurrentLimit;
+        m_runtimeCurrentLimits.SupplyCurrentLimitEnable = config.SupplyCurrentLimit > 0.0;
+        m_runtimeCurrentLimits.SupplyCurrentThreshold = config.SupplyCurrentThreshold;
+        m_runtimeCurrentLimits.SupplyTimeThreshold = config.SupplyTimeThreshold;
+
+        m_configurator.apply(m_runtimeCurrentLimits, 0.0);
+    }
+
     @Override
     public void applyConfig(BeakDutyCycleConfigs config) {
         TalonFXConfiguration configs = new TalonFXConfiguration();
@@ -448,8 +579,12 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
                     m_dioFwdLimitSwitch.close();
                 }
 
-                m_dioFwdLimitSwitch = new DigitalInput(config.ForwardLimitSwitchID);
+                m_dioFwdLimitSwitch = new BeakDIOLimitSwitch(config.ForwardLimitSwitchID,
+                        config.ForwardNormallyClosed, this::stopForLimit);
                 m_forwardSource = BeakLimitSwitchSource.DIO;
+
+                // The DIO switch is handled here, not by the Talon.
+                configs.ForwardLimitEnable = false;
                 break;
             default:
                 m_forwardSource = BeakLimitSwitchSource.None;
@@ -470,13 +605,21 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
                     m_dioRevLimitSwitch.close();
                 }
 
-                m_dioRevLimitSwitch = new DigitalInput(config.ReverseLimitSwitchID);
+                m_dioRevLimitSwitch = new BeakDIOLimitSwitch(config.ReverseLimitSwitchID,
+                        config.ReverseNormallyClosed, this::stopForLimit);
                 m_reverseSource = BeakLimitSwitchSource.DIO;
+
+                configs.ReverseLimitEnable = false;
                 break;
             default:
                 m_reverseSource = BeakLimitSwitchSource.None;
         }
 
+        if (m_limitPosition == null
+                && (m_forwardSource == BeakLimitSwitchSource.DIO || m_reverseSource == BeakLimitSwitchSource.DIO)) {
+            m_limitPosition = getPositionNU(false);
+        }
+
         m_configurator.apply(configs);
     }
 
@@ -510,14 +653,14 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
     public boolean getForwardLimitSwitch() {
         return m_forwardSource == BeakLimitSwitchSource.Connected
                 ? super.getForwardLimit().getValue() == ForwardLimitValue.ClosedToGround
-                : m_dioFwdLimitSwitch.get();
+                : m_dioFwdLimitSwitch.isPressed();
     }
 
     @Override
     public boolean getReverseLimitSwitch() {
         return m_reverseSource == BeakLimitSwitchSource.Connected
                 ? super.getReverseLimit().getValue() == ReverseLimitValue.ClosedToGround
-                : m_dioRevLimitSwitch.get();
+                : m_dioRevLimitSwitch.isPressed();
     }
 
     @Override
@@ -531,8 +674,13 @@ public class BeakTalonFX extends TalonFX implements BeakMotorController {
 
     @Override
     public void setCurrent(double amps) {
-        super.setControl(
-                m_currentOut.withOutput(amps));
+        if (isLimitBlocked(amps)) {
+            return;
+        }
+
+        synchronized (m_currentOut) {
+            super.setControl(m_currentOut.withOutput(amps));
+        }
     }
 
     @Override
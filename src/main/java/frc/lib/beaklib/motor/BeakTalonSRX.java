@@ -21,7 +21,6 @@ import com.ctre.phoenix.motorcontrol.can.SlotConfiguration;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
 import edu.wpi.first.units.Distance;
 import edu.wpi.first.units.Measure;
-import edu.wpi.first.wpilibj.DigitalInput;
 import frc.lib.beaklib.motor.configs.BeakClosedLoopConfigs;
 import frc.lib.beaklib.motor.configs.BeakCurrentConfigs;
 import frc.lib.beaklib.motor.configs.BeakCurrentLimitConfigs;
@@ -36,6 +35,10 @@ import frc.lib.beaklib.pid.BeakPIDConstants;
 
 /** Common motor controller interface for Talon SRX. */
 public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
+    // Default status frame periods, used to estimate how old a reading is.
+    private static final double STATUS_2_PERIOD = 0.020;
+    private static final double STATUS_4_PERIOD = 0.160;
+
     private double m_velocityConversionConstant = 4096. / 600.;
     private double m_positionConversionConstant = 4096.;
     private double m_gearRatio = 1.;
@@ -43,10 +46,16 @@ public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
 
     private int m_slot = 0;
     private double m_arbFeedforward = 0.;
-    private double m_nominalVoltage;
+    private double m_nominalVoltage = 12.;
+    private OutputType m_nextOutput = OutputType.DutyCycle;
+    /** Null until compensation is first set by this class. */
+    private Boolean m_voltageCompensated = null;
+    private int m_selectedSlot = 0;
+    /** Guards the output type and slot, and the command sent with them. */
+    private final Object m_commandLock = new Object();
 
-    private DigitalInput m_dioRevLimitSwitch = null;
-    private DigitalInput m_dioFwdLimitSwitch = null;
+    private BeakDIOLimitSwitch m_dioRevLimitSwitch = null;
+    private BeakDIOLimitSwitch m_dioFwdLimitSwitch = null;
 
     private BeakLimitSwitchSource m_forwardSource = BeakLimitSwitchSource.None;
     private BeakLimitSwitchSource m_reverseSource = BeakLimitSwitchSource.None;
@@ -56,8 +65,21 @@ public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
     }
 
     public void setSlot(int slot) {
-        super.selectProfileSlot(slot, 0);
-        m_slot = slot;
+        synchronized (m_commandLock) {
+            selectSlot(slot);
+            m_slot = slot;
+        }
+    }
+
+    /**
+     * Select a PID slot, only sending it when it actually changes. Call with
+     * the command lock held.
+     */
+    private void selectSlot(int slot) {
+        if (slot != m_selectedSlot) {
+            super.selectProfileSlot(slot, 0);
+            m_selectedSlot = slot;
+        }
     }
 
     @Override
@@ -67,12 +89,39 @@ public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
 
     @Override
     public void setVelocityNU(double nu) {
-        super.set(ControlMode.Velocity, nu, DemandType.ArbitraryFeedForward, m_arbFeedforward / 12.);
+        setVelocityNU(nu, m_nextOutput, false, m_arbFeedforward, m_slot);
+    }
+
+    @Override
+    public void setVelocityNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        if (isLimitBlocked(nu)) {
+            return;
+        }
+
+        synchronized (m_commandLock) {
+            applyOutputType(outputType);
+            selectSlot(slot);
+            super.set(ControlMode.Velocity, nu, DemandType.ArbitraryFeedForward, arbFeedforward / 12.);
+        }
     }
 
     @Override
     public void setPositionNU(double nu) {
-        super.set(ControlMode.Position, nu, DemandType.ArbitraryFeedForward, m_arbFeedforward / 12.);
+        setPositionNU(nu, m_nextOutput, false, m_arbFeedforward, m_slot);
+    }
+
+    @Override
+    public void setPositionNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        if (hasDIOLimitSwitch() && isLimitBlocked(
+                BeakDIOLimitSwitch.positionDirection(nu - super.getSelectedSensorPosition(), getPositionConversionConstant()))) {
+            return;
+        }
+
+        synchronized (m_commandLock) {
+            applyOutputType(outputType);
+            selectSlot(slot);
+            super.set(ControlMode.Position, nu, DemandType.ArbitraryFeedForward, arbFeedforward / 12.);
+        }
     }
 
     @Override
@@ -82,27 +131,44 @@ public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
 
     @Override
     public void setMotionProfileNU(double nu) {
-        super.set(ControlMode.MotionMagic, nu, DemandType.ArbitraryFeedForward, m_arbFeedforward / 12.);
+        setMotionProfileNU(nu, m_nextOutput, false, m_arbFeedforward, m_slot);
+    }
+
+    @Override
+    public void setMotionProfileNU(double nu, OutputType outputType, boolean useFoc, double arbFeedforward, int slot) {
+        if (hasDIOLimitSwitch() && isLimitBlocked(
+                BeakDIOLimitSwitch.positionDirection(nu - super.getSelectedSensorPosition(), getPositionConversionConstant()))) {
+            return;
+        }
+
+        synchronized (m_commandLock) {
+            applyOutputType(outputType);
+            selectSlot(slot);
+            super.set(ControlMode.MotionMagic, nu, DemandType.ArbitraryFeedForward, arbFeedforward / 12.);
+        }
     }
 
     @Override
     public DataSignal<Double> getVelocityNU() {
-        return new DataSignal<Double>(
+        return DataSignal.fromPeriodicFrame(
                 super::getSelectedSensorVelocity,
+                STATUS_2_PERIOD,
                 (frequency) -> super.setStatusFramePeriod(StatusFrame.Status_2_Feedback0, (int) (1000 / frequency)));
     }
 
     @Override
     public DataSignal<Double> getPositionNU(boolean latencyCompensated) {
-        return new DataSignal<Double>(
+        return DataSignal.fromPeriodicFrame(
                 super::getSelectedSensorPosition,
+                STATUS_2_PERIOD,
                 (frequency) -> super.setStatusFramePeriod(StatusFrame.Status_2_Feedback0, (int) (1000 / frequency)));
     }
 
     @Override
     public DataSignal<Double> getOutputVoltage() {
-        return new DataSignal<Double>(
+        return DataSignal.fromPeriodicFrame(
                 super::getMotorOutputVoltage,
+                STATUS_4_PERIOD,
                 (frequency) -> super.setStatusFramePeriod(StatusFrame.Status_4_AinTempVbat, (int) (1000 / frequency)));
     }
 
@@ -117,11 +183,66 @@ public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
         return super.getTalonSRXSimCollection();
     }
 
+    @Override
+    public void setVoltage(double volts, boolean useFoc) {
+        if (isLimitBlocked(volts)) {
+            return;
+        }
+
+        synchronized (m_commandLock) {
+            applyOutputType(OutputType.Voltage);
+            super.set(ControlMode.PercentOutput, volts / m_nominalVoltage);
+        }
+    }
+
+    @Override
+    public void setDutyCycle(double output, boolean useFoc) {
+        if (isLimitBlocked(output)) {
+            return;
+        }
+
+        synchronized (m_commandLock) {
+            applyOutputType(OutputType.DutyCycle);
+            super.set(ControlMode.PercentOutput, output);
+        }
+    }
+
     @Override
     public void set(double percentOutput) {
+        if (isLimitBlocked(percentOutput)) {
+            return;
+        }
+
         super.set(ControlMode.PercentOutput, percentOutput, DemandType.ArbitraryFeedForward, m_arbFeedforward / 12.);
     }
 
+    /**
+     * Check a command against the DIO limit switches, neutralizing the motor if
+     * it is blocked.
+     */
+    private boolean isLimitBlocked(double direction) {
+        if (!hasDIOLimitSwitch()) {
+            return false;
+        }
+
+        boolean blocked = (m_dioFwdLimitSwitch != null && m_dioFwdLimitSwitch.blocks(direction))
+                | (m_dioRevLimitSwitch != null && m_dioRevLimitSwitch.blocks(-direction));
+
+        if (blocked) {
+            stopForLimit();
+        }
+
+        return blocked;
+    }
+
+    private boolean hasDIOLimitSwitch() {
+        return m_dioFwdLimitSwitch != null || m_dioRevLimitSwitch != null;
+    }
+
+    private void stopForLimit() {
+        super.neutralOutput();
+    }
+
     @Override
     public void setPID(BeakPIDConstants constants) {
         super.config_kP(m_slot, constants.kP);
@@ -132,8 +253,33 @@ public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
 
     @Override
     public DataSignal<Double> getSuppliedVoltage() {
-        return new DataSignal<Double>(
+        return DataSignal.fromPeriodicFrame(
                 super::getBusVoltage,
+                STATUS_4_PERIOD,
+                (frequency) -> super.setStatusFramePeriod(StatusFrame.Status_4_AinTempVbat, (int) (1000 / frequency)));
+    }
+
+    @Override
+    public DataSignal<Double> getSuppliedCurrent() {
+        return DataSignal.fromPeriodicFrame(
+                super::getSupplyCurrent,
+                STATUS_2_PERIOD,
+                (frequency) -> super.setStatusFramePeriod(StatusFrame.Status_2_Feedback0, (int) (1000 / frequency)));
+    }
+
+    @Override
+    public DataSignal<Double> getMotorCurrent() {
+        return DataSignal.fromPeriodicFrame(
+                super::getStatorCurrent,
+                STATUS_2_PERIOD,
+                (frequency) -> super.setStatusFramePeriod(StatusFrame.Status_2_Feedback0, (int) (1000 / frequency)));
+    }
+
+    @Override
+    public DataSignal<Double> getDeviceTemperature() {
+        return DataSignal.fromPeriodicFrame(
+                super::getTemperature,
+                STATUS_4_PERIOD,
                 (frequency) -> super.setStatusFramePeriod(StatusFrame.Status_4_AinTempVbat, (int) (1000 / frequency)));
     }
 
@@ -190,13 +336,13 @@ public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
     @Override
     public boolean getForwardLimitSwitch() {
         return m_forwardSource == BeakLimitSwitchSource.Connected ? super.isFwdLimitSwitchClosed() == 1
-                : m_dioFwdLimitSwitch.get();
+                : m_dioFwdLimitSwitch.isPressed();
     }
 
     @Override
     public boolean getReverseLimitSwitch() {
         return m_reverseSource == BeakLimitSwitchSource.Connected ? super.isRevLimitSwitchClosed() == 1
-                : m_dioRevLimitSwitch.get();
+                : m_dioRevLimitSwitch.isPressed();
     }
 
     @Override
@@ -246,7 +392,8 @@ public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
                     m_dioFwdLimitSwitch.close();
                 }
 
-                m_dioFwdLimitSwitch = new DigitalInput(config.ForwardLimitSwitchID);
+                m_dioFwdLimitSwitch = new BeakDIOLimitSwitch(config.ForwardLimitSwitchID,
+                        config.ForwardNormallyClosed, this::stopForLimit);
                 m_forwardSource = BeakLimitSwitchSource.DIO;
                 break;
             case Connected:
@@ -266,7 +413,8 @@ public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
                     m_dioRevLimitSwitch.close();
                 }
 
-                m_dioRevLimitSwitch = new DigitalInput(config.ReverseLimitSwitchID);
+                m_dioRevLimitSwitch = new BeakDIOLimitSwitch(config.ReverseLimitSwitchID,
+                        config.ReverseNormallyClosed, this::stopForLimit);
                 m_reverseSource = BeakLimitSwitchSource.DIO;
                 break;
             case Connected:
@@ -298,17 +446,41 @@ public class BeakTalonSRX extends WPI_TalonSRX implements BeakMotorController {
 
     @Override
     public void setNextOutputType(OutputType outputType) {
-        super.enableVoltageCompensation(outputType == OutputType.Voltage);
+        synchronized (m_commandLock) {
+            m_nextOutput = outputType;
+            applyOutputType(outputType);
+        }
+    }
+
+    /**
+     * Switch voltage compensation to match an output type, only sending it when
+     * compensation actually changes. Call with the command lock held, so the
+     * mode can't change before the command that needs it is sent.
+     */
+    private void applyOutputType(OutputType outputType) {
+        boolean compensate = outputType == OutputType.Voltage;
+        if (m_voltageCompensated != null && m_voltageCompensated == compensate) {
+            return;
+        }
+
+        m_voltageCompensated = compensate;
+        super.enableVoltageCompensation(compensate);
     }
 
     @Override
     public void setNominalVoltage(double volts) {
-        m_nominalVoltage = volts;
-        super.configVoltageCompSaturation(m_nominalVoltage);
+        synchronized (m_commandLock) {
+            m_nominalVoltage = volts;
+            super.configVoltageCompSaturation(m_nominalVoltage);
+        }
     }
 
     @Override
     public void setCurrent(double amps) {
+        if (isLimitBlocked(amps)) {
+            return;
+        }
+
         super.set(ControlMode.Current, amps);
     }
 
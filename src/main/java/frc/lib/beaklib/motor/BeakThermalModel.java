@@ -0,0 +1,299 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.beaklib.motor.configs.BeakCurrentLimitConfigs;
+
+/**
+ * <p>
+ * Lumped thermal model of a single motor.
+ * </p>
+ *
+ * <p>
+ * The motor is treated as one thermal mass heated by I²R losses in the windings
+ * and cooled through a single thermal resistance to ambient:
+ * <code>C dT/dt = I²R - (T - T_ambient) / R_th</code>. The model is integrated
+ * every update and pulled toward the controller's reported temperature, which
+ * lags the windings but doesn't drift.
+ * </p>
+ *
+ * From the model, the time until the thermal limit is reached at the present
+ * current is predicted, and a smooth derating factor is computed that tapers
+ * current limits well before the controller cuts out on its own.
+ */
+public class BeakThermalModel {
+    private final DataSignal<Double> m_current;
+    private final DataSignal<Double> m_temperature;
+
+    private final double m_windingResistance;
+
+    private double m_thermalResistance = 0.6;
+    private double m_thermalCapacitance = 300.0;
+    private double m_ambientTemperature = 25.0;
+    private double m_measurementTimeConstant = 1.0;
+
+    private double m_limitTemperature = 100.0;
+    private double m_derateStartTemperature = 70.0;
+    private double m_predictionHorizon = 10.0;
+    private double m_minScale = 0.25;
+
+    private double m_estimatedTemperature;
+    private double m_filteredCurrent = 0.;
+    private double m_timeToLimit = Double.POSITIVE_INFINITY;
+    private double m_scale = 1.;
+    private double m_lastUpdate = -1.;
+
+    private BeakCurrentLimitConfigs m_limits = null;
+    private double m_appliedLimit = -1.;
+    private double m_hysteresis = 2.0;
+
+    /**
+     * Create a new thermal model.
+     *
+     * @param motorCurrent      Signal of the motor (stator) current, in amps.
+     * @param temperature       Signal of the reported temperature, in degrees
+     *                          Celsius.
+     * @param windingResistance Resistance of the motor windings, in ohms.
+     */
+    public BeakThermalModel(DataSignal<Double> motorCurrent, DataSignal<Double> temperature,
+            double windingResistance) {
+        m_current = motorCurrent;
+        m_temperature = temperature;
+        m_windingResistance = windingResistance;
+
+        m_estimatedTemperature = m_ambientTemperature;
+    }
+
+    /**
+     * Create a new thermal model for a motor controller.
+     *
+     * @param controller The controller driving the motor.
+     * @param motor      The motor's model. Only the winding resistance is used.
+     */
+    public BeakThermalModel(BeakMotorController controller, DCMotor motor) {
+        this(controller.getMotorCurrent(), controller.getDeviceTemperature(), motor.rOhms);
+    }
+
+    /**
+     * Step the model. Call this once per loop.
+     */
+    public void update() {
+        m_current.refresh();
+        m_temperature.refresh();
+
+        double now = Timer.getFPGATimestamp();
+        double measured = m_temperature.getValue();
+
+        if (m_lastUpdate < 0.) {
+            // Start from whatever the controller says.
+            m_estimatedTemperature = Math.max(measured, m_ambientTemperature);
+            m_lastUpdate = now;
+            return;
+        }
+
+        double dt = now - m_lastUpdate;
+        m_lastUpdate = now;
+
+        double current = m_current.getValue();
+        double heat = current * current * m_windingResistance;
+        double cooling = (m_estimatedTemperature - m_ambientTemperature) / m_thermalResistance;
+
+        m_estimatedTemperature += dt * (heat - cooling) / m_thermalCapacitance;
+
+        // Pull toward the measurement by a gain from the elapsed time, so the
+        // model behaves the same at any loop rate.
+        double measurementGain = 1. - Math.exp(-dt / m_measurementTimeConstant);
+        m_estimatedTemperature += measurementGain * (measured - m_estimatedTemperature);
+
+        // Predict off a smoothed current so one spike doesn't slam the limits.
+        double tau = m_thermalResistance * m_thermalCapacitance;
+        m_filteredCurrent += (1. - Math.exp(-dt / 1.0)) * (Math.abs(current) - m_filteredCurrent);
+
+        double steadyState = m_ambientTemperature
+                + m_filteredCurrent * m_filteredCurrent * m_windingResistance * m_thermalResistance;
+
+        if (m_estimatedTemperature >= m_limitTemperature) {
+            m_timeToLimit = 0.;
+        } else if (steadyState <= m_limitTemperature) {
+            m_timeToLimit = Double.POSITIVE_INFINITY;
+        } else {
+            m_timeToLimit = tau * Math.log((steadyState - m_estimatedTemperature)
+                    / (steadyState - m_limitTemperature));
+        }
+
+        // Two tapers: one on how hot we are, one on how soon we'll be too hot.
+        // Each is a smoothstep so the limit never jumps.
+        double temperatureScale = 1. - smoothstep(
+                (m_estimatedTemperature - m_derateStartTemperature)
+                        / (m_limitTemperature - m_derateStartTemperature));
+        double predictionScale = smoothstep(m_timeToLimit / m_predictionHorizon);
+
+        m_scale = MathUtil.clamp(Math.min(temperatureScale, predictionScale), m_minScale, 1.);
+    }
+
+    private static double smoothstep(double x) {
+        x = MathUtil.clamp(x, 0., 1.);
+        return x * x * (3. - 2. * x);
+    }
+
+    /**
+     * Write derated limits straight to a controller. Only use this for motors
+     * that aren't registered with a {@link BeakCurrentBudget}; the budget applies
+     * the derating itself.
+     *
+     * @param controller The controller to limit.
+     * @param baseLimits The controller's limits at full health.
+     */
+    public void applyDerating(BeakMotorController controller, BeakCurrentLimitConfigs baseLimits) {
+        if (baseLimits.SupplyCurrentLimit <= 0. && baseLimits.StatorCurrentLimit <= 0.) {
+            return;
+        }
+
+        if (m_limits == null) {
+            m_limits = new BeakCurrentLimitConfigs()
+                    .withSupplyCurrentThreshold(baseLimits.SupplyCurrentThreshold)
+                    .withSupplyTimeThreshold(baseLimits.SupplyTimeThreshold);
+        }
+
+        double limit = getDeratedLimit(
+                baseLimits.SupplyCurrentLimit > 0. ? baseLimits.SupplyCurrentLimit : baseLimits.StatorCurrentLimit);
+
+        if (Math.abs(limit - m_appliedLimit) > m_hysteresis || (m_scale == 1. && m_appliedLimit != limit)) {
+            controller.applyConfigNonBlocking(m_limits
+                    .withSupplyCurrentLimit(baseLimits.SupplyCurrentLimit * m_scale)
+                    .withStatorCurrentLimit(baseLimits.StatorCurrentLimit * m_scale));
+            m_appliedLimit = limit;
+        }
+    }
+
+    /**
+     * Publish this model's predictions.
+     *
+     * @param name Name to publish under, e.g. "FL Drive".
+     */
+    public void publish(String name) {
+        SmartDashboard.putNumber("Thermal/" + name + "/Temperature", m_estimatedTemperature);
+        SmartDashboard.putNumber("Thermal/" + name + "/Time To Limit", Math.min(m_timeToLimit, 999.));
+        SmartDashboard.putNumber("Thermal/" + name + "/Derate", m_scale);
+    }
+
+    /**
+     * Scale a current limit by the present derating factor.
+     *
+     * @param limit Limit at full health, in amps.
+     * @return Derated limit, in amps.
+     */
+    public double getDeratedLimit(double limit) {
+        return limit * m_scale;
+    }
+
+    /**
+     * Get the present derating factor.
+     *
+     * @return Factor between the minimum scale and 1.
+     */
+    public double getDerateScale() {
+        return m_scale;
+    }
+
+    /**
+     * Get the modeled winding temperature.
+     *
+     * @return Temperature, in degrees Celsius.
+     */
+    public double getEstimatedTemperature() {
+        return m_estimatedTemperature;
+    }
+
+    /**
+     * Get the predicted time until the limit temperature is reached at the
+     * present current.
+     *
+     * @return Time, in seconds. Infinite if the motor will never get there.
+     */
+    public double getTimeToLimit() {
+        return m_timeToLimit;
+    }
+
+    /**
+     * Method-chaining API for this model.
+     *
+     * @param thermalResistance Thermal resistance from windings to ambient, in
+     *                          degrees Celsius per watt.
+     * @param thermalCapacitance Thermal capacitance of the motor, in joules per
+     *                           degree Celsius.
+     * @return Itself, with these parameters changed.
+     */
+    public BeakThermalModel withThermalParameters(double thermalResistance, double thermalCapacitance) {
+        m_thermalResistance = thermalResistance;
+        m_thermalCapacitance = thermalCapacitance;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this model.
+     *
+     * @param derateStart Temperature to start tapering limits at, in degrees
+     *                    Celsius.
+     * @param limit       Temperature at which the hardware cuts out, in degrees
+     *                    Celsius.
+     * @return Itself, with these parameters changed.
+     */
+    public BeakThermalModel withTemperatureLimits(double derateStart, double limit) {
+        m_derateStartTemperature = derateStart;
+        m_limitTemperature = limit;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this model.
+     *
+     * @param horizon Start tapering when the limit is predicted to be reached
+     *                sooner than this, in seconds.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakThermalModel withPredictionHorizon(double horizon) {
+        m_predictionHorizon = horizon;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this model.
+     *
+     * @param minScale The lowest fraction of the base limit to derate to.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakThermalModel withMinScale(double minScale) {
+        m_minScale = minScale;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this model.
+     *
+     * @param timeConstant How quickly the model follows the controller's
+     *                     reported temperature, in seconds.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakThermalModel withMeasurementTimeConstant(double timeConstant) {
+        m_measurementTimeConstant = timeConstant;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this model.
+     *
+     * @param ambientTemperature Ambient temperature, in degrees Celsius.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakThermalModel withAmbientTemperature(double ambientTemperature) {
+        m_ambientTemperature = ambientTemperature;
+        return this;
+    }
+}
@@ -4,27 +4,53 @@
 
 package frc.lib.beaklib.motor;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.Utils;
 
 import edu.wpi.first.wpilibj.Timer;
 import frc.lib.beaklib.CTRESignalStore;
 
-/** Specifies methods to grab a value and its timestamp. */
+/**
+ * <p>
+ * Specifies methods to grab a value and its timestamp.
+ * </p>
+ * 
+ * Timestamps are always on the FPGA clock, so that signals from different
+ * vendors can be compared and stored in the same history buffers.
+ */
 public class DataSignal<T> {
+    /** How long sample futures wait before timing out, by default. */
+    public static final double DEFAULT_SAMPLE_TIMEOUT = 0.1;
+
+    private static final double PHOENIX_OFFSET_TOLERANCE = 0.001;
+    private static volatile double m_phoenixClockOffset = Double.NaN;
+
     private final Supplier<T> m_value;
-    private final Supplier<Double> m_timestamp;
+    // Primitive, so Phoenix and derived signals can be timed without boxing.
+    private final DoubleSupplier m_timestamp;
+    private final LongSupplier m_sampleId;
     private final Runnable m_refresh;
     private final Consumer<Double> m_setUpdateFrequency;
+    private final BaseStatusSignal[] m_phoenixSignals;
 
     public DataSignal(Supplier<T> value, Consumer<Double> setUpdateFrequency) {
         this.m_value = value;
         this.m_setUpdateFrequency = setUpdateFrequency;
 
         this.m_refresh = () -> {};
-        this.m_timestamp = () -> Timer.getFPGATimestamp();
+        this.m_timestamp = Timer::getFPGATimestamp;
+        this.m_sampleId = () -> Double.doubleToLongBits(m_timestamp.getAsDouble());
+        this.m_phoenixSignals = new BaseStatusSignal[0];
     }
 
     public DataSignal(Supplier<T> value) {
@@ -33,19 +59,115 @@ public class DataSignal<T> {
 
     public DataSignal(Supplier<T> value, Supplier<Double> timestamp, Runnable refresh,
             Consumer<Double> setUpdateFrequency) {
+        this(value, timestamp, refresh, setUpdateFrequency, new BaseStatusSignal[0]);
+    }
+
+    /**
+     * Create a signal computed from one or more Phoenix 6 signals.
+     * 
+     * @param phoenixSignals Every Phoenix signal the value is computed from, so
+     *                       that they can be waited on together.
+     */
+    public DataSignal(Supplier<T> value, Supplier<Double> timestamp, Runnable refresh,
+            Consumer<Double> setUpdateFrequency, BaseStatusSignal... phoenixSignals) {
+        this(value, timestamp, () -> Double.doubleToLongBits(timestamp.get()), refresh, setUpdateFrequency,
+                phoenixSignals);
+    }
+
+    /**
+     * Create a signal whose timestamp may change without a new sample arriving,
+     * e.g. an estimated one.
+     * 
+     * @param sampleId       Supplier of a value that changes exactly when a new
+     *                       sample arrives. See {@link #getSampleId()}.
+     * @param phoenixSignals Every Phoenix signal the value is computed from, so
+     *                       that they can be waited on together.
+     */
+    public DataSignal(Supplier<T> value, Supplier<Double> timestamp, LongSupplier sampleId, Runnable refresh,
+            Consumer<Double> setUpdateFrequency, BaseStatusSignal... phoenixSignals) {
         this.m_value = value;
-        this.m_timestamp = timestamp;
+        this.m_timestamp = timestamp::get;
+        this.m_sampleId = sampleId;
         this.m_refresh = refresh;
         this.m_setUpdateFrequency = setUpdateFrequency;
+        this.m_phoenixSignals = phoenixSignals;
+    }
+
+    /**
+     * Create a signal whose value is derived from another signal, e.g. a unit
+     * conversion. The timestamp, refresh, and update frequency all come from the
+     * source signal.
+     * 
+     * @param value  Supplier of the derived value.
+     * @param source The signal the value is derived from.
+     */
+    public DataSignal(Supplier<T> value, DataSignal<?> source) {
+        m_value = value;
+        m_timestamp = source::getTimestamp;
+        m_sampleId = source::getSampleId;
+        m_refresh = source::refresh;
+        m_setUpdateFrequency = source::setUpdateFrequency;
+        m_phoenixSignals = source.getPhoenixSignals();
     }
 
     public DataSignal(StatusSignal<T> phoenixSignal) {
         CTRESignalStore.add(phoenixSignal);
 
         m_value = phoenixSignal::getValue;
-        m_timestamp = () -> phoenixSignal.getTimestamp().getTime();
+        m_timestamp = () -> toFPGATime(phoenixSignal);
+        // The raw timestamp, so that the clock offset can't make one sample look
+        // like two.
+        m_sampleId = () -> Double.doubleToLongBits(phoenixSignal.getTimestamp().getTime());
         m_refresh = phoenixSignal::refresh;
         m_setUpdateFrequency = phoenixSignal::setUpdateFrequency;
+        m_phoenixSignals = new BaseStatusSignal[] { phoenixSignal };
+    }
+
+    /**
+     * Create a signal read from a periodic status frame that carries no
+     * timestamp of its own. The sample time is estimated from how long ago the
+     * frame last changed, bounded by the frame period.
+     * 
+     * @param value              Supplier of the latest value from the frame.
+     * @param framePeriodSeconds The status frame period.
+     * @param setUpdateFrequency Sets the status frame rate.
+     * @return A new signal.
+     */
+    public static <T> DataSignal<T> fromPeriodicFrame(Supplier<T> value, double framePeriodSeconds,
+            Consumer<Double> setUpdateFrequency) {
+        BeakFrameAgeEstimator estimator = new BeakFrameAgeEstimator(framePeriodSeconds);
+
+        // The estimated sample time moves as the frame ages, so it can't tell
+        // one frame from the next.
+        return new DataSignal<T>(
+                value,
+                () -> estimator.getSampleTime(value.get()),
+                () -> estimator.getFrameCount(value.get()),
+                () -> {},
+                (frequency) -> {
+                    estimator.setFramePeriod(1. / frequency);
+                    setUpdateFrequency.accept(frequency);
+                });
+    }
+
+    /**
+     * Get the FPGA time a Phoenix 6 signal was sampled at. Phoenix timestamps
+     * are on their own clock, so they are shifted by the offset between the
+     * two clocks.
+     * 
+     * @param signal The Phoenix signal.
+     * @return The signal's sample time, on the FPGA clock, in seconds.
+     */
+    public static double toFPGATime(BaseStatusSignal signal) {
+        // Measuring the offset picks up a little jitter every time. Only move it
+        // when the clocks have really drifted, so that the same sample always
+        // converts to the same time.
+        double offset = Timer.getFPGATimestamp() - Utils.getCurrentTimeSeconds();
+        if (Double.isNaN(m_phoenixClockOffset) || Math.abs(offset - m_phoenixClockOffset) > PHOENIX_OFFSET_TOLERANCE) {
+            m_phoenixClockOffset = offset;
+        }
+
+        return signal.getTimestamp().getTime() + m_phoenixClockOffset;
     }
 
     public T getValue() {
@@ -53,7 +175,23 @@ public class DataSignal<T> {
     }
 
     public double getTimestamp() {
-        return m_timestamp.get();
+        return m_timestamp.getAsDouble();
+    }
+
+    /**
+     * <p>
+     * Get an identifier for the latest sample, which changes exactly when a new
+     * sample arrives. Use this rather than the timestamp to tell whether a
+     * sample is new: estimated timestamps move as the sample ages.
+     * </p>
+     * 
+     * For frames without timestamps, a frame that repeats the last value can't
+     * be told apart from no frame at all, so it doesn't count as new.
+     * 
+     * @return The sample identifier. Only compare it for equality.
+     */
+    public long getSampleId() {
+        return m_sampleId.getAsLong();
     }
 
     public void refresh() {
@@ -63,4 +201,85 @@ public class DataSignal<T> {
     public void setUpdateFrequency(double frequencyHz) {
         m_setUpdateFrequency.accept(frequencyHz);
     }
+
+    /**
+     * Create a signal derived from this one, e.g. to convert units.
+     * 
+     * @param mapper Function from this signal's value to the new value.
+     * @return A signal with the same timestamp and refresh behavior as this one.
+     */
+    public <R> DataSignal<R> map(Function<T, R> mapper) {
+        return new DataSignal<R>(() -> mapper.apply(getValue()), this);
+    }
+
+    /**
+     * Get the first sample of this signal taken after this call. A frame that
+     * already arrived but hasn't been refreshed yet doesn't count.
+     * 
+     * @return A future that completes with the new value, or exceptionally with a
+     *         {@link TimeoutException} after {@link #DEFAULT_SAMPLE_TIMEOUT}.
+     */
+    public CompletableFuture<T> nextSample() {
+        // Timestamps are on the FPGA clock, so "now" is the bar to clear. The
+        // cached timestamp isn't: it may be older than frames already received.
+        return awaitNewerThan(Timer.getFPGATimestamp());
+    }
+
+    /**
+     * Get the first sample of this signal with a timestamp after the one given.
+     * 
+     * @param timestamp Timestamp the sample must be newer than, in this signal's
+     *                  time base.
+     * @return A future that completes with the new value, or exceptionally with a
+     *         {@link TimeoutException} after {@link #DEFAULT_SAMPLE_TIMEOUT}.
+     */
+    public CompletableFuture<T> awaitNewerThan(double timestamp) {
+        return awaitNewerThan(timestamp, DEFAULT_SAMPLE_TIMEOUT);
+    }
+
+    /**
+     * <p>
+     * Get the first sample of this signal with a timestamp after the one given.
+     * </p>
+     * 
+     * <p>
+     * The future is checked on every signal store refresh, on whichever thread
+     * did the refresh, so it never refreshes signals itself and never blocks.
+     * Don't join it from a thread that refreshes signals, e.g. the main loop; it
+     * can only time out there. Chain work onto it instead.
+     * </p>
+     * 
+     * @param timestamp      Timestamp the sample must be newer than, in this
+     *                       signal's time base.
+     * @param timeoutSeconds How long to wait before giving up.
+     * @return A future that completes with the new value, or exceptionally with a
+     *         {@link TimeoutException}.
+     */
+    public CompletableFuture<T> awaitNewerThan(double timestamp, double timeoutSeconds) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable listener = () -> {
+            if (getTimestamp() > timestamp) {
+                future.complete(getValue());
+            }
+        };
+
+        listener.run();
+        if (future.isDone()) {
+            return future;
+        }
+
+        CTRESignalStore.addRefreshListener(listener);
+        return future.orTimeout((long) (timeoutSeconds * 1e6), TimeUnit.MICROSECONDS)
+                .whenComplete((value, error) -> CTRESignalStore.removeRefreshListener(listener));
+    }
+
+    /**
+     * Get the Phoenix 6 signals this signal is read from.
+     * 
+     * @return The underlying Phoenix signals, or an empty array if this signal
+     *         doesn't come from a Phoenix 6 device.
+     */
+    public BaseStatusSignal[] getPhoenixSignals() {
+        return m_phoenixSignals;
+    }
 }
@@ -4,7 +4,13 @@
 
 package frc.lib.beaklib.motor.configs;
 
+import static edu.wpi.first.units.Units.RotationsPerSecond;
+import static edu.wpi.first.units.Units.Second;
+
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.units.Angle;
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Velocity;
 
 /** Software limit switch configurations. */
 public class BeakSoftLimitConfigs {
@@ -19,6 +25,20 @@ public class BeakSoftLimitConfigs {
      */
     public Rotation2d ReverseLimit = new Rotation2d();
 
+    /**
+     * The deceleration the mechanism can reliably achieve. Only used by
+     * {@link frc.lib.beaklib.motor.BeakSoftLimitedMotorController}, which starts
+     * braking once the stopping distance at this rate reaches the limit. Zero
+     * disables early braking.
+     */
+    public Measure<Velocity<Velocity<Angle>>> Deceleration = RotationsPerSecond.per(Second).zero();
+
+    /**
+     * How often, in seconds, software soft limits are checked. Only used by
+     * {@link frc.lib.beaklib.motor.BeakSoftLimitedMotorController}.
+     */
+    public double EnforcementPeriod = 0.005;
+
     public BeakSoftLimitConfigs() {
     }
 
@@ -43,4 +63,26 @@ public class BeakSoftLimitConfigs {
         this.ReverseLimit = limit;
         return this;
     }
+
+    /**
+     * Method-chaining API for this config.
+     * 
+     * @param deceleration Deceleration to brake at when approaching a limit.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakSoftLimitConfigs withDeceleration(Measure<Velocity<Velocity<Angle>>> deceleration) {
+        this.Deceleration = deceleration;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this config.
+     * 
+     * @param period How often to check software soft limits, in seconds.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakSoftLimitConfigs withEnforcementPeriod(double period) {
+        this.EnforcementPeriod = period;
+        return this;
+    }
 }
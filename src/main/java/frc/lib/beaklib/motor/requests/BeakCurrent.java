@@ -22,7 +22,7 @@ public class BeakCurrent extends BeakControlRequest {
     }
 
     public void apply(BeakMotorController controller) {
-        controller.useFOC(UseFOC);
+        // Current control is always FOC where it's supported.
         controller.setCurrent(Current);
     }
 
@@ -22,8 +22,7 @@ public class BeakDutyCycle extends BeakControlRequest {
     }
 
     public void apply(BeakMotorController controller) {
-        controller.useFOC(UseFOC);
-        controller.set(Output);
+        controller.setDutyCycle(Output, UseFOC);
     }
 
     /**
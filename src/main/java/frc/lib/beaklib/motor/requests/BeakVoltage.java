@@ -22,8 +22,7 @@ public class BeakVoltage extends BeakControlRequest {
     }
 
     public void apply(BeakMotorController controller) {
-        controller.useFOC(UseFOC);
-        controller.setVoltage(Voltage);
+        controller.setVoltage(Voltage, UseFOC);
     }
 
     /**
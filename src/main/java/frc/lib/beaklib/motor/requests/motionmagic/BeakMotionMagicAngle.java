@@ -25,13 +25,21 @@ public class BeakMotionMagicAngle extends BeakControlRequest {
      */
     public OutputType Output = OutputType.Voltage;
 
+    /**
+     * Arbitrary feedforward to add, in volts.
+     */
+    public double FeedForward = 0.0;
+
+    /**
+     * PID slot to use.
+     */
+    public int Slot = 0;
+
     public BeakMotionMagicAngle() {
     }
 
     public void apply(BeakMotorController controller) {
-        controller.setNextOutputType(Output);
-        controller.useFOC(UseFOC);
-        controller.setMotionProfileAngle(Angle);
+        controller.setMotionProfileAngle(Angle, Output, UseFOC, FeedForward, Slot);
     }
 
     /**
@@ -67,4 +75,25 @@ public class BeakMotionMagicAngle extends BeakControlRequest {
         return this;
     }
 
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param feedForward The arbitrary feedforward to add, in volts.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakMotionMagicAngle withFeedForward(double feedForward) {
+        this.FeedForward = feedForward;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param slot The PID slot to use.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakMotionMagicAngle withSlot(int slot) {
+        this.Slot = slot;
+        return this;
+    }
 }
@@ -28,13 +28,21 @@ public class BeakMotionMagicDistance extends BeakControlRequest {
      */
     public OutputType Output = OutputType.Voltage;
 
+    /**
+     * Arbitrary feedforward to add, in volts.
+     */
+    public double FeedForward = 0.0;
+
+    /**
+     * PID slot to use.
+     */
+    public int Slot = 0;
+
     public BeakMotionMagicDistance() {
     }
 
     public void apply(BeakMotorController controller) {
-        controller.setNextOutputType(Output);
-        controller.useFOC(UseFOC);
-        controller.setMotionProfile(Position);
+        controller.setMotionProfile(Position, Output, UseFOC, FeedForward, Slot);
     }
 
     /**
@@ -70,4 +78,25 @@ public class BeakMotionMagicDistance extends BeakControlRequest {
         return this;
     }
 
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param feedForward The arbitrary feedforward to add, in volts.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakMotionMagicDistance withFeedForward(double feedForward) {
+        this.FeedForward = feedForward;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param slot The PID slot to use.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakMotionMagicDistance withSlot(int slot) {
+        this.Slot = slot;
+        return this;
+    }
 }
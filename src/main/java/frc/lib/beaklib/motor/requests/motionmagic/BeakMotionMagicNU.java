@@ -24,13 +24,21 @@ public class BeakMotionMagicNU extends BeakControlRequest {
      */
     public OutputType Output = OutputType.Voltage;
 
+    /**
+     * Arbitrary feedforward to add, in volts.
+     */
+    public double FeedForward = 0.0;
+
+    /**
+     * PID slot to use.
+     */
+    public int Slot = 0;
+
     public BeakMotionMagicNU() {
     }
 
     public void apply(BeakMotorController controller) {
-        controller.setNextOutputType(Output);
-        controller.useFOC(UseFOC);
-        controller.setMotionProfileNU(Position);
+        controller.setMotionProfileNU(Position, Output, UseFOC, FeedForward, Slot);
     }
 
     /**
@@ -66,4 +74,25 @@ public class BeakMotionMagicNU extends BeakControlRequest {
         return this;
     }
 
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param feedForward The arbitrary feedforward to add, in volts.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakMotionMagicNU withFeedForward(double feedForward) {
+        this.FeedForward = feedForward;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param slot The PID slot to use.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakMotionMagicNU withSlot(int slot) {
+        this.Slot = slot;
+        return this;
+    }
 }
@@ -26,13 +26,21 @@ public class BeakPositionAngle extends BeakControlRequest {
      */
     public OutputType Output = OutputType.Voltage;
 
+    /**
+     * Arbitrary feedforward to add, in volts.
+     */
+    public double FeedForward = 0.0;
+
+    /**
+     * PID slot to use.
+     */
+    public int Slot = 0;
+
     public BeakPositionAngle() {
     }
 
     public void apply(BeakMotorController controller) {
-        controller.setNextOutputType(Output);
-        controller.useFOC(UseFOC);
-        controller.setAngle(Angle);
+        controller.setAngle(Angle, Output, UseFOC, FeedForward, Slot);
     }
 
     /**
@@ -68,4 +76,25 @@ public class BeakPositionAngle extends BeakControlRequest {
         return this;
     }
 
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param feedForward The arbitrary feedforward to add, in volts.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakPositionAngle withFeedForward(double feedForward) {
+        this.FeedForward = feedForward;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param slot The PID slot to use.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakPositionAngle withSlot(int slot) {
+        this.Slot = slot;
+        return this;
+    }
 }
@@ -28,13 +28,21 @@ public class BeakPositionDistance extends BeakControlRequest {
      */
     public OutputType Output = OutputType.Voltage;
 
+    /**
+     * Arbitrary feedforward to add, in volts.
+     */
+    public double FeedForward = 0.0;
+
+    /**
+     * PID slot to use.
+     */
+    public int Slot = 0;
+
     public BeakPositionDistance() {
     }
 
     public void apply(BeakMotorController controller) {
-        controller.setNextOutputType(Output);
-        controller.useFOC(UseFOC);
-        controller.setPosition(Position);
+        controller.setPosition(Position, Output, UseFOC, FeedForward, Slot);
     }
 
     /**
@@ -70,4 +78,25 @@ public class BeakPositionDistance extends BeakControlRequest {
         return this;
     }
 
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param feedForward The arbitrary feedforward to add, in volts.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakPositionDistance withFeedForward(double feedForward) {
+        this.FeedForward = feedForward;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param slot The PID slot to use.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakPositionDistance withSlot(int slot) {
+        this.Slot = slot;
+        return this;
+    }
 }
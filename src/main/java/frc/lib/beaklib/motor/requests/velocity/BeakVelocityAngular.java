@@ -29,13 +29,21 @@ public class BeakVelocityAngular extends BeakControlRequest {
      */
     public OutputType Output = OutputType.Voltage;
 
+    /**
+     * Arbitrary feedforward to add, in volts.
+     */
+    public double FeedForward = 0.0;
+
+    /**
+     * PID slot to use.
+     */
+    public int Slot = 0;
+
     public BeakVelocityAngular() {
     }
 
     public void apply(BeakMotorController controller) {
-        controller.setNextOutputType(Output);
-        controller.useFOC(UseFOC);
-        controller.setAngularVelocity(Velocity);
+        controller.setAngularVelocity(Velocity, Output, UseFOC, FeedForward, Slot);
     }
 
     /**
@@ -71,4 +79,25 @@ public class BeakVelocityAngular extends BeakControlRequest {
         return this;
     }
 
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param feedForward The arbitrary feedforward to add, in volts.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakVelocityAngular withFeedForward(double feedForward) {
+        this.FeedForward = feedForward;
+        return this;
+    }
+
+    /**
+     * Method-chaining API for this request.
+     * 
+     * @param slot The PID slot to use.
+     * @return Itself, with this parameter changed.
+     */
+    public BeakVelocityAngular withSlot(int slot) {
+        this.Slot = slot;
+        return this;
+    }
 }
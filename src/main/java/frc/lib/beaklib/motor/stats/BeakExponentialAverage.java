@@ -0,0 +1,47 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor.stats;
+
+/**
+ * Exponentially weighted moving average. The weight is based on the time
+ * between samples, so irregularly timed samples are smoothed consistently.
+ */
+public class BeakExponentialAverage extends BeakStreamOperator {
+    private final double m_timeConstant;
+
+    private double m_average = 0.;
+    private double m_lastTimestamp = Double.NaN;
+
+    /**
+     * Create a new exponential average.
+     *
+     * @param timeConstantSeconds Time for the average to cover ~63% of a step.
+     */
+    public BeakExponentialAverage(double timeConstantSeconds) {
+        m_timeConstant = timeConstantSeconds;
+    }
+
+    @Override
+    protected double process(double value, double timestamp) {
+        if (Double.isNaN(m_lastTimestamp)) {
+            m_average = value;
+        } else {
+            double dt = Math.max(timestamp - m_lastTimestamp, 0.);
+            double alpha = 1. - Math.exp(-dt / m_timeConstant);
+
+            m_average += alpha * (value - m_average);
+        }
+
+        m_lastTimestamp = timestamp;
+
+        return m_average;
+    }
+
+    @Override
+    protected void clear() {
+        m_average = 0.;
+        m_lastTimestamp = Double.NaN;
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor.stats;
+
+/** Rate of change between consecutive samples, per second. */
+public class BeakRateOfChange extends BeakStreamOperator {
+    private double m_lastValue = 0.;
+    private double m_lastTimestamp = Double.NaN;
+    private double m_rate = 0.;
+
+    @Override
+    protected double process(double value, double timestamp) {
+        double dt = timestamp - m_lastTimestamp;
+
+        // Hold the last rate on the first sample, or a repeated timestamp.
+        if (dt > 0.) {
+            m_rate = (value - m_lastValue) / dt;
+        }
+
+        m_lastValue = value;
+        m_lastTimestamp = timestamp;
+
+        return m_rate;
+    }
+
+    @Override
+    protected void clear() {
+        m_lastValue = 0.;
+        m_lastTimestamp = Double.NaN;
+        m_rate = 0.;
+    }
+}
@@ -0,0 +1,83 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor.stats;
+
+/**
+ * Minimum or maximum of the last N samples. Keeps a monotonic queue of the
+ * samples that could still become the extremum, so each update is amortized
+ * O(1).
+ */
+public class BeakRollingExtremum extends BeakStreamOperator {
+    private final int m_window;
+    private final boolean m_max;
+
+    // Circular deque of candidate samples, oldest at the head.
+    private final double[] m_values;
+    private final long[] m_indices;
+    private int m_head = 0;
+    private int m_size = 0;
+    private long m_count = 0;
+
+    private BeakRollingExtremum(int window, boolean max) {
+        m_window = window;
+        m_max = max;
+
+        m_values = new double[window + 1];
+        m_indices = new long[window + 1];
+    }
+
+    /**
+     * Create a rolling minimum.
+     *
+     * @param window Number of samples to use.
+     * @return A new rolling minimum.
+     */
+    public static BeakRollingExtremum min(int window) {
+        return new BeakRollingExtremum(window, false);
+    }
+
+    /**
+     * Create a rolling maximum.
+     *
+     * @param window Number of samples to use.
+     * @return A new rolling maximum.
+     */
+    public static BeakRollingExtremum max(int window) {
+        return new BeakRollingExtremum(window, true);
+    }
+
+    @Override
+    protected double process(double value, double timestamp) {
+        // Anything the new sample beats can never be the extremum again.
+        while (m_size > 0) {
+            double back = m_values[(m_head + m_size - 1) % m_values.length];
+            if (m_max ? back > value : back < value) {
+                break;
+            }
+            m_size--;
+        }
+
+        int tail = (m_head + m_size) % m_values.length;
+        m_values[tail] = value;
+        m_indices[tail] = m_count;
+        m_size++;
+
+        if (m_indices[m_head] <= m_count - m_window) {
+            m_head = (m_head + 1) % m_values.length;
+            m_size--;
+        }
+
+        m_count++;
+
+        return m_values[m_head];
+    }
+
+    @Override
+    protected void clear() {
+        m_head = 0;
+        m_size = 0;
+        m_count = 0;
+    }
+}
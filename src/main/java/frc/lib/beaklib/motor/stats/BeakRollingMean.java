@@ -0,0 +1,44 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor.stats;
+
+/** Mean of the last N samples. */
+public class BeakRollingMean extends BeakStreamOperator {
+    private final double[] m_samples;
+    private int m_index = 0;
+    private int m_count = 0;
+    private double m_sum = 0.;
+
+    /**
+     * Create a new rolling mean.
+     *
+     * @param window Number of samples to average.
+     */
+    public BeakRollingMean(int window) {
+        m_samples = new double[window];
+    }
+
+    @Override
+    protected double process(double value, double timestamp) {
+        if (m_count == m_samples.length) {
+            m_sum -= m_samples[m_index];
+        } else {
+            m_count++;
+        }
+
+        m_samples[m_index] = value;
+        m_sum += value;
+        m_index = (m_index + 1) % m_samples.length;
+
+        return m_sum / m_count;
+    }
+
+    @Override
+    protected void clear() {
+        m_index = 0;
+        m_count = 0;
+        m_sum = 0.;
+    }
+}
@@ -0,0 +1,74 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor.stats;
+
+/**
+ * Variance of the last N samples. Uses a windowed form of Welford's algorithm,
+ * which stays accurate even when the variance is tiny compared to the mean.
+ */
+public class BeakRollingVariance extends BeakStreamOperator {
+    private final double[] m_samples;
+    private int m_index = 0;
+    private int m_count = 0;
+    private double m_mean = 0.;
+    private double m_m2 = 0.;
+
+    /**
+     * Create a new rolling variance.
+     *
+     * @param window Number of samples to use.
+     */
+    public BeakRollingVariance(int window) {
+        m_samples = new double[window];
+    }
+
+    @Override
+    protected double process(double value, double timestamp) {
+        if (m_count < m_samples.length) {
+            m_count++;
+
+            double delta = value - m_mean;
+            m_mean += delta / m_count;
+            m_m2 += delta * (value - m_mean);
+        } else {
+            double old = m_samples[m_index];
+            double oldMean = m_mean;
+
+            m_mean += (value - old) / m_count;
+            m_m2 += (value - old) * (value - m_mean + old - oldMean);
+        }
+
+        m_samples[m_index] = value;
+        m_index = (m_index + 1) % m_samples.length;
+
+        return m_count > 1 ? Math.max(m_m2 / (m_count - 1), 0.) : 0.;
+    }
+
+    @Override
+    protected void clear() {
+        m_index = 0;
+        m_count = 0;
+        m_mean = 0.;
+        m_m2 = 0.;
+    }
+
+    /**
+     * Get the mean of the window.
+     *
+     * @return The mean.
+     */
+    public synchronized double getMean() {
+        return m_mean;
+    }
+
+    /**
+     * Get the standard deviation of the window.
+     *
+     * @return The sample standard deviation.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(get());
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import frc.lib.beaklib.CTRESignalStore;
+import frc.lib.beaklib.motor.DataSignal;
+
+/**
+ * <p>
+ * Feeds every new sample of a signal to a set of {@link BeakStreamOperator}s.
+ * </p>
+ *
+ * Operators are updated on every signal store refresh (including high-rate
+ * loops), but only when the signal has a new sample (see
+ * {@link DataSignal#getSampleId()}), so no sample is counted twice. Reading a statistic is O(1) and doesn't allocate.
+ */
+public class BeakSignalStatistics implements AutoCloseable {
+    private final DataSignal<Double> m_signal;
+    private final List<BeakStreamOperator> m_operators = new ArrayList<>();
+    private final Runnable m_listener = this::update;
+
+    private boolean m_hasSample = false;
+    private long m_lastSampleId = 0;
+
+    /**
+     * Start collecting statistics on a signal.
+     *
+     * @param signal The signal to watch. Use {@link DataSignal#map} to convert
+     *               signals of other types.
+     */
+    public BeakSignalStatistics(DataSignal<Double> signal) {
+        m_signal = signal;
+
+        CTRESignalStore.addRefreshListener(m_listener);
+    }
+
+    /**
+     * Feed this signal's samples to an operator.
+     *
+     * @param operator The operator, which may have others chained after it.
+     * @return The operator, so it can be kept for reading.
+     */
+    public synchronized <O extends BeakStreamOperator> O add(O operator) {
+        m_operators.add(operator);
+        return operator;
+    }
+
+    /**
+     * Feed the latest sample to every operator, if it's new. This is normally
+     * called on every signal refresh; call it manually for signals that aren't
+     * refreshed by the signal store.
+     */
+    public synchronized void update() {
+        long sampleId = m_signal.getSampleId();
+        if (m_hasSample && sampleId == m_lastSampleId) {
+            return;
+        }
+        m_hasSample = true;
+        m_lastSampleId = sampleId;
+
+        double timestamp = m_signal.getTimestamp();
+        double value = m_signal.getValue();
+        for (int i = 0; i < m_operators.size(); i++) {
+            m_operators.get(i).accept(value, timestamp);
+        }
+    }
+
+    /**
+     * Clear every operator.
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < m_operators.size(); i++) {
+            m_operators.get(i).reset();
+        }
+    }
+
+    /**
+     * Stop updating on signal refreshes.
+     */
+    @Override
+    public void close() {
+        CTRESignalStore.removeRefreshListener(m_listener);
+    }
+}
@@ -0,0 +1,81 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.motor.stats;
+
+/**
+ * <p>
+ * A statistic computed over a stream of samples, one sample at a time, in
+ * fixed memory.
+ * </p>
+ *
+ * Operators can be chained with {@link #then(BeakStreamOperator)}, so that
+ * each one's output is the next one's input; e.g. the rate of change of an
+ * exponential average. Attach the first operator to a signal with
+ * {@link BeakSignalStatistics}.
+ */
+public abstract class BeakStreamOperator {
+    private BeakStreamOperator m_next = null;
+    private volatile double m_output = 0.;
+
+    /**
+     * Update the statistic with a new sample.
+     *
+     * @param value     The sample.
+     * @param timestamp Timestamp of the sample, in seconds.
+     * @return The new value of the statistic.
+     */
+    protected abstract double process(double value, double timestamp);
+
+    /**
+     * Clear any accumulated state.
+     */
+    protected abstract void clear();
+
+    /**
+     * Feed a sample to this operator, and its output to the next one.
+     *
+     * @param value     The sample.
+     * @param timestamp Timestamp of the sample, in seconds.
+     */
+    public synchronized void accept(double value, double timestamp) {
+        m_output = process(value, timestamp);
+
+        if (m_next != null) {
+            m_next.accept(m_output, timestamp);
+        }
+    }
+
+    /**
+     * Feed this operator's output to another operator.
+     *
+     * @param next The operator to chain.
+     * @return The chained operator, so chains can be built inline.
+     */
+    public synchronized <O extends BeakStreamOperator> O then(O next) {
+        m_next = next;
+        return next;
+    }
+
+    /**
+     * Get the current value of the statistic.
+     *
+     * @return The statistic as of the last sample.
+     */
+    public double get() {
+        return m_output;
+    }
+
+    /**
+     * Clear this operator and everything chained after it.
+     */
+    public synchronized void reset() {
+        clear();
+        m_output = 0.;
+
+        if (m_next != null) {
+            m_next.reset();
+        }
+    }
+}
@@ -64,8 +64,10 @@ public class Robot extends TimedRobot {
         // finished or interrupted commands, and running subsystem periodic() methods.
         // This must be called from the robot's periodic block in order for anything in
         // the Command-based framework to work.
+        // Refresh signals first, so that commands and signal triggers see this
+        // loop's data.
+        CTRESignalStore.update();
         CommandScheduler.getInstance().run();
-        // CTRESignalStore.update();
         // m_motor.setAngle(Rotation2d.fromDegrees(90.0));
         // m_motor.setVelocity(MetersPerSecond.of(1.0));
         // m_motor.setVelocityNU(3000);
@@ -4,16 +4,17 @@
 
 package frc.robot;
 
-import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.wpilibj.GenericHID;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
-import edu.wpi.first.wpilibj2.command.RunCommand;
 import frc.lib.beaklib.BeakXBoxController;
 import frc.lib.beaklib.Util;
 import frc.lib.beaklib.drive.swerve.BeakSwerveDrivetrain;
+import frc.lib.beaklib.drive.swerve.BeakSwerveModule.DriveRequestType;
+import frc.lib.beaklib.drive.swerve.DrivetrainConfiguration;
+import frc.lib.beaklib.drive.swerve.requests.BeakFieldCentricRequest;
 import frc.lib.beaklib.drive.swerve.requests.BeakSwerveRequest;
 import frc.lib.beaklib.drive.swerve.requests.BeakXDrive;
 import frc.robot.subsystems.Drivetrain;
@@ -37,9 +38,11 @@ public class RobotContainer {
     private final BeakXBoxController m_driverController = new BeakXBoxController(0);
 
     // Limiters, etc.
-    private final SlewRateLimiter m_xLimiter = new SlewRateLimiter(4.0);
-    private final SlewRateLimiter m_yLimiter = new SlewRateLimiter(4.0);
-    private final SlewRateLimiter m_rotLimiter = new SlewRateLimiter(4.0);
+    // Fraction of max speed per second the driver's inputs can change by.
+    private static final double DRIVER_SLEW_RATE = 4.0;
+
+    private final BeakFieldCentricRequest m_fieldCentricDrive = new BeakFieldCentricRequest()
+            .withDriveRequestType(DriveRequestType.Velocity);
 
     private final BeakSwerveRequest xDrive = new BeakXDrive();
 
@@ -50,6 +53,11 @@ public class RobotContainer {
         // m_drive = new SwerveDrivetrain();
         m_drive = new Octavian();
 
+        DrivetrainConfiguration config = m_drive.getConfiguration();
+        m_fieldCentricDrive
+                .withTranslationSlewRate(DRIVER_SLEW_RATE * config.MaxSpeed)
+                .withRotationSlewRate(DRIVER_SLEW_RATE * config.MaxAngularVelocity);
+
         // Configure the button bindings
         configureButtonBindings();
         initAutonChooser();
@@ -65,13 +73,12 @@ public class RobotContainer {
         // ==================
         // DEFAULT COMMANDS
         // ==================
+        DrivetrainConfiguration config = m_drive.getConfiguration();
         m_drive.setDefaultCommand(
-                new RunCommand(() -> m_drive.drive(
-                        -speedScaledDriverLeftY(),
-                        -speedScaledDriverLeftX(),
-                        -speedScaledDriverRightX(),
-                        true),
-                        m_drive));
+                m_drive.applyRequest(() -> m_fieldCentricDrive
+                        .withVelocityX(-speedScaledDriverLeftY() * config.MaxSpeed)
+                        .withVelocityY(-speedScaledDriverLeftX() * config.MaxSpeed)
+                        .withRotationalRate(-speedScaledDriverRightX() * config.MaxAngularVelocity)));
 
         // ================================================
         // DRIVER CONTROLLER - START
@@ -85,21 +92,21 @@ public class RobotContainer {
     }
 
     public double speedScaledDriverLeftY() {
-        return m_yLimiter.calculate(-Util.speedScale(m_driverController.getLeftYAxis(),
+        return -Util.speedScale(m_driverController.getLeftYAxis(),
                 getCurrentSpeedScale(),
-                m_driverController.getRightTrigger()));
+                m_driverController.getRightTrigger());
     }
 
     public double speedScaledDriverRightX() {
-        return m_rotLimiter.calculate(-Util.speedScale(m_driverController.getRightXAxis(),
+        return -Util.speedScale(m_driverController.getRightXAxis(),
                 getCurrentSpeedScale(),
-                m_driverController.getRightTrigger()));
+                m_driverController.getRightTrigger());
     }
 
     public double speedScaledDriverLeftX() {
-        return m_xLimiter.calculate(-Util.speedScale(m_driverController.getLeftXAxis(),
+        return -Util.speedScale(m_driverController.getLeftXAxis(),
                 getCurrentSpeedScale(),
-                m_driverController.getRightTrigger()));
+                m_driverController.getRightTrigger());
     }
 
     private double getCurrentSpeedScale() {
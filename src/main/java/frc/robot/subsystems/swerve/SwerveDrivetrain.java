@@ -4,7 +4,9 @@
 
 package frc.robot.subsystems.swerve;
 
+import frc.lib.beaklib.drive.swerve.BeakPoseEstimator;
 import frc.lib.beaklib.drive.swerve.BeakSwerveDrivetrain;
+import frc.lib.beaklib.drive.swerve.BeakSwerveModule;
 import frc.lib.beaklib.drive.swerve.DrivetrainConfiguration;
 import frc.lib.beaklib.drive.swerve.SwerveModuleConfiguration;
 import frc.lib.beaklib.gyro.BeakV6Pigeon2;
@@ -12,7 +14,6 @@ import frc.lib.beaklib.pid.BeakPIDConstants;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.Vector;
 
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
@@ -72,9 +73,17 @@ public class SwerveDrivetrain extends BeakSwerveDrivetrain {
     // Ratios
     private static final double DRIVE_RATIO = 1 / ((14.0 / 50.0) * (27.0 / 17.0) * (15.0 / 45.0));
     private static final double STEER_RATIO = (150.0 / 7.0);
+    // The steer gear drives the first stage of the drive gearing.
+    private static final double COUPLING_RATIO = 50.0 / 14.0;
 
     private Field2d m_field = new Field2d();
 
+    private static final String[] MODULE_NAMES = { "FL", "FR", "BL", "BR" };
+
+    // Scratch for periodic, which only reads what the control cycle stored.
+    private final double[] m_pose = new double[4];
+    private final double[] m_moduleSnapshot = new double[BeakSwerveModule.SNAPSHOT_SIZE];
+
     // MODULES
     private static final int FL_DRIVE_ID = 2;
     private static final int FL_STEER_ID = 1;
@@ -118,28 +127,32 @@ public class SwerveDrivetrain extends BeakSwerveDrivetrain {
         FL_LOCATION,
         LEFT_SIDE_INVERTED,
         STEER_INVERTED,
-        DRIVE_CONFIG);
+        DRIVE_CONFIG,
+        COUPLING_RATIO);
 
     private static SwerveModuleConfiguration m_frontRightConfig = new SwerveModuleConfiguration(
         FR_OFFSET,
         FR_LOCATION,
         RIGHT_SIDE_INVERTED,
         STEER_INVERTED,
-        DRIVE_CONFIG);
+        DRIVE_CONFIG,
+        COUPLING_RATIO);
 
     private static SwerveModuleConfiguration m_backLeftConfig = new SwerveModuleConfiguration(
         BL_OFFSET,
         BL_LOCATION,
         LEFT_SIDE_INVERTED,
         STEER_INVERTED,
-        DRIVE_CONFIG);
+        DRIVE_CONFIG,
+        COUPLING_RATIO);
 
     private static SwerveModuleConfiguration m_backRightConfig = new SwerveModuleConfiguration(
         BR_OFFSET,
         BR_LOCATION,
         RIGHT_SIDE_INVERTED,
         STEER_INVERTED,
-        DRIVE_CONFIG);
+        DRIVE_CONFIG,
+        COUPLING_RATIO);
 
     public SwerveDrivetrain() {
         super(
@@ -169,8 +182,8 @@ public class SwerveDrivetrain extends BeakSwerveDrivetrain {
                 m_backRightConfig) //
             );
 
-        m_odom = new SwerveDrivePoseEstimator(
-            m_kinematics,
+        m_odom = new BeakPoseEstimator(
+            getModuleLocations(),
             getGyroRotation2d(),
             getModulePositions(),
             new Pose2d(),
@@ -187,14 +200,18 @@ public class SwerveDrivetrain extends BeakSwerveDrivetrain {
 
         SmartDashboard.putNumber("Pitch", getGyroPitchRotation2d().getDegrees());
 
-        SmartDashboard.putNumber("FL angle", Math.toDegrees(m_modules.get(0).getAbsoluteEncoderRadians()));
-        SmartDashboard.putNumber("FR angle", Math.toDegrees(m_modules.get(1).getAbsoluteEncoderRadians()));
-        SmartDashboard.putNumber("BL angle", Math.toDegrees(m_modules.get(2).getAbsoluteEncoderRadians()));
-        SmartDashboard.putNumber("BR angle", Math.toDegrees(m_modules.get(3).getAbsoluteEncoderRadians()));
-
-        SmartDashboard.putNumber("X (meters)", m_odom.getEstimatedPosition().getX());
-        SmartDashboard.putNumber("Y (meters)", m_odom.getEstimatedPosition().getY());
-        SmartDashboard.putNumber("Heading (deg)", getHeading());
+        // The control cycle may run on its own thread, so publish what it last
+        // stored rather than reading the sensors or the estimator directly.
+        for (int i = 0; i < MODULE_NAMES.length; i++) {
+            readModuleSnapshot(i, m_moduleSnapshot);
+            SmartDashboard.putNumber(MODULE_NAMES[i] + " angle",
+                    Math.toDegrees(m_moduleSnapshot[BeakSwerveModule.SNAPSHOT_ABSOLUTE_ANGLE]));
+        }
+
+        readPose(m_pose);
+        SmartDashboard.putNumber("X (meters)", m_pose[0]);
+        SmartDashboard.putNumber("Y (meters)", m_pose[1]);
+        SmartDashboard.putNumber("Heading (deg)", Math.toDegrees(m_pose[2]));
 
         SmartDashboard.putNumber("Velocity", super.getForwardVelocity());
     }
@@ -0,0 +1,140 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class BeakSeqLockTest {
+    private static final int SIZE = 16;
+    private static final int WRITES = 200_000;
+    private static final int READERS = 4;
+
+    @Test
+    void readReturnsLastWrite() {
+        BeakSeqLock lock = new BeakSeqLock(4);
+        double[] out = new double[4];
+
+        lock.write(new double[] { 1., 2., 3., 4. });
+        lock.read(out);
+
+        assertArrayEquals(new double[] { 1., 2., 3., 4. }, out);
+        assertEquals(1, lock.getWriteCount());
+    }
+
+    @Test
+    @Timeout(30)
+    void readersNeverSeeTornWrites() throws InterruptedException {
+        BeakSeqLock lock = new BeakSeqLock(SIZE);
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        // Every write fills the block with one value, so any mix of two writes
+        // shows up as a block that isn't uniform.
+        Thread writer = new Thread(() -> {
+            double[] values = new double[SIZE];
+            for (int i = 1; i <= WRITES; i++) {
+                Arrays.fill(values, i);
+                lock.write(values);
+            }
+
+            done.set(true);
+        });
+
+        Thread[] readers = new Thread[READERS];
+        for (int r = 0; r < READERS; r++) {
+            readers[r] = new Thread(() -> {
+                double[] out = new double[SIZE];
+                double last = 0.;
+
+                while (!done.get() && failure.get() == null) {
+                    lock.read(out);
+
+                    for (int i = 1; i < SIZE; i++) {
+                        if (out[i] != out[0]) {
+                            failure.compareAndSet(null, "Torn read: " + out[0] + " and " + out[i]);
+                            return;
+                        }
+                    }
+
+                    if (out[0] < last) {
+                        failure.compareAndSet(null, "Read went backwards: " + last + " then " + out[0]);
+                        return;
+                    }
+                    last = out[0];
+                }
+            });
+        }
+
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.start();
+
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(WRITES, lock.getWriteCount());
+    }
+
+    @Test
+    @Timeout(30)
+    void concurrentWritersAreSerialized() throws InterruptedException {
+        BeakSeqLock lock = new BeakSeqLock(SIZE);
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread[] writers = new Thread[2];
+        for (int w = 0; w < writers.length; w++) {
+            // Writers use different signs, so a mix of the two is easy to spot.
+            double sign = w == 0 ? 1. : -1.;
+            writers[w] = new Thread(() -> {
+                double[] values = new double[SIZE];
+                for (int i = 1; i <= WRITES / 2; i++) {
+                    Arrays.fill(values, sign * i);
+                    lock.write(values);
+                }
+            });
+        }
+
+        Thread reader = new Thread(() -> {
+            double[] out = new double[SIZE];
+            while (!done.get()) {
+                lock.read(out);
+
+                for (int i = 1; i < SIZE; i++) {
+                    if (out[i] != out[0]) {
+                        failure.compareAndSet(null, "Torn read: " + out[0] + " and " + out[i]);
+                        return;
+                    }
+                }
+            }
+        });
+
+        reader.start();
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(WRITES, lock.getWriteCount());
+    }
+}
@@ -0,0 +1,320 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * Checks {@link BeakPoseEstimator} against WPILib's
+ * {@link SwerveDrivePoseEstimator}, fed the same odometry and vision.
+ */
+class BeakPoseEstimatorTest {
+    private static final double DT = 0.02;
+    private static final int STEPS = 250;
+    private static final double TOLERANCE = 1e-6;
+    // WPILib may interpolate module positions rather than poses between
+    // samples, which lands slightly off the arc between them.
+    private static final double INTERPOLATION_TOLERANCE = 5e-3;
+
+    private static final int BENCHMARK_WARMUP = 20_000;
+    private static final int BENCHMARK_UPDATES = 50_000;
+    // Every this many updates, a vision measurement from a few loops ago.
+    private static final int BENCHMARK_VISION_INTERVAL = 4;
+
+    private static final Translation2d[] MODULE_LOCATIONS = {
+            new Translation2d(0.3, 0.3),
+            new Translation2d(0.3, -0.3),
+            new Translation2d(-0.3, 0.3),
+            new Translation2d(-0.3, -0.3)
+    };
+
+    private static final Matrix<N3, N1> STATE_STD_DEVS = VecBuilder.fill(0.1, 0.1, 0.05);
+    private static final Matrix<N3, N1> VISION_STD_DEVS = VecBuilder.fill(0.5, 0.5, 0.3);
+
+    /** Both estimators, driven along the same path. */
+    private static class Harness {
+        final SwerveDriveKinematics kinematics = new SwerveDriveKinematics(MODULE_LOCATIONS);
+        final BeakPoseEstimator beak;
+        final SwerveDrivePoseEstimator wpilib;
+
+        final double[] distances = new double[MODULE_LOCATIONS.length];
+        final Rotation2d[] angles = new Rotation2d[MODULE_LOCATIONS.length];
+        double gyro = 0.3;
+        int step = 0;
+
+        Harness() {
+            for (int i = 0; i < angles.length; i++) {
+                angles[i] = new Rotation2d();
+            }
+
+            Pose2d start = new Pose2d(1., 2., Rotation2d.fromRadians(0.5));
+            beak = new BeakPoseEstimator(MODULE_LOCATIONS, Rotation2d.fromRadians(gyro), positions(), start,
+                    STATE_STD_DEVS, VISION_STD_DEVS);
+            wpilib = new SwerveDrivePoseEstimator(kinematics, Rotation2d.fromRadians(gyro), positions(), start,
+                    STATE_STD_DEVS, VISION_STD_DEVS);
+        }
+
+        SwerveModulePosition[] positions() {
+            SwerveModulePosition[] positions = new SwerveModulePosition[distances.length];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = new SwerveModulePosition(distances[i], angles[i]);
+            }
+
+            return positions;
+        }
+
+        double time() {
+            return timeAt(step);
+        }
+
+        /** Time of a past step, exactly as it was passed to the estimators. */
+        double timeAt(int pastStep) {
+            return pastStep * DT;
+        }
+
+        /** Drive a winding path, turning the whole time, and update both. */
+        void step() {
+            step++;
+            double t = time();
+
+            ChassisSpeeds speeds = new ChassisSpeeds(
+                    2. * Math.cos(0.7 * t),
+                    1.5 * Math.sin(0.4 * t),
+                    1.2 * Math.sin(0.9 * t) + 0.3);
+
+            SwerveModuleState[] states = kinematics.toSwerveModuleStates(speeds);
+            for (int i = 0; i < states.length; i++) {
+                distances[i] += states[i].speedMetersPerSecond * DT;
+                angles[i] = states[i].angle;
+            }
+            gyro += speeds.omegaRadiansPerSecond * DT;
+
+            beak.updateWithTime(t, Rotation2d.fromRadians(gyro), positions());
+            wpilib.updateWithTime(t, Rotation2d.fromRadians(gyro), positions());
+        }
+
+        void addVision(Pose2d pose, double timestamp) {
+            beak.addVisionMeasurement(pose, timestamp);
+            wpilib.addVisionMeasurement(pose, timestamp);
+        }
+
+        void addVision(Pose2d pose, double timestamp, Matrix<N3, N1> stdDevs) {
+            beak.addVisionMeasurement(pose, timestamp, stdDevs);
+            wpilib.addVisionMeasurement(pose, timestamp, stdDevs);
+        }
+
+        void assertMatches() {
+            assertMatches(TOLERANCE);
+        }
+
+        void assertMatches(double tolerance) {
+            Pose2d expected = wpilib.getEstimatedPosition();
+            Pose2d actual = beak.getEstimatedPosition();
+            String message = "Step " + step;
+
+            assertEquals(expected.getX(), actual.getX(), tolerance, message);
+            assertEquals(expected.getY(), actual.getY(), tolerance, message);
+            assertEquals(0., expected.getRotation().minus(actual.getRotation()).getRadians(), tolerance, message);
+        }
+    }
+
+    /** A vision pose that disagrees with the estimate by a varying amount. */
+    private static Pose2d offsetPose(Pose2d pose, int seed) {
+        return new Pose2d(
+                pose.getX() + 0.4 * Math.sin(seed * 1.3),
+                pose.getY() - 0.3 * Math.cos(seed * 0.7),
+                pose.getRotation().plus(Rotation2d.fromRadians(0.1 * Math.sin(seed * 2.1))));
+    }
+
+    @Test
+    void odometryMatches() {
+        Harness harness = new Harness();
+
+        for (int i = 0; i < STEPS; i++) {
+            harness.step();
+            harness.assertMatches();
+        }
+    }
+
+    @Test
+    void latencyCompensatedVisionMatches() {
+        Harness harness = new Harness();
+
+        for (int i = 0; i < STEPS; i++) {
+            harness.step();
+
+            // Every fifth loop, a measurement from three loops ago, alternating
+            // between the default and custom standard deviations.
+            if (i % 5 == 4) {
+                Pose2d vision = offsetPose(harness.wpilib.getEstimatedPosition(), i);
+                double timestamp = harness.timeAt(harness.step - 3);
+
+                if (i % 10 == 4) {
+                    harness.addVision(vision, timestamp);
+                } else {
+                    harness.addVision(vision, timestamp, VecBuilder.fill(0.2, 0.3, 0.1));
+                }
+            }
+
+            harness.assertMatches();
+        }
+    }
+
+    @Test
+    void outOfOrderVisionMatches() {
+        Harness harness = new Harness();
+
+        for (int i = 0; i < STEPS; i++) {
+            harness.step();
+
+            // A fresh measurement, then one older than it, which supersedes it.
+            if (i % 8 == 7) {
+                Pose2d vision = offsetPose(harness.wpilib.getEstimatedPosition(), i);
+                harness.addVision(vision, harness.timeAt(harness.step - 1));
+                harness.assertMatches();
+
+                harness.addVision(offsetPose(vision, i + 1), harness.timeAt(harness.step - 4));
+            }
+
+            harness.assertMatches();
+        }
+    }
+
+    @Test
+    void visionBetweenSamplesMatches() {
+        Harness harness = new Harness();
+
+        for (int i = 0; i < STEPS; i++) {
+            harness.step();
+
+            // Camera timestamps don't line up with odometry, so the estimators
+            // have to interpolate their history.
+            if (i % 6 == 5) {
+                Pose2d vision = offsetPose(harness.wpilib.getEstimatedPosition(), i);
+                harness.addVision(vision, harness.timeAt(harness.step - 3) + 0.63 * DT);
+            }
+
+            harness.assertMatches(INTERPOLATION_TOLERANCE);
+        }
+    }
+
+    /**
+     * Time and count the bytes allocated by both estimators over the same
+     * updates, with frequent latency-compensated vision. The numbers are
+     * printed; only the allocation-free claim is asserted, since timing varies
+     * too much between machines to make a stable test.
+     */
+    @Test
+    void benchmarkAgainstWPILib() {
+        SwerveDriveKinematics kinematics = new SwerveDriveKinematics(MODULE_LOCATIONS);
+        int numModules = MODULE_LOCATIONS.length;
+
+        // Precompute the whole path, so the loops only measure the estimators.
+        int total = BENCHMARK_WARMUP + BENCHMARK_UPDATES;
+        double[][] distances = new double[total][numModules];
+        double[][] angles = new double[total][numModules];
+        SwerveModulePosition[][] positions = new SwerveModulePosition[total][numModules];
+        double[] gyros = new double[total];
+        Rotation2d[] gyroRotations = new Rotation2d[total];
+        Pose2d[] visionPoses = new Pose2d[total];
+
+        double[] distance = new double[numModules];
+        double gyro = 0.;
+        for (int step = 0; step < total; step++) {
+            double t = step * DT;
+            SwerveModuleState[] states = kinematics.toSwerveModuleStates(new ChassisSpeeds(
+                    2. * Math.cos(0.7 * t), 1.5 * Math.sin(0.4 * t), 1.2 * Math.sin(0.9 * t) + 0.3));
+
+            for (int i = 0; i < numModules; i++) {
+                distance[i] += states[i].speedMetersPerSecond * DT;
+                distances[step][i] = distance[i];
+                angles[step][i] = states[i].angle.getRadians();
+                positions[step][i] = new SwerveModulePosition(distance[i], states[i].angle);
+            }
+            gyro += (1.2 * Math.sin(0.9 * t) + 0.3) * DT;
+            gyros[step] = gyro;
+            gyroRotations[step] = Rotation2d.fromRadians(gyro);
+            visionPoses[step] = new Pose2d(Math.sin(t), Math.cos(t), Rotation2d.fromRadians(gyro));
+        }
+
+        BeakPoseEstimator beak = new BeakPoseEstimator(MODULE_LOCATIONS, gyroRotations[0], positions[0],
+                new Pose2d(), STATE_STD_DEVS, VISION_STD_DEVS);
+        SwerveDrivePoseEstimator wpilib = new SwerveDrivePoseEstimator(kinematics, gyroRotations[0],
+                positions[0], new Pose2d(), STATE_STD_DEVS, VISION_STD_DEVS);
+
+        runBeak(beak, distances, angles, gyros, visionPoses, 1, BENCHMARK_WARMUP);
+        runWPILib(wpilib, positions, gyroRotations, visionPoses, 1, BENCHMARK_WARMUP);
+
+        long beakBytes = allocatedBytes();
+        long beakNanos = System.nanoTime();
+        runBeak(beak, distances, angles, gyros, visionPoses, BENCHMARK_WARMUP, total);
+        beakNanos = System.nanoTime() - beakNanos;
+        beakBytes = allocatedBytes() - beakBytes;
+
+        long wpilibBytes = allocatedBytes();
+        long wpilibNanos = System.nanoTime();
+        runWPILib(wpilib, positions, gyroRotations, visionPoses, BENCHMARK_WARMUP, total);
+        wpilibNanos = System.nanoTime() - wpilibNanos;
+        wpilibBytes = allocatedBytes() - wpilibBytes;
+
+        System.out.printf("BeakPoseEstimator:        %8.1f ns/update, %8.1f bytes/update%n",
+                (double) beakNanos / BENCHMARK_UPDATES, (double) beakBytes / BENCHMARK_UPDATES);
+        System.out.printf("SwerveDrivePoseEstimator: %8.1f ns/update, %8.1f bytes/update%n",
+                (double) wpilibNanos / BENCHMARK_UPDATES, (double) wpilibBytes / BENCHMARK_UPDATES);
+
+        // Allow for a stray allocation by the measurement itself, but nothing
+        // that grows with the number of updates.
+        assertTrue(beakBytes < 1024, "BeakPoseEstimator allocated " + beakBytes + " bytes");
+        assertTrue(beakBytes < wpilibBytes);
+    }
+
+    private static void runBeak(BeakPoseEstimator estimator, double[][] distances, double[][] angles,
+            double[] gyros, Pose2d[] visionPoses, int from, int to) {
+        for (int step = from; step < to; step++) {
+            estimator.updateWithTime(step * DT, gyros[step], distances[step], angles[step]);
+
+            if (step % BENCHMARK_VISION_INTERVAL == 0) {
+                Pose2d vision = visionPoses[step];
+                estimator.addVisionMeasurement(vision.getX(), vision.getY(), vision.getRotation().getRadians(),
+                        (step - 3) * DT, Double.NaN, Double.NaN, Double.NaN);
+            }
+        }
+    }
+
+    private static void runWPILib(SwerveDrivePoseEstimator estimator, SwerveModulePosition[][] positions,
+            Rotation2d[] gyros, Pose2d[] visionPoses, int from, int to) {
+        for (int step = from; step < to; step++) {
+            estimator.updateWithTime(step * DT, gyros[step], positions[step]);
+
+            if (step % BENCHMARK_VISION_INTERVAL == 0) {
+                estimator.addVisionMeasurement(visionPoses[step], (step - 3) * DT);
+            }
+        }
+    }
+
+    /** Bytes allocated by this thread so far. */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,107 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Checks {@link BeakSlipDetector}'s collision detection on a robot spinning in
+ * place, with odometry faster than the gyro.
+ */
+class BeakSlipDetectorTest {
+    private static final double ODOMETRY_PERIOD = 0.004;
+    private static final double GYRO_PERIOD = 0.01;
+    private static final double SPIN_RATE = 1.;
+    private static final double RATE_NOISE = 0.2;
+
+    private static final Translation2d[] MODULE_LOCATIONS = {
+            new Translation2d(0.3, 0.3),
+            new Translation2d(0.3, -0.3),
+            new Translation2d(-0.3, 0.3),
+            new Translation2d(-0.3, -0.3)
+    };
+
+    private final BeakSlipDetector m_detector = new BeakSlipDetector(MODULE_LOCATIONS);
+    private final Random m_random = new Random(1);
+
+    private final double[] m_distances = new double[MODULE_LOCATIONS.length];
+    private final double[] m_angles = new double[MODULE_LOCATIONS.length];
+
+    private double m_gyro = 0.;
+    private double m_rateTimestamp = Double.NaN;
+    private double m_rate = 0.;
+
+    /**
+     * Run the detector over a span of time.
+     *
+     * @param start      First step.
+     * @param end        Step to stop before.
+     * @param rateChange The gyro rate on top of the spin, given the step.
+     * @return How many steps saw a collision.
+     */
+    private int run(int start, int end, IntToDoubleFunction rateChange) {
+        int colliding = 0;
+
+        for (int step = start; step < end; step++) {
+            double timestamp = step * ODOMETRY_PERIOD;
+
+            // The gyro only sends a new rate every so often; in between, the
+            // last sample is read again.
+            if (!(timestamp - m_rateTimestamp < GYRO_PERIOD - 1e-9)) {
+                m_rateTimestamp = timestamp;
+                m_rate = SPIN_RATE + rateChange.applyAsDouble(step) + RATE_NOISE * m_random.nextGaussian();
+            }
+            m_gyro += SPIN_RATE * ODOMETRY_PERIOD;
+
+            m_detector.update(timestamp, m_gyro, m_rateTimestamp, m_rate, 0., m_distances, m_angles);
+            if (m_detector.isColliding()) {
+                colliding++;
+            }
+        }
+
+        return colliding;
+    }
+
+    @Test
+    void ignoresGyroNoise() {
+        assertEquals(0, run(0, 5000, step -> 0.));
+        assertEquals(0, m_detector.getCollisionEvents());
+    }
+
+    @Test
+    void detectsSpinFromHit() {
+        run(0, 1000, step -> 0.);
+        assertFalse(m_detector.isColliding());
+
+        // Knocked into a 3 rad/s spin over 30ms.
+        int colliding = run(1000, 1100, step -> Math.min(3., (step - 1000) * ODOMETRY_PERIOD / 0.03 * 3.));
+
+        assertTrue(colliding > 0);
+        assertEquals(1, m_detector.getCollisionEvents());
+    }
+
+    @Test
+    void needsConsecutiveSamples() {
+        run(0, 1000, step -> 0.);
+
+        // A single sample far off, then back to normal.
+        run(1000, 1003, step -> 5.);
+        run(1003, 1100, step -> 0.);
+        assertEquals(0, m_detector.getCollisionEvents());
+
+        m_detector.setCollisionFilter(1., 1);
+        run(1100, 1103, step -> 5.);
+        assertEquals(1, m_detector.getCollisionEvents());
+    }
+}
@@ -0,0 +1,198 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.lib.beaklib.drive.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.lib.beaklib.drive.swerve.requests.BeakChassisSpeedsDrive;
+import frc.lib.beaklib.drive.swerve.requests.BeakFieldCentricRequest;
+import frc.lib.beaklib.drive.swerve.requests.BeakSwerveRequest;
+import frc.lib.beaklib.drive.swerve.requests.BeakSwerveRequest.SwerveControlRequestParameters;
+import frc.lib.beaklib.drive.swerve.requests.BeakXDrive;
+
+/**
+ * Runs the parts of the swerve control cycle that don't need hardware, many
+ * times over, and checks they don't allocate.
+ */
+class BeakSwerveAllocationTest {
+    private static final double DT = 0.004;
+    private static final int WARMUP_CYCLES = 20_000;
+    private static final int CYCLES = 50_000;
+    // Allows for a stray allocation by the measurement itself, but nothing
+    // that grows with the number of cycles.
+    private static final long ALLOWED_BYTES = 1024;
+
+    private static final Translation2d[] MODULE_LOCATIONS = {
+            new Translation2d(0.3, 0.3),
+            new Translation2d(0.3, -0.3),
+            new Translation2d(-0.3, 0.3),
+            new Translation2d(-0.3, -0.3)
+    };
+
+    /** The hardware-free part of a drivetrain: estimator, kinematics, modules. */
+    private static class Cycle {
+        final int numModules = MODULE_LOCATIONS.length;
+        final SwerveControlRequestParameters parameters = new SwerveControlRequestParameters();
+        final List<BeakSwerveModule> modules = new ArrayList<>();
+        final BeakPoseEstimator estimator;
+
+        final double[] distances = new double[numModules];
+        final double[] angles = new double[numModules];
+        final double[] speeds = new double[numModules];
+        final double[] chassisSpeeds = new double[3];
+        final double[] history = new double[3];
+        final double[] capture = new double[4];
+        double gyro = 0.;
+
+        Cycle() {
+            for (Translation2d location : MODULE_LOCATIONS) {
+                // Capturing, the modules record their targets instead of
+                // sending them to motors.
+                BeakSwerveModule module = new BeakSwerveModule(
+                        new SwerveModuleConfiguration(new Rotation2d(), location, false, false, null));
+                module.setCapturing(true);
+                modules.add(module);
+            }
+
+            SwerveModulePosition[] positions = new SwerveModulePosition[numModules];
+            for (int i = 0; i < numModules; i++) {
+                positions[i] = new SwerveModulePosition();
+            }
+            estimator = new BeakPoseEstimator(MODULE_LOCATIONS, new Rotation2d(), positions, new Pose2d());
+
+            parameters.swerveKinematics = new BeakSwerveKinematics(MODULE_LOCATIONS);
+            parameters.setpointGenerator = new BeakSwerveSetpointGenerator(numModules, 4., 10., 30.);
+            parameters.swervePositions = MODULE_LOCATIONS;
+            parameters.updatePeriod = DT;
+            parameters.maxSpeed = 4.;
+        }
+
+        /**
+         * Set the request, read the "sensors", update odometry, and run the
+         * request, as a robot and its drivetrain do.
+         */
+        void run(BeakSwerveRequest request, int step) {
+            request.capture();
+
+            double t = step * DT;
+
+            for (int i = 0; i < numModules; i++) {
+                speeds[i] = 1.5 + 0.5 * Math.sin(0.3 * t + i);
+                angles[i] = 0.4 * Math.sin(0.2 * t + i);
+                distances[i] += speeds[i] * DT;
+            }
+            gyro += 0.5 * DT;
+
+            estimator.updateWithTime(t, gyro, distances, angles);
+            estimator.getEstimatedPositionAt(t - 0.05, history);
+            if (step % 10 == 0) {
+                estimator.addVisionMeasurement(1., 2., gyro, t - 0.03, Double.NaN, Double.NaN, Double.NaN);
+            }
+
+            parameters.timestamp = t;
+            estimator.getEstimatedPosition(parameters.currentPose);
+            parameters.swerveKinematics.toChassisSpeeds(speeds, angles, chassisSpeeds);
+            parameters.currentChassisSpeed.vxMetersPerSecond = chassisSpeeds[0];
+            parameters.currentChassisSpeed.vyMetersPerSecond = chassisSpeeds[1];
+            parameters.currentChassisSpeed.omegaRadiansPerSecond = chassisSpeeds[2];
+
+            request.apply(parameters, modules);
+
+            for (int i = 0; i < numModules; i++) {
+                modules.get(i).takeCapture(capture);
+            }
+        }
+    }
+
+    private static void assertNoAllocation(BeakSwerveRequest request) {
+        Cycle cycle = new Cycle();
+
+        for (int step = 0; step < WARMUP_CYCLES; step++) {
+            cycle.run(request, step);
+        }
+
+        long before = allocatedBytes();
+        for (int step = WARMUP_CYCLES; step < WARMUP_CYCLES + CYCLES; step++) {
+            cycle.run(request, step);
+        }
+        long bytes = allocatedBytes() - before;
+
+        assertTrue(bytes < ALLOWED_BYTES, request.getClass().getSimpleName() + " cycle allocated " + bytes
+                + " bytes over " + CYCLES + " cycles");
+    }
+
+    @Test
+    void chassisSpeedsDriveDoesNotAllocate() {
+        BeakChassisSpeedsDrive request = new BeakChassisSpeedsDrive()
+                .withSpeeds(new ChassisSpeeds(1.5, -0.5, 0.8))
+                .withLimitSetpoints(true);
+        assertNoAllocation(request);
+    }
+
+    @Test
+    void fieldCentricRequestDoesNotAllocate() {
+        BeakFieldCentricRequest request = new BeakFieldCentricRequest()
+                .withVelocityX(2.)
+                .withVelocityY(1.)
+                .withRotationalRate(1.)
+                .withLimitSetpoints(true);
+        assertNoAllocation(request);
+    }
+
+    @Test
+    void xDriveDoesNotAllocate() {
+        BeakXDrive request = new BeakXDrive();
+        assertNoAllocation(request);
+    }
+
+    @Test
+    void forwardKinematicsMatchesWPILib() {
+        SwerveDriveKinematics kinematics = new SwerveDriveKinematics(MODULE_LOCATIONS);
+        BeakSwerveKinematics beak = new BeakSwerveKinematics(MODULE_LOCATIONS);
+
+        double[] speeds = new double[MODULE_LOCATIONS.length];
+        double[] angles = new double[MODULE_LOCATIONS.length];
+        double[] out = new double[3];
+
+        // Deliberately inconsistent states, so the least-squares fit matters.
+        SwerveModuleState[] states = {
+                new SwerveModuleState(1.2, Rotation2d.fromRadians(0.3)),
+                new SwerveModuleState(0.8, Rotation2d.fromRadians(-0.6)),
+                new SwerveModuleState(1.5, Rotation2d.fromRadians(1.1)),
+                new SwerveModuleState(-0.4, Rotation2d.fromRadians(2.5))
+        };
+        for (int i = 0; i < states.length; i++) {
+            speeds[i] = states[i].speedMetersPerSecond;
+            angles[i] = states[i].angle.getRadians();
+        }
+
+        ChassisSpeeds expected = kinematics.toChassisSpeeds(states);
+        beak.toChassisSpeeds(speeds, angles, out);
+
+        assertEquals(expected.vxMetersPerSecond, out[0], 1e-9);
+        assertEquals(expected.vyMetersPerSecond, out[1], 1e-9);
+        assertEquals(expected.omegaRadiansPerSecond, out[2], 1e-9);
+    }
+
+    /** Bytes allocated by this thread so far. */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+}